@@ -22,13 +22,13 @@ import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.core.AbstractTrainer;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.message.AkkaActorInputMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Scanner;
 
 
 /**
@@ -64,10 +64,10 @@ public class AkkaSystemExecutor {
      *
      * @param modelConfig      - configuration for model
      * @param columnConfigList - configurations for columns
-     * @param scanners         - scanners of training data
+     * @param readers          - readers of training data
      */
     public void submitStatsCalJob(final ModelConfig modelConfig, final List<ColumnConfig> columnConfigList,
-                                  List<Scanner> scanners) {
+                                  List<DataLineReader> readers) {
         actorSystem = ActorSystem.create("ShifuActorSystem");
         final AkkaExecStatus akkaStatus = new AkkaExecStatus(true);
 
@@ -80,7 +80,7 @@ public class AkkaSystemExecutor {
             }
         }), "stats-calculator");
 
-        statsCalRef.tell(new AkkaActorInputMessage(scanners), statsCalRef);
+        statsCalRef.tell(new AkkaActorInputMessage(readers), statsCalRef);
 
         // wait for termination and check the status
         actorSystem.awaitTermination();
@@ -92,10 +92,10 @@ public class AkkaSystemExecutor {
      *
      * @param modelConfig      - configuration for model
      * @param columnConfigList - configurations for columns
-     * @param scanners         - scanners of training data
+     * @param readers          - readers of training data
      */
     public void submitNormalizeJob(final ModelConfig modelConfig, final List<ColumnConfig> columnConfigList,
-                                   List<Scanner> scanners) {
+                                   List<DataLineReader> readers) {
         actorSystem = ActorSystem.create("ShifuActorSystem");
         final AkkaExecStatus akkaStatus = new AkkaExecStatus(true);
 
@@ -108,7 +108,7 @@ public class AkkaSystemExecutor {
             }
         }), "data-normalizer");
 
-        dataNormalizeRef.tell(new AkkaActorInputMessage(scanners), dataNormalizeRef);
+        dataNormalizeRef.tell(new AkkaActorInputMessage(readers), dataNormalizeRef);
 
         // wait for termination
         actorSystem.awaitTermination();
@@ -120,11 +120,11 @@ public class AkkaSystemExecutor {
      *
      * @param modelConfig      - configuration for model
      * @param columnConfigList - configurations for columns
-     * @param scanners         - scanners of normalized training data
+     * @param readers          - readers of normalized training data
      * @param trainers         - model trainer
      */
     public void submitModelTrainJob(final ModelConfig modelConfig, final List<ColumnConfig> columnConfigList,
-                                    List<Scanner> scanners, final List<AbstractTrainer> trainers) {
+                                    List<DataLineReader> readers, final List<AbstractTrainer> trainers) {
         actorSystem = ActorSystem.create("ShifuActorSystem");
         final AkkaExecStatus akkaStatus = new AkkaExecStatus(true);
 
@@ -137,7 +137,7 @@ public class AkkaSystemExecutor {
             }
         }), "model-trainer");
 
-        modelTrainerRef.tell(new AkkaActorInputMessage(scanners), modelTrainerRef);
+        modelTrainerRef.tell(new AkkaActorInputMessage(readers), modelTrainerRef);
 
         // wait for termination
         actorSystem.awaitTermination();
@@ -149,11 +149,11 @@ public class AkkaSystemExecutor {
      *
      * @param modelConfig      - configuration for model
      * @param columnConfigList - configurations for columns
-     * @param scanners         - scanners of normalized training data
+     * @param readers          - readers of normalized training data
      * @param trainers         - model trainer
      */
     public void submitDecisionTreeTrainJob(final ModelConfig modelConfig, final List<ColumnConfig> columnConfigList,
-                                           List<Scanner> scanners, final List<AbstractTrainer> trainers) {
+                                           List<DataLineReader> readers, final List<AbstractTrainer> trainers) {
         actorSystem = ActorSystem.create("ShifuActorSystem");
         final AkkaExecStatus akkaStatus = new AkkaExecStatus(true);
 
@@ -166,7 +166,7 @@ public class AkkaSystemExecutor {
             }
         }), "dt-model-trainer");
 
-        modelTrainerRef.tell(new AkkaActorInputMessage(scanners), modelTrainerRef);
+        modelTrainerRef.tell(new AkkaActorInputMessage(readers), modelTrainerRef);
 
         // wait for termination
         actorSystem.awaitTermination();
@@ -178,10 +178,10 @@ public class AkkaSystemExecutor {
      *
      * @param modelConfig      - configuration for model
      * @param columnConfigList - configurations for columns
-     * @param scanners         - scanners of select data that are normalized
+     * @param readers          - readers of select data that are normalized
      */
     public void submitPostTrainJob(final ModelConfig modelConfig, final List<ColumnConfig> columnConfigList,
-                                   List<Scanner> scanners) {
+                                   List<DataLineReader> readers) {
         actorSystem = ActorSystem.create("ShifuActorSystem");
         final AkkaExecStatus akkaStatus = new AkkaExecStatus(true);
 
@@ -194,7 +194,7 @@ public class AkkaSystemExecutor {
             }
         }), "model-posttrainer");
 
-        postTrainerRef.tell(new AkkaActorInputMessage(scanners), postTrainerRef);
+        postTrainerRef.tell(new AkkaActorInputMessage(readers), postTrainerRef);
 
         // wait for termination
         actorSystem.awaitTermination();
@@ -206,9 +206,9 @@ public class AkkaSystemExecutor {
      *
      * @param modelConfig      - configuration for model
      * @param columnConfigList - configurations for columns
-     * @param scanners         - scanners of evaluation data
+     * @param readers          - readers of evaluation data
      */
-    public void submitModelEvalJob(final ModelConfig modelConfig, final List<ColumnConfig> columnConfigList, final EvalConfig evalConfig, List<Scanner> scanners) {
+    public void submitModelEvalJob(final ModelConfig modelConfig, final List<ColumnConfig> columnConfigList, final EvalConfig evalConfig, List<DataLineReader> readers) {
         actorSystem = ActorSystem.create("ShifuActorSystem");
         final AkkaExecStatus akkaStatus = new AkkaExecStatus(true);
 
@@ -221,7 +221,7 @@ public class AkkaSystemExecutor {
             }
         }), "model-evaluator");
 
-        modelEvalRef.tell(new AkkaActorInputMessage(scanners), modelEvalRef);
+        modelEvalRef.tell(new AkkaActorInputMessage(readers), modelEvalRef);
 
         // wait for termination
         actorSystem.awaitTermination();
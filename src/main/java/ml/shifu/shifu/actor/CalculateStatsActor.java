@@ -26,6 +26,7 @@ import ml.shifu.shifu.actor.worker.DataPrepareWorker;
 import ml.shifu.shifu.actor.worker.StatsCalculateWorker;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.PathFinder;
 import ml.shifu.shifu.message.AkkaActorInputMessage;
 import ml.shifu.shifu.message.ExceptionMessage;
@@ -41,7 +42,6 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
 
 /**
@@ -119,13 +119,13 @@ public class CalculateStatsActor extends AbstractActor {
             resultCnt = 0;
 
             AkkaActorInputMessage msg = (AkkaActorInputMessage) message;
-            List<Scanner> scanners = msg.getScanners();
+            List<DataLineReader> readers = msg.getReaders();
 
-            log.debug("Num of Scanners: " + scanners.size());
+            log.debug("Num of Readers: " + readers.size());
 
-            for (Scanner scanner : scanners) {
+            for (DataLineReader reader : readers) {
                 dataLoadRef.tell(
-                        new ScanStatsRawDataMessage(scanners.size(), scanner), getSelf());
+                        new ScanStatsRawDataMessage(readers.size(), reader), getSelf());
             }
         } else if (message instanceof StatsResultMessage) {
             StatsResultMessage statsRstMsg = (StatsResultMessage) message;
@@ -27,6 +27,7 @@ import ml.shifu.shifu.actor.worker.ScoreModelWorker;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.EvalConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.message.AkkaActorInputMessage;
 import ml.shifu.shifu.message.EvalResultMessage;
 import ml.shifu.shifu.message.ExceptionMessage;
@@ -37,7 +38,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Scanner;
 
 
 /**
@@ -111,13 +111,13 @@ public class EvalModelActor extends AbstractActor {
             resultCnt = 0;
 
             AkkaActorInputMessage msg = (AkkaActorInputMessage) message;
-            List<Scanner> scanners = msg.getScanners();
+            List<DataLineReader> readers = msg.getReaders();
 
-            log.debug("Num of Scanners: " + scanners.size());
+            log.debug("Num of Readers: " + readers.size());
             int streamId = 0;
 
-            for (Scanner scanner : scanners) {
-                dataLoadRef.tell(new ScanEvalDataMessage(streamId++, scanners.size(), scanner), getSelf());
+            for (DataLineReader reader : readers) {
+                dataLoadRef.tell(new ScanEvalDataMessage(streamId++, readers.size(), reader), getSelf());
             }
         } else if (message instanceof EvalResultMessage) {
             EvalResultMessage msg = (EvalResultMessage) message;
@@ -19,7 +19,6 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.List;
-import java.util.Scanner;
 
 import ml.shifu.shifu.actor.worker.DataFilterWorker;
 import ml.shifu.shifu.actor.worker.DataLoadWorker;
@@ -27,6 +26,7 @@ import ml.shifu.shifu.actor.worker.DataNormalizeWorker;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.PathFinder;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.message.AkkaActorInputMessage;
@@ -125,12 +125,12 @@ public class NormalizeDataActor extends AbstractActor {
             resultCnt = 0;
 
             AkkaActorInputMessage msg = (AkkaActorInputMessage) message;
-            List<Scanner> scanners = msg.getScanners();
+            List<DataLineReader> readers = msg.getReaders();
 
-            log.debug("Num of Scanners: " + scanners.size());
+            log.debug("Num of Readers: " + readers.size());
 
-            for(Scanner scanner: scanners) {
-                dataLoadRef.tell(new ScanNormInputDataMessage(scanners.size(), scanner), getSelf());
+            for(DataLineReader reader: readers) {
+                dataLoadRef.tell(new ScanNormInputDataMessage(readers.size(), reader), getSelf());
             }
         } else if(message instanceof NormResultDataMessage) {
             NormResultDataMessage msg = (NormResultDataMessage) message;
@@ -26,6 +26,7 @@ import ml.shifu.shifu.actor.worker.PostTrainWorker;
 import ml.shifu.shifu.actor.worker.RunModelWorker;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.PathFinder;
 import ml.shifu.shifu.message.AkkaActorInputMessage;
 import ml.shifu.shifu.message.ExceptionMessage;
@@ -41,7 +42,6 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
 
 /**
@@ -125,12 +125,12 @@ public class PostTrainActor extends AbstractActor {
             resultCnt = 0;
 
             AkkaActorInputMessage msg = (AkkaActorInputMessage) message;
-            List<Scanner> scanners = msg.getScanners();
+            List<DataLineReader> readers = msg.getReaders();
 
-            log.debug("Num of Scanners: " + scanners.size());
+            log.debug("Num of Readers: " + readers.size());
             int streamId = 0;
-            for (Scanner scanner : scanners) {
-                dataLoadRef.tell(new ScanEvalDataMessage(streamId++, scanners.size(), scanner), getSelf());
+            for (DataLineReader reader : readers) {
+                dataLoadRef.tell(new ScanEvalDataMessage(streamId++, readers.size(), reader), getSelf());
             }
         } else if (message instanceof StatsResultMessage) {
             StatsResultMessage statsRstMsg = (StatsResultMessage) message;
@@ -28,6 +28,7 @@ import ml.shifu.shifu.actor.worker.TrainModelWorker;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.core.AbstractTrainer;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.message.AkkaActorInputMessage;
 import ml.shifu.shifu.message.ExceptionMessage;
 import ml.shifu.shifu.message.ScanStatsRawDataMessage;
@@ -39,7 +40,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Scanner;
 
 
 /**
@@ -109,13 +109,13 @@ public class TrainDtModelActor extends AbstractActor {
             resultCnt = 0;
 
             AkkaActorInputMessage msg = (AkkaActorInputMessage) message;
-            List<Scanner> scanners = msg.getScanners();
+            List<DataLineReader> readers = msg.getReaders();
 
-            log.debug("Num of Scanners: " + scanners.size());
+            log.debug("Num of Readers: " + readers.size());
 
-            for (Scanner scanner : scanners) {
+            for (DataLineReader reader : readers) {
                 dataLoadRef.tell(
-                        new ScanStatsRawDataMessage(scanners.size(), scanner), getSelf());
+                        new ScanStatsRawDataMessage(readers.size(), reader), getSelf());
             }
         } else if (message instanceof TrainResultMessage) {
             resultCnt++;
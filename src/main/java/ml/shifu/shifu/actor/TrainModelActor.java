@@ -26,6 +26,8 @@ import ml.shifu.shifu.actor.worker.TrainModelWorker;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.core.AbstractTrainer;
+import ml.shifu.shifu.core.LocalEnsembleTrainer;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.message.AkkaActorInputMessage;
 import ml.shifu.shifu.message.ExceptionMessage;
 import ml.shifu.shifu.message.ScanTrainDataMessage;
@@ -37,7 +39,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Scanner;
 
 
 /**
@@ -71,6 +72,9 @@ public class TrainModelActor extends AbstractActor {
 
         final ActorRef parentActorRef = getSelf();
 
+        // models are trained together by one worker if ensemble training is enabled
+        int numTrainWorkers = LocalEnsembleTrainer.isEnabled(modelConfig) ? 1 : this.modelConfig.getBaggingNum();
+
         // actors to training models
         trainModelRef = this.getContext().actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = -5719806635080547488L;
@@ -78,7 +82,7 @@ public class TrainModelActor extends AbstractActor {
             public UntypedActor create() {
                 return new TrainModelWorker(modelConfig, columnConfigList, parentActorRef, parentActorRef);
             }
-        }).withRouter(new RoundRobinRouter(this.modelConfig.getBaggingNum())), "ModelTrainWorker");
+        }).withRouter(new RoundRobinRouter(numTrainWorkers)), "ModelTrainWorker");
 
         // actors to aggregate all training data
         trainDataPrepRef = this.getContext().actorOf(new Props(new UntypedActorFactory() {
@@ -108,13 +112,13 @@ public class TrainModelActor extends AbstractActor {
             resultCnt = 0;
 
             AkkaActorInputMessage msg = (AkkaActorInputMessage) message;
-            List<Scanner> scanners = msg.getScanners();
+            List<DataLineReader> readers = msg.getReaders();
 
-            log.debug("Num of Scanners: " + scanners.size());
+            log.debug("Num of Readers: " + readers.size());
 
-            for (Scanner scanner : scanners) {
+            for (DataLineReader reader : readers) {
                 dataLoadRef.tell(
-                        new ScanTrainDataMessage(scanners.size(), isDryRun, scanner), getSelf());
+                        new ScanTrainDataMessage(readers.size(), isDryRun, reader), getSelf());
             }
         } else if (message instanceof TrainResultMessage) {
             resultCnt++;
@@ -18,14 +18,13 @@ package ml.shifu.shifu.actor.worker;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Scanner;
 
-import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
 import ml.shifu.shifu.core.dtrain.nn.NNConstants;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.message.NormPartRawDataMessage;
 import ml.shifu.shifu.message.RunModelDataMessage;
 import ml.shifu.shifu.message.ScanEvalDataMessage;
@@ -36,6 +35,7 @@ import ml.shifu.shifu.message.StatsPartRawDataMessage;
 import ml.shifu.shifu.message.TrainPartDataMessage;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Environment;
+import ml.shifu.shifu.util.RecordTokenizer;
 
 import org.encog.ml.data.MLDataPair;
 import org.encog.ml.data.basic.BasicMLData;
@@ -45,20 +45,18 @@ import org.slf4j.LoggerFactory;
 
 import akka.actor.ActorRef;
 
-import com.google.common.base.Splitter;
-
 /**
  * DataLoadWorker class is used to load data from all kinds of source.
- * Its input is data scanner. The output are usually List<String>
+ * Its input is data line reader. The output are usually List<String>
  */
 public class DataLoadWorker extends AbstractWorkerActor {
 
     private static Logger log = LoggerFactory.getLogger(DataLoadWorker.class);
 
     /**
-     * Default splitter used to split input record. Use one instance to prevent more news in Splitter.on.
+     * Tokenizer used to split input record, reused for all records to avoid creating strings of each field.
      */
-    private static final Splitter DEFAULT_SPLITTER = Splitter.on(NNConstants.NN_DEFAULT_COLUMN_SEPARATOR);
+    private final RecordTokenizer tokenizer = new RecordTokenizer(NNConstants.NN_DEFAULT_COLUMN_SEPARATOR);
 
     /**
      * Basic input node count for NN model
@@ -89,43 +87,43 @@ public class DataLoadWorker extends AbstractWorkerActor {
         if(message instanceof ScanStatsRawDataMessage) {
             log.info("DataLoaderActor Starting ...");
             ScanStatsRawDataMessage msg = (ScanStatsRawDataMessage) message;
-            Scanner scanner = msg.getScanner();
+            DataLineReader reader = msg.getReader();
             int totalMsgCnt = msg.getTotalMsgCnt();
 
-            List<String> rawDataList = readDataIntoList(scanner);
+            List<String> rawDataList = readDataIntoList(reader);
 
             log.info("DataLoaderActor Finished: Loaded " + rawDataList.size() + " Records.");
             nextActorRef.tell(new StatsPartRawDataMessage(totalMsgCnt, rawDataList), getSelf());
         } else if(message instanceof ScanNormInputDataMessage) {
             log.info("DataLoaderActor Starting ...");
             ScanNormInputDataMessage msg = (ScanNormInputDataMessage) message;
-            Scanner scanner = msg.getScanner();
+            DataLineReader reader = msg.getReader();
             int totalMsgCnt = msg.getTotalMsgCnt();
 
-            List<String> rawDataList = readDataIntoList(scanner);
+            List<String> rawDataList = readDataIntoList(reader);
 
             log.info("DataLoaderActor Finished: Loaded " + rawDataList.size() + " Records.");
             nextActorRef.tell(new NormPartRawDataMessage(totalMsgCnt, rawDataList), getSelf());
         } else if(message instanceof ScanTrainDataMessage) {
             ScanTrainDataMessage msg = (ScanTrainDataMessage) message;
-            Scanner scanner = msg.getScanner();
+            DataLineReader reader = msg.getReader();
             int totalMsgCnt = msg.getTotalMsgCnt();
 
-            List<MLDataPair> mlDataPairList = readTrainingData(scanner, msg.isDryRun());
+            List<MLDataPair> mlDataPairList = readTrainingData(reader, msg.isDryRun());
             log.info("DataLoaderActor Finished: Loaded " + mlDataPairList.size() + " Records for Training.");
             nextActorRef.tell(new TrainPartDataMessage(totalMsgCnt, msg.isDryRun(), mlDataPairList), getSelf());
         } else if(message instanceof ScanEvalDataMessage) {
             log.info("DataLoaderActor Starting ...");
             ScanEvalDataMessage msg = (ScanEvalDataMessage) message;
-            Scanner scanner = msg.getScanner();
+            DataLineReader reader = msg.getReader();
             int streamId = msg.getStreamId();
             int totalStreamCnt = msg.getTotalStreamCnt();
 
-            splitDataIntoMultiMessages(streamId, totalStreamCnt, scanner,
+            splitDataIntoMultiMessages(streamId, totalStreamCnt, reader,
                     Environment.getInt(Environment.RECORD_CNT_PER_MESSAGE, 100000));
 
             /*
-             * List<String> evalDataList = readDataIntoList(scanner);
+             * List<String> evalDataList = readDataIntoList(reader);
              * 
              * log.info("DataLoaderActor Finished: Loaded " + evalDataList.size() + " Records.");
              * nextActorRef.tell( new RunModelDataMessage(totalMsgCnt, evalDataList), getSelf());
@@ -137,17 +135,18 @@ public class DataLoadWorker extends AbstractWorkerActor {
 
     /**
      * @param totalMsgCnt
-     * @param scanner
+     * @param reader
      * @param int1
      */
-    private long splitDataIntoMultiMessages(int streamId, int totalStreamCnt, Scanner scanner, int recordCntPerMsg) {
+    private long splitDataIntoMultiMessages(int streamId, int totalStreamCnt, DataLineReader reader,
+            int recordCntPerMsg) {
         long recordCnt = 0;
         int msgId = 0;
 
         List<String> rawDataList = new LinkedList<String>();
 
-        while(scanner.hasNextLine()) {
-            String raw = scanner.nextLine();
+        while(reader.hasNextLine()) {
+            String raw = reader.nextLine();
             recordCnt++;
             rawDataList.add(raw);
 
@@ -169,16 +168,16 @@ public class DataLoadWorker extends AbstractWorkerActor {
     /**
      * Read data into String list
      * 
-     * @param scanner
+     * @param reader
      *            - input partition
      * @return List<String>
      */
-    public List<String> readDataIntoList(Scanner scanner) {
+    public List<String> readDataIntoList(DataLineReader reader) {
         List<String> rawDataList = new LinkedList<String>();
 
         int cntTotal = 0;
-        while(scanner.hasNextLine()) {
-            String raw = scanner.nextLine();
+        while(reader.hasNextLine()) {
+            String raw = reader.nextLine();
             rawDataList.add(raw);
 
             cntTotal++;
@@ -194,13 +193,13 @@ public class DataLoadWorker extends AbstractWorkerActor {
     /**
      * Read the normalized training data for model training
      * 
-     * @param scanner
+     * @param reader
      *            - input partition
      * @param isDryRun
      *            - is for test running?
      * @return List<MLDataPair>
      */
-    public List<MLDataPair> readTrainingData(Scanner scanner, boolean isDryRun) {
+    public List<MLDataPair> readTrainingData(DataLineReader reader, boolean isDryRun) {
         List<MLDataPair> mlDataPairList = new ArrayList<MLDataPair>();
 
         int numSelected = 0;
@@ -211,12 +210,12 @@ public class DataLoadWorker extends AbstractWorkerActor {
         }
 
         int cnt = 0;
-        while(scanner.hasNextLine()) {
+        while(reader.hasNextLine()) {
             if((cnt++) % 100000 == 0) {
                 log.info("Read " + (cnt) + " Records.");
             }
 
-            String line = scanner.nextLine();
+            String line = reader.nextLine();
             if(isDryRun) {
                 MLDataPair dummyPair = new BasicMLDataPair(new BasicMLData(new double[1]), new BasicMLData(
                         new double[1]));
@@ -229,10 +228,11 @@ public class DataLoadWorker extends AbstractWorkerActor {
             double[] ideal = new double[1];
             double significance = 0.0d;
             int index = 0, inputsIndex = 0, outputIndex = 0;
-            for(String input: DEFAULT_SPLITTER.split(line.trim())) {
-                double doubleValue = NumberFormatUtils.getDouble(input.trim(), 0.0d);
+            this.tokenizer.reset(line.trim());
+            for(int i = 0; i < this.tokenizer.size(); i++) {
+                double doubleValue = this.tokenizer.getDouble(i, 0.0d);
                 if(index == this.columnConfigList.size()) {
-                    significance = NumberFormatUtils.getDouble(input.trim(), CommonConstants.DEFAULT_SIGNIFICANCE_VALUE);
+                    significance = this.tokenizer.getDouble(i, CommonConstants.DEFAULT_SIGNIFICANCE_VALUE);
                     break;
                 } else {
                     ColumnConfig columnConfig = this.columnConfigList.get(index);
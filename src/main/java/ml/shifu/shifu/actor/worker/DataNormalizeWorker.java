@@ -23,8 +23,8 @@ import java.util.Map;
 import ml.shifu.shifu.container.WeightAmplifier;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
-import ml.shifu.shifu.core.DataSampler;
 import ml.shifu.shifu.core.Normalizer;
+import ml.shifu.shifu.core.RecordSampler;
 import ml.shifu.shifu.message.NormPartRawDataMessage;
 import ml.shifu.shifu.message.NormResultDataMessage;
 import ml.shifu.shifu.util.CommonUtils;
@@ -49,11 +49,13 @@ public class DataNormalizeWorker extends AbstractWorkerActor {
 
     private static Logger log = LoggerFactory.getLogger(DataNormalizeWorker.class);
     private Expression weightExpr;
+    private RecordSampler sampler;
 
     public DataNormalizeWorker(ModelConfig modelConfig, List<ColumnConfig> columnConfigList, ActorRef parentActorRef,
             ActorRef nextActorRef) {
         super(modelConfig, columnConfigList, parentActorRef, nextActorRef);
         weightExpr = createExpression(modelConfig.getWeightColumnName());
+        sampler = RecordSampler.createNormalizeSampler(modelConfig, columnConfigList);
     }
 
     /*
@@ -111,9 +113,12 @@ public class DataNormalizeWorker extends AbstractWorkerActor {
 
         String tag = rfs[this.targetColumnNum];
 
-        boolean isNotSampled = DataSampler.isNotSampled(modelConfig.getPosTags(), modelConfig.getNegTags(),
-                modelConfig.getNormalizeSampleRate(), modelConfig.isNormalizeSampleNegOnly(), tag);
-        if(isNotSampled) {
+        if(tag == null || !(modelConfig.getPosTags().contains(tag) || modelConfig.getNegTags().contains(tag))) {
+            log.error("Invalid target column value - " + tag);
+            return null;
+        }
+        double sampleWeight = sampler.sample(tag, rfs);
+        if(sampleWeight <= 0d) {
             return null;
         }
 
@@ -164,7 +169,7 @@ public class DataNormalizeWorker extends AbstractWorkerActor {
                 }
             }
         }
-        retDouList.add(weight);
+        retDouList.add(weight * sampleWeight);
 
         return retDouList;
     }
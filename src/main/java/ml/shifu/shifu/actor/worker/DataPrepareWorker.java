@@ -21,13 +21,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
 
 import ml.shifu.shifu.container.CaseScoreResult;
 import ml.shifu.shifu.container.ColumnScoreObject;
 import ml.shifu.shifu.container.ValueObject;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.core.RecordSampler;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.message.ColumnScoreMessage;
@@ -51,7 +51,7 @@ import akka.actor.ActorRef;
 public class DataPrepareWorker extends AbstractWorkerActor {
 
     private static Logger log = LoggerFactory.getLogger(DataPrepareWorker.class);
-    private Random random = new Random(System.currentTimeMillis());
+    private RecordSampler sampler;
     private Map<Integer, ActorRef> columnNumToActorMap;
     private String[] trainDataHeader;
 
@@ -69,6 +69,7 @@ public class DataPrepareWorker extends AbstractWorkerActor {
         super(modelConfig, columnConfigList, parentActorRef, nextActorRef);
         trainDataHeader = CommonUtils.getHeaders(modelConfig.getHeaderPath(), modelConfig.getHeaderDelimiter(),
                 modelConfig.getDataSet().getSource());
+        sampler = RecordSampler.createStatsSampler(modelConfig, columnConfigList);
     }
 
     /**
@@ -180,8 +181,6 @@ public class DataPrepareWorker extends AbstractWorkerActor {
      */
     private DataPrepareStatsResult convertRawDataIntoValueObject(List<String> rawDataList,
             Map<Integer, List<ValueObject>> columnVoListMap) throws ShifuException {
-        double sampleRate = modelConfig.getBinningSampleRate();
-
         long total = 0l;
         Map<Integer, Long> missingMap = new HashMap<Integer, Long>();
 
@@ -198,14 +197,8 @@ public class DataPrepareWorker extends AbstractWorkerActor {
 
             String tag = raw[targetColumnNum];
 
-            if(modelConfig.isBinningSampleNegOnly()) {
-                if(modelConfig.getNegTags().contains(tag) && random.nextDouble() > sampleRate) {
-                    continue;
-                }
-            } else {
-                if(random.nextDouble() > sampleRate) {
-                    continue;
-                }
+            if(sampler.sample(tag, raw) <= 0d) {
+                continue;
             }
 
             for(int i = 0; i < raw.length; i++) {
@@ -20,8 +20,10 @@ import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.AbstractTrainer;
+import ml.shifu.shifu.core.LocalEnsembleTrainer;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.message.StatsPartRawDataMessage;
+import ml.shifu.shifu.message.TrainEnsembleMessage;
 import ml.shifu.shifu.message.TrainInstanceMessage;
 import ml.shifu.shifu.message.TrainPartDataMessage;
 import ml.shifu.shifu.util.Constants;
@@ -93,6 +95,13 @@ public class TrainDataPrepWorker extends AbstractWorkerActor {
                     ((BufferedMLDataSet) masterDataSet).endLoad();
                 }
 
+                if(LocalEnsembleTrainer.isEnabled(modelConfig)) {
+                    // all models are trained on the shared master data set in one message
+                    nextActorRef.tell(new TrainEnsembleMessage(new LocalEnsembleTrainer(trainers, masterDataSet)),
+                            this.getSelf());
+                    return;
+                }
+
                 for(AbstractTrainer trainer: trainers) {
                     // if the trainOnDisk is true, setting the "D" option
                     if(modelConfig.isTrainOnDisk()) {
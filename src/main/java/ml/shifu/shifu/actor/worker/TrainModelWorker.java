@@ -18,6 +18,7 @@ package ml.shifu.shifu.actor.worker;
 import akka.actor.ActorRef;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.message.TrainEnsembleMessage;
 import ml.shifu.shifu.message.TrainInstanceMessage;
 import ml.shifu.shifu.message.TrainResultMessage;
 import org.slf4j.Logger;
@@ -53,6 +54,16 @@ public class TrainModelWorker extends AbstractWorkerActor {
             msg.getTrainer().train();
 
             nextActorRef.tell(new TrainResultMessage(), getSelf());
+        } else if (message instanceof TrainEnsembleMessage) {
+            log.info("Received train data for ensemble model training");
+            TrainEnsembleMessage msg = (TrainEnsembleMessage) message;
+            msg.getEnsembleTrainer().train();
+
+            // one result for each model, the same as training models one by one
+            int numTrainers = msg.getEnsembleTrainer().getTrainers().size();
+            for (int i = 0; i < numTrainers; i++) {
+                nextActorRef.tell(new TrainResultMessage(), getSelf());
+            }
         } else {
             unhandled(message);
         }
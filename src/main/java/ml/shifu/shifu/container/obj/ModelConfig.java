@@ -499,6 +499,16 @@ public class ModelConfig {
         return RunMode.MAPRED == basic.getRunMode() || RunMode.DIST == basic.getRunMode();
     }
 
+    /**
+     * If auto type checking is done in SPDTI stats binning job instead of a separated MapReduce job in init step.
+     */
+    @JsonIgnore
+    public boolean isAutoTypeInStats() {
+        return isMapReduceRunMode() && Boolean.TRUE.equals(dataSet.getAutoType())
+                && Boolean.TRUE.equals(dataSet.getAutoTypeInStats())
+                && BinningAlgorithm.SPDTI.equals(getBinningAlgorithm());
+    }
+
     @JsonIgnore
     public boolean isDistributedRunMode() {
         return isMapReduceRunMode();
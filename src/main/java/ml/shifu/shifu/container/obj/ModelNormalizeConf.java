@@ -15,6 +15,8 @@
  */
 package ml.shifu.shifu.container.obj;
 
+import java.util.Map;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -40,6 +42,12 @@ public class ModelNormalizeConf {
     private NormType normType = NormType.ZSCALE;
     private Boolean isParquet = Boolean.FALSE;
 
+    /**
+     * Sample rates of raw tags, records of such tags are sampled by these rates instead of sampleRate, and weights of
+     * sampled records are multiplied by 1/rate to keep weighted metrics unbiased.
+     */
+    private Map<String, Double> sampleRates;
+
     // move to RawSourceData
     // private String weightAmplifier;
     // private List<WeightAmplifier> weightAmplifier;
@@ -100,4 +108,21 @@ public class ModelNormalizeConf {
         this.isParquet = isParquet;
     }
 
+    /**
+     * @return the sampleRates
+     */
+    @JsonIgnore
+    public Map<String, Double> getSampleRates() {
+        return sampleRates;
+    }
+
+    /**
+     * @param sampleRates
+     *            the sampleRates to set
+     */
+    @JsonProperty
+    public void setSampleRates(Map<String, Double> sampleRates) {
+        this.sampleRates = sampleRates;
+    }
+
 }
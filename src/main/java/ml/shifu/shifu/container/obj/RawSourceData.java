@@ -67,6 +67,21 @@ public class RawSourceData implements Cloneable {
      */
     private Integer autoTypeThreshold = 0;
 
+    /**
+     * If auto type checking is done in stats binning job instead of a separated MapReduce job in init step.
+     */
+    private Boolean autoTypeInStats = Boolean.FALSE;
+
+    /**
+     * Seed of deterministic sampling in stats and normalize steps, if null, records are sampled randomly.
+     */
+    private Long sampleSeed;
+
+    /**
+     * Column used as key of deterministic sampling, if blank, all fields of one record are used as key.
+     */
+    private String sampleKeyColumn;
+
     /**
      * @return the autoTypeThreshold
      */
@@ -219,4 +234,55 @@ public class RawSourceData implements Cloneable {
     public void setAutoType(Boolean autoType) {
         this.autoType = autoType;
     }
+
+    /**
+     * @return the autoTypeInStats
+     */
+    @JsonIgnore
+    public Boolean getAutoTypeInStats() {
+        return autoTypeInStats;
+    }
+
+    /**
+     * @param autoTypeInStats
+     *            the autoTypeInStats to set
+     */
+    @JsonProperty
+    public void setAutoTypeInStats(Boolean autoTypeInStats) {
+        this.autoTypeInStats = autoTypeInStats;
+    }
+
+    /**
+     * @return the sampleSeed
+     */
+    @JsonIgnore
+    public Long getSampleSeed() {
+        return sampleSeed;
+    }
+
+    /**
+     * @param sampleSeed
+     *            the sampleSeed to set
+     */
+    @JsonProperty
+    public void setSampleSeed(Long sampleSeed) {
+        this.sampleSeed = sampleSeed;
+    }
+
+    /**
+     * @return the sampleKeyColumn
+     */
+    @JsonIgnore
+    public String getSampleKeyColumn() {
+        return sampleKeyColumn;
+    }
+
+    /**
+     * @param sampleKeyColumn
+     *            the sampleKeyColumn to set
+     */
+    @JsonProperty
+    public void setSampleKeyColumn(String sampleKeyColumn) {
+        this.sampleKeyColumn = sampleKeyColumn;
+    }
 }
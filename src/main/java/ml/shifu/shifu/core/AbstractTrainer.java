@@ -18,6 +18,7 @@ package ml.shifu.shifu.core;
 import ml.shifu.shifu.container.ModelInitInputObject;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.core.dtrain.dataset.IndexedMLDataSet;
 import ml.shifu.shifu.fs.PathFinder;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.util.Constants;
@@ -28,7 +29,6 @@ import org.encog.ml.data.MLDataPair;
 import org.encog.ml.data.MLDataSet;
 import org.encog.ml.data.basic.BasicMLData;
 import org.encog.ml.data.basic.BasicMLDataPair;
-import org.encog.ml.data.basic.BasicMLDataSet;
 import org.encog.ml.data.buffer.BufferedMLDataSet;
 import org.encog.neural.networks.BasicNetwork;
 import org.slf4j.Logger;
@@ -39,6 +39,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -112,6 +113,11 @@ public abstract class AbstractTrainer {
      */
     protected PathFinder pathFinder = null;
 
+    /**
+     * number of threads used to train one model, 0 means decided by Encog according to cores
+     */
+    protected int threadCount = 0;
+
     /**
      * Constructor
      *
@@ -141,6 +147,9 @@ public abstract class AbstractTrainer {
 
     /**
      * Set up the training dataset and validation dataset
+     * <p>
+     * In memory option, training set and validation set are read only views of the master data set, so the master
+     * data set is shared by all trainers without copy. In disk option, records are copied into files.
      *
      * @param masterDataSet
      * @throws IOException
@@ -148,14 +157,15 @@ public abstract class AbstractTrainer {
     public void setDataSet(MLDataSet masterDataSet) throws IOException {
         log.info("Setting Data Set...");
 
+        if (this.trainingOption.equalsIgnoreCase("M")) {
+            log.info("Sharing Master Data Set in Memory ...");
+            setIndexedDataSet(masterDataSet);
+            return;
+        }
+
         MLDataSet sampledDataSet;
 
-        if (this.trainingOption.equalsIgnoreCase("M")) {
-            log.info("Loading to Memory ...");
-            sampledDataSet = new BasicMLDataSet();
-            this.trainSet = new BasicMLDataSet();
-            this.validSet = new BasicMLDataSet();
-        } else if (this.trainingOption.equalsIgnoreCase("D")) {
+        if (this.trainingOption.equalsIgnoreCase("D")) {
             log.info("Loading to Disk ...");
             sampledDataSet = new BufferedMLDataSet(new File(Constants.TMP, "sampled.egb"));
             this.trainSet = new BufferedMLDataSet(new File(Constants.TMP, "train.egb"));
@@ -263,14 +273,75 @@ public abstract class AbstractTrainer {
             ((BufferedMLDataSet) validSet).endLoad();
         }
 
+        logDataSetInfo(masterSize, sampledDataSet.getRecordCount());
+    }
+
+    /**
+     * Set up training set and validation set as index views of the master data set. Random numbers are consumed in
+     * the same order as copying records, so the same records are selected with the same seed.
+     *
+     * @param masterDataSet
+     * @throws IOException
+     */
+    private void setIndexedDataSet(MLDataSet masterDataSet) throws IOException {
+        int masterSize = (int) masterDataSet.getRecordCount();
+
+        int[] sampledIndexes;
+        if (!modelConfig.isFixInitialInput()) {
+            if (modelConfig.isBaggingWithReplacement()) {
+                sampledIndexes = new int[(int) (masterSize * baggingSampleRate)];
+                for (int i = 0; i < sampledIndexes.length; i++) {
+                    sampledIndexes[i] = random.nextInt(masterSize);
+                }
+            } else {
+                int sampledSize = 0;
+                sampledIndexes = new int[masterSize];
+                for (int i = 0; i < masterSize; i++) {
+                    if (random.nextDouble() < baggingSampleRate) {
+                        sampledIndexes[sampledSize++] = i;
+                    }
+                }
+                sampledIndexes = Arrays.copyOf(sampledIndexes, sampledSize);
+            }
+        } else {
+            List<Integer> list = loadSampleInput((int) (masterSize * baggingSampleRate), masterSize,
+                    modelConfig.isBaggingWithReplacement());
+            sampledIndexes = new int[list.size()];
+            for (int i = 0; i < sampledIndexes.length; i++) {
+                sampledIndexes[i] = list.get(i);
+            }
+        }
+
+        // Cross Validation
+        log.info("Generating Training Set and Validation Set ...");
+        int[] trainIndexes = new int[sampledIndexes.length];
+        int[] validIndexes = new int[sampledIndexes.length];
+        int trainSize = 0, validSize = 0;
+        long fixedTrainSize = (long) (sampledIndexes.length * (1 - crossValidationRate));
+        for (int i = 0; i < sampledIndexes.length; i++) {
+            boolean isTrain = modelConfig.isFixInitialInput() ? i < fixedTrainSize
+                    : random.nextDouble() > crossValidationRate;
+            if (isTrain) {
+                trainIndexes[trainSize++] = sampledIndexes[i];
+            } else {
+                validIndexes[validSize++] = sampledIndexes[i];
+            }
+        }
+
+        this.trainSet = new IndexedMLDataSet(masterDataSet, Arrays.copyOf(trainIndexes, trainSize));
+        this.validSet = new IndexedMLDataSet(masterDataSet, Arrays.copyOf(validIndexes, validSize));
+
+        logDataSetInfo(masterSize, sampledIndexes.length);
+    }
+
+    private void logDataSetInfo(int masterSize, long sampledSize) {
         log.info("    - # Records of the Master Data Set: " + masterSize);
         log.info("    - Bagging Sample Rate: " + baggingSampleRate);
         log.info("    - Bagging With Replacement: " + modelConfig.isBaggingWithReplacement());
-        log.info("    - # Records of the Selected Data Set: " + sampledDataSet.getRecordCount());
+        log.info("    - # Records of the Selected Data Set: " + sampledSize);
         log.info("        - Cross Validation Rate: " + crossValidationRate);
         log.info("        - # Records of the Training Set: " + this.getTrainSetSize());
         log.info("        - # Records of the Validation Set: " + this.getValidSetSize());
-
     }
 
     /**
@@ -474,4 +545,15 @@ public abstract class AbstractTrainer {
         this.baseMSE = baseMSE;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @param threadCount number of threads used to train one model, 0 means decided by Encog according to cores
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
 }
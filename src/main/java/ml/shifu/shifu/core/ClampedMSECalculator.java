@@ -0,0 +1,235 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.encog.engine.network.activation.ActivationFunction;
+import org.encog.mathutil.IntRange;
+import org.encog.ml.data.MLDataSet;
+import org.encog.neural.flat.FlatNetwork;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.EngineTask;
+import org.encog.util.concurrency.TaskGroup;
+
+/**
+ * {@link ClampedMSECalculator} computes MSE of a feed-forward network on one data set when some inputs are clamped to
+ * 0 (mean of normalized value), which is used by wrapper variable selection.
+ * 
+ * <p>
+ * Data is never copied: input arrays of the data set are referenced and clamped inputs are skipped by a mask. For each
+ * record, sums of the first layer are computed once with current clamp set, clamping one more input k only changes
+ * such sums by {@code -w[j][k] * x[k]}, so MSE of all candidates is computed in one scan with the rest layers forwarded
+ * per candidate. Inputs with 0 value reuse the base output of the record.
+ * 
+ * <p>
+ * Records are split into ranges computed concurrently by Encog {@link EngineConcurrency} like
+ * {@link ml.shifu.shifu.core.alg.NNTrainer#calculateMSEParallel(BasicNetwork, MLDataSet)}. Clamp set is kept between
+ * calls by {@link #clamp(int)}, so adding or removing variables round by round doesn't need to rebuild anything.
+ */
+public class ClampedMSECalculator {
+
+    private final FlatNetwork flat;
+
+    private final double[] weights;
+
+    private final int[] layerIndex;
+
+    private final int[] layerCounts;
+
+    private final int[] layerFeedCounts;
+
+    private final int[] weightIndex;
+
+    private final double[] biasActivation;
+
+    private final int layerOutputSize;
+
+    private final int inputCount;
+
+    private final double[][] inputs;
+
+    private final double[] ideals;
+
+    /**
+     * Clamped inputs, shared by all workers and only changed between calculations.
+     */
+    private final boolean[] clamped;
+
+    private final CalculateWorker[] workers;
+
+    public ClampedMSECalculator(BasicNetwork network, MLDataSet dataSet) {
+        this.flat = network.getStructure().getFlat();
+        this.weights = flat.getWeights();
+        this.layerIndex = flat.getLayerIndex();
+        this.layerCounts = flat.getLayerCounts();
+        this.layerFeedCounts = flat.getLayerFeedCounts();
+        this.weightIndex = flat.getWeightIndex();
+        this.biasActivation = flat.getBiasActivation();
+        this.layerOutputSize = flat.getLayerOutput().length;
+        this.inputCount = flat.getInputCount();
+        this.clamped = new boolean[this.inputCount];
+
+        int numRecords = (int) dataSet.getRecordCount();
+        this.inputs = new double[numRecords][];
+        this.ideals = new double[numRecords];
+        FlatNetworkUtils.referenceRecords(dataSet, this.inputs, this.ideals);
+
+        List<IntRange> ranges = FlatNetworkUtils.splitRanges(numRecords, 0);
+        this.workers = new CalculateWorker[ranges.size()];
+        for(int i = 0; i < this.workers.length; i++) {
+            this.workers[i] = new CalculateWorker(ranges.get(i).getLow(), ranges.get(i).getHigh());
+        }
+    }
+
+    /**
+     * Clamp one more input in later calculations.
+     */
+    public void clamp(int index) {
+        this.clamped[index] = true;
+    }
+
+    public boolean isClamped(int index) {
+        return this.clamped[index];
+    }
+
+    /**
+     * Calculate MSE of each not clamped input when it is clamped together with current clamp set.
+     * 
+     * @return MSE array indexed by input, value of clamped input is NaN
+     */
+    public double[] calculate() {
+        TaskGroup group = EngineConcurrency.getInstance().createTaskGroup();
+        for(CalculateWorker worker: this.workers) {
+            EngineConcurrency.getInstance().processTask(worker, group);
+        }
+        group.waitForComplete();
+
+        double[] mses = new double[this.inputCount];
+        for(CalculateWorker worker: this.workers) {
+            for(int i = 0; i < this.inputCount; i++) {
+                mses[i] += worker.errors[i];
+            }
+        }
+        for(int i = 0; i < this.inputCount; i++) {
+            mses[i] = this.clamped[i] ? Double.NaN : mses[i] / this.inputs.length;
+        }
+        return mses;
+    }
+
+    /**
+     * Worker to accumulate squared errors of all inputs in one range of records, buffers are reused between
+     * calculations.
+     */
+    private class CalculateWorker implements EngineTask {
+
+        private final int low;
+
+        private final int high;
+
+        private final double[] errors;
+
+        private final double[] firstLayerSums;
+
+        private final double[] layerOutput;
+
+        private final ActivationFunction[] activations;
+
+        public CalculateWorker(int low, int high) {
+            this.low = low;
+            this.high = high;
+            this.errors = new double[inputCount];
+            int layers = layerIndex.length;
+            this.firstLayerSums = new double[layerFeedCounts[layers - 2]];
+            this.layerOutput = new double[layerOutputSize];
+            // bias neuron is after regular neurons of each layer, it is never changed in forward
+            for(int i = 0; i < layers; i++) {
+                if(layerCounts[i] > layerFeedCounts[i]) {
+                    this.layerOutput[layerIndex[i] + layerFeedCounts[i]] = biasActivation[i];
+                }
+            }
+            this.activations = FlatNetworkUtils.cloneActivations(flat);
+        }
+
+        @Override
+        public void run() {
+            Arrays.fill(this.errors, 0d);
+            for(int i = this.low; i <= this.high; i++) {
+                accumulate(inputs[i], ideals[i]);
+            }
+        }
+
+        private void accumulate(double[] input, double ideal) {
+            int layers = layerIndex.length;
+            int inputLayerSize = layerCounts[layers - 1];
+            int firstIndex = weightIndex[layers - 2];
+            double bias = biasActivation[layers - 1];
+
+            for(int j = 0; j < this.firstLayerSums.length; j++) {
+                int offset = firstIndex + j * inputLayerSize;
+                double sum = 0d;
+                for(int k = 0; k < inputCount; k++) {
+                    if(!clamped[k]) {
+                        sum += weights[offset + k] * input[k];
+                    }
+                }
+                if(inputLayerSize > inputCount) {
+                    sum += weights[offset + inputCount] * bias;
+                }
+                this.firstLayerSums[j] = sum;
+            }
+
+            double baseError = forward(-1, 0d) - ideal;
+            baseError *= baseError;
+            for(int k = 0; k < inputCount; k++) {
+                if(clamped[k]) {
+                    continue;
+                }
+                if(input[k] == 0d) {
+                    this.errors[k] += baseError;
+                } else {
+                    double error = forward(k, input[k]) - ideal;
+                    this.errors[k] += error * error;
+                }
+            }
+        }
+
+        /**
+         * Forward from first layer sums with input {@code clamping} set to 0, -1 means no more input is clamped.
+         */
+        private double forward(int clamping, double value) {
+            int layers = layerIndex.length;
+
+            int outputIndex = layerIndex[layers - 2];
+            int inputLayerSize = layerCounts[layers - 1];
+            int offset = weightIndex[layers - 2] + clamping;
+            for(int j = 0; j < this.firstLayerSums.length; j++) {
+                double sum = this.firstLayerSums[j];
+                if(clamping >= 0) {
+                    sum -= weights[offset + j * inputLayerSize] * value;
+                }
+                this.layerOutput[outputIndex + j] = sum;
+            }
+            this.activations[layers - 2].activationFunction(this.layerOutput, outputIndex, this.firstLayerSums.length);
+
+            // other layers are forwarded as normal
+            return FlatNetworkUtils.computeLayers(flat, this.layerOutput, this.activations, layers - 2);
+        }
+    }
+
+}
@@ -26,15 +26,14 @@ import java.util.Random;
 import java.util.Scanner;
 import java.util.Set;
 
-import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.shifu.container.ConfusionMatrixObject;
-import ml.shifu.shifu.container.ModelResultObject;
 import ml.shifu.shifu.container.PerformanceObject;
 import ml.shifu.shifu.container.obj.EvalConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.PerformanceResult;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.eval.AreaUnderCurve;
+import ml.shifu.shifu.core.eval.ScoreGroup;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.fs.PathFinder;
@@ -43,6 +42,7 @@ import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
 import ml.shifu.shifu.util.HDFSUtils;
 import ml.shifu.shifu.util.JSONUtils;
+import ml.shifu.shifu.util.RecordTokenizer;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.ArrayUtils;
@@ -67,17 +67,33 @@ public class ConfusionMatrix {
     private ModelConfig modelConfig;
     private EvalConfig evalConfig;
 
+    /**
+     * Eval set whose score output is read, eval sets of one {@link ScoreGroup} share one score output.
+     */
+    private EvalConfig scoreEvalConfig;
+
     private int targetColumnIndex = -1;
     private int scoreColumnIndex = -1;
     private int weightColumnIndex = -1;
 
+    /**
+     * Index of selected column of this eval set, only found in score output shared by several eval sets.
+     */
+    private int selectedColumnIndex = -1;
+
     private int multiClassScore1Index = -1;
 
     private int multiClassModelCnt;
 
     public ConfusionMatrix(ModelConfig modelConfig, EvalConfig evalConfig) throws IOException {
+        this(modelConfig, evalConfig, evalConfig);
+    }
+
+    public ConfusionMatrix(ModelConfig modelConfig, EvalConfig evalConfig, EvalConfig scoreEvalConfig)
+            throws IOException {
         this.modelConfig = modelConfig;
         this.evalConfig = evalConfig;
+        this.scoreEvalConfig = scoreEvalConfig;
 
         String[] evalScoreHeader = getEvalScoreHeader();
         if(ArrayUtils.isEmpty(evalScoreHeader)) {
@@ -104,10 +120,40 @@ public class ConfusionMatrix {
         }
 
         weightColumnIndex = ArrayUtils.indexOf(evalScoreHeader, evalConfig.getDataSet().getWeightColumnName());
+        selectedColumnIndex = ArrayUtils.indexOf(evalScoreHeader, ScoreGroup.getSelectedColumnName(evalConfig));
+
+        // only works for multi classfication, scores follow target and weight of scoring eval set and meta columns
+        // follow scores
+        multiClassScore1Index = 2; // taget, weight, score1, score2
+        int multiClassScoreCnt = 0;
+        for(String column: evalScoreHeader) {
+            if(column.startsWith("model_")) {
+                multiClassScoreCnt++;
+            }
+        }
+        multiClassModelCnt = multiClassScoreCnt / modelConfig.getTags().size();
+    }
 
-        // only works for multi classfication
-        multiClassScore1Index = targetColumnIndex + 2; // taget, weight, score1, score2
-        multiClassModelCnt = (evalScoreHeader.length - multiClassScore1Index) / modelConfig.getTags().size();
+    /**
+     * Whether record is selected by this eval set. In score output shared by several eval sets, records selected by
+     * other eval sets only are skipped.
+     */
+    boolean isSelected(RecordTokenizer tokenizer) {
+        return this.selectedColumnIndex < 0 || Boolean.parseBoolean(tokenizer.getString(this.selectedColumnIndex));
+    }
+
+    /**
+     * Target of this eval set in score record, which may be a meta column of shared score output.
+     */
+    String getTarget(RecordTokenizer tokenizer) {
+        return tokenizer.getString(this.targetColumnIndex);
+    }
+
+    /**
+     * Weight of this eval set in score record, 1 if no weight column.
+     */
+    double getWeight(RecordTokenizer tokenizer) {
+        return this.weightColumnIndex > 0 ? tokenizer.getDouble(this.weightColumnIndex, 1.0d) : 1.0d;
     }
 
     /**
@@ -119,13 +165,13 @@ public class ConfusionMatrix {
         SourceType sourceType = evalConfig.getDataSet().getSource();
 
         String pathHeader = null;
-        boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(evalConfig, sourceType), sourceType);
+        boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(scoreEvalConfig, sourceType), sourceType);
         if(isDir) {
             // find the .pig_header file
-            pathHeader = pathFinder.getEvalScoreHeaderPath(evalConfig, sourceType);
+            pathHeader = pathFinder.getEvalScoreHeaderPath(scoreEvalConfig, sourceType);
         } else {
             // evaluation data file
-            pathHeader = pathFinder.getEvalScorePath(evalConfig, sourceType);
+            pathHeader = pathFinder.getEvalScorePath(scoreEvalConfig, sourceType);
         }
 
         return CommonUtils.getHeaders(pathHeader, "|", sourceType, false);
@@ -137,12 +183,12 @@ public class ConfusionMatrix {
 
         SourceType sourceType = evalConfig.getDataSet().getSource();
 
-        List<Scanner> scanners = ShifuFileUtils.getDataScanners(pathFinder.getEvalScorePath(evalConfig, sourceType),
-                sourceType);
+        List<Scanner> scanners = ShifuFileUtils.getDataScanners(
+                pathFinder.getEvalScorePath(scoreEvalConfig, sourceType), sourceType);
 
         int numBucket = evalConfig.getPerformanceBucketNum();
         boolean isWeight = evalConfig.getDataSet().getWeightColumnName() != null;
-        boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(evalConfig, sourceType), sourceType);
+        boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(scoreEvalConfig, sourceType), sourceType);
         List<PerformanceObject> FPRList = new ArrayList<PerformanceObject>(numBucket + 1);
         List<PerformanceObject> catchRateList = new ArrayList<PerformanceObject>(numBucket + 1);
         List<PerformanceObject> gainList = new ArrayList<PerformanceObject>(numBucket + 1);
@@ -187,42 +233,38 @@ public class ConfusionMatrix {
         FPRWeightList.add(po);
         catchRateWeightList.add(po);
         gainWeightList.add(po);
+        RecordTokenizer tokenizer = new RecordTokenizer(Constants.DEFAULT_DELIMITER);
         for(Scanner scanner: scanners) {
             while(scanner.hasNext()) {
                 if((++cnt) % 100000 == 0) {
                     log.info("Loaded " + cnt + " records.");
                 }
 
-                String[] raw = scanner.nextLine().split("\\|");
+                tokenizer.reset(scanner.nextLine());
 
                 if((!isDir) && cnt == 1) {
                     // if the evaluation score file is the local file, skip the first line since we add
                     continue;
                 }
 
-                String tag = raw[targetColumnIndex];
+                if(!isSelected(tokenizer)) {
+                    continue;
+                }
+
+                String tag = getTarget(tokenizer);
                 if(StringUtils.isBlank(tag) || (!posTags.contains(tag) && !negTags.contains(tag))) {
                     if(rd.nextDouble() < 0.01) {
                         log.warn("Empty target value or invalid target value: {}!!", tag);
                     }
                     continue;
                 }
-                double weight = 1.0d;
-                if(this.weightColumnIndex > 0) {
-                    try {
-                        weight = Double.parseDouble(raw[1]);
-                    } catch (NumberFormatException e) {
-                        // Do nothing
-                    }
-                }
-                double score = 0.0;
-                try {
-                    score = Double.parseDouble(raw[scoreColumnIndex]);
-                } catch (NumberFormatException e) {
+                double weight = getWeight(tokenizer);
+                double score = tokenizer.getDouble(scoreColumnIndex, Double.NaN);
+                if(Double.isNaN(score)) {
                     // user set the score column wrong ?
                     if(rd.nextDouble() < 0.05) {
                         log.warn("The score column - {} is not integer. Is score column set correctly?",
-                                raw[scoreColumnIndex]);
+                                tokenizer.getString(scoreColumnIndex));
                     }
                     continue;
                 }
@@ -340,9 +382,9 @@ public class ConfusionMatrix {
         PathFinder pathFinder = new PathFinder(modelConfig);
         SourceType sourceType = evalConfig.getDataSet().getSource();
 
-        List<Scanner> scanners = ShifuFileUtils.getDataScanners(pathFinder.getEvalScorePath(evalConfig, sourceType),
-                sourceType);
-        boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(evalConfig, sourceType), sourceType);
+        List<Scanner> scanners = ShifuFileUtils.getDataScanners(
+                pathFinder.getEvalScorePath(scoreEvalConfig, sourceType), sourceType);
+        boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(scoreEvalConfig, sourceType), sourceType);
         int cnt = 0;
         Set<String> posTags = new HashSet<String>(modelConfig.getPosTags(evalConfig));
         Set<String> negTags = new HashSet<String>(modelConfig.getNegTags(evalConfig));
@@ -356,20 +398,25 @@ public class ConfusionMatrix {
         int classes = tags.size();
 
         long[][] confusionMatrix = new long[classes][classes];
+        RecordTokenizer tokenizer = new RecordTokenizer(Constants.DEFAULT_DELIMITER);
         for(Scanner scanner: scanners) {
             while(scanner.hasNext()) {
                 if((++cnt) % 100000 == 0) {
                     log.info("Loaded " + cnt + " records.");
                 }
 
-                String[] raw = scanner.nextLine().split("\\|");
+                tokenizer.reset(scanner.nextLine());
 
                 if(!isDir && cnt == 1) {
                     // if the evaluation score file is the local file, skip the first line since we add
                     continue;
                 }
 
-                String tag = raw[targetColumnIndex];
+                if(!isSelected(tokenizer)) {
+                    continue;
+                }
+
+                String tag = getTarget(tokenizer);
                 if(modelConfig.isBinaryClassification()) {
                     if(StringUtils.isBlank(tag) || (!posTags.contains(tag) && !negTags.contains(tag))) {
                         if(rd.nextDouble() < 0.01) {
@@ -393,7 +440,7 @@ public class ConfusionMatrix {
                 // 1,2,3 4,5,6: 1,2,3 is model 0, 4,5,6 is model 1
                 for(int i = 0; i < classes; i++) {
                     for(int j = 0; j < multiClassModelCnt; j++) {
-                        double dd = NumberFormatUtils.getDouble(raw[this.multiClassScore1Index + j * classes + i], 0d);
+                        double dd = tokenizer.getDouble(this.multiClassScore1Index + j * classes + i, 0d);
                         scores[i] += dd;
                     }
                     scores[i] /= multiClassModelCnt;
@@ -450,10 +497,10 @@ public class ConfusionMatrix {
 
         SourceType sourceType = evalConfig.getDataSet().getSource();
 
-        List<Scanner> scanners = ShifuFileUtils.getDataScanners(pathFinder.getEvalScorePath(evalConfig, sourceType),
-                sourceType);
+        List<Scanner> scanners = ShifuFileUtils.getDataScanners(
+                pathFinder.getEvalScorePath(scoreEvalConfig, sourceType), sourceType);
 
-        boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(evalConfig, sourceType), sourceType);
+        boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(scoreEvalConfig, sourceType), sourceType);
 
         log.info("The size of scanner is {}", scanners.size());
 
@@ -477,13 +524,14 @@ public class ConfusionMatrix {
 
         ConfusionMatrixCalculator.saveConfusionMaxtrixWithWriter(confMatWriter, prevCmo);
 
+        RecordTokenizer tokenizer = new RecordTokenizer(Constants.DEFAULT_DELIMITER);
         for(Scanner scanner: scanners) {
             while(scanner.hasNext()) {
                 if((++cnt) % 100000 == 0) {
                     log.info("Loaded " + cnt + " records.");
                 }
 
-                String[] raw = scanner.nextLine().split("\\|");
+                tokenizer.reset(scanner.nextLine());
 
                 if((!isDir) && cnt == 1) {
                     // if the evaluation score file is the local file, skip the
@@ -491,7 +539,11 @@ public class ConfusionMatrix {
                     continue;
                 }
 
-                String tag = raw[targetColumnIndex];
+                if(!isSelected(tokenizer)) {
+                    continue;
+                }
+
+                String tag = getTarget(tokenizer);
                 if(StringUtils.isBlank(tag)) {
                     if(rd.nextDouble() < 0.01) {
                         log.warn("Empty target value!!");
@@ -500,23 +552,14 @@ public class ConfusionMatrix {
                     continue;
                 }
 
-                double weight = 1.0d;
-                if(this.weightColumnIndex > 0) {
-                    try {
-                        weight = Double.parseDouble(raw[1]);
-                    } catch (NumberFormatException e) {
-                        // Do nothing
-                    }
-                }
+                double weight = getWeight(tokenizer);
 
-                double score = 0.0;
-                try {
-                    score = Double.parseDouble(raw[scoreColumnIndex]);
-                } catch (NumberFormatException e) {
+                double score = tokenizer.getDouble(scoreColumnIndex, Double.NaN);
+                if(Double.isNaN(score)) {
                     // user set the score column wrong ?
                     if(rd.nextDouble() < 0.05) {
                         log.warn("The score column - {} is not integer. Is score column set correctly?",
-                                raw[scoreColumnIndex]);
+                                tokenizer.getString(scoreColumnIndex));
                     }
                     continue;
                 }
@@ -559,30 +602,36 @@ public class ConfusionMatrix {
 
         SourceType sourceType = evalConfig.getDataSet().getSource();
 
-        List<Scanner> scanners = ShifuFileUtils.getDataScanners(pathFinder.getEvalScorePath(evalConfig, sourceType),
-                sourceType);
+        List<Scanner> scanners = ShifuFileUtils.getDataScanners(
+                pathFinder.getEvalScorePath(scoreEvalConfig, sourceType), sourceType);
 
-        List<ModelResultObject> moList = new ArrayList<ModelResultObject>();
+        ConfusionMatrixCalculator calculator = new ConfusionMatrixCalculator(modelConfig.getPosTags(evalConfig),
+                modelConfig.getNegTags(evalConfig));
 
-        boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(evalConfig, sourceType), sourceType);
+        boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(scoreEvalConfig, sourceType), sourceType);
 
         log.info("The size of scanner is {}", scanners.size());
 
         int cnt = 0;
+        RecordTokenizer tokenizer = new RecordTokenizer(Constants.DEFAULT_DELIMITER);
         for(Scanner scanner: scanners) {
             while(scanner.hasNext()) {
                 if((++cnt) % 10000 == 0) {
                     log.info("Loaded " + cnt + " records.");
                 }
 
-                String[] raw = scanner.nextLine().split("\\|");
+                tokenizer.reset(scanner.nextLine());
                 if((!isDir) && cnt == 1) {
                     // if the evaluation score file is the local file, skip the
                     // first line since we add
                     continue;
                 }
 
-                String tag = raw[targetColumnIndex];
+                if(!isSelected(tokenizer)) {
+                    continue;
+                }
+
+                String tag = getTarget(tokenizer);
                 if(StringUtils.isBlank(tag)) {
                     if(rd.nextDouble() < 0.01) {
                         log.warn("Empty target value!!");
@@ -591,28 +640,19 @@ public class ConfusionMatrix {
                     continue;
                 }
 
-                double weight = 1.0d;
-                if(this.weightColumnIndex > 0) {
-                    try {
-                        weight = Double.parseDouble(raw[1]);
-                    } catch (NumberFormatException e) {
-                        // Do nothing
-                    }
-                }
+                double weight = getWeight(tokenizer);
 
-                double score = 0;
-                try {
-                    score = Double.parseDouble(raw[scoreColumnIndex]);
-                } catch (NumberFormatException e) {
+                double score = tokenizer.getDouble(scoreColumnIndex, Double.NaN);
+                if(Double.isNaN(score)) {
                     // user set the score column wrong ?
                     if(rd.nextDouble() < 0.05) {
                         log.warn("The score column - {} is not integer. Is score column set correctly?",
-                                raw[scoreColumnIndex]);
+                                tokenizer.getString(scoreColumnIndex));
                     }
                     continue;
                 }
 
-                moList.add(new ModelResultObject(score, tag, weight));
+                calculator.addResult(score, tag, weight);
             }
 
             // release resource
@@ -621,22 +661,23 @@ public class ConfusionMatrix {
 
         log.info("Totally loaded " + cnt + " records.");
 
-        if(cnt == 0 || moList.size() == 0) {
+        if(cnt == 0 || calculator.size() == 0) {
             log.error("No score read, the EvalScore did not genernate or is null file");
             throw new ShifuException(ShifuErrorCode.ERROR_EVALSCORE);
         }
 
-        ConfusionMatrixCalculator calculator = new ConfusionMatrixCalculator(modelConfig.getPosTags(evalConfig),
-                modelConfig.getNegTags(evalConfig), moList);
-
         PathFinder finder = new PathFinder(modelConfig);
 
         BufferedWriter confMatWriter = ShifuFileUtils.getWriter(finder.getEvalMatrixPath(evalConfig, evalConfig
                 .getDataSet().getSource()), evalConfig.getDataSet().getSource());
 
-        calculator.calculate(confMatWriter);
+        // performance is bucketed in the same sweep of writing confusion matrix
+        PerformanceResult result = calculator.calculate(confMatWriter, evalConfig.getPerformanceBucketNum(),
+                evalConfig.getDataSet().getWeightColumnName() != null);
 
         confMatWriter.close();
 
+        new PerformanceEvaluator(modelConfig, evalConfig).writePerformance(result);
+
     }
 }
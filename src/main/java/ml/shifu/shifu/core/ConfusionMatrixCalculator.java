@@ -17,25 +17,34 @@ package ml.shifu.shifu.core;
 
 import ml.shifu.shifu.container.ConfusionMatrixObject;
 import ml.shifu.shifu.container.ModelResultObject;
-import ml.shifu.shifu.util.QuickSort;
+import ml.shifu.shifu.container.obj.PerformanceResult;
+import ml.shifu.shifu.util.ParallelSort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Confusion matrix calculator
+ * 
+ * <p>
+ * Scores, weights and tags are kept in primitive arrays and sorted by {@link ParallelSort}. Cumulative counts are
+ * computed in one sweep with only one {@link ConfusionMatrixObject} updated in place, objects are created only for
+ * returned lists and bucket points of {@link PerformanceBucketer}.
  */
 public class ConfusionMatrixCalculator {
 
     private static Logger log = LoggerFactory.getLogger(ConfusionMatrixCalculator.class);
 
+    private static final int INITIAL_CAPACITY = 1024;
+
     // input
-    private List<ModelResultObject> moList;
-    private List<String> posTags;
+    private Set<String> posTags;
 
     @SuppressWarnings("unused")
     private List<String> negTags;
@@ -45,32 +54,80 @@ public class ConfusionMatrixCalculator {
 
     private static String fmt = "%s|%s|%s|%s|%s|%s|%s|%s|%s\n";
 
-    public ConfusionMatrixCalculator(List<String> posTags, List<String> negTags, List<ModelResultObject> moList) {
-        this.moList = moList;
-        this.posTags = posTags;
+    private double[] scores = new double[INITIAL_CAPACITY];
+    private double[] weights = new double[INITIAL_CAPACITY];
+    private boolean[] positives = new boolean[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Indexes sorted by score descending, null if new results are added.
+     */
+    private int[] sortedIndexes;
+
+    public ConfusionMatrixCalculator(List<String> posTags, List<String> negTags) {
+        this.posTags = new HashSet<String>(posTags);
         this.negTags = negTags;
-        QuickSort.sort(this.moList, new ModelResultObject.ModelResultObjectComparator());
     }
 
-    public List<ConfusionMatrixObject> calculate() {
+    public ConfusionMatrixCalculator(List<String> posTags, List<String> negTags, List<ModelResultObject> moList) {
+        this(posTags, negTags);
+        for(ModelResultObject mo: moList) {
+            addResult(mo.getScore(), mo.getTag(), mo.getWeight());
+        }
+    }
 
-        List<ConfusionMatrixObject> cmoList = new ArrayList<ConfusionMatrixObject>();
+    /**
+     * Add one scored record, tags not in positive tags are negative.
+     */
+    public void addResult(double score, String tag, double weight) {
+        if(this.size == this.scores.length) {
+            int capacity = this.size * 2;
+            double[] newScores = new double[capacity];
+            double[] newWeights = new double[capacity];
+            boolean[] newPositives = new boolean[capacity];
+            System.arraycopy(this.scores, 0, newScores, 0, this.size);
+            System.arraycopy(this.weights, 0, newWeights, 0, this.size);
+            System.arraycopy(this.positives, 0, newPositives, 0, this.size);
+            this.scores = newScores;
+            this.weights = newWeights;
+            this.positives = newPositives;
+        }
+        this.scores[this.size] = score;
+        this.weights[this.size] = weight;
+        this.positives[this.size] = this.posTags.contains(tag);
+        this.size += 1;
+        this.sortedIndexes = null;
+    }
 
+    public int size() {
+        return this.size;
+    }
+
+    private int[] getSortedIndexes() {
+        if(this.sortedIndexes == null) {
+            this.sortedIndexes = ParallelSort.sortIndexesDescending(this.scores, this.size);
+        }
+        return this.sortedIndexes;
+    }
+
+    /**
+     * Init confusion matrix that all records are predicted negative.
+     */
+    private ConfusionMatrixObject initConfusionMatrix() {
         // Calculate the sum
-        Double sumPos = 0.0, sumNeg = 0.0, sumWeightedPos = 0.0, sumWeightedNeg = 0.0;
-        for(ModelResultObject mo: moList) {
-            if(posTags.contains(mo.getTag())) {
+        double sumPos = 0.0, sumNeg = 0.0, sumWeightedPos = 0.0, sumWeightedNeg = 0.0;
+        for(int i = 0; i < this.size; i++) {
+            if(this.positives[i]) {
                 // Positive
                 sumPos += posScaleFactor;
-                sumWeightedPos += mo.getWeight() * posScaleFactor;
+                sumWeightedPos += this.weights[i] * posScaleFactor;
             } else {
                 // Negative
                 sumNeg += negScaleFactor;
-                sumWeightedNeg += mo.getWeight() * negScaleFactor;
+                sumWeightedNeg += this.weights[i] * negScaleFactor;
             }
         }
 
-        // init ConfusionMatrix
         ConfusionMatrixObject initCmo = new ConfusionMatrixObject();
         initCmo.setTp(0.0);
         initCmo.setFp(0.0);
@@ -80,31 +137,44 @@ public class ConfusionMatrixCalculator {
         initCmo.setWeightedFp(0.0);
         initCmo.setWeightedFn(sumWeightedPos);
         initCmo.setWeightedTn(sumWeightedNeg);
-        initCmo.setScore(moList.get(0).getScore());
+        return initCmo;
+    }
+
+    /**
+     * Move one record from predicted negative to predicted positive.
+     */
+    private void update(ConfusionMatrixObject cmo, int index) {
+        double weight = this.weights[index];
+        if(this.positives[index]) {
+            // Positive Instance
+            cmo.setTp(cmo.getTp() + posScaleFactor);
+            cmo.setFn(cmo.getFn() - posScaleFactor);
+            cmo.setWeightedTp(cmo.getWeightedTp() + weight * posScaleFactor);
+            cmo.setWeightedFn(cmo.getWeightedFn() - weight * posScaleFactor);
+        } else {
+            // Negative Instance
+            cmo.setFp(cmo.getFp() + negScaleFactor);
+            cmo.setTn(cmo.getTn() - negScaleFactor);
+            cmo.setWeightedFp(cmo.getWeightedFp() + weight * negScaleFactor);
+            cmo.setWeightedTn(cmo.getWeightedTn() - weight * negScaleFactor);
+        }
+        cmo.setScore(this.scores[index]);
+    }
+
+    public List<ConfusionMatrixObject> calculate() {
+        int[] indexes = getSortedIndexes();
+        List<ConfusionMatrixObject> cmoList = new ArrayList<ConfusionMatrixObject>(this.size + 1);
+
+        ConfusionMatrixObject initCmo = initConfusionMatrix();
+        initCmo.setScore(this.scores[indexes[0]]);
         cmoList.add(initCmo);
 
         // Calculate the rest
-        ConfusionMatrixObject prevCmo = initCmo;
-        for(ModelResultObject mo: moList) {
-            ConfusionMatrixObject cmo = new ConfusionMatrixObject(prevCmo);
-
-            if(posTags.contains(mo.getTag())) {
-                // Positive Instance
-                cmo.setTp(cmo.getTp() + posScaleFactor);
-                cmo.setFn(cmo.getFn() - posScaleFactor);
-                cmo.setWeightedTp(cmo.getWeightedTp() + mo.getWeight() * posScaleFactor);
-                cmo.setWeightedFn(cmo.getWeightedFn() - mo.getWeight() * posScaleFactor);
-            } else {
-                // Negative Instance
-                cmo.setFp(cmo.getFp() + negScaleFactor);
-                cmo.setTn(cmo.getTn() - negScaleFactor);
-                cmo.setWeightedFp(cmo.getWeightedFp() + mo.getWeight() * negScaleFactor);
-                cmo.setWeightedTn(cmo.getWeightedTn() - mo.getWeight() * negScaleFactor);
-            }
-
-            cmo.setScore(mo.getScore());
+        ConfusionMatrixObject cmo = new ConfusionMatrixObject(initCmo);
+        for(int i = 0; i < this.size; i++) {
+            update(cmo, indexes[i]);
             cmoList.add(cmo);
-            prevCmo = cmo;
+            cmo = new ConfusionMatrixObject(cmo);
         }
 
         return cmoList;
@@ -119,56 +189,76 @@ public class ConfusionMatrixCalculator {
     }
 
     public void calculate(BufferedWriter writer) {
+        calculate(writer, null);
+    }
 
-        Double sumPos = 0.0, sumNeg = 0.0, sumWeightedPos = 0.0, sumWeightedNeg = 0.0;
-        for(ModelResultObject mo: moList) {
-            if(posTags.contains(mo.getTag())) {
-                // Positive
-                sumPos += posScaleFactor;
-                sumWeightedPos += mo.getWeight() * posScaleFactor;
-            } else {
-                // Negative
-                sumNeg += negScaleFactor;
-                sumWeightedNeg += mo.getWeight() * negScaleFactor;
-            }
-        }
+    /**
+     * Write confusion matrix of all records and bucket performance in the same sweep.
+     * 
+     * @param writer
+     *            - confusion matrix writer, the first line is the init matrix with score 1000
+     * @param numBucket
+     *            - number of performance buckets
+     * @param isWeight
+     *            - if weighted curves are logged
+     * @return performance result the same as {@link PerformanceEvaluator#review()} on the written confusion matrix
+     */
+    public PerformanceResult calculate(BufferedWriter writer, int numBucket, boolean isWeight) {
+        // the init line is counted as PerformanceEvaluator does when reading confusion matrix file
+        PerformanceBucketer bucketer = new PerformanceBucketer(this.size + 1L, numBucket);
+        calculate(writer, bucketer);
+        return bucketer.getResult(isWeight);
+    }
 
-        ConfusionMatrixObject prevCmo = new ConfusionMatrixObject();
+    private void calculate(BufferedWriter writer, PerformanceBucketer bucketer) {
+        int[] indexes = getSortedIndexes();
 
-        prevCmo.setTp(0.0);
-        prevCmo.setFp(0.0);
-        prevCmo.setFn(sumPos);
-        prevCmo.setTn(sumNeg);
-        prevCmo.setWeightedTp(0.0);
-        prevCmo.setWeightedFp(0.0);
-        prevCmo.setWeightedFn(sumWeightedPos);
-        prevCmo.setWeightedTn(sumWeightedNeg);
-        prevCmo.setScore(1000);
+        ConfusionMatrixObject cmo = initConfusionMatrix();
+        cmo.setScore(1000);
 
-        saveConfusionMaxtrixWithWriter(writer, prevCmo);
+        StringBuilder line = new StringBuilder(200);
+        for(int i = -1; i < this.size; i++) {
+            if(i >= 0) {
+                update(cmo, indexes[i]);
+            }
+            if(!saveConfusionMatrix(writer, line, cmo)) {
+                return;
+            }
+            if(bucketer != null) {
+                if(bucketer.isBucketPoint(cmo)) {
+                    ConfusionMatrixObject point = new ConfusionMatrixObject(cmo);
+                    point.setScore(cmo.getScore());
+                    bucketer.add(point);
+                } else {
+                    bucketer.skip();
+                }
+            }
+        }
+    }
 
-        for(ModelResultObject mo: moList) {
-            ConfusionMatrixObject cmo = new ConfusionMatrixObject(prevCmo);
-
-            if(posTags.contains(mo.getTag())) {
-                // Positive Instance
-                cmo.setTp(cmo.getTp() + posScaleFactor);
-                cmo.setFn(cmo.getFn() - posScaleFactor);
-                cmo.setWeightedTp(cmo.getWeightedTp() + mo.getWeight() * posScaleFactor);
-                cmo.setWeightedFn(cmo.getWeightedFn() - mo.getWeight() * posScaleFactor);
-            } else {
-                // Negative Instance
-                cmo.setFp(cmo.getFp() + negScaleFactor);
-                cmo.setTn(cmo.getTn() - negScaleFactor);
-                cmo.setWeightedFp(cmo.getWeightedFp() + mo.getWeight() * negScaleFactor);
-                cmo.setWeightedTn(cmo.getWeightedTn() - mo.getWeight() * negScaleFactor);
+    /**
+     * Same format as {@link #saveConfusionMaxtrixWithWriter(BufferedWriter, ConfusionMatrixObject)} without
+     * String.format.
+     */
+    private static boolean saveConfusionMatrix(BufferedWriter writer, StringBuilder line, ConfusionMatrixObject cmo) {
+        line.setLength(0);
+        line.append(cmo.getTp()).append('|').append(cmo.getFp()).append('|').append(cmo.getFn()).append('|')
+                .append(cmo.getTn()).append('|').append(cmo.getWeightedTp()).append('|').append(cmo.getWeightedFp())
+                .append('|').append(cmo.getWeightedFn()).append('|').append(cmo.getWeightedTn()).append('|')
+                .append(cmo.getScore()).append('\n');
+        try {
+            writer.append(line);
+            return true;
+        } catch (IOException e) {
+            try {
+                writer.close();
+            } catch (IOException e1) {
+                log.error("Could not close the writer while write into confusion matrix");
             }
 
-            cmo.setScore(mo.getScore());
-            saveConfusionMaxtrixWithWriter(writer, cmo);
-            prevCmo = cmo;
+            log.error("Could not write into confusion matrix");
+            return false;
         }
-
     }
 
     public static void saveConfusionMaxtrixWithWriter(BufferedWriter writer, ConfusionMatrixObject cmo) {
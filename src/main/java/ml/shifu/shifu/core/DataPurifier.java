@@ -17,11 +17,9 @@ package ml.shifu.shifu.core;
 
 import ml.shifu.shifu.container.obj.EvalConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.core.expr.ColumnExpression;
 import ml.shifu.shifu.util.CommonUtils;
-import org.apache.commons.jexl2.Expression;
-import org.apache.commons.jexl2.JexlEngine;
 import org.apache.commons.jexl2.JexlException;
-import org.apache.commons.jexl2.MapContext;
 import org.apache.commons.lang.StringUtils;
 import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.data.Tuple;
@@ -33,6 +31,9 @@ import java.io.IOException;
 
 /**
  * DataPurifier class
+ * <p>
+ * Filter expression is compiled by {@link ColumnExpression}, only columns referenced in expression are read from
+ * each record.
  */
 public class DataPurifier {
 
@@ -40,41 +41,39 @@ public class DataPurifier {
 
     private String[] headers;
     private String dataDelimiter;
-    private Expression dataFilterExpr;
-    private ShifuMapContext jc = new ShifuMapContext();
+    private ColumnExpression dataFilterExpr;
+
+    // reuse fields array for tuple input
+    private String[] tupleFields;
 
     public DataPurifier(ModelConfig modelConfig) throws IOException {
         if (StringUtils.isNotBlank(modelConfig.getFilterExpressions())) {
-            JexlEngine jexl = new JexlEngine();
-            try {
-                dataFilterExpr = jexl.createExpression(modelConfig.getFilterExpressions());
-            } catch (JexlException e) {
-                log.error("The expression is {} is invalid, please use correct expression.", modelConfig.getFilterExpressions());
-                dataFilterExpr = null;
-            }
             headers = CommonUtils.getHeaders(
                     modelConfig.getHeaderPath(),
                     modelConfig.getHeaderDelimiter(),
                     modelConfig.getDataSet().getSource());
             dataDelimiter = modelConfig.getDataSetDelimiter();
+            dataFilterExpr = createExpression(modelConfig.getFilterExpressions(), headers);
         }
     }
 
     public DataPurifier(EvalConfig evalConfig) throws IOException {
         if (StringUtils.isNotBlank(evalConfig.getDataSet().getFilterExpressions())) {
-            JexlEngine jexl = new JexlEngine();
-            try {
-                dataFilterExpr = jexl.createExpression(evalConfig.getDataSet().getFilterExpressions());
-            } catch (JexlException e) {
-                log.error("The expression is {} is invalid, please use correct expression.", evalConfig.getDataSet().getFilterExpressions());
-                dataFilterExpr = null;
-            }
-
             headers = CommonUtils.getHeaders(
                     evalConfig.getDataSet().getHeaderPath(),
                     evalConfig.getDataSet().getHeaderDelimiter(),
                     evalConfig.getDataSet().getSource());
             dataDelimiter = evalConfig.getDataSet().getDataDelimiter();
+            dataFilterExpr = createExpression(evalConfig.getDataSet().getFilterExpressions(), headers);
+        }
+    }
+
+    private static ColumnExpression createExpression(String expression, String[] headers) {
+        try {
+            return new ColumnExpression(expression, headers);
+        } catch (JexlException e) {
+            log.error("The expression is {} is invalid, please use correct expression.", expression);
+            return null;
         }
     }
 
@@ -83,32 +82,28 @@ public class DataPurifier {
             return true;
         }
 
-        String[] fields = CommonUtils.split(record, dataDelimiter);
-        if (fields == null || fields.length != headers.length) {
-            // illegal format data, just skip
-            return false;
-        }
-
-        jc.clear();
-
-        for (int i = 0; i < fields.length; i++) {
-            jc.set(headers[i], ((fields[i] == null) ? "" : fields[i].toString()));
-        }
-
-        Boolean result = Boolean.FALSE;
-        Object retObj = null;
+        return isFilterOut(CommonUtils.split(record, dataDelimiter));
+    }
 
-        try {
-            retObj = dataFilterExpr.evaluate(jc);
-        } catch ( Throwable e ) {
-            log.debug("Error occurred when trying to evaluate", dataFilterExpr.toString(), e);
+    /**
+     * Check record which is already split by data delimiter, callers who need fields of the record should split once
+     * and call this method to avoid splitting again.
+     * 
+     * @param fields
+     *            - fields of the record
+     * @return true if the record is selected by filter expression or no filter expression
+     */
+    public Boolean isFilterOut(String[] fields) {
+        if (dataFilterExpr == null) {
+            return true;
         }
 
-        if (retObj != null && retObj instanceof Boolean) {
-            result = (Boolean) retObj;
+        if (fields == null || fields.length != headers.length) {
+            // illegal format data, just skip
+            return false;
         }
 
-        return result;
+        return dataFilterExpr.evaluateAsBoolean(fields);
     }
 
     public Boolean isFilterOut(Tuple input) throws ExecException {
@@ -121,38 +116,15 @@ public class DataPurifier {
             return false;
         }
 
-        jc.clear();
-
-        for (int i = 0; i < input.size(); i++) {
-            jc.set(headers[i], ((input.get(i) == null) ? null : input.get(i).toString()));
+        if (tupleFields == null) {
+            tupleFields = new String[headers.length];
         }
-
-        Boolean result = Boolean.FALSE;
-        Object retObj = null;
-        try {
-            retObj = dataFilterExpr.evaluate(jc);
-        } catch ( Throwable e ) {
-            log.debug("Error occurred when trying to evaluate", dataFilterExpr.toString(), e);
+        for (int i : dataFilterExpr.getColumnIndexes()) {
+            Object value = input.get(i);
+            tupleFields[i] = ((value == null) ? null : value.toString());
         }
 
-        if (retObj != null && retObj instanceof Boolean) {
-            result = (Boolean) retObj;
-        }
-
-        return result;
-    }
-
-    // reuse context
-    public static class ShifuMapContext extends MapContext {
-        public ShifuMapContext() {
-            super();
-        }
-
-        public void clear() {
-            if (super.map != null) {
-                map.clear();
-            }
-        }
+        return dataFilterExpr.evaluateAsBoolean(tupleFields);
     }
 
 }
\ No newline at end of file
@@ -25,6 +25,10 @@ import org.slf4j.LoggerFactory;
 /**
  * DataSampler class
  * - Output: column 0 is tag, following final select vars
+ * 
+ * <p>
+ * Records are sampled randomly, {@link RecordSampler} is used in stats and normalize steps for deterministic and
+ * stratified sampling.
  */
 public class DataSampler {
     private static Logger log = LoggerFactory.getLogger(DataSampler.class);
@@ -0,0 +1,135 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.encog.engine.network.activation.ActivationFunction;
+import org.encog.mathutil.IntRange;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLDataPair;
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.encog.neural.flat.FlatNetwork;
+import org.encog.util.concurrency.DetermineWorkload;
+
+/**
+ * Helper functions shared by {@link NetworkMSECalculator} and {@link ClampedMSECalculator} to forward records on
+ * current weights of a {@link FlatNetwork} without cloning the network or copying data.
+ */
+final class FlatNetworkUtils {
+
+    private FlatNetworkUtils() {
+    }
+
+    /**
+     * Reference input arrays and the first ideal value of all records in data set. Input arrays of
+     * {@link BasicMLDataSet} are referenced directly, other data sets like index views of in-memory master data set
+     * are read once by {@link MLDataSet#getRecord(long, MLDataPair)}.
+     * 
+     * @param dataSet
+     *            - data set to read, should be in memory
+     * @param inputs
+     *            - input arrays to be set, size is record count of data set
+     * @param ideals
+     *            - ideal values to be set, size is record count of data set
+     */
+    static void referenceRecords(MLDataSet dataSet, double[][] inputs, double[] ideals) {
+        if(dataSet instanceof BasicMLDataSet) {
+            List<MLDataPair> pairs = ((BasicMLDataSet) dataSet).getData();
+            for(int i = 0; i < inputs.length; i++) {
+                MLDataPair pair = pairs.get(i);
+                inputs[i] = pair.getInputArray();
+                ideals[i] = pair.getIdealArray()[0];
+            }
+        } else {
+            for(int i = 0; i < inputs.length; i++) {
+                MLDataPair pair = BasicMLDataPair.createPair(dataSet.getInputSize(), dataSet.getIdealSize());
+                dataSet.getRecord(i, pair);
+                inputs[i] = pair.getInputArray();
+                ideals[i] = pair.getIdealArray()[0];
+            }
+        }
+    }
+
+    /**
+     * Split records into ranges computed by different workers.
+     * 
+     * @param numRecords
+     *            - number of records
+     * @param threadCount
+     *            - number of workers, 0 means decided by Encog according to cores
+     * @return record ranges, empty if no records
+     */
+    static List<IntRange> splitRanges(int numRecords, int threadCount) {
+        if(numRecords == 0) {
+            return Collections.emptyList();
+        }
+        return new DetermineWorkload(threadCount, numRecords).calculateWorkers();
+    }
+
+    /**
+     * Activation functions may keep state, clone them for each thread.
+     */
+    static ActivationFunction[] cloneActivations(FlatNetwork flat) {
+        ActivationFunction[] functions = flat.getActivationFunctions();
+        ActivationFunction[] activations = new ActivationFunction[functions.length];
+        for(int i = 0; i < activations.length; i++) {
+            activations[i] = functions[i].clone();
+        }
+        return activations;
+    }
+
+    /**
+     * Forward layers from layer {@code start} to output layer, the same as FlatNetwork#computeLayer. Values of layer
+     * {@code start} should be set in layer output already.
+     * 
+     * @param flat
+     *            - network with current weights
+     * @param layerOutput
+     *            - layer output buffer of current thread
+     * @param activations
+     *            - activation functions of current thread
+     * @param start
+     *            - index of layer to forward from, layers are indexed from output to input in flat network
+     * @return output of the first output neuron
+     */
+    static double computeLayers(FlatNetwork flat, double[] layerOutput, ActivationFunction[] activations, int start) {
+        double[] weights = flat.getWeights();
+        int[] layerIndex = flat.getLayerIndex();
+        int[] layerCounts = flat.getLayerCounts();
+        int[] layerFeedCounts = flat.getLayerFeedCounts();
+        int[] weightIndex = flat.getWeightIndex();
+        for(int i = start; i > 0; i--) {
+            int inputIndex = layerIndex[i];
+            int inputSize = layerCounts[i];
+            int nextIndex = layerIndex[i - 1];
+            int nextSize = layerFeedCounts[i - 1];
+            int index = weightIndex[i - 1];
+            for(int x = nextIndex; x < nextIndex + nextSize; x++) {
+                double sum = 0d;
+                for(int y = inputIndex; y < inputIndex + inputSize; y++) {
+                    sum += weights[index++] * layerOutput[y];
+                }
+                layerOutput[x] = sum;
+            }
+            activations[i - 1].activationFunction(layerOutput, nextIndex, nextSize);
+        }
+        return layerOutput[layerIndex[0]];
+    }
+
+}
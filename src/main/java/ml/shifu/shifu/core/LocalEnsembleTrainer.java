@@ -0,0 +1,127 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.Environment;
+
+import org.encog.ml.data.MLDataSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link LocalEnsembleTrainer} trains bagging models of local mode together on one in-memory master data set.
+ * 
+ * <p>
+ * Training set and validation set of each trainer are index views of the master data set (see
+ * {@link AbstractTrainer#setDataSet(MLDataSet)}), so memory of data is not multiplied by bagging number. Trainers are
+ * scheduled in one thread pool sized to cores, and cores are divided among trainers running at the same time as
+ * threads of each propagation, so bagging models neither run one by one nor each compete for all cores.
+ */
+public class LocalEnsembleTrainer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalEnsembleTrainer.class);
+
+    private final List<AbstractTrainer> trainers;
+
+    private final MLDataSet masterDataSet;
+
+    private final int cores;
+
+    public LocalEnsembleTrainer(List<AbstractTrainer> trainers, MLDataSet masterDataSet) {
+        this(trainers, masterDataSet, Runtime.getRuntime().availableProcessors());
+    }
+
+    public LocalEnsembleTrainer(List<AbstractTrainer> trainers, MLDataSet masterDataSet, int cores) {
+        this.trainers = trainers;
+        this.masterDataSet = masterDataSet;
+        this.cores = Math.max(1, cores);
+    }
+
+    /**
+     * If bagging models of local mode are trained by {@link LocalEnsembleTrainer}, master data set can only be shared
+     * when training in memory.
+     */
+    public static boolean isEnabled(ModelConfig modelConfig) {
+        return !modelConfig.isTrainOnDisk()
+                && Boolean.valueOf(Environment.getProperty(Environment.LOCAL_ENSEMBLE_TRAIN, "true")).booleanValue();
+    }
+
+    public List<AbstractTrainer> getTrainers() {
+        return this.trainers;
+    }
+
+    /**
+     * Number of trainers running at the same time.
+     */
+    public static int getParallelNum(int numTrainers, int cores) {
+        return Math.max(1, Math.min(numTrainers, cores));
+    }
+
+    /**
+     * Number of threads for each trainer, cores are divided by trainers running at the same time and rounded up.
+     */
+    public static int getThreadCountPerTrainer(int numTrainers, int cores) {
+        int parallelNum = getParallelNum(numTrainers, cores);
+        return Math.max(1, (cores + parallelNum - 1) / parallelNum);
+    }
+
+    /**
+     * Train all models and wait for them finished.
+     * 
+     * @return validation errors of trainers in the same order of trainers
+     * @throws IOException
+     *             the first exception in training, thrown after all trainers are finished
+     */
+    public List<Double> train() throws IOException {
+        int parallelNum = getParallelNum(this.trainers.size(), this.cores);
+        int threadCount = getThreadCountPerTrainer(this.trainers.size(), this.cores);
+        LOG.info("Training {} models with {} models in parallel and {} threads for each model.", this.trainers.size(),
+                parallelNum, threadCount);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelNum);
+        List<Future<Double>> futures = new ArrayList<Future<Double>>(this.trainers.size());
+        List<String> taskNames = new ArrayList<String>(this.trainers.size());
+        try {
+            for(final AbstractTrainer trainer: this.trainers) {
+                trainer.setThreadCount(threadCount);
+                futures.add(executor.submit(new Callable<Double>() {
+                    @Override
+                    public Double call() throws IOException {
+                        // sampling of bagging is run in the same thread, master data set is only read
+                        trainer.setDataSet(LocalEnsembleTrainer.this.masterDataSet);
+                        return trainer.train();
+                    }
+                }));
+                taskNames.add("training model " + taskNames.size());
+            }
+
+            return CommonUtils.waitForAll(futures, taskNames);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import ml.shifu.shifu.core.dtrain.dataset.BinaryNetworkPersistence;
+import ml.shifu.shifu.util.CommonUtils;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.encog.ml.BasicML;
+import org.encog.neural.networks.BasicNetwork;
+
+/**
+ * {@link ModelCache} is a JVM-wide cache of loaded models keyed by model path, and a cached model is reloaded if
+ * modification time or length of model file is changed.
+ * 
+ * <p>
+ * One model file is parsed only once even if it is requested by many UDF instances or threads at the same time. For
+ * {@link BasicNetwork}, weights and other read-only states are shared and each caller gets its own lightweight network
+ * instance with private layer outputs by {@link BinaryNetworkPersistence#shareNetwork(BasicNetwork)}. {@link LR} is
+ * immutable and shared directly. Other models are not cached.
+ */
+public final class ModelCache {
+
+    private static final ModelCache INSTANCE = new ModelCache();
+
+    private final ConcurrentMap<String, CachedModel> models = new ConcurrentHashMap<String, CachedModel>();
+
+    private ModelCache() {
+    }
+
+    public static ModelCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get model of such model file from cache, model is loaded by {@link CommonUtils#loadModel(Path, FileSystem)} if
+     * it is not in cache or model file is changed.
+     * 
+     * @param fs
+     *            - file system of model file
+     * @param status
+     *            - status of model file
+     * @return model which can be used by caller exclusively
+     * @throws IOException
+     *             if any IO exception in loading model
+     */
+    public BasicML getModel(final FileSystem fs, FileStatus status) throws IOException {
+        final Path path = fs.makeQualified(status.getPath());
+        String key = path.toString();
+        while(true) {
+            CachedModel cached = this.models.get(key);
+            if(cached == null || !cached.isSameFile(status)) {
+                CachedModel loading = new CachedModel(status, new FutureTask<BasicML>(new Callable<BasicML>() {
+                    @Override
+                    public BasicML call() throws Exception {
+                        return CommonUtils.loadModel(path, fs);
+                    }
+                }));
+                boolean isOwner = cached == null ? this.models.putIfAbsent(key, loading) == null : this.models
+                        .replace(key, cached, loading);
+                if(!isOwner) {
+                    // other thread is loading the same model
+                    continue;
+                }
+                loading.task.run();
+                cached = loading;
+            }
+
+            BasicML model;
+            try {
+                model = cached.task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                this.models.remove(key, cached);
+                if(e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                } else if(e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+
+            if(model instanceof BasicNetwork) {
+                return BinaryNetworkPersistence.shareNetwork((BasicNetwork) model);
+            } else if(model instanceof LR) {
+                return model;
+            } else {
+                // not safe to share, remove it and load again next time
+                this.models.remove(key, cached);
+                return model;
+            }
+        }
+    }
+
+    /**
+     * Remove all cached models.
+     */
+    public void clear() {
+        this.models.clear();
+    }
+
+    private static class CachedModel {
+
+        private final long modificationTime;
+
+        private final long length;
+
+        private final FutureTask<BasicML> task;
+
+        public CachedModel(FileStatus status, FutureTask<BasicML> task) {
+            this.modificationTime = status.getModificationTime();
+            this.length = status.getLen();
+            this.task = task;
+        }
+
+        public boolean isSameFile(FileStatus status) {
+            return this.modificationTime == status.getModificationTime() && this.length == status.getLen();
+        }
+    }
+
+}
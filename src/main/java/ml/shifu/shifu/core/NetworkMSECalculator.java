@@ -0,0 +1,136 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.List;
+
+import org.encog.engine.network.activation.ActivationFunction;
+import org.encog.mathutil.IntRange;
+import org.encog.ml.data.MLDataSet;
+import org.encog.neural.flat.FlatNetwork;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.EngineTask;
+import org.encog.util.concurrency.TaskGroup;
+
+/**
+ * {@link NetworkMSECalculator} computes MSE of a feed-forward network on one fixed data set many times, which is used
+ * to compute validation error after each training epoch.
+ * 
+ * <p>
+ * Different from {@link ml.shifu.shifu.core.alg.NNTrainer#calculateMSEParallel(BasicNetwork, MLDataSet)}, network is
+ * not cloned for each call. Workers of record ranges are created once, each one forwards records with its own layer
+ * output buffer on current weights of the network, weights are read only and updated in place by training between
+ * calls. Input arrays of the data set are referenced and not copied, so only in-memory data set should be used.
+ */
+public class NetworkMSECalculator {
+
+    private final FlatNetwork flat;
+
+    private final double[][] inputs;
+
+    private final double[] ideals;
+
+    private final CalculateWorker[] workers;
+
+    /**
+     * Constructor
+     * 
+     * @param network
+     *            - network trained, structure should not be changed after
+     * @param dataSet
+     *            - data set to compute MSE
+     * @param threadCount
+     *            - number of workers, 0 means decided by Encog according to cores
+     */
+    public NetworkMSECalculator(BasicNetwork network, MLDataSet dataSet, int threadCount) {
+        this.flat = network.getStructure().getFlat();
+
+        int numRecords = (int) dataSet.getRecordCount();
+        this.inputs = new double[numRecords][];
+        this.ideals = new double[numRecords];
+        FlatNetworkUtils.referenceRecords(dataSet, this.inputs, this.ideals);
+
+        List<IntRange> ranges = FlatNetworkUtils.splitRanges(numRecords, threadCount);
+        this.workers = new CalculateWorker[ranges.size()];
+        for(int i = 0; i < this.workers.length; i++) {
+            this.workers[i] = new CalculateWorker(ranges.get(i).getLow(), ranges.get(i).getHigh());
+        }
+    }
+
+    /**
+     * Calculate MSE with current weights of the network.
+     */
+    public double calculate() {
+        if(this.workers.length == 1) {
+            this.workers[0].run();
+        } else {
+            TaskGroup group = EngineConcurrency.getInstance().createTaskGroup();
+            for(CalculateWorker worker: this.workers) {
+                EngineConcurrency.getInstance().processTask(worker, group);
+            }
+            group.waitForComplete();
+        }
+
+        double totalError = 0d;
+        for(CalculateWorker worker: this.workers) {
+            totalError += worker.error;
+        }
+        return totalError / this.inputs.length;
+    }
+
+    /**
+     * Worker to accumulate squared errors in one range of records, buffers are reused between calculations.
+     */
+    private class CalculateWorker implements EngineTask {
+
+        private final int low;
+
+        private final int high;
+
+        private final double[] layerOutput;
+
+        private final ActivationFunction[] activations;
+
+        private double error;
+
+        public CalculateWorker(int low, int high) {
+            this.low = low;
+            this.high = high;
+            // bias neurons are set in layer output of flat network and never changed in forward
+            this.layerOutput = flat.getLayerOutput().clone();
+            this.activations = FlatNetworkUtils.cloneActivations(flat);
+        }
+
+        @Override
+        public void run() {
+            int[] layerCounts = flat.getLayerCounts();
+            int layers = layerCounts.length;
+            int sourceIndex = this.layerOutput.length - layerCounts[layers - 1];
+            int inputCount = flat.getInputCount();
+
+            double sum = 0d;
+            for(int r = this.low; r <= this.high; r++) {
+                System.arraycopy(inputs[r], 0, this.layerOutput, sourceIndex, inputCount);
+                double diff = FlatNetworkUtils.computeLayers(flat, this.layerOutput, this.activations, layers - 1)
+                        - ideals[r];
+                sum += diff * diff;
+            }
+            this.error = sum;
+        }
+    }
+
+}
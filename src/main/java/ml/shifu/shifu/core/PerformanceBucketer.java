@@ -0,0 +1,199 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ml.shifu.shifu.container.ConfusionMatrixObject;
+import ml.shifu.shifu.container.PerformanceObject;
+import ml.shifu.shifu.container.obj.PerformanceResult;
+import ml.shifu.shifu.core.eval.AreaUnderCurve;
+import ml.shifu.shifu.util.Constants;
+
+/**
+ * {@link PerformanceBucketer} buckets confusion matrix objects one by one in score descending order, which is used by
+ * {@link PerformanceEvaluator#bucketing(Iterable, long, int, boolean)}.
+ * 
+ * <p>
+ * Only a few objects cross the next bin of at least one curve. {@link #isBucketPoint(ConfusionMatrixObject)} checks it
+ * without creating any object, callers can {@link #skip()} other rows and create objects only for bucket points, the
+ * result is the same as adding all objects.
+ */
+public class PerformanceBucketer {
+
+    private final long records;
+
+    private final double binCapacity;
+
+    private final List<PerformanceObject> FPRList;
+    private final List<PerformanceObject> catchRateList;
+    private final List<PerformanceObject> gainList;
+
+    private final List<PerformanceObject> FPRWeightList;
+    private final List<PerformanceObject> catchRateWeightList;
+    private final List<PerformanceObject> gainWeightList;
+
+    private int fpBin = 1, tpBin = 1, gainBin = 1, fpWeightBin = 1, tpWeightBin = 1, gainWeightBin = 1;
+
+    /**
+     * Index of current object in all objects.
+     */
+    private int index = 0;
+
+    /**
+     * Constructor.
+     * 
+     * @param records
+     *            - number of all objects
+     * @param numBucket
+     *            - number of buckets
+     */
+    public PerformanceBucketer(long records, int numBucket) {
+        this.records = records;
+        this.binCapacity = 1.0 / numBucket;
+        this.FPRList = new ArrayList<PerformanceObject>(numBucket + 1);
+        this.catchRateList = new ArrayList<PerformanceObject>(numBucket + 1);
+        this.gainList = new ArrayList<PerformanceObject>(numBucket + 1);
+        this.FPRWeightList = new ArrayList<PerformanceObject>(numBucket + 1);
+        this.catchRateWeightList = new ArrayList<PerformanceObject>(numBucket + 1);
+        this.gainWeightList = new ArrayList<PerformanceObject>(numBucket + 1);
+    }
+
+    /**
+     * If current object will be added into any curve, computed the same as {@link #add(ConfusionMatrixObject)}.
+     */
+    public boolean isBucketPoint(ConfusionMatrixObject object) {
+        if(this.index == 0) {
+            return true;
+        }
+        return object.getFp() / (object.getFp() + object.getTn()) >= this.fpBin * this.binCapacity
+                || object.getTp() / (object.getTp() + object.getFn()) >= this.tpBin * this.binCapacity
+                || (double) (this.index + 1) / this.records >= this.gainBin * this.binCapacity
+                || object.getWeightedFp() / (object.getWeightedFp() + object.getWeightedTn()) >= this.fpWeightBin
+                        * this.binCapacity
+                || object.getWeightedTp() / (object.getWeightedTp() + object.getWeightedFn()) >= this.tpWeightBin
+                        * this.binCapacity
+                || (object.getWeightedTp() + object.getWeightedFp() + 1) / object.getWeightedTotal()
+                        >= this.gainWeightBin * this.binCapacity;
+    }
+
+    /**
+     * Skip current object which is not a bucket point.
+     */
+    public void skip() {
+        this.index++;
+    }
+
+    /**
+     * Add current object.
+     */
+    public void add(ConfusionMatrixObject object) {
+        PerformanceObject po = PerformanceEvaluator.setPerformanceObject(object);
+        if(this.index == 0) {
+            // hit rate == NaN
+            po.precision = 1.0;
+            po.weightedPrecision = 1.0;
+
+            // lift = NaN
+            po.liftUnit = 0.0;
+            po.weightLiftUnit = 0.0;
+
+            this.FPRList.add(po);
+            this.catchRateList.add(po);
+            this.gainList.add(po);
+            this.FPRWeightList.add(po);
+            this.catchRateWeightList.add(po);
+            this.gainWeightList.add(po);
+        } else {
+            if(po.fpr >= this.fpBin * this.binCapacity) {
+                po.binNum = this.fpBin++;
+                this.FPRList.add(po);
+            }
+
+            if(po.recall >= this.tpBin * this.binCapacity) {
+                po.binNum = this.tpBin++;
+                this.catchRateList.add(po);
+            }
+
+            // prevent 99%
+            if((double) (this.index + 1) / this.records >= this.gainBin * this.binCapacity) {
+                po.binNum = this.gainBin++;
+                this.gainList.add(po);
+            }
+
+            if(po.weightedFpr >= this.fpWeightBin * this.binCapacity) {
+                po.binNum = this.fpWeightBin++;
+                this.FPRWeightList.add(po);
+            }
+
+            if(po.weightedRecall >= this.tpWeightBin * this.binCapacity) {
+                po.binNum = this.tpWeightBin++;
+                this.catchRateWeightList.add(po);
+            }
+
+            if((object.getWeightedTp() + object.getWeightedFp() + 1) / object.getWeightedTotal() >= this.gainWeightBin
+                    * this.binCapacity) {
+                po.binNum = this.gainWeightBin++;
+                this.gainWeightList.add(po);
+            }
+        }
+        this.index++;
+    }
+
+    /**
+     * Build performance result with all added objects, curves are logged.
+     */
+    public PerformanceResult getResult(boolean isWeight) {
+        PerformanceEvaluator.logResult(this.FPRList, "Bucketing False Positive Rate");
+
+        if(isWeight) {
+            PerformanceEvaluator.logResult(this.FPRWeightList, "Bucketing Weighted False Positive Rate");
+        }
+
+        PerformanceEvaluator.logResult(this.catchRateList, "Bucketing Catch Rate");
+
+        if(isWeight) {
+            PerformanceEvaluator.logResult(this.catchRateWeightList, "Bucketing Weighted Catch Rate");
+        }
+
+        PerformanceEvaluator.logResult(this.gainList, "Bucketing Action rate");
+
+        if(isWeight) {
+            PerformanceEvaluator.logResult(this.gainWeightList, "Bucketing Weighted action rate");
+        }
+
+        PerformanceResult result = new PerformanceResult();
+
+        result.version = Constants.version;
+        result.pr = this.catchRateList;
+        result.weightedPr = this.catchRateWeightList;
+        result.roc = this.FPRList;
+        result.weightedRoc = this.FPRWeightList;
+        result.gains = this.gainList;
+        result.weightedGains = this.gainWeightList;
+
+        // Calculate area under curve
+        result.areaUnderRoc = AreaUnderCurve.ofRoc(result.roc);
+        result.weightedAreaUnderRoc = AreaUnderCurve.ofWeightedRoc(result.weightedRoc);
+        result.areaUnderPr = AreaUnderCurve.ofPr(result.pr);
+        result.weightedAreaUnderPr = AreaUnderCurve.ofWeightedPr(result.weightedPr);
+        PerformanceEvaluator.logAucResult(result, isWeight);
+
+        return result;
+    }
+
+}
@@ -0,0 +1,381 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * {@link QuantileSketch} is a mergeable quantile estimator on double values in the style of merging t-digest.
+ *
+ * <p>
+ * Values are collected into a buffer with weights, once buffer is full, buffer and existing centroids are sorted and
+ * merged into new centroids. Size of one centroid is limited by {@code 4 * total * q * (1 - q) / compression}, so
+ * centroids near both tails are small and quantiles there are accurate. For small data set, each distinct value is
+ * kept as one centroid and quantiles are exact.
+ *
+ * <p>
+ * All values are kept in primitive arrays. Sketches from different tasks can be merged by {@link #merge(QuantileSketch)}
+ * and serialized by {@link #write(DataOutput)} and {@link #read(DataInput)}.
+ */
+public class QuantileSketch {
+
+    /**
+     * Default compression, larger compression makes more centroids and better accuracy.
+     */
+    public static final int DEFAULT_COMPRESSION = 100;
+
+    private final int compression;
+
+    /**
+     * Sorted centroid means and weights.
+     */
+    private double[] means;
+
+    private double[] weights;
+
+    private int size;
+
+    /**
+     * Values not merged into centroids yet.
+     */
+    private double[] bufferMeans;
+
+    private double[] bufferWeights;
+
+    private int bufferSize;
+
+    /**
+     * Weights of centroids and buffer.
+     */
+    private double totalWeight;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructor with {@link #compression}.
+     */
+    public QuantileSketch(int compression) {
+        if(compression <= 0) {
+            throw new IllegalArgumentException("Compression should be positive: " + compression);
+        }
+        this.compression = compression;
+        int capacity = Math.max(compression * 4, 64);
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.bufferMeans = new double[capacity];
+        this.bufferWeights = new double[capacity];
+    }
+
+    /**
+     * Add value with weight 1.
+     */
+    public void add(double value) {
+        add(value, 1d);
+    }
+
+    /**
+     * Add value with weight, NaN value or non-positive weight is ignored.
+     */
+    public void add(double value, double weight) {
+        if(Double.isNaN(value) || !(weight > 0d)) {
+            return;
+        }
+        if(this.bufferSize == this.bufferMeans.length) {
+            compress();
+        }
+        this.bufferMeans[this.bufferSize] = value;
+        this.bufferWeights[this.bufferSize] = weight;
+        this.bufferSize += 1;
+        this.totalWeight += weight;
+        if(value < this.min) {
+            this.min = value;
+        }
+        if(value > this.max) {
+            this.max = value;
+        }
+    }
+
+    /**
+     * Merge all values of another sketch into this one, another sketch is compressed but not changed.
+     */
+    public void merge(QuantileSketch another) {
+        another.compress();
+        for(int i = 0; i < another.size; i++) {
+            add(another.means[i], another.weights[i]);
+        }
+        if(another.size > 0) {
+            this.min = Math.min(this.min, another.min);
+            this.max = Math.max(this.max, another.max);
+        }
+    }
+
+    /**
+     * Merge buffer into centroids.
+     */
+    public void compress() {
+        if(this.bufferSize == 0) {
+            return;
+        }
+
+        int n = this.size + this.bufferSize;
+        double[] allMeans = new double[n];
+        double[] allWeights = new double[n];
+        System.arraycopy(this.means, 0, allMeans, 0, this.size);
+        System.arraycopy(this.weights, 0, allWeights, 0, this.size);
+        System.arraycopy(this.bufferMeans, 0, allMeans, this.size, this.bufferSize);
+        System.arraycopy(this.bufferWeights, 0, allWeights, this.size, this.bufferSize);
+        sort(allMeans, allWeights, 0, n - 1);
+
+        // merge in place, centroids are never more than input values
+        int newSize = 0;
+        double weightSoFar = 0d;
+        double currentMean = allMeans[0];
+        double currentWeight = allWeights[0];
+        for(int i = 1; i < n; i++) {
+            double proposed = currentWeight + allWeights[i];
+            double q = (weightSoFar + proposed / 2d) / this.totalWeight;
+            double limit = 4d * this.totalWeight * q * (1d - q) / this.compression;
+            if(Double.compare(allMeans[i], currentMean) == 0 || proposed <= limit) {
+                currentMean += (allMeans[i] - currentMean) * allWeights[i] / proposed;
+                currentWeight = proposed;
+            } else {
+                allMeans[newSize] = currentMean;
+                allWeights[newSize] = currentWeight;
+                newSize += 1;
+                weightSoFar += currentWeight;
+                currentMean = allMeans[i];
+                currentWeight = allWeights[i];
+            }
+        }
+        allMeans[newSize] = currentMean;
+        allWeights[newSize] = currentWeight;
+        newSize += 1;
+
+        if(newSize > this.means.length) {
+            this.means = new double[newSize + newSize / 2];
+            this.weights = new double[this.means.length];
+        }
+        System.arraycopy(allMeans, 0, this.means, 0, newSize);
+        System.arraycopy(allWeights, 0, this.weights, 0, newSize);
+        this.size = newSize;
+        this.bufferSize = 0;
+    }
+
+    /**
+     * Estimate quantile value.
+     *
+     * @param q
+     *            - quantile in [0, 1]
+     * @return estimated value, NaN if no value added
+     */
+    public double getQuantile(double q) {
+        if(q < 0d || q > 1d) {
+            throw new IllegalArgumentException("Quantile should be in [0, 1]: " + q);
+        }
+        compress();
+        if(this.size == 0) {
+            return Double.NaN;
+        }
+        if(this.size == 1) {
+            return this.means[0];
+        }
+
+        double index = q * this.totalWeight;
+        double firstHalf = this.weights[0] / 2d;
+        if(index <= firstHalf) {
+            return this.min + (this.means[0] - this.min) * index / firstHalf;
+        }
+        double lastHalf = this.weights[this.size - 1] / 2d;
+        if(index >= this.totalWeight - lastHalf) {
+            return this.max - (this.max - this.means[this.size - 1]) * (this.totalWeight - index) / lastHalf;
+        }
+
+        double weightSoFar = firstHalf;
+        for(int i = 0; i < this.size - 1; i++) {
+            double delta = (this.weights[i] + this.weights[i + 1]) / 2d;
+            if(weightSoFar + delta > index) {
+                double z = (index - weightSoFar) / delta;
+                return this.means[i] + (this.means[i + 1] - this.means[i]) * z;
+            }
+            weightSoFar += delta;
+        }
+        return this.means[this.size - 1];
+    }
+
+    public double getMedian() {
+        return getQuantile(0.5d);
+    }
+
+    public double getTotalWeight() {
+        return this.totalWeight;
+    }
+
+    public double getMin() {
+        return this.min;
+    }
+
+    public double getMax() {
+        return this.max;
+    }
+
+    public int getCompression() {
+        return this.compression;
+    }
+
+    /**
+     * Centroid count after compressing buffer.
+     */
+    public int getCentroidCount() {
+        compress();
+        return this.size;
+    }
+
+    /**
+     * Mean of the i-th centroid, {@link #getCentroidCount()} should be called before to compress buffer.
+     */
+    public double getCentroidMean(int i) {
+        return this.means[i];
+    }
+
+    /**
+     * Weight of the i-th centroid, {@link #getCentroidCount()} should be called before to compress buffer.
+     */
+    public double getCentroidWeight(int i) {
+        return this.weights[i];
+    }
+
+    /**
+     * Restore sketch from sorted centroids, no re-compression is done to make sure the same quantiles as the sketch
+     * which centroids are from.
+     */
+    public static QuantileSketch fromCentroids(int compression, double min, double max, double[] means,
+            double[] weights) {
+        QuantileSketch sketch = new QuantileSketch(compression);
+        if(means.length > sketch.means.length) {
+            sketch.means = new double[means.length];
+            sketch.weights = new double[means.length];
+        }
+        System.arraycopy(means, 0, sketch.means, 0, means.length);
+        System.arraycopy(weights, 0, sketch.weights, 0, means.length);
+        sketch.size = means.length;
+        for(int i = 0; i < means.length; i++) {
+            sketch.totalWeight += weights[i];
+        }
+        if(means.length > 0) {
+            sketch.min = min;
+            sketch.max = max;
+        }
+        return sketch;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        compress();
+        out.writeInt(this.compression);
+        out.writeDouble(this.min);
+        out.writeDouble(this.max);
+        out.writeInt(this.size);
+        for(int i = 0; i < this.size; i++) {
+            out.writeDouble(this.means[i]);
+            out.writeDouble(this.weights[i]);
+        }
+    }
+
+    public static QuantileSketch read(DataInput in) throws IOException {
+        int compression = in.readInt();
+        double min = in.readDouble();
+        double max = in.readDouble();
+        int size = in.readInt();
+        double[] means = new double[size];
+        double[] weights = new double[size];
+        for(int i = 0; i < size; i++) {
+            means[i] = in.readDouble();
+            weights[i] = in.readDouble();
+        }
+        return fromCentroids(compression, min, max, means, weights);
+    }
+
+    /**
+     * Quick sort on keys with values swapped together.
+     */
+    private static void sort(double[] keys, double[] values, int from, int to) {
+        while(to - from > 16) {
+            int mid = (from + to) >>> 1;
+            // median of three as pivot
+            if(keys[mid] < keys[from]) {
+                swap(keys, values, mid, from);
+            }
+            if(keys[to] < keys[from]) {
+                swap(keys, values, to, from);
+            }
+            if(keys[to] < keys[mid]) {
+                swap(keys, values, to, mid);
+            }
+            double pivot = keys[mid];
+            int i = from, j = to;
+            while(i <= j) {
+                while(keys[i] < pivot) {
+                    i++;
+                }
+                while(keys[j] > pivot) {
+                    j--;
+                }
+                if(i <= j) {
+                    swap(keys, values, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // recurse into smaller part to limit stack depth
+            if(j - from < to - i) {
+                sort(keys, values, from, j);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j;
+            }
+        }
+        for(int i = from + 1; i <= to; i++) {
+            double key = keys[i];
+            double value = values[i];
+            int j = i - 1;
+            while(j >= from && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+
+    private static void swap(double[] keys, double[] values, int i, int j) {
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+}
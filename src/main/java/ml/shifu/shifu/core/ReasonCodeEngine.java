@@ -0,0 +1,293 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.util.CommonUtils;
+
+/**
+ * {@link ReasonCodeEngine} finds reason codes of one record with lookup tables built once from ColumnConfig.
+ *
+ * <p>
+ * For each final selected column with bin average score, bin boundaries are kept in a sorted double array and bin
+ * categories in a hash map, bin average scores are kept in an int array. For each record, bin of each column is
+ * located by binary search or hash lookup and top K columns by bin average score are selected by a small heap. Order
+ * of columns is the same as {@link Reasoner}: higher score first, then smaller column number first.
+ *
+ * <p>
+ * Values which cannot be located into one bin are skipped. The engine reuses internal arrays and is not thread-safe,
+ * one instance should be used in one thread.
+ */
+public class ReasonCodeEngine {
+
+    public static final int DEFAULT_TOP_VARIABLES = 5;
+
+    private final int numTopVariables;
+
+    private final String[] columnNames;
+
+    private final int[] columnNums;
+
+    /**
+     * Bin boundaries of numerical columns, null for categorical columns.
+     */
+    private final double[][] binBoundaries;
+
+    /**
+     * Category to bin index for categorical columns, null for numerical columns.
+     */
+    private final List<Map<String, Integer>> categoryIndexes;
+
+    private final double[] means;
+
+    private final int[][] binAvgScores;
+
+    private final String[] reasonCodes;
+
+    /**
+     * Min heap of top columns, root is the worst one in current top columns.
+     */
+    private final int[] heapScores;
+
+    private final int[] heapColumns;
+
+    public ReasonCodeEngine(List<ColumnConfig> columnConfigList, Map<String, String> reasonCodeMap) {
+        this(columnConfigList, reasonCodeMap, DEFAULT_TOP_VARIABLES);
+    }
+
+    public ReasonCodeEngine(List<ColumnConfig> columnConfigList, Map<String, String> reasonCodeMap,
+            int numTopVariables) {
+        if(columnConfigList == null || columnConfigList.size() == 0) {
+            throw new IllegalArgumentException("ColumnConfig is empty.");
+        }
+
+        List<ColumnConfig> columns = new ArrayList<ColumnConfig>();
+        for(ColumnConfig config: columnConfigList) {
+            // column without bin average score is skipped, post train may not be run
+            if(config.isFinalSelect() && config.getBinAvgScore() != null
+                    && (config.isNumerical() || config.isCategorical())) {
+                columns.add(config);
+            }
+        }
+
+        int size = columns.size();
+        this.numTopVariables = numTopVariables;
+        this.columnNames = new String[size];
+        this.columnNums = new int[size];
+        this.binBoundaries = new double[size][];
+        this.categoryIndexes = new ArrayList<Map<String, Integer>>(size);
+        this.means = new double[size];
+        this.binAvgScores = new int[size][];
+        this.reasonCodes = new String[size];
+        for(int i = 0; i < size; i++) {
+            ColumnConfig config = columns.get(i);
+            this.columnNames[i] = config.getColumnName();
+            this.columnNums[i] = config.getColumnNum();
+            this.reasonCodes[i] = reasonCodeMap == null ? null : reasonCodeMap.get(config.getColumnName());
+
+            // only bins with both boundary (or category) and average score are valid
+            int binLength = Math.min(config.getBinLength(), config.getBinAvgScore().size());
+            if(config.isNumerical()) {
+                binLength = Math.min(binLength, config.getBinBoundary().size());
+                double[] boundaries = new double[binLength];
+                for(int j = 0; j < binLength; j++) {
+                    boundaries[j] = config.getBinBoundary().get(j);
+                }
+                this.binBoundaries[i] = boundaries;
+                this.categoryIndexes.add(null);
+                this.means[i] = config.getMean() == null ? 0d : config.getMean();
+            } else {
+                binLength = Math.min(binLength, config.getBinCategory().size());
+                Map<String, Integer> indexes = new HashMap<String, Integer>(binLength * 2);
+                for(int j = 0; j < binLength; j++) {
+                    // the last one wins as backward scanning
+                    indexes.put(config.getBinCategory().get(j), j);
+                }
+                this.categoryIndexes.add(indexes);
+            }
+
+            int[] scores = new int[binLength];
+            for(int j = 0; j < binLength; j++) {
+                Integer score = config.getBinAvgScore().get(j);
+                scores[j] = score == null ? 0 : score;
+            }
+            this.binAvgScores[i] = scores;
+        }
+
+        this.heapScores = new int[Math.max(numTopVariables, 0)];
+        this.heapColumns = new int[this.heapScores.length];
+    }
+
+    /**
+     * Number of columns used in reason code.
+     */
+    public int size() {
+        return this.columnNames.length;
+    }
+
+    /**
+     * Column name of the i-th column used in reason code.
+     */
+    public String getColumnName(int i) {
+        return this.columnNames[i];
+    }
+
+    /**
+     * Calculate reason codes with raw values in a map keyed by column name.
+     */
+    public List<String> calculateReasonCodes(Map<String, String> rawDataMap) {
+        String[] values = new String[size()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = rawDataMap.get(this.columnNames[i]);
+        }
+        return calculateReasonCodes(values);
+    }
+
+    /**
+     * Calculate reason codes.
+     *
+     * @param values
+     *            - raw values with the same order of {@link #getColumnName(int)}, null value means column missing
+     * @return distinct reason codes of top columns
+     */
+    public List<String> calculateReasonCodes(String[] values) {
+        int heapSize = 0;
+        for(int i = 0; i < this.columnNames.length; i++) {
+            if(values[i] == null) {
+                continue;
+            }
+            int binNum = locateBin(i, values[i]);
+            if(binNum < 0) {
+                continue;
+            }
+
+            int score = this.binAvgScores[i][binNum];
+            if(heapSize < this.heapScores.length) {
+                this.heapScores[heapSize] = score;
+                this.heapColumns[heapSize] = i;
+                heapSize += 1;
+                siftUp(heapSize - 1);
+            } else if(heapSize > 0 && isBefore(score, i, this.heapScores[0], this.heapColumns[0])) {
+                this.heapScores[0] = score;
+                this.heapColumns[0] = i;
+                siftDown(0, heapSize);
+            }
+        }
+
+        // pop the worst one each time and fill result from the tail
+        int[] topColumns = new int[heapSize];
+        for(int n = heapSize; n > 0; n--) {
+            topColumns[n - 1] = this.heapColumns[0];
+            this.heapScores[0] = this.heapScores[n - 1];
+            this.heapColumns[0] = this.heapColumns[n - 1];
+            siftDown(0, n - 1);
+        }
+
+        List<String> reasons = new ArrayList<String>(heapSize);
+        for(int column: topColumns) {
+            String reason = this.reasonCodes[column];
+            if(!reasons.contains(reason)) {
+                reasons.add(reason);
+            }
+        }
+        return reasons;
+    }
+
+    private int locateBin(int i, String value) {
+        int binLength = this.binAvgScores[i].length;
+        if(binLength == 0) {
+            return -1;
+        }
+        if(this.binBoundaries[i] != null) {
+            double dval;
+            if(value.length() == 0) {
+                dval = this.means[i];
+            } else {
+                try {
+                    dval = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+            if(Double.isNaN(dval) || dval < this.binBoundaries[i][0]) {
+                return -1;
+            }
+            return CommonUtils.getBinIndex(this.binBoundaries[i], dval);
+        } else {
+            Integer index = this.categoryIndexes.get(i).get(value);
+            return index == null ? -1 : index;
+        }
+    }
+
+    /**
+     * If column a should be ranked before column b.
+     */
+    private boolean isBefore(int scoreA, int columnA, int scoreB, int columnB) {
+        if(scoreA != scoreB) {
+            return scoreA > scoreB;
+        }
+        return this.columnNums[columnA] < this.columnNums[columnB];
+    }
+
+    private void siftUp(int index) {
+        while(index > 0) {
+            int parent = (index - 1) >>> 1;
+            if(!isBefore(this.heapScores[parent], this.heapColumns[parent], this.heapScores[index],
+                    this.heapColumns[index])) {
+                break;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int heapSize) {
+        while(true) {
+            int left = 2 * index + 1;
+            if(left >= heapSize) {
+                break;
+            }
+            int worst = left;
+            int right = left + 1;
+            if(right < heapSize
+                    && isBefore(this.heapScores[left], this.heapColumns[left], this.heapScores[right],
+                            this.heapColumns[right])) {
+                worst = right;
+            }
+            if(!isBefore(this.heapScores[index], this.heapColumns[index], this.heapScores[worst],
+                    this.heapColumns[worst])) {
+                break;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int score = this.heapScores[i];
+        this.heapScores[i] = this.heapScores[j];
+        this.heapScores[j] = score;
+        int column = this.heapColumns[i];
+        this.heapColumns[i] = this.heapColumns[j];
+        this.heapColumns[j] = column;
+    }
+
+}
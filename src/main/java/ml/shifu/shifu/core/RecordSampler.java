@@ -0,0 +1,223 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ModelConfig;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * {@link RecordSampler} decides whether one record is sampled and the weight factor of sampled record.
+ * 
+ * <p>
+ * If sample seed is set, sampling is deterministic: a 64-bit hash of the key column (or all fields if no key column)
+ * with the seed is mapped to [0, 1) and compared with sample rate, so the same record is always sampled or not in
+ * different jobs and reruns. Otherwise records are sampled randomly like {@link DataSampler}.
+ * 
+ * <p>
+ * Besides the global sample rate (only applied to negative records if sampleNegOnly), a sample rate can be set per raw
+ * tag, which is used to down-sample the dominant class. Weight of such sampled record should be multiplied by 1/rate
+ * which is returned by {@link #sample(String, String[])}, then weighted training and evaluation are still unbiased.
+ * 
+ * <p>
+ * {@link RecordSampler} is not thread-safe if random sampling is used.
+ */
+public class RecordSampler {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Separator hashed between fields to make ("ab", "c") and ("a", "bc") different keys.
+     */
+    private static final char FIELD_SEPARATOR = '\u0001';
+
+    private final double sampleRate;
+
+    /**
+     * Tags only sampled by {@link #sampleRate}, null means all tags.
+     */
+    private final Set<String> sampleTags;
+
+    private final Map<String, Double> tagSampleRates;
+
+    private final Long seed;
+
+    /**
+     * Index of key column, -1 if all fields are used as key.
+     */
+    private final int keyColumnNum;
+
+    private Random random;
+
+    public RecordSampler(double sampleRate, Collection<String> sampleTags, Map<String, Double> tagSampleRates,
+            Long seed, int keyColumnNum) {
+        this.sampleRate = sampleRate;
+        this.sampleTags = sampleTags == null ? null : new HashSet<String>(sampleTags);
+        this.tagSampleRates = tagSampleRates == null ? new HashMap<String, Double>() : new HashMap<String, Double>(
+                tagSampleRates);
+        this.seed = seed;
+        this.keyColumnNum = keyColumnNum;
+        if(seed == null) {
+            this.random = new Random(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Sampler of normalize step by sampleRate, sampleNegOnly and sampleRates in normalize configuration.
+     */
+    public static RecordSampler createNormalizeSampler(ModelConfig modelConfig, List<ColumnConfig> columnConfigList) {
+        boolean isNegOnly = modelConfig.isBinaryClassification()
+                && Boolean.TRUE.equals(modelConfig.isNormalizeSampleNegOnly());
+        return new RecordSampler(modelConfig.getNormalizeSampleRate(), isNegOnly ? modelConfig.getNegTags() : null,
+                modelConfig.getNormalize().getSampleRates(), modelConfig.getDataSet().getSampleSeed(),
+                getKeyColumnNum(modelConfig, columnConfigList));
+    }
+
+    /**
+     * Sampler of stats step by sampleRate and sampleNegOnly in stats configuration, stats is not weighted by sample
+     * rates of tags.
+     */
+    public static RecordSampler createStatsSampler(ModelConfig modelConfig, List<ColumnConfig> columnConfigList) {
+        return new RecordSampler(modelConfig.getBinningSampleRate(), modelConfig.isBinningSampleNegOnly() ? modelConfig
+                .getNegTags() : null, null, modelConfig.getDataSet().getSampleSeed(), getKeyColumnNum(modelConfig,
+                columnConfigList));
+    }
+
+    private static int getKeyColumnNum(ModelConfig modelConfig, List<ColumnConfig> columnConfigList) {
+        String keyColumn = modelConfig.getDataSet().getSampleKeyColumn();
+        if(StringUtils.isBlank(keyColumn)) {
+            return -1;
+        }
+        for(ColumnConfig config: columnConfigList) {
+            if(keyColumn.trim().equals(config.getColumnName())) {
+                return config.getColumnNum();
+            }
+        }
+        throw new IllegalArgumentException("Sample key column " + keyColumn + " is not found in ColumnConfig.");
+    }
+
+    /**
+     * Sample one record.
+     * 
+     * @param tag
+     *            - raw tag of the record
+     * @param fields
+     *            - all fields of the record
+     * @return 0 if the record is not sampled, else weight factor of the record
+     */
+    public double sample(String tag, String[] fields) {
+        return sample(tag, Arrays.<Object> asList(fields));
+    }
+
+    /**
+     * Sample one record of which fields are objects like pig tuple fields.
+     * 
+     * @see #sample(String, String[])
+     */
+    public double sample(String tag, List<Object> fields) {
+        double rate = getRate(tag);
+        if(rate >= 1d) {
+            return getWeightFactor(tag, rate);
+        }
+
+        double fraction = this.seed == null ? this.random.nextDouble() : toFraction(hashKey(fields));
+        return fraction < rate ? getWeightFactor(tag, rate) : 0d;
+    }
+
+    /**
+     * Hash of key column or all fields with seed.
+     */
+    private long hashKey(List<Object> fields) {
+        long hash = initHash(this.seed);
+        if(this.keyColumnNum >= 0) {
+            return hash(hash, toString(fields.get(this.keyColumnNum)));
+        }
+        for(Object field: fields) {
+            hash = hash(hash, toString(field));
+        }
+        return hash;
+    }
+
+    private double getRate(String tag) {
+        Double rate = this.tagSampleRates.get(tag);
+        if(rate != null) {
+            return rate;
+        }
+        if(this.sampleTags != null && !this.sampleTags.contains(tag)) {
+            return 1d;
+        }
+        return this.sampleRate;
+    }
+
+    private double getWeightFactor(String tag, double rate) {
+        // only records sampled by tag sample rates are compensated
+        return rate > 0d && rate < 1d && this.tagSampleRates.containsKey(tag) ? 1d / rate : 1d;
+    }
+
+    private static String toString(Object field) {
+        return field == null ? null : field.toString();
+    }
+
+    static long initHash(long seed) {
+        return mix(FNV_OFFSET_BASIS ^ seed);
+    }
+
+    /**
+     * FNV-1a hash of one field and field separator, null field is hashed as empty string.
+     */
+    static long hash(long hash, String field) {
+        long h = hash;
+        if(field != null) {
+            for(int i = 0; i < field.length(); i++) {
+                h ^= field.charAt(i);
+                h *= FNV_PRIME;
+            }
+        }
+        h ^= FIELD_SEPARATOR;
+        h *= FNV_PRIME;
+        return h;
+    }
+
+    /**
+     * Finalizer of MurmurHash3 to spread FNV hash bits, high 53 bits are used as fraction in [0, 1).
+     */
+    static double toFraction(long hash) {
+        return (mix(hash) >>> 11) * 0x1.0p-53;
+    }
+
+    private static long mix(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
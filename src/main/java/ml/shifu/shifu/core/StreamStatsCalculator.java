@@ -17,8 +17,6 @@
  */
 package ml.shifu.shifu.core;
 
-import java.util.List;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,7 +44,7 @@ public class StreamStatsCalculator {
     private Double threshold = 1e6;
     private Double EPS = 1e-6;
 
-    private MunroPatEstimator<Double> estimator;
+    private QuantileSketch estimator;
 
     private int validElementCnt = 0;
 
@@ -58,7 +56,7 @@ public class StreamStatsCalculator {
      */
     public StreamStatsCalculator(Double threshold) {
         this.threshold = threshold;
-        estimator = new MunroPatEstimator<Double>(3);
+        estimator = new QuantileSketch();
     }
 
     public void addData(double data) {
@@ -102,9 +100,7 @@ public class StreamStatsCalculator {
         tripleSum += squaredVal * data * frequency;
         quarticSum += squaredVal * squaredVal * frequency;
 
-        for(int i = 0; i < frequency; i++) {
-            estimator.add(data);
-        }
+        estimator.add(data, frequency);
     }
 
     public double getMin() {
@@ -154,12 +150,18 @@ public class StreamStatsCalculator {
     }
 
     public double getMedian() {
-        List<Double> list = estimator.getQuantiles();
-        if(list.size() == 0)
+        if(estimator.getTotalWeight() == 0d)
             return median;
 
         else
-            return list.get(1);
+            return estimator.getMedian();
+    }
+
+    /**
+     * @return the quantile sketch of valid values, which can be merged with sketches of other tasks
+     */
+    public QuantileSketch getQuantileSketch() {
+        return estimator;
     }
 
     /**
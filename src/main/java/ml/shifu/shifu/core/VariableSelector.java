@@ -15,11 +15,7 @@
  */
 package ml.shifu.shifu.core;
 
-import org.encog.ml.data.MLDataPair;
 import org.encog.ml.data.MLDataSet;
-import org.encog.ml.data.basic.BasicMLData;
-import org.encog.ml.data.basic.BasicMLDataPair;
-import org.encog.ml.data.basic.BasicMLDataSet;
 import org.encog.neural.networks.BasicNetwork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -213,6 +209,8 @@ public class VariableSelector {
         }
 
         int size = candidateList.size();
+        // clamped MSE of all candidates is computed in one scan of validation set, clamp set is kept in calculator
+        ClampedMSECalculator calculator = new ClampedMSECalculator(network, validSet);
 
         if (modelConfig.getVarSelectWrapperBy().equalsIgnoreCase("A")) {
             log.info("\t - By Adding Most Significant Variables");
@@ -225,12 +223,13 @@ public class VariableSelector {
 
                 log.info("\t Iteration #" + n);
 
+                double[] mses = calculator.calculate();
                 for (int i = 0; i < size; i++) {
                     if (selected.contains(i)) {
                         continue;
                     }
 
-                    Double mse = getMSE(network, validSet, selected, i);
+                    double mse = mses[i];
                     if (mse - baseMSE > maxDiffMSE) {
                         maxDiffMSE = mse - baseMSE;
                         maxDiffMSEColumn = i;
@@ -238,6 +237,7 @@ public class VariableSelector {
                 }
 
                 selected.add(maxDiffMSEColumn);
+                calculator.clamp(maxDiffMSEColumn);
                 log.info("\t Selected Variable: " + candidateList.get(maxDiffMSEColumn).getColumnName());
                 log.info("\t MSE: " + maxDiffMSE);
             }
@@ -262,12 +262,13 @@ public class VariableSelector {
 
                 log.info("\t Iteration #" + n);
 
+                double[] mses = calculator.calculate();
                 for (int i = 0; i < size; i++) {
                     if (removed.contains(i)) {
                         continue;
                     }
 
-                    Double mse = getMSE(network, validSet, removed, i);
+                    double mse = mses[i];
                     if (Math.abs(mse - baseMSE) < minDiffMSE) {
                         minDiffMSE = Math.abs(mse - baseMSE);
                         minDiffMSEColumn = i;
@@ -275,6 +276,7 @@ public class VariableSelector {
                 }
 
                 removed.add(minDiffMSEColumn);
+                calculator.clamp(minDiffMSEColumn);
                 log.info("\t Removed: Variable: " + candidateList.get(minDiffMSEColumn).getColumnName());
                 log.info("\t MSE: " + minDiffMSE);
             }
@@ -287,8 +289,9 @@ public class VariableSelector {
 
             Map<Integer, Double> mseMap = new HashMap<Integer, Double>();
 
+            double[] mses = calculator.calculate();
             for (int i = 0; i < size; i++) {
-                mseMap.put(i, getMSE(network, validSet, null, i));
+                mseMap.put(i, mses[i]);
             }
 
             List<Map.Entry<Integer, Double>> entryList = CommonUtils.getEntriesSortedByValues(mseMap);
@@ -315,28 +318,4 @@ public class VariableSelector {
 
         return columnConfigList;
     }
-
-    private Double getMSE(BasicNetwork network, MLDataSet validSet, Set<Integer> clamped, Integer clamping) {
-        MLDataSet tmpSet = new BasicMLDataSet();
-        for (MLDataPair validPair : validSet) {
-            // Make a copy of validPair
-            double[] input = validPair.getInputArray().clone();
-            double[] ideal = validPair.getIdealArray().clone();
-
-            // Set one variable to mean(normalized);
-            input[clamping] = 0;
-
-            // Set selected variables to mean;
-            if (clamped != null) {
-                for (Integer k : clamped) {
-                    input[k] = 0;
-                }
-            }
-
-            // Add to tmp Set
-            tmpSet.add(new BasicMLDataPair(new BasicMLData(input), new BasicMLData(ideal)));
-        }
-
-        return AbstractTrainer.calculateMSE(network, tmpSet);
-    }
 }
@@ -88,6 +88,7 @@ public class LogisticRegressionTrainer extends AbstractTrainer {
 
         //Propagation mlTrain = getMLTrain();
         Propagation propagation = new QuickPropagation(classifier, trainSet, (Double) modelConfig.getParams().get("LearningRate"));
+        propagation.setThreadCount(this.threadCount);
         int epochs = modelConfig.getNumTrainEpochs();
 
         // Get convergence threshold from modelConfig.
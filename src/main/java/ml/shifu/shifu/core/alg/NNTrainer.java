@@ -21,6 +21,7 @@ import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.AbstractTrainer;
 import ml.shifu.shifu.core.ConvergeJudger;
 import ml.shifu.shifu.core.MSEWorker;
+import ml.shifu.shifu.core.NetworkMSECalculator;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.util.JSONUtils;
 
@@ -73,6 +74,11 @@ public class NNTrainer extends AbstractTrainer {
      * Convergence judger instance for convergence criteria checking.
      */
     private ConvergeJudger judger = new ConvergeJudger();
+
+    /**
+     * Validation error calculator, created once in each training since validation set and network are not changed.
+     */
+    private NetworkMSECalculator validCalculator;
     
     static {
         // TODO use UnmodifiableMap or use other immutable Collections such as guava's
@@ -168,7 +174,7 @@ public class NNTrainer extends AbstractTrainer {
         buildNetwork();
 
         Propagation mlTrain = getMLTrain();
-        mlTrain.setThreadCount(0);
+        mlTrain.setThreadCount(this.threadCount);
 
         if ( this.dryRun ) {
             return 0.0;
@@ -183,6 +189,9 @@ public class NNTrainer extends AbstractTrainer {
         String formatedThreshold = df.format(threshold);
         
         setBaseMSE(Double.MAX_VALUE);
+        // input arrays are referenced by calculator, disk data set is still computed by calculateMSEParallel
+        this.validCalculator = (this.trainingOption.equalsIgnoreCase("M") && this.validSet.getRecordCount() > 0) ?
+                new NetworkMSECalculator(this.network, this.validSet, this.threadCount) : null;
 
         for (int i = 0; i < epochs; i++) {
             mlTrain.iteration();
@@ -221,6 +230,7 @@ public class NNTrainer extends AbstractTrainer {
         }
 
         mlTrain.finishTraining();
+        this.validCalculator = null;
         if ( toLoggingProcess )
             LOG.info("Trainer #" + this.trainerID + " is Finished!");
         return getBaseMSE();
@@ -295,6 +305,9 @@ public class NNTrainer extends AbstractTrainer {
 
     private double getValidSetError() {
         //return calculateMSE(this.network, this.validSet);
+        if (this.validCalculator != null) {
+            return this.validCalculator.calculate();
+        }
         return calculateMSEParallel(this.network, this.validSet);
     }
 
@@ -126,10 +126,6 @@ public class AutoTypeDistinctCountMapper extends Mapper<LongWritable, Text, IntW
     @Override
     protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
         String valueStr = value.toString();
-        if(!this.dataPurifier.isFilterOut(valueStr)) {
-            return;
-        }
-
         // StringUtils.isBlank is not used here to avoid import new jar
         if(valueStr == null || valueStr.length() == 0 || valueStr.trim().length() == 0) {
             LOG.warn("Empty input.");
@@ -137,6 +133,11 @@ public class AutoTypeDistinctCountMapper extends Mapper<LongWritable, Text, IntW
         }
 
         String[] units = CommonUtils.split(valueStr, this.modelConfig.getDataSetDelimiter());
+        // split once and filter on fields
+        if(!this.dataPurifier.isFilterOut(units)) {
+            return;
+        }
+
         // tagColumnNum should be in units array, if not IndexOutofBoundException
         String tag = units[this.tagColumnNum];
 
@@ -37,7 +37,7 @@ import org.apache.hadoop.io.Writable;
  */
 public class CountAndFrequentItemsWritable implements Writable {
 
-    static final int FREQUET_ITEM_MAX_SIZE = 20;
+    public static final int FREQUET_ITEM_MAX_SIZE = 20;
     /**
      * Serializing form for HyperLogLogPlus instance.
      */
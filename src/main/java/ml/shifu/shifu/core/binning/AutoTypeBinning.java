@@ -0,0 +1,333 @@
+/*
+ * Copyright [2012-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.binning;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import ml.shifu.shifu.container.obj.ColumnConfig.ColumnType;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.ModelStatsConf.BinningMethod;
+import ml.shifu.shifu.core.autotype.CountAndFrequentItemsWritable;
+import ml.shifu.shifu.util.Constants;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang.StringUtils;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+
+/**
+ * {@link AutoTypeBinning} is used to check column type in the same scan of stats binning.
+ *
+ * <p>
+ * Besides distinct count sketch, frequent items and numeric value count which are used in auto type checking, both
+ * categorical binning and numerical binning are kept for one column. After all partial binning are merged, column
+ * type is resolved by {@link #resolveType(ColumnType, Integer)} and bins of such type are used as final bins.
+ *
+ * <p>
+ * Categorical binning is limited by {@link ml.shifu.shifu.udf.CalculateNewStatsUDF#MAX_CATEGORICAL_BINC_COUNT} and
+ * numerical binning is a fixed size sketch, so memory of one column is bounded.
+ */
+public class AutoTypeBinning {
+
+    /**
+     * Separator of fields, other separators in {@link AbstractBinning} are used in binning string.
+     */
+    public static final char AUTO_TYPE_SEPARATOR = '\u0004';
+
+    /**
+     * Precision of {@link HyperLogLogPlus}, the same as auto type checking MapReduce job.
+     */
+    private static final int HYPER_PRECISION = 8;
+
+    private HyperLogLogPlus hyper;
+
+    private Set<String> frequentItems;
+
+    /**
+     * Count of values which can be parsed as double.
+     */
+    private long numericCount;
+
+    /**
+     * Count of all not missing values.
+     */
+    private long totalCount;
+
+    private Set<String> missingValues;
+
+    private CategoricalBinning categoricalBinning;
+
+    private AbstractBinning<?> numericalBinning;
+
+    private AutoTypeBinning() {
+    }
+
+    /**
+     * Constructor with model config, numerical binning is created according to binning method.
+     */
+    public AutoTypeBinning(ModelConfig modelConfig) {
+        this.hyper = new HyperLogLogPlus(HYPER_PRECISION);
+        this.frequentItems = new HashSet<String>();
+        this.missingValues = getMissingValues(modelConfig);
+        this.categoricalBinning = new CategoricalBinning(-1);
+        this.numericalBinning = createNumericalBinning(modelConfig, false);
+    }
+
+    private static Set<String> getMissingValues(ModelConfig modelConfig) {
+        Set<String> missingValues = new HashSet<String>();
+        if(modelConfig.getDataSet().getMissingOrInvalidValues() != null) {
+            missingValues.addAll(modelConfig.getDataSet().getMissingOrInvalidValues());
+        }
+        return missingValues;
+    }
+
+    private static AbstractBinning<?> createNumericalBinning(ModelConfig modelConfig, boolean isEmpty) {
+        if(modelConfig.getBinningMethod().equals(BinningMethod.EqualInterval)) {
+            return isEmpty ? new EqualIntervalBinning() : new EqualIntervalBinning(modelConfig.getStats()
+                    .getMaxNumBin());
+        } else {
+            return isEmpty ? new EqualPopulationBinning() : new EqualPopulationBinning(modelConfig.getStats()
+                    .getMaxNumBin());
+        }
+    }
+
+    /**
+     * Add value of one record.
+     *
+     * @param val
+     *            - raw value
+     * @param isNumericalData
+     *            - if the record is used in numerical binning, for EqualPositive or EqualNegtive binning method, only
+     *            positive or negative records are used.
+     */
+    public void addData(String val, boolean isNumericalData) {
+        this.categoricalBinning.addData(val);
+        if(isNumericalData) {
+            this.numericalBinning.addData(val);
+        }
+
+        if(val == null || this.missingValues.contains(val.toLowerCase())) {
+            return;
+        }
+        this.hyper.offer(val);
+        if(this.frequentItems.size() <= CountAndFrequentItemsWritable.FREQUET_ITEM_MAX_SIZE) {
+            this.frequentItems.add(val);
+        }
+        this.totalCount += 1L;
+        try {
+            Double.parseDouble(val);
+            this.numericCount += 1L;
+        } catch (NumberFormatException e) {
+            // not a number
+        }
+    }
+
+    /**
+     * Merge another partial binning into this one.
+     */
+    public void mergeBin(AutoTypeBinning another) {
+        try {
+            this.hyper = (HyperLogLogPlus) this.hyper.merge(another.hyper);
+        } catch (CardinalityMergeException e) {
+            throw new IllegalStateException(e);
+        }
+        Iterator<String> iter = another.frequentItems.iterator();
+        while(iter.hasNext() && this.frequentItems.size() < CountAndFrequentItemsWritable.FREQUET_ITEM_MAX_SIZE * 10) {
+            this.frequentItems.add(iter.next());
+        }
+        this.numericCount += another.numericCount;
+        this.totalCount += another.totalCount;
+        this.categoricalBinning.mergeBin(another.categoricalBinning);
+        this.numericalBinning.mergeBin(another.numericalBinning);
+    }
+
+    /**
+     * Resolve column type by {@link #resolveType(ColumnType, long, String[], Integer)} with distinct count and frequent
+     * items of this binning.
+     *
+     * @param current
+     *            - current type in ColumnConfig
+     * @param threshold
+     *            - auto type threshold
+     * @return resolved column type
+     */
+    public ColumnType resolveType(ColumnType current, Integer threshold) {
+        return resolveType(current, getDistinctCount(), getFrequentItems(), threshold);
+    }
+
+    /**
+     * Auto type rules shared by stats and init step. If distinct count is less than threshold, 0-1 variables and
+     * variables with all frequent items are double are numerical, others are categorical. If distinct count is not
+     * less than threshold or threshold is not positive, current type is kept.
+     *
+     * @param current
+     *            - current type in ColumnConfig
+     * @param distinctCount
+     *            - approximate distinct count of column
+     * @param items
+     *            - frequent items of column
+     * @param threshold
+     *            - auto type threshold
+     * @return resolved column type
+     */
+    public static ColumnType resolveType(ColumnType current, long distinctCount, String[] items, Integer threshold) {
+        if(threshold == null || threshold <= 0 || distinctCount >= threshold.longValue()) {
+            return current;
+        }
+        if(is01Variable(distinctCount, items) || isDoubleFrequentVariable(distinctCount, items)) {
+            return ColumnType.N;
+        }
+        return ColumnType.C;
+    }
+
+    /**
+     * Binning of resolved column type.
+     */
+    public AbstractBinning<?> getBinning(ColumnType columnType) {
+        return columnType == ColumnType.C ? this.categoricalBinning : this.numericalBinning;
+    }
+
+    public long getDistinctCount() {
+        return this.hyper.cardinality();
+    }
+
+    public String[] getFrequentItems() {
+        return this.frequentItems.toArray(new String[0]);
+    }
+
+    /**
+     * Ratio of values can be parsed as double in all not missing values.
+     */
+    public double getNumericRatio() {
+        return this.totalCount == 0L ? 0d : this.numericCount * 1d / this.totalCount;
+    }
+
+    public String objToString() {
+        List<String> strList = new ArrayList<String>();
+        try {
+            strList.add(new String(Base64.encodeBase64(this.hyper.getBytes()), Constants.DEFAULT_CHARSET));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        strList.add(StringUtils.join(this.frequentItems, AbstractBinning.SETLIST_SEPARATOR));
+        strList.add(Long.toString(this.numericCount));
+        strList.add(Long.toString(this.totalCount));
+        strList.add(this.categoricalBinning.objToString());
+        strList.add(this.numericalBinning.objToString());
+        return StringUtils.join(strList, AUTO_TYPE_SEPARATOR);
+    }
+
+    public static AutoTypeBinning constructBinningFromStr(ModelConfig modelConfig, String objValStr) {
+        String[] objStrArr = objValStr.split(Character.toString(AUTO_TYPE_SEPARATOR), -1);
+        if(objStrArr.length < 6) {
+            throw new IllegalArgumentException("The size of argument is incorrect");
+        }
+
+        AutoTypeBinning binning = new AutoTypeBinning();
+        try {
+            binning.hyper = HyperLogLogPlus.Builder.build(Base64.decodeBase64(objStrArr[0]
+                    .getBytes(Constants.DEFAULT_CHARSET)));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        binning.frequentItems = new HashSet<String>();
+        if(objStrArr[1].length() > 0) {
+            for(String item: objStrArr[1].split(Character.toString(AbstractBinning.SETLIST_SEPARATOR), -1)) {
+                binning.frequentItems.add(item);
+            }
+        }
+        binning.numericCount = Long.parseLong(objStrArr[2]);
+        binning.totalCount = Long.parseLong(objStrArr[3]);
+        binning.missingValues = getMissingValues(modelConfig);
+        binning.categoricalBinning = new CategoricalBinning();
+        binning.categoricalBinning.stringToObj(objStrArr[4]);
+        binning.numericalBinning = createNumericalBinning(modelConfig, true);
+        binning.numericalBinning.stringToObj(objStrArr[5]);
+        return binning;
+    }
+
+    /**
+     * If variable only has 0 and 1 values.
+     */
+    public static boolean is01Variable(long distinctCount, String[] items) {
+        if(distinctCount != 2) {
+            return false;
+        }
+        if(items.length > 2) {
+            return false;
+        }
+        for(String string: items) {
+            try {
+                Double d = Double.valueOf(string);
+                if(d.compareTo(Double.valueOf(0d)) == 0 || d.compareTo(Double.valueOf(1d)) == 0) {
+                    continue;
+                } else {
+                    return false;
+                }
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * If all frequent items are double but not integer, one blank item is allowed.
+     */
+    public static boolean isDoubleFrequentVariable(long distinctCount, String[] items) {
+        int doubleNotInfSize = 0;
+        boolean isExistNotEmptyAndNotNumberItem = false;
+        for(String string: items) {
+            boolean isDouble = false;
+            boolean isInt = false;
+            try {
+                Double.parseDouble(string);
+                isDouble = true;
+            } catch (NumberFormatException e) {
+                isDouble = false;
+                if(StringUtils.isNotBlank(string)) {
+                    isExistNotEmptyAndNotNumberItem = true;
+                }
+            }
+            try {
+                Integer.parseInt(string);
+                isInt = true;
+            } catch (NumberFormatException e) {
+                isInt = false;
+            }
+            if(isDouble && !isInt) {
+                doubleNotInfSize += 1;
+            }
+        }
+
+        if(doubleNotInfSize == items.length
+                || (doubleNotInfSize == items.length - 1 && !isExistNotEmptyAndNotNumberItem)) {
+            return true;
+        }
+
+        return false;
+    }
+
+}
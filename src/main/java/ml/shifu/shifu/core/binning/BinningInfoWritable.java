@@ -15,6 +15,8 @@
  */
 package ml.shifu.shifu.core.binning;
 
+import ml.shifu.shifu.core.QuantileSketch;
+
 import org.apache.hadoop.io.Writable;
 
 import java.io.DataInput;
@@ -64,6 +66,11 @@ public class BinningInfoWritable implements Writable {
 
     private double[] xMultiY = null;
 
+    /**
+     * Quantile sketch of numerical values, merged in reducer to compute median.
+     */
+    private QuantileSketch sketch = null;
+
     /**
      * @return the binBoundaries
      */
@@ -323,6 +330,11 @@ public class BinningInfoWritable implements Writable {
             } else {
                 out.writeInt(0);
             }
+
+            out.writeBoolean(this.sketch != null);
+            if(this.sketch != null) {
+                this.sketch.write(out);
+            }
         } else {
             out.writeInt(this.binCategories.size());
             for(int i = 0; i < this.binCategories.size(); i++) {
@@ -388,6 +400,7 @@ public class BinningInfoWritable implements Writable {
                     this.xMultiY[i] = in.readDouble();
                 }
             }
+            this.sketch = in.readBoolean() ? QuantileSketch.read(in) : null;
         } else {
             size = in.readInt();
             this.binCategories = new ArrayList<String>(size);
@@ -447,6 +460,21 @@ public class BinningInfoWritable implements Writable {
         this.xMultiY = xMultiY;
     }
 
+    /**
+     * @return the sketch
+     */
+    public QuantileSketch getSketch() {
+        return sketch;
+    }
+
+    /**
+     * @param sketch
+     *            the sketch to set
+     */
+    public void setSketch(QuantileSketch sketch) {
+        this.sketch = sketch;
+    }
+
     /*
      * (non-Javadoc)
      * 
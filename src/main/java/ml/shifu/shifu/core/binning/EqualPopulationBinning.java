@@ -20,7 +20,7 @@ package ml.shifu.shifu.core.binning;
 import java.util.ArrayList;
 import java.util.List;
 
-import ml.shifu.shifu.core.binning.obj.LinkNode;
+import ml.shifu.shifu.core.QuantileSketch;
 
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -29,6 +29,10 @@ import org.slf4j.LoggerFactory;
 /**
  * EqualPopulationBinning class
  * 
+ * <p>
+ * Values are collected by a {@link QuantileSketch}, bin boundaries are quantiles of equal steps. The sketch can be
+ * merged with sketches from other tasks.
+ * 
  * @Oct 22, 2014
  * 
  */
@@ -46,19 +50,14 @@ public class EqualPopulationBinning extends AbstractBinning<Double> {
     public static final int HIST_SCALE = 100;
 
     /**
-     * The maximum histogram unit count that could be hold
+     * The compression of quantile sketch
      */
     private int maxHistogramUnitCnt;
 
     /**
-     * Current histogram unit count in histogram
-     */
-    private int currentHistogramUnitCnt;
-
-    /**
-     * The header and tail of histogram
+     * Sketch of all valid values
      */
-    private LinkNode<HistogramUnit> header, tail;
+    private QuantileSketch sketch;
 
     /**
      * Empty constructor : it is just for bin merging
@@ -83,6 +82,7 @@ public class EqualPopulationBinning extends AbstractBinning<Double> {
     public EqualPopulationBinning(int binningNum, int histogramScale) {
         this(binningNum, null);
         this.maxHistogramUnitCnt = super.expectedBinningNum * histogramScale;
+        this.sketch = new QuantileSketch(this.maxHistogramUnitCnt);
     }
 
     /**
@@ -95,10 +95,7 @@ public class EqualPopulationBinning extends AbstractBinning<Double> {
     public EqualPopulationBinning(int binningNum, List<String> missingValList) {
         super(binningNum);
         this.maxHistogramUnitCnt = super.expectedBinningNum * HIST_SCALE;
-
-        this.currentHistogramUnitCnt = 0;
-        this.header = null;
-        this.tail = null;
+        this.sketch = new QuantileSketch(this.maxHistogramUnitCnt);
     }
 
     /**
@@ -183,165 +180,28 @@ public class EqualPopulationBinning extends AbstractBinning<Double> {
         List<Double> binBorders = new ArrayList<Double>();
         binBorders.add(Double.NEGATIVE_INFINITY);
 
-        if(this.currentHistogramUnitCnt <= toBinningNum) {
-            // if the count of histogram unit is less than expected bin number
-            // return each histogram unit as a bin. The boundary will be middle value
-            // of every two histogram unit values
-            convertHistogramUnitIntoBin(binBorders);
+        int centroidCnt = this.sketch.getCentroidCount();
+        if(centroidCnt <= toBinningNum) {
+            // if the count of centroids is less than expected bin number
+            // return each centroid as a bin. The boundary will be middle value
+            // of every two centroid values
+            for(int i = 0; i < centroidCnt - 1; i++) {
+                binBorders.add((this.sketch.getCentroidMean(i) + this.sketch.getCentroidMean(i + 1)) / 2);
+            }
             return binBorders;
         }
 
-        int totalCnt = getTotalInHistogram();
-        LinkNode<HistogramUnit> currStartPos = null;
         for(int j = 1; j < toBinningNum; j++) {
-            double s = (double) (j * totalCnt) / toBinningNum;
-            LinkNode<HistogramUnit> pos = locateHistogram(s, currStartPos);
-            if(pos == null || pos == currStartPos) {
-                continue;
-            } else {
-                HistogramUnit chu = pos.data();
-                HistogramUnit nhu = pos.next().data();
-
-                double d = s - sum(chu.getHval());
-                if(d < 0) {
-                    double u = (chu.getHval() + nhu.getHval()) / 2;
-                    binBorders.add(u);
-                    currStartPos = pos;
-                    continue;
-                }
-
-                double a = nhu.getHcnt() - chu.getHcnt();
-                double b = 2 * chu.getHcnt();
-                double c = -2 * d;
-
-                double z = 0.0;
-                if(Double.compare(a, 0) == 0) {
-                    z = -1 * c / b;
-                } else {
-                    z = (-1 * b + Math.sqrt(b * b - 4 * a * c)) / (2 * a);
-                }
-
-                double u = chu.getHval() + (nhu.getHval() - chu.getHval()) * z;
+            double u = this.sketch.getQuantile((double) j / toBinningNum);
+            // skip duplicated borders for heavy values
+            if(u > binBorders.get(binBorders.size() - 1)) {
                 binBorders.add(u);
-
-                currStartPos = pos;
             }
         }
 
         return binBorders;
     }
 
-    /**
-     * @param binBorders
-     */
-    private void convertHistogramUnitIntoBin(List<Double> binBorders) {
-        LinkNode<HistogramUnit> tmp = this.header;
-        while(tmp != this.tail) {
-            HistogramUnit chu = tmp.data();
-            HistogramUnit nhu = tmp.next().data();
-            binBorders.add((chu.getHval() + nhu.getHval()) / 2);
-
-            tmp = tmp.next();
-        }
-    }
-
-    /**
-     * Get the total value count in histogram
-     * 
-     * @return
-     */
-    private int getTotalInHistogram() {
-        int total = 0;
-
-        LinkNode<HistogramUnit> tmp = this.header;
-        while(tmp != null) {
-            total += tmp.data().getHcnt();
-            tmp = tmp.next();
-        }
-
-        return total;
-    }
-
-    /**
-     * Locate histogram unit with just less than s, from some histogram unit
-     * 
-     * @param s
-     * @param startPos
-     * @return
-     */
-    private LinkNode<HistogramUnit> locateHistogram(double s, LinkNode<HistogramUnit> startPos) {
-        while(startPos != this.tail) {
-            if(startPos == null) {
-                startPos = this.header;
-            }
-
-            HistogramUnit chu = startPos.data();
-            HistogramUnit nhu = startPos.next().data();
-
-            double sc = sum(chu.getHval());
-            double sn = sum(nhu.getHval());
-
-            if(sc >= s || (sc < s && s <= sn)) {
-                return startPos;
-            }
-
-            startPos = startPos.next();
-        }
-
-        return null;
-    }
-
-    /**
-     * Sum the histogram's frequency whose value less than or equal some value
-     * 
-     * @param hval
-     * @return
-     */
-    private double sum(double hval) {
-        LinkNode<HistogramUnit> posHistogramUnit = null;
-
-        LinkNode<HistogramUnit> tmp = this.header;
-        while(tmp != this.tail) {
-            HistogramUnit chu = tmp.data();
-            HistogramUnit nhu = tmp.next().data();
-
-            if(chu.getHval() <= hval && hval < nhu.getHval()) {
-                posHistogramUnit = tmp;
-                break;
-            }
-
-            tmp = tmp.next();
-        }
-
-        if(posHistogramUnit != null) {
-            HistogramUnit chu = posHistogramUnit.data();
-            HistogramUnit nhu = posHistogramUnit.next().data();
-            double mb = chu.getHcnt() + (nhu.getHcnt() - nhu.getHcnt()) * (hval - chu.getHval())
-                    / (nhu.getHval() - chu.getHval());
-            double s = (chu.getHcnt() + mb) * (hval - chu.getHval()) / (nhu.getHval() - chu.getHval());
-            s = s / 2;
-
-            tmp = this.header;
-            while(tmp != posHistogramUnit) {
-                HistogramUnit hu = tmp.data();
-                s = s + hu.getHcnt();
-                tmp = tmp.next();
-            }
-
-            return s + chu.getHcnt() / 2d;
-        } else if(tmp == this.tail) {
-            double sum = 0.0;
-            tmp = this.header;
-            while(tmp != null) {
-                sum += tmp.data().getHcnt();
-                tmp = tmp.next();
-            }
-            return sum;
-        }
-
-        return -1.0;
-    }
-
     /**
      * Process the histogram with value and frequency
      * 
@@ -349,119 +209,7 @@ public class EqualPopulationBinning extends AbstractBinning<Double> {
      * @param frequency
      */
     private void process(double dval, int frequency) {
-        LinkNode<HistogramUnit> node = new LinkNode<HistogramUnit>(new HistogramUnit(dval, frequency));
-        if(this.tail == null && this.maxHistogramUnitCnt > 1) {
-            this.header = node;
-            this.tail = node;
-            this.currentHistogramUnitCnt = 1;
-        } else {
-            insertWithTrim(node);
-        }
-    }
-
-    /**
-     * Insert one @HistogramUnit node into the histogram.
-     * Meanwhile it will try to keep the histogram as most @maxHistogramUnitCnt
-     * So when inserting one node in, the method will try to find the place to insert as well as minimum interval
-     * 
-     * @param node
-     */
-    private void insertWithTrim(LinkNode<HistogramUnit> node) {
-        LinkNode<HistogramUnit> insertOpsUnit = null;
-        LinkNode<HistogramUnit> minIntervalOpsUnit = null;
-        Double minInterval = Double.MAX_VALUE;
-
-        LinkNode<HistogramUnit> tmp = this.tail;
-        while(tmp != null) {
-            if(insertOpsUnit == null) {
-                int res = Double.compare(tmp.data().getHval(), node.data().getHval());
-                if(res > 0) {
-                    // do nothing
-                } else if(res == 0) {
-                    tmp.data().setHcnt(tmp.data().getHcnt() + node.data().getHcnt());
-                    return;
-                } else if(res < 0) {
-                    // find the right insert position to insert
-                    insertOpsUnit = tmp;
-
-                    double interval = node.data().getHval() - tmp.data().getHval();
-                    if(interval < minInterval) {
-                        minInterval = interval;
-                        minIntervalOpsUnit = tmp;
-                    }
-
-                    if(tmp.next() != null) {
-                        interval = tmp.next().data().getHval() - node.data().getHval();
-                        if(interval < minInterval) {
-                            minInterval = interval;
-                            minIntervalOpsUnit = node;
-                        }
-                    }
-                }
-            }
-
-            if(tmp.next() != null) {
-                LinkNode<HistogramUnit> next = tmp.next();
-                double interval = next.data().getHval() - tmp.data().getHval();
-
-                if(interval < minInterval) {
-                    minInterval = interval;
-                    minIntervalOpsUnit = tmp;
-                }
-            }
-
-            tmp = tmp.prev();
-        }
-
-        // insert node into linked list
-        if(insertOpsUnit == null) { // insert as the first node
-            if(this.header != null) {
-                this.header.setPrev(node);
-            }
-            node.setNext(this.header);
-            this.header = node;
-            if(this.tail == null) {
-                this.tail = node;
-            }
-        } else if(insertOpsUnit == this.tail) { // insert as the last node
-            node.setPrev(insertOpsUnit);
-            insertOpsUnit.setNext(node);
-            this.tail = node;
-        } else { // some intermediate node
-            node.setNext(insertOpsUnit.next());
-            node.setPrev(insertOpsUnit);
-            insertOpsUnit.next().setPrev(node);
-            insertOpsUnit.setNext(node);
-        }
-
-        // merge info into next node
-        if(this.currentHistogramUnitCnt == this.maxHistogramUnitCnt) {
-            LinkNode<HistogramUnit> nextNode = minIntervalOpsUnit.next();
-            HistogramUnit chu = minIntervalOpsUnit.data();
-            HistogramUnit nhu = nextNode.data();
-            nhu.setHval((chu.getHval() * chu.getHcnt() + nhu.getHval() * nhu.getHcnt())
-                    / (chu.getHcnt() + nhu.getHcnt()));
-            nhu.setHcnt(chu.getHcnt() + nhu.getHcnt());
-            removeCurrentNode(minIntervalOpsUnit, nextNode);
-        } else {
-            this.currentHistogramUnitCnt++;
-        }
-    }
-
-    /**
-     * @param currNode
-     * @param nextNode
-     */
-    private void removeCurrentNode(LinkNode<HistogramUnit> currNode, LinkNode<HistogramUnit> nextNode) {
-        // remove current node
-        if(currNode == this.header) {
-            nextNode.setPrev(null);
-            this.header = nextNode;
-        } else {
-            LinkNode<HistogramUnit> prev = currNode.prev();
-            prev.setNext(nextNode);
-            nextNode.setPrev(prev);
-        }
+        this.sketch.add(dval, frequency);
     }
 
     /*
@@ -475,11 +223,7 @@ public class EqualPopulationBinning extends AbstractBinning<Double> {
 
         super.mergeBin(binning);
 
-        LinkNode<HistogramUnit> tmp = binning.header;
-        while(tmp != null) {
-            this.insertWithTrim(new LinkNode<HistogramUnit>(tmp.data()));
-            tmp = tmp.next();
-        }
+        this.sketch.merge(binning.sketch);
     }
 
     /**
@@ -494,12 +238,20 @@ public class EqualPopulationBinning extends AbstractBinning<Double> {
         maxHistogramUnitCnt = Integer.parseInt(objStrArr[4]);
 
         if(objStrArr.length > 5 && StringUtils.isNotBlank(objStrArr[5])) {
+            // the first element is min and max of values, others are centroids
             String[] histogramStrArr = objStrArr[5].split(Character.toString(SETLIST_SEPARATOR), -1);
-            for(String histogramStr: histogramStrArr) {
-                HistogramUnit hu = HistogramUnit.stringToObj(histogramStr);
-                this.insertWithTrim(new LinkNode<HistogramUnit>(hu));
+            String[] minMax = StringUtils.split(histogramStrArr[0], PAIR_SEPARATOR);
+            double[] means = new double[histogramStrArr.length - 1];
+            double[] weights = new double[histogramStrArr.length - 1];
+            for(int i = 1; i < histogramStrArr.length; i++) {
+                String[] fields = StringUtils.split(histogramStrArr[i], PAIR_SEPARATOR);
+                means[i - 1] = Double.parseDouble(fields[0]);
+                weights[i - 1] = Double.parseDouble(fields[1]);
             }
+            this.sketch = QuantileSketch.fromCentroids(maxHistogramUnitCnt, Double.parseDouble(minMax[0]),
+                    Double.parseDouble(minMax[1]), means, weights);
         } else {
+            this.sketch = new QuantileSketch(maxHistogramUnitCnt);
             log.warn("Empty categorical bin - " + objValStr);
         }
     }
@@ -512,11 +264,13 @@ public class EqualPopulationBinning extends AbstractBinning<Double> {
     public String objToString() {
         List<String> histogramStrList = new ArrayList<String>();
 
-        if(this.header != null) {
-            LinkNode<HistogramUnit> tmp = this.header;
-            while(tmp != null) {
-                histogramStrList.add(tmp.data().objToString());
-                tmp = tmp.next();
+        int centroidCnt = this.sketch.getCentroidCount();
+        if(centroidCnt > 0) {
+            histogramStrList.add(Double.toString(this.sketch.getMin()) + Character.toString(PAIR_SEPARATOR)
+                    + Double.toString(this.sketch.getMax()));
+            for(int i = 0; i < centroidCnt; i++) {
+                histogramStrList.add(Double.toString(this.sketch.getCentroidMean(i))
+                        + Character.toString(PAIR_SEPARATOR) + Double.toString(this.sketch.getCentroidWeight(i)));
             }
         }
 
@@ -524,110 +278,4 @@ public class EqualPopulationBinning extends AbstractBinning<Double> {
                 + Character.toString(FIELD_SEPARATOR) + StringUtils.join(histogramStrList, SETLIST_SEPARATOR);
     }
 
-    /**
-     * 
-     * HistogramUnit class is the unit for histogram
-     * 
-     * @Nov 19, 2014
-     * 
-     */
-    public static class HistogramUnit implements Comparable<HistogramUnit> {
-        private double hval;
-        private int hcnt;
-
-        public HistogramUnit(double hval, int hcnt) {
-            this.hval = hval;
-            this.hcnt = hcnt;
-        }
-
-        public double getHval() {
-            return hval;
-        }
-
-        public void setHval(double hval) {
-            this.hval = hval;
-        }
-
-        public int getHcnt() {
-            return hcnt;
-        }
-
-        public void setHcnt(int hcnt) {
-            this.hcnt = hcnt;
-        }
-
-        /*
-         * (non-Javadoc)
-         * 
-         * @see java.lang.Comparable#compareTo(java.lang.Object)
-         */
-        @Override
-        public int compareTo(HistogramUnit another) {
-            return Double.compare(hval, another.getHval());
-        }
-
-        /*
-         * (non-Javadoc)
-         * 
-         * @see java.lang.Object#hashCode()
-         */
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            long temp;
-            temp = Double.doubleToLongBits(hval);
-            result = prime * result + (int) (temp ^ (temp >>> 32));
-            return result;
-        }
-
-        /*
-         * (non-Javadoc)
-         * 
-         * @see java.lang.Object#equals(java.lang.Object)
-         */
-        @Override
-        public boolean equals(Object obj) {
-            if(this == obj)
-                return true;
-            if(obj == null)
-                return false;
-            if(!(obj instanceof HistogramUnit))
-                return false;
-            HistogramUnit other = (HistogramUnit) obj;
-            return Double.compare(hval, other.hval) == 0;
-        }
-
-        @Override
-        public String toString() {
-            return "[" + hval + ", " + hcnt + "]";
-        }
-
-        /**
-         * convert @HistogramUnit object to String
-         * 
-         * @return
-         */
-        public String objToString() {
-            return Double.toString(hval) + Character.toString(PAIR_SEPARATOR) + Integer.toString(hcnt);
-        }
-
-        /**
-         * Constructor @HistogramUnit from String
-         * 
-         * @param histogramStr
-         * @return
-         */
-        public static HistogramUnit stringToObj(String histogramStr) {
-            String[] fields = StringUtils.split(histogramStr, PAIR_SEPARATOR);
-            return new HistogramUnit(Double.parseDouble(fields[0]), Integer.parseInt(fields[1]));
-        }
-
-    }
-
-    public static void main(String[] args) {
-        double aa = 1.0 / (1.0 + 10E20);
-        System.out.println(aa);
-    }
-
 }
@@ -42,6 +42,7 @@ import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.DataPurifier;
+import ml.shifu.shifu.core.QuantileSketch;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
 
@@ -60,7 +61,7 @@ import ml.shifu.shifu.util.Constants;
  * We assume that all column info can be saved in mapper memory.
  * 
  * <p>
- * 'median' can not be computed through such distributed solution.
+ * 'median' is computed by merging {@link QuantileSketch} of each mapper in reducer.
  */
 public class UpdateBinningInfoMapper extends Mapper<LongWritable, Text, IntWritable, BinningInfoWritable> {
 
@@ -196,6 +197,7 @@ public class UpdateBinningInfoMapper extends Mapper<LongWritable, Text, IntWrita
                             list.add(Double.valueOf(startElement));
                         }
                         binningInfo.setBinBoundaries(list);
+                        binningInfo.setSketch(new QuantileSketch());
                         binSize = list.size();
                     } else {
                         binningInfo.setNumeric(false);
@@ -274,16 +276,17 @@ public class UpdateBinningInfoMapper extends Mapper<LongWritable, Text, IntWrita
     @Override
     protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
         String valueStr = value.toString();
-        if(!this.dataPurifier.isFilterOut(valueStr)) {
-            return;
-        }
-
         if(valueStr == null || valueStr.length() == 0 || valueStr.trim().length() == 0) {
             LOG.warn("Empty input.");
             return;
         }
 
         String[] units = CommonUtils.split(valueStr, this.dataSetDelimiter);
+        // split once and filter on fields
+        if(!this.dataPurifier.isFilterOut(units)) {
+            return;
+        }
+
         // tagColumnNum should be in units array, if not IndexOutofBoundException
         String tag = units[this.tagColumnNum];
 
@@ -394,6 +397,7 @@ public class UpdateBinningInfoMapper extends Mapper<LongWritable, Text, IntWrita
                     binningInfoWritable.setSquaredSum(binningInfoWritable.getSquaredSum() + squaredVal);
                     binningInfoWritable.setTripleSum(binningInfoWritable.getTripleSum() + squaredVal * douVal);
                     binningInfoWritable.setQuarticSum(binningInfoWritable.getQuarticSum() + squaredVal * squaredVal);
+                    binningInfoWritable.getSketch().add(douVal);
 
                     if(Double.compare(binningInfoWritable.getMax(), douVal) < 0) {
                         binningInfoWritable.setMax(douVal);
@@ -25,6 +25,7 @@ import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.ColumnStatsCalculator;
 import ml.shifu.shifu.core.ColumnStatsCalculator.ColumnMetrics;
+import ml.shifu.shifu.core.QuantileSketch;
 import ml.shifu.shifu.udf.CalculateStatsUDF;
 import ml.shifu.shifu.util.Base64Utils;
 import ml.shifu.shifu.util.CommonUtils;
@@ -129,6 +130,7 @@ public class UpdateBinningInfoReducer extends Reducer<IntWritable, BinningInfoWr
         long[] binCountNeg = null;
         double[] binWeightPos = null;
         double[] binWeightNeg = null;
+        QuantileSketch sketch = null;
 
         ColumnConfig columnConfig = this.columnConfigList.get(key.get());
 
@@ -166,6 +168,13 @@ public class UpdateBinningInfoReducer extends Reducer<IntWritable, BinningInfoWr
                 min = info.getMin();
             }
 
+            if(info.getSketch() != null) {
+                if(sketch == null) {
+                    sketch = new QuantileSketch(info.getSketch().getCompression());
+                }
+                sketch.merge(info.getSketch());
+            }
+
             for(int i = 0; i < (binSize + 1); i++) {
                 binCountPos[i] += info.getBinCountPos()[i];
                 binCountNeg[i] += info.getBinCountNeg()[i];
@@ -235,6 +244,8 @@ public class UpdateBinningInfoReducer extends Reducer<IntWritable, BinningInfoWr
         double skewness = ColumnStatsCalculator.computeSkewness(realCount, mean, aStdDev, sum, squaredSum, tripleSum);
         double kurtosis = ColumnStatsCalculator.computeKurtosis(realCount, mean, aStdDev, sum, squaredSum, tripleSum,
                 quarticSum);
+        // median from merged sketches for numerical variables, mean for categorical variables as before
+        double median = (sketch != null && sketch.getTotalWeight() > 0d) ? sketch.getMedian() : mean;
 
         sb.append(key.get())
                 .append(Constants.DEFAULT_DELIMITER)
@@ -262,7 +273,7 @@ public class UpdateBinningInfoReducer extends Reducer<IntWritable, BinningInfoWr
                 .append(Constants.DEFAULT_DELIMITER)
                 .append(columnConfig.isCategorical() ? "C" : "N")
                 .append(Constants.DEFAULT_DELIMITER)
-                .append(df.format(mean))
+                .append(df.format(median))
                 .append(Constants.DEFAULT_DELIMITER)
                 .append(missingCount)
                 .append(Constants.DEFAULT_DELIMITER)
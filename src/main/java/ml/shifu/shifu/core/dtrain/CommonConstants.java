@@ -26,4 +26,64 @@ public interface CommonConstants {
     public static final String LR_LEARNING_RATE = "LearningRate";
 
     public static final String REG_LEVEL_KEY = "L1orL2";
+
+    public static final String SHIFU_OPTIMIZER_THREAD_COUNT = "shifu.optimizer.thread.count";
+
+    public static final int DEFAULT_OPTIMIZER_THREAD_COUNT = 4;
+
+    public static final String SHIFU_DTRAIN_CHECKPOINT_FILE = "shifu.dtrain.checkpoint.file";
+
+    public static final String SHIFU_DTRAIN_CHECKPOINT_INTERVAL = "shifu.dtrain.checkpoint.interval";
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 10;
+
+    public static final String SHIFU_DTRAIN_SHARD_CACHE_DIR = "shifu.dtrain.shard.cache.dir";
+
+    public static final String GUAGUA_DATA_MEMORY_FRACTION = "guagua.data.memoryFraction";
+
+    /**
+     * Whether split size, worker heap and memory fraction are planned by data volume, true by default.
+     */
+    public static final String SHIFU_DTRAIN_AUTO_SIZING = "shifu.dtrain.auto.sizing";
+
+    public static final String SHIFU_DTRAIN_WORKER_MIN_HEAP_MB = "shifu.dtrain.worker.min.heap.mb";
+
+    public static final String SHIFU_DTRAIN_WORKER_MAX_HEAP_MB = "shifu.dtrain.worker.max.heap.mb";
+
+    public static final String SHIFU_DTRAIN_WORKER_MAX_MEMORY_FRACTION = "shifu.dtrain.worker.max.memory.fraction";
+
+    public static final String SHIFU_DTRAIN_MIN_SPLIT_SIZE = "shifu.dtrain.min.split.size";
+
+    public static final String SHIFU_NN_BINARY_MODEL = "shifu.nn.binary.model";
+
+    /**
+     * Train param key of iterations without improvement of validation error before stopping, 0 means disabled.
+     */
+    public static final String EARLY_STOP_PATIENCE = "EarlyStopPatience";
+
+    /**
+     * Train param key of minimal error decrease to be treated as improvement, used by early stopping and plateau
+     * learning rate scheduler.
+     */
+    public static final String EARLY_STOP_MIN_DELTA = "EarlyStopMinDelta";
+
+    /**
+     * Train param key of whether weights with minimal validation error are used as final model, true by default.
+     */
+    public static final String RESTORE_BEST_WEIGHTS = "RestoreBestWeights";
+
+    /**
+     * Train param key of iterations without improvement before learning rate is decreased, 0 means disabled.
+     */
+    public static final String PLATEAU_PATIENCE = "PlateauPatience";
+
+    /**
+     * Train param key of factor multiplied to learning rate on plateau, in (0, 1).
+     */
+    public static final String PLATEAU_FACTOR = "PlateauFactor";
+
+    /**
+     * Train param key of lower bound of learning rate decreased on plateau.
+     */
+    public static final String MIN_LEARNING_RATE = "MinLearningRate";
 }
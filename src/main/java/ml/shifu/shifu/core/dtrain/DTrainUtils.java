@@ -48,6 +48,7 @@ public final class DTrainUtils {
     public static final String MANHATTAN_PROPAGATION = "M";
     public static final String QUICK_PROPAGATION = "Q";
     public static final String BACK_PROPAGATION = "B";
+    public static final String ADAM = "A";
 
     /**
      * The POSITIVE ETA value. This is specified by the resilient propagation
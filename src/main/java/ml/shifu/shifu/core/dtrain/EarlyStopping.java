@@ -0,0 +1,169 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+import ml.shifu.guagua.util.NumberFormatUtils;
+
+/**
+ * {@link EarlyStopping} is the early stopping policy of master in distributed training, which is checked by validation
+ * error (or train error if no validation set) of each iteration.
+ * 
+ * <p>
+ * If error is not improved by at least {@link #minDelta} in {@link #patience} continuous iterations, training should be
+ * stopped. Patience 0 means early stopping is disabled. Besides, if {@link #restoreBest} is enabled, a copy of weights
+ * with the minimal error is kept and should be used as the final model.
+ * 
+ * <p>
+ * Error reported by workers in one iteration is computed on weights of last iteration, so weights before updating
+ * should be passed to {@link #update(int, double, double[])}.
+ */
+public class EarlyStopping {
+
+    private final int patience;
+
+    private final double minDelta;
+
+    private final boolean restoreBest;
+
+    private double bestError = Double.MAX_VALUE;
+
+    private int bestIteration = -1;
+
+    private double[] bestWeights;
+
+    /**
+     * Continuous iterations without improvement.
+     */
+    private int wait = 0;
+
+    public EarlyStopping(int patience, double minDelta, boolean restoreBest) {
+        this.patience = patience;
+        this.minDelta = minDelta;
+        this.restoreBest = restoreBest;
+    }
+
+    /**
+     * Create early stopping policy from model params: {@link CommonConstants#EARLY_STOP_PATIENCE},
+     * {@link CommonConstants#EARLY_STOP_MIN_DELTA} and {@link CommonConstants#RESTORE_BEST_WEIGHTS}.
+     */
+    public static EarlyStopping create(Map<String, Object> params) {
+        Object patience = params.get(CommonConstants.EARLY_STOP_PATIENCE);
+        Object minDelta = params.get(CommonConstants.EARLY_STOP_MIN_DELTA);
+        Object restoreBest = params.get(CommonConstants.RESTORE_BEST_WEIGHTS);
+        return new EarlyStopping(NumberFormatUtils.getInt(patience == null ? "" : patience.toString(), 0),
+                NumberFormatUtils.getDouble(minDelta == null ? "" : minDelta.toString(), 0d), restoreBest == null
+                        || !Boolean.FALSE.toString().equalsIgnoreCase(restoreBest.toString()));
+    }
+
+    /**
+     * Update policy with error of current iteration.
+     * 
+     * @param iteration
+     *            - current iteration
+     * @param error
+     *            - validation error, or train error if no validation set
+     * @param weights
+     *            - weights on which error is computed, copied if it is the best one
+     * @return true if error is improved
+     */
+    public boolean update(int iteration, double error, double[] weights) {
+        // NaN error is never improved
+        if(error < this.bestError - this.minDelta || (this.bestIteration < 0 && !Double.isNaN(error))) {
+            this.bestError = error;
+            this.bestIteration = iteration;
+            this.wait = 0;
+            if(this.restoreBest) {
+                if(this.bestWeights == null || this.bestWeights.length != weights.length) {
+                    this.bestWeights = new double[weights.length];
+                }
+                System.arraycopy(weights, 0, this.bestWeights, 0, weights.length);
+            }
+            return true;
+        }
+        this.wait += 1;
+        return false;
+    }
+
+    /**
+     * Whether training should be stopped as error is not improved in patience iterations.
+     */
+    public boolean shouldStop() {
+        return this.patience > 0 && this.wait >= this.patience;
+    }
+
+    public boolean isRestoreBest() {
+        return this.restoreBest;
+    }
+
+    /**
+     * Copy of best weights, null if restore is disabled or no error is updated.
+     */
+    public double[] getBestWeights() {
+        return this.bestWeights;
+    }
+
+    public double getBestError() {
+        return this.bestError;
+    }
+
+    public int getBestIteration() {
+        return this.bestIteration;
+    }
+
+    public int getPatience() {
+        return this.patience;
+    }
+
+    /**
+     * Write best error, best weights and waiting iterations, which are saved in master checkpoint. Settings from model
+     * params are not included.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeDouble(this.bestError);
+        out.writeInt(this.bestIteration);
+        out.writeInt(this.wait);
+        out.writeBoolean(this.bestWeights != null);
+        if(this.bestWeights != null) {
+            out.writeInt(this.bestWeights.length);
+            for(double weight: this.bestWeights) {
+                out.writeDouble(weight);
+            }
+        }
+    }
+
+    /**
+     * Read states written by {@link #write(DataOutput)}.
+     */
+    public void readFields(DataInput in) throws IOException {
+        this.bestError = in.readDouble();
+        this.bestIteration = in.readInt();
+        this.wait = in.readInt();
+        if(in.readBoolean()) {
+            this.bestWeights = new double[in.readInt()];
+            for(int i = 0; i < this.bestWeights.length; i++) {
+                this.bestWeights[i] = in.readDouble();
+            }
+        } else {
+            this.bestWeights = null;
+        }
+    }
+
+}
@@ -0,0 +1,292 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import ml.shifu.shifu.core.dtrain.optimizer.Optimizer;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+
+/**
+ * {@link MasterCheckpoint} is binary snapshot of master state in distributed training, which is used to resume
+ * training from the last checkpoint iteration if job is failed.
+ * 
+ * <p>
+ * Besides model weights, learning rate and per-weight states of {@link Optimizer} are saved, together with states of
+ * {@link EarlyStopping} and {@link PlateauLearningRateScheduler}, so training after resuming is the same as training
+ * without failure.
+ * 
+ * <p>
+ * Checkpoint is written to a temp file and then renamed, a partly written checkpoint will never be loaded.
+ */
+public class MasterCheckpoint {
+
+    private static final int VERSION = 2;
+
+    /**
+     * Training iteration of this checkpoint, first iteration for initialization is excluded.
+     */
+    private int iteration;
+
+    private double learningRate;
+
+    private double[] weights;
+
+    /**
+     * Last weight updates of master, only used in NN mini-batch mode with momentum.
+     */
+    private double[] lastUpdates = new double[0];
+
+    /**
+     * Train and validation error of best weights kept in {@link EarlyStopping}.
+     */
+    private double bestTrainError, bestTestError;
+
+    public MasterCheckpoint() {
+    }
+
+    public MasterCheckpoint(int iteration, double learningRate, double[] weights) {
+        this.iteration = iteration;
+        this.learningRate = learningRate;
+        this.weights = weights;
+    }
+
+    /**
+     * Save checkpoint with optimizer, early stopping and learning rate scheduler states.
+     * 
+     * @param fs
+     *            - file system of checkpoint
+     * @param path
+     *            - checkpoint file path
+     * @param optimizer
+     *            - optimizer of master, can be null
+     * @param earlyStopping
+     *            - early stopping policy of master, can be null
+     * @param lrScheduler
+     *            - learning rate scheduler of master, can be null
+     * @throws IOException
+     *             any exception in writing checkpoint
+     */
+    public void save(FileSystem fs, Path path, Optimizer optimizer, EarlyStopping earlyStopping,
+            PlateauLearningRateScheduler lrScheduler) throws IOException {
+        Path tmpPath = new Path(path.getParent(), path.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(fs.create(tmpPath, true)));
+            out.writeInt(VERSION);
+            out.writeInt(this.iteration);
+            out.writeDouble(this.learningRate);
+            writeDoubles(out, this.weights);
+            writeDoubles(out, this.lastUpdates);
+            out.writeDouble(this.bestTrainError);
+            out.writeDouble(this.bestTestError);
+            out.writeBoolean(optimizer != null);
+            if(optimizer != null) {
+                optimizer.write(out);
+            }
+            out.writeBoolean(earlyStopping != null);
+            if(earlyStopping != null) {
+                earlyStopping.write(out);
+            }
+            out.writeBoolean(lrScheduler != null);
+            if(lrScheduler != null) {
+                lrScheduler.write(out);
+            }
+        } finally {
+            IOUtils.closeStream(out);
+        }
+
+        if(fs.exists(path)) {
+            fs.delete(path, false);
+        }
+        if(!fs.rename(tmpPath, path)) {
+            throw new IOException("Failed to rename checkpoint " + tmpPath + " to " + path);
+        }
+    }
+
+    /**
+     * Load checkpoint and restore optimizer, early stopping and learning rate scheduler states.
+     * 
+     * @param fs
+     *            - file system of checkpoint
+     * @param path
+     *            - checkpoint file path
+     * @param optimizer
+     *            - optimizer to restore states, should be created with the same algorithm and weight size
+     * @param earlyStopping
+     *            - early stopping policy to restore states, can be null
+     * @param lrScheduler
+     *            - learning rate scheduler to restore states, can be null
+     * @return checkpoint or null if no checkpoint file
+     * @throws IOException
+     *             any exception in reading checkpoint or inconsistent checkpoint
+     */
+    public static MasterCheckpoint load(FileSystem fs, Path path, Optimizer optimizer, EarlyStopping earlyStopping,
+            PlateauLearningRateScheduler lrScheduler) throws IOException {
+        if(!fs.exists(path)) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(fs.open(path)));
+            int version = in.readInt();
+            if(version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version);
+            }
+            MasterCheckpoint checkpoint = new MasterCheckpoint();
+            checkpoint.iteration = in.readInt();
+            checkpoint.learningRate = in.readDouble();
+            checkpoint.weights = readDoubles(in);
+            checkpoint.lastUpdates = readDoubles(in);
+            checkpoint.bestTrainError = in.readDouble();
+            checkpoint.bestTestError = in.readDouble();
+            // states are written in sequence, so optimizer states cannot be skipped if another state follows
+            if(in.readBoolean()) {
+                if(optimizer == null) {
+                    return checkpoint;
+                }
+                optimizer.readFields(in);
+            }
+            if(in.readBoolean()) {
+                if(earlyStopping == null) {
+                    return checkpoint;
+                }
+                earlyStopping.readFields(in);
+            }
+            if(in.readBoolean() && lrScheduler != null) {
+                lrScheduler.readFields(in);
+            }
+            return checkpoint;
+        } finally {
+            IOUtils.closeStream(in);
+        }
+    }
+
+    /**
+     * Iteration trained after resuming from checkpoint of resumed iteration, the first master iteration is used for
+     * initialization and not counted.
+     * 
+     * @param resumedIteration
+     *            - iteration of loaded checkpoint, 0 if training is not resumed
+     * @param currentIteration
+     *            - current master iteration of guagua job
+     * @return trained iteration including iterations before resuming
+     */
+    public static int getTrainedIteration(int resumedIteration, int currentIteration) {
+        return resumedIteration + currentIteration - 1;
+    }
+
+    /**
+     * If resumed training should be halted since iterations before and after resuming reach total iterations.
+     * 
+     * @param resumedIteration
+     *            - iteration of loaded checkpoint, 0 if training is not resumed
+     * @param currentIteration
+     *            - current master iteration of guagua job
+     * @param totalIteration
+     *            - total iteration of guagua job, including the first initialization iteration
+     * @return true if training is resumed and all iterations are trained
+     */
+    public static boolean isResumedFinished(int resumedIteration, int currentIteration, int totalIteration) {
+        return resumedIteration > 0
+                && getTrainedIteration(resumedIteration, currentIteration) >= totalIteration - 1;
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for(double value: values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static double[] readDoubles(DataInputStream in) throws IOException {
+        double[] values = new double[in.readInt()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    /**
+     * @return the iteration
+     */
+    public int getIteration() {
+        return iteration;
+    }
+
+    /**
+     * @return the learningRate
+     */
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * @return the weights
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return the lastUpdates
+     */
+    public double[] getLastUpdates() {
+        return lastUpdates;
+    }
+
+    /**
+     * @param lastUpdates
+     *            the lastUpdates to set
+     */
+    public void setLastUpdates(double[] lastUpdates) {
+        this.lastUpdates = lastUpdates;
+    }
+
+    /**
+     * @return the bestTrainError
+     */
+    public double getBestTrainError() {
+        return bestTrainError;
+    }
+
+    /**
+     * @return the bestTestError
+     */
+    public double getBestTestError() {
+        return bestTestError;
+    }
+
+    /**
+     * @param bestTrainError
+     *            the bestTrainError to set
+     * @param bestTestError
+     *            the bestTestError to set
+     */
+    public void setBestErrors(double bestTrainError, double bestTestError) {
+        this.bestTrainError = bestTrainError;
+        this.bestTestError = bestTestError;
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+import ml.shifu.guagua.util.NumberFormatUtils;
+
+/**
+ * {@link PlateauLearningRateScheduler} decreases learning rate of master when validation error (or train error if no
+ * validation set) is on a plateau.
+ * 
+ * <p>
+ * If error is not improved by at least {@link #minDelta} in {@link #patience} continuous iterations, learning rate is
+ * multiplied by {@link #factor} but not less than {@link #minLearningRate}, then the waiting is restarted. Patience 0
+ * means the scheduler is disabled and learning rate is not changed.
+ */
+public class PlateauLearningRateScheduler {
+
+    public static final double DEFAULT_FACTOR = 0.5d;
+
+    private final int patience;
+
+    private final double factor;
+
+    private final double minDelta;
+
+    private final double minLearningRate;
+
+    private double bestError = Double.MAX_VALUE;
+
+    /**
+     * Continuous iterations without improvement since last reduction.
+     */
+    private int wait = 0;
+
+    public PlateauLearningRateScheduler(int patience, double factor, double minDelta, double minLearningRate) {
+        if(factor <= 0d || factor >= 1d) {
+            throw new IllegalArgumentException("Plateau factor should be in (0, 1), but is " + factor);
+        }
+        this.patience = patience;
+        this.factor = factor;
+        this.minDelta = minDelta;
+        this.minLearningRate = minLearningRate;
+    }
+
+    /**
+     * Create scheduler from model params: {@link CommonConstants#PLATEAU_PATIENCE},
+     * {@link CommonConstants#PLATEAU_FACTOR}, {@link CommonConstants#EARLY_STOP_MIN_DELTA} and
+     * {@link CommonConstants#MIN_LEARNING_RATE}.
+     */
+    public static PlateauLearningRateScheduler create(Map<String, Object> params) {
+        Object patience = params.get(CommonConstants.PLATEAU_PATIENCE);
+        Object factor = params.get(CommonConstants.PLATEAU_FACTOR);
+        Object minDelta = params.get(CommonConstants.EARLY_STOP_MIN_DELTA);
+        Object minLearningRate = params.get(CommonConstants.MIN_LEARNING_RATE);
+        return new PlateauLearningRateScheduler(NumberFormatUtils.getInt(patience == null ? "" : patience.toString(),
+                0), NumberFormatUtils.getDouble(factor == null ? "" : factor.toString(), DEFAULT_FACTOR),
+                NumberFormatUtils.getDouble(minDelta == null ? "" : minDelta.toString(), 0d),
+                NumberFormatUtils.getDouble(minLearningRate == null ? "" : minLearningRate.toString(), 0d));
+    }
+
+    /**
+     * Adjust learning rate by error of current iteration.
+     * 
+     * @param error
+     *            - validation error, or train error if no validation set
+     * @param learningRate
+     *            - current learning rate
+     * @return learning rate to be used in current update
+     */
+    public double adjust(double error, double learningRate) {
+        if(this.patience <= 0) {
+            return learningRate;
+        }
+        if(error < this.bestError - this.minDelta || (this.bestError == Double.MAX_VALUE && !Double.isNaN(error))) {
+            this.bestError = error;
+            this.wait = 0;
+            return learningRate;
+        }
+        this.wait += 1;
+        if(this.wait >= this.patience) {
+            this.wait = 0;
+            return Math.max(learningRate * this.factor, Math.min(this.minLearningRate, learningRate));
+        }
+        return learningRate;
+    }
+
+    public boolean isEnabled() {
+        return this.patience > 0;
+    }
+
+    public int getPatience() {
+        return this.patience;
+    }
+
+    /**
+     * Write best error and waiting iterations, which are saved in master checkpoint. Current learning rate is kept by
+     * master and saved in checkpoint separately.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeDouble(this.bestError);
+        out.writeInt(this.wait);
+    }
+
+    /**
+     * Read states written by {@link #write(DataOutput)}.
+     */
+    public void readFields(DataInput in) throws IOException {
+        this.bestError = in.readDouble();
+        this.wait = in.readInt();
+    }
+
+}
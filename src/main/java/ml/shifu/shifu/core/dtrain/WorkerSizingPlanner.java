@@ -0,0 +1,290 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLData;
+import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataPair;
+import ml.shifu.shifu.fs.SequenceTextReader;
+import ml.shifu.shifu.fs.ShifuFileUtils;
+import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.util.SizeEstimator;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+
+/**
+ * {@link WorkerSizingPlanner} chooses combined split size, worker heap and memory fraction of data set before guagua
+ * training job is submitted.
+ * 
+ * <p>
+ * In-memory cost of one record is estimated by {@link SizeEstimator} on a record with the same input and output count
+ * as workers, which is the same as how {@link ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatMLDataSet} accounts
+ * memory. Records per input byte is estimated by reading the first records of normalized data, so compressed input is
+ * supported.
+ * 
+ * <p>
+ * The default max split size is used if records of such split can be kept in memory with a heap not larger than max
+ * heap, else split size is decreased to make records of one split fit max heap but not less than min split size. If
+ * records still cannot be kept in memory, records over memory fraction are spilled to disk by worker data set.
+ */
+public class WorkerSizingPlanner {
+
+    public static final long MB = 1024L * 1024L;
+
+    /**
+     * Memory estimation is not accurate, more memory is planned for records.
+     */
+    private static final double MEMORY_SLACK = 1.1d;
+
+    /**
+     * Heap reserved for JVM, guagua and netty besides records and model.
+     */
+    private static final long RESERVED_HEAP_SIZE = 256L * MB;
+
+    /**
+     * Memory fraction is not less than it even if records only need a little memory.
+     */
+    private static final double MIN_MEMORY_FRACTION = 0.3d;
+
+    private final long minHeapSize;
+
+    private final long maxHeapSize;
+
+    private final double maxMemoryFraction;
+
+    private final long minSplitSize;
+
+    private final long maxSplitSize;
+
+    public WorkerSizingPlanner(long minHeapSize, long maxHeapSize, double maxMemoryFraction, long minSplitSize,
+            long maxSplitSize) {
+        this.minHeapSize = minHeapSize;
+        this.maxHeapSize = Math.max(minHeapSize, maxHeapSize);
+        this.maxMemoryFraction = maxMemoryFraction;
+        this.minSplitSize = minSplitSize;
+        this.maxSplitSize = Math.max(minSplitSize, maxSplitSize);
+    }
+
+    /**
+     * Estimated in-memory size of one record with input and output count.
+     */
+    public static long estimateRecordSize(int inputCount, int outputCount) {
+        return SizeEstimator.estimate(new BasicFloatMLDataPair(new BasicFloatMLData(new float[inputCount]),
+                new BasicFloatMLData(new float[outputCount])));
+    }
+
+    /**
+     * Plan worker sizing.
+     * 
+     * @param totalSize
+     *            - total bytes of input files
+     * @param totalRecords
+     *            - estimated record count of input files
+     * @param recordSize
+     *            - in-memory size of one record
+     * @param modelSize
+     *            - memory of model weights, gradients and optimizer states in one worker
+     * @return sizing plan
+     */
+    public Plan plan(long totalSize, long totalRecords, long recordSize, long modelSize) {
+        double recordsPerByte = totalSize <= 0L ? 0d : totalRecords * 1d / totalSize;
+        long reserved = RESERVED_HEAP_SIZE + modelSize;
+
+        long splitSize = this.maxSplitSize;
+        long memorySize = getMemorySize(splitSize, recordsPerByte, recordSize);
+        long heapSize = getRequiredHeapSize(memorySize, reserved);
+        boolean isFit = true;
+        if(heapSize > this.maxHeapSize) {
+            heapSize = this.maxHeapSize;
+            long budget = getMemoryBudget(heapSize, reserved);
+            if(recordsPerByte > 0d) {
+                splitSize = Math.min(this.maxSplitSize, (long) (budget / (recordSize * MEMORY_SLACK) / recordsPerByte));
+            }
+            if(splitSize < this.minSplitSize) {
+                splitSize = this.minSplitSize;
+                isFit = false;
+            }
+            memorySize = getMemorySize(splitSize, recordsPerByte, recordSize);
+        } else {
+            heapSize = Math.max(this.minHeapSize, heapSize);
+        }
+        // round heap to MB
+        heapSize = (heapSize + MB - 1) / MB * MB;
+
+        double memoryFraction = Math.max(MIN_MEMORY_FRACTION,
+                Math.min(this.maxMemoryFraction, memorySize * 1d / heapSize));
+        int numWorkers = (int) Math.max(1L, (totalSize + splitSize - 1) / splitSize);
+        return new Plan(splitSize, heapSize, memoryFraction, numWorkers, (long) (splitSize * recordsPerByte),
+                recordSize, isFit);
+    }
+
+    private long getMemorySize(long splitSize, double recordsPerByte, long recordSize) {
+        return (long) (splitSize * recordsPerByte * recordSize * MEMORY_SLACK);
+    }
+
+    private long getRequiredHeapSize(long memorySize, long reserved) {
+        return Math.max((long) (memorySize / this.maxMemoryFraction), memorySize + reserved);
+    }
+
+    private long getMemoryBudget(long heapSize, long reserved) {
+        return Math.max(0L, Math.min((long) (heapSize * this.maxMemoryFraction), heapSize - reserved));
+    }
+
+    /**
+     * Estimate record count of data files by reading at most sampleCount records from the first files.
+     * 
+     * @return {total bytes, estimated total records}
+     */
+    public static long[] estimateRecords(FileSystem fs, String dataPath, int sampleCount) throws IOException {
+        long totalSize = 0L, sampledSize = 0L, sampledRecords = 0L;
+        Configuration conf = fs.getConf();
+        CompressionCodecFactory codecFactory = new CompressionCodecFactory(conf);
+        for(FileStatus status: ShifuFileUtils.getDataFileStatus(fs, dataPath)) {
+            totalSize += status.getLen();
+            if(sampledRecords >= sampleCount || status.getLen() == 0L) {
+                continue;
+            }
+            long[] sampled = sampleFile(fs, conf, codecFactory, status, sampleCount - sampledRecords);
+            sampledSize += sampled[0];
+            sampledRecords += sampled[1];
+        }
+        long totalRecords = sampledSize == 0L ? 0L : (long) (totalSize * (sampledRecords * 1d / sampledSize));
+        return new long[] { totalSize, totalRecords };
+    }
+
+    /**
+     * @return {bytes consumed, records read}
+     */
+    private static long[] sampleFile(FileSystem fs, Configuration conf, CompressionCodecFactory codecFactory,
+            FileStatus status, long maxRecords) throws IOException {
+        Path path = status.getPath();
+        long records = 0L;
+        if(path.getName().endsWith(Constants.SEQ_SUFFIX)) {
+            SequenceTextReader reader = new SequenceTextReader(conf, path);
+            try {
+                Text value = new Text();
+                while(records < maxRecords && reader.next(value)) {
+                    records += 1L;
+                }
+                return new long[] { records < maxRecords ? status.getLen() : reader.getPosition(), records };
+            } finally {
+                reader.close();
+            }
+        }
+
+        FSDataInputStream fsIn = fs.open(path);
+        BufferedReader reader = null;
+        try {
+            CompressionCodec codec = codecFactory.getCodec(path);
+            InputStream in = codec == null ? fsIn : codec.createInputStream(fsIn);
+            reader = new BufferedReader(new InputStreamReader(in, Constants.DEFAULT_CHARSET));
+            while(records < maxRecords && reader.readLine() != null) {
+                records += 1L;
+            }
+            // position is a little larger than consumed bytes because of buffering, ok for estimation
+            return new long[] { records < maxRecords ? status.getLen() : fsIn.getPos(), records };
+        } finally {
+            IOUtils.closeQuietly(reader);
+            IOUtils.closeQuietly(fsIn);
+        }
+    }
+
+    /**
+     * Result of {@link WorkerSizingPlanner#plan(long, long, long, long)}.
+     */
+    public static class Plan {
+
+        private final long splitSize;
+
+        private final long heapSize;
+
+        private final double memoryFraction;
+
+        private final int numWorkers;
+
+        private final long recordsPerWorker;
+
+        private final long recordSize;
+
+        /**
+         * Whether records of one worker can be kept in memory.
+         */
+        private final boolean isFit;
+
+        public Plan(long splitSize, long heapSize, double memoryFraction, int numWorkers, long recordsPerWorker,
+                long recordSize, boolean isFit) {
+            this.splitSize = splitSize;
+            this.heapSize = heapSize;
+            this.memoryFraction = memoryFraction;
+            this.numWorkers = numWorkers;
+            this.recordsPerWorker = recordsPerWorker;
+            this.recordSize = recordSize;
+            this.isFit = isFit;
+        }
+
+        public long getSplitSize() {
+            return splitSize;
+        }
+
+        public long getHeapSize() {
+            return heapSize;
+        }
+
+        public long getHeapSizeInMB() {
+            return heapSize / MB;
+        }
+
+        public double getMemoryFraction() {
+            return memoryFraction;
+        }
+
+        public int getNumWorkers() {
+            return numWorkers;
+        }
+
+        public long getRecordsPerWorker() {
+            return recordsPerWorker;
+        }
+
+        public long getRecordSize() {
+            return recordSize;
+        }
+
+        public boolean isFit() {
+            return isFit;
+        }
+
+        @Override
+        public String toString() {
+            return "Plan [splitSize=" + splitSize + ", heapSize=" + heapSize + ", memoryFraction=" + memoryFraction
+                    + ", numWorkers=" + numWorkers + ", recordsPerWorker=" + recordsPerWorker + ", recordSize="
+                    + recordSize + ", isFit=" + isFit + "]";
+        }
+    }
+
+}
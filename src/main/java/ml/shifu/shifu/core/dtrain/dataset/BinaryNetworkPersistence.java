@@ -0,0 +1,235 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dataset;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.encog.engine.network.activation.ActivationFunction;
+import org.encog.neural.flat.FlatNetwork;
+import org.encog.neural.networks.BasicNetwork;
+
+/**
+ * Compact binary format of {@link BasicNetwork}, which has the same content as {@link PersistBasicFloatNetwork} but
+ * all int and double arrays are written as binary blocks behind a small header. Loading binary model is much faster
+ * than parsing Encog text model, especially for big models.
+ * 
+ * <p>
+ * Weights are kept in double, so scores of binary model are exactly the same as scores of text model.
+ * 
+ * <p>
+ * {@link #isBinary(InputStream)} can be used to check if a stream is binary model, so both formats can be read from
+ * the same model file names.
+ */
+public final class BinaryNetworkPersistence {
+
+    /**
+     * 'SHNN' in ASCII.
+     */
+    public static final int MAGIC = 0x53484E4E;
+
+    private static final int VERSION = 1;
+
+    private BinaryNetworkPersistence() {
+    }
+
+    /**
+     * Check if stream starts with binary model magic, stream should support mark.
+     */
+    public static boolean isBinary(InputStream is) throws IOException {
+        is.mark(4);
+        try {
+            int magic = 0;
+            for(int i = 0; i < 4; i++) {
+                int b = is.read();
+                if(b < 0) {
+                    return false;
+                }
+                magic = (magic << 8) | b;
+            }
+            return magic == MAGIC;
+        } finally {
+            is.reset();
+        }
+    }
+
+    public static void saveObject(OutputStream os, BasicNetwork network) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        FlatNetwork flat = network.getStructure().getFlat();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        Map<String, String> properties = network.getProperties();
+        out.writeInt(properties.size());
+        for(Map.Entry<String, String> entry: properties.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+
+        out.writeInt(flat.getBeginTraining());
+        out.writeInt(flat.getEndTraining());
+        out.writeInt(flat.getInputCount());
+        out.writeInt(flat.getOutputCount());
+        out.writeDouble(flat.getConnectionLimit());
+        out.writeBoolean(flat.getHasContext());
+        writeInts(out, flat.getContextTargetOffset());
+        writeInts(out, flat.getContextTargetSize());
+        writeInts(out, flat.getLayerCounts());
+        writeInts(out, flat.getLayerFeedCounts());
+        writeInts(out, flat.getLayerContextCount());
+        writeInts(out, flat.getLayerIndex());
+        writeInts(out, flat.getWeightIndex());
+        writeDoubles(out, flat.getLayerOutput());
+        writeDoubles(out, flat.getBiasActivation());
+        writeDoubles(out, flat.getWeights());
+
+        ActivationFunction[] activations = flat.getActivationFunctions();
+        out.writeInt(activations.length);
+        for(ActivationFunction af: activations) {
+            out.writeUTF(af.getClass().getName());
+            writeDoubles(out, af.getParams());
+        }
+        out.flush();
+    }
+
+    public static BasicNetwork loadObject(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is instanceof BufferedInputStream ? is : new BufferedInputStream(is));
+        if(in.readInt() != MAGIC) {
+            throw new IOException("Not a binary network model.");
+        }
+        int version = in.readInt();
+        if(version != VERSION) {
+            throw new IOException("Unsupported binary network model version " + version);
+        }
+
+        BasicNetwork result = new BasicNetwork();
+        int propertySize = in.readInt();
+        for(int i = 0; i < propertySize; i++) {
+            String key = in.readUTF();
+            result.getProperties().put(key, in.readUTF());
+        }
+
+        FlatNetwork flat = new FlatNetwork();
+        flat.setBeginTraining(in.readInt());
+        flat.setEndTraining(in.readInt());
+        flat.setInputCount(in.readInt());
+        flat.setOutputCount(in.readInt());
+        flat.setConnectionLimit(in.readDouble());
+        flat.setHasContext(in.readBoolean());
+        flat.setContextTargetOffset(readInts(in));
+        flat.setContextTargetSize(readInts(in));
+        flat.setLayerCounts(readInts(in));
+        flat.setLayerFeedCounts(readInts(in));
+        flat.setLayerContextCount(readInts(in));
+        flat.setLayerIndex(readInts(in));
+        flat.setWeightIndex(readInts(in));
+        flat.setLayerOutput(readDoubles(in));
+        flat.setLayerSums(new double[flat.getLayerOutput().length]);
+        flat.setBiasActivation(readDoubles(in));
+        flat.setWeights(readDoubles(in));
+
+        ActivationFunction[] activations = new ActivationFunction[in.readInt()];
+        for(int i = 0; i < activations.length; i++) {
+            String className = in.readUTF();
+            try {
+                activations[i] = (ActivationFunction) Class.forName(className).newInstance();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Activation function " + className + " is not found.", e);
+            } catch (InstantiationException e) {
+                throw new IOException("Error in creating activation function " + className, e);
+            } catch (IllegalAccessException e) {
+                throw new IOException("Error in creating activation function " + className, e);
+            }
+            double[] params = readDoubles(in);
+            for(int j = 0; j < params.length; j++) {
+                activations[i].setParam(j, params[j]);
+            }
+        }
+        flat.setActivationFunctions(activations);
+
+        result.getStructure().setFlat(flat);
+        return result;
+    }
+
+    /**
+     * Create a network sharing read-only states like weights and activation functions with the given network, while
+     * layer outputs and sums which are changed in computing are copied. Such copy is cheap and can be used in another
+     * thread.
+     */
+    public static BasicNetwork shareNetwork(BasicNetwork network) {
+        FlatNetwork flat = network.getStructure().getFlat();
+        FlatNetwork copy = new FlatNetwork();
+        copy.setBeginTraining(flat.getBeginTraining());
+        copy.setEndTraining(flat.getEndTraining());
+        copy.setInputCount(flat.getInputCount());
+        copy.setOutputCount(flat.getOutputCount());
+        copy.setConnectionLimit(flat.getConnectionLimit());
+        copy.setHasContext(flat.getHasContext());
+        copy.setContextTargetOffset(flat.getContextTargetOffset());
+        copy.setContextTargetSize(flat.getContextTargetSize());
+        copy.setLayerCounts(flat.getLayerCounts());
+        copy.setLayerFeedCounts(flat.getLayerFeedCounts());
+        copy.setLayerContextCount(flat.getLayerContextCount());
+        copy.setLayerIndex(flat.getLayerIndex());
+        copy.setWeightIndex(flat.getWeightIndex());
+        copy.setLayerOutput(flat.getLayerOutput().clone());
+        copy.setLayerSums(new double[flat.getLayerOutput().length]);
+        copy.setBiasActivation(flat.getBiasActivation());
+        copy.setWeights(flat.getWeights());
+        copy.setActivationFunctions(flat.getActivationFunctions());
+
+        BasicNetwork result = new BasicNetwork();
+        result.getProperties().putAll(network.getProperties());
+        result.getStructure().setFlat(copy);
+        return result;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] data) throws IOException {
+        out.writeInt(data.length);
+        for(int d: data) {
+            out.writeInt(d);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] data = new int[in.readInt()];
+        for(int i = 0; i < data.length; i++) {
+            data[i] = in.readInt();
+        }
+        return data;
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] data) throws IOException {
+        out.writeInt(data.length);
+        for(double d: data) {
+            out.writeDouble(d);
+        }
+    }
+
+    private static double[] readDoubles(DataInputStream in) throws IOException {
+        double[] data = new double[in.readInt()];
+        for(int i = 0; i < data.length; i++) {
+            data[i] = in.readDouble();
+        }
+        return data;
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright [2012-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dataset;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.encog.ml.data.MLData;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLDataPair;
+
+/**
+ * A read-only view of records in another data set selected by index.
+ * 
+ * <p>
+ * Records are not copied, {@link #getRecord(long, MLDataPair)} is delegated to the master data set with index mapped.
+ * Several views can be built on one in-memory master data set, so bagging and cross validation of local trainers
+ * don't keep a copy of data for each trainer. The same index can be put more than once for sampling with replacement.
+ * 
+ * <p>
+ * Master data set should not be changed or closed when views are used. {@link #close()} of view does nothing.
+ */
+public class IndexedMLDataSet implements MLDataSet {
+
+    private final MLDataSet master;
+
+    private final int[] indexes;
+
+    public IndexedMLDataSet(MLDataSet master, int[] indexes) {
+        this.master = master;
+        this.indexes = indexes;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Iterable#iterator()
+     */
+    @Override
+    public Iterator<MLDataPair> iterator() {
+        return new Iterator<MLDataPair>() {
+
+            private int current = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.current < IndexedMLDataSet.this.indexes.length;
+            }
+
+            @Override
+            public MLDataPair next() {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                MLDataPair pair = BasicMLDataPair.createPair(getInputSize(), getIdealSize());
+                getRecord(this.current++, pair);
+                return pair;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.encog.ml.data.MLDataSet#getIdealSize()
+     */
+    @Override
+    public int getIdealSize() {
+        return this.master.getIdealSize();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.encog.ml.data.MLDataSet#getInputSize()
+     */
+    @Override
+    public int getInputSize() {
+        return this.master.getInputSize();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.encog.ml.data.MLDataSet#isSupervised()
+     */
+    @Override
+    public boolean isSupervised() {
+        return this.master.isSupervised();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.encog.ml.data.MLDataSet#getRecordCount()
+     */
+    @Override
+    public long getRecordCount() {
+        return this.indexes.length;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.encog.ml.data.MLDataSet#getRecord(long, org.encog.ml.data.MLDataPair)
+     */
+    @Override
+    public void getRecord(long index, MLDataPair pair) {
+        this.master.getRecord(this.indexes[(int) index], pair);
+    }
+
+    /**
+     * View with the same indexes on an additional master data set, used by Encog workers in different threads.
+     */
+    @Override
+    public MLDataSet openAdditional() {
+        return new IndexedMLDataSet(this.master.openAdditional(), this.indexes);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.encog.ml.data.MLDataSet#add(org.encog.ml.data.MLData)
+     */
+    @Override
+    public void add(MLData data) {
+        throw new UnsupportedOperationException("IndexedMLDataSet is read only.");
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.encog.ml.data.MLDataSet#add(org.encog.ml.data.MLData, org.encog.ml.data.MLData)
+     */
+    @Override
+    public void add(MLData inputData, MLData idealData) {
+        throw new UnsupportedOperationException("IndexedMLDataSet is read only.");
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.encog.ml.data.MLDataSet#add(org.encog.ml.data.MLDataPair)
+     */
+    @Override
+    public void add(MLDataPair inputData) {
+        throw new UnsupportedOperationException("IndexedMLDataSet is read only.");
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.encog.ml.data.MLDataSet#close()
+     */
+    @Override
+    public void close() {
+        // master data set is shared and closed by its owner
+    }
+
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright [2012-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dataset;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A list of fixed-width float records, each record is (significance, inputs, outputs).
+ *
+ * <p>
+ * Records are kept in big float blocks in memory firstly, if over {@link #maxByteSize} then records are written
+ * sequentially into {@link #fileName} as raw floats through a large direct buffer. Compared with guagua
+ * MemoryDiskList, no object is created per record and no Java serialization is used, so iterating spilled records
+ * costs close to sequential disk read.
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * MemoryDiskFloatRecordList list = new MemoryDiskFloatRecordList(1024 * 1024, &quot;train.bin&quot;, 10, 1);
+ * list.append(inputs, outputs, significance);
+ * list.switchState();
+ *
+ * for(MemoryDiskFloatRecordList.Record record: list) {
+ *     ...
+ * }
+ *
+ * list.close();
+ * </pre>
+ *
+ * <p>
+ * The {@link Record} returned by iterator is reused, copy its arrays if they should be kept. This list is not
+ * thread-safe.
+ */
+public class MemoryDiskFloatRecordList implements Iterable<MemoryDiskFloatRecordList.Record> {
+
+    /**
+     * Float count of one memory block.
+     */
+    private static final int BLOCK_FLOATS = 256 * 1024;
+
+    /**
+     * Byte size of buffer used to write and read disk records.
+     */
+    private static final int BUFFER_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * Max bytes located in memory.
+     */
+    private final long maxByteSize;
+
+    /**
+     * File name to spill records.
+     */
+    private final String fileName;
+
+    private final int inputCount;
+
+    private final int outputCount;
+
+    /**
+     * Float count of one record: significance + inputs + outputs.
+     */
+    private final int recordWidth;
+
+    /**
+     * Records in one memory block.
+     */
+    private final int blockRecords;
+
+    private final List<float[]> blocks = new ArrayList<float[]>();
+
+    private long memoryCount = 0L;
+
+    private long diskCount = 0L;
+
+    private FileChannel writeChannel;
+
+    private ByteBuffer writeBuffer;
+
+    /**
+     * Channel of current disk reader, closed if iteration is done or a new iteration is started.
+     */
+    private FileChannel readChannel;
+
+    /**
+     * Direct buffer of disk reader, allocated once and reused by iterators of all epochs since direct memory is only
+     * freed by GC.
+     */
+    private ByteBuffer readBuffer;
+
+    private boolean isWriting = true;
+
+    /**
+     * Constructor with {@link #maxByteSize}, {@link #fileName}, {@link #inputCount} and {@link #outputCount}.
+     */
+    public MemoryDiskFloatRecordList(long maxByteSize, String fileName, int inputCount, int outputCount) {
+        this.maxByteSize = maxByteSize;
+        this.fileName = fileName;
+        this.inputCount = inputCount;
+        this.outputCount = outputCount;
+        this.recordWidth = 1 + inputCount + outputCount;
+        this.blockRecords = Math.max(1, BLOCK_FLOATS / this.recordWidth);
+    }
+
+    /**
+     * Constructor with only memory storage.
+     */
+    public MemoryDiskFloatRecordList(int inputCount, int outputCount) {
+        this(Long.MAX_VALUE, null, inputCount, outputCount);
+    }
+
+    /**
+     * Append one record, inputs and outputs are copied.
+     *
+     * @param inputs
+     *            - input values with length {@link #inputCount}
+     * @param outputs
+     *            - output values with length {@link #outputCount}
+     * @param significance
+     *            - weight of this record
+     * @throws IllegalStateException
+     *             if {@link #switchState()} is already called, or error in writing disk.
+     */
+    public void append(float[] inputs, float[] outputs, float significance) {
+        if(!this.isWriting) {
+            throw new IllegalStateException("Cannot append records after switching to reading state.");
+        }
+        if(this.fileName == null || (this.memoryCount + 1) * this.recordWidth * 4L <= this.maxByteSize) {
+            int blockIndex = (int) (this.memoryCount / this.blockRecords);
+            if(blockIndex == this.blocks.size()) {
+                this.blocks.add(new float[this.blockRecords * this.recordWidth]);
+            }
+            float[] block = this.blocks.get(blockIndex);
+            int offset = (int) (this.memoryCount % this.blockRecords) * this.recordWidth;
+            block[offset] = significance;
+            System.arraycopy(inputs, 0, block, offset + 1, this.inputCount);
+            System.arraycopy(outputs, 0, block, offset + 1 + this.inputCount, this.outputCount);
+            this.memoryCount += 1L;
+        } else {
+            try {
+                if(this.writeChannel == null) {
+                    this.writeChannel = new FileOutputStream(this.fileName).getChannel();
+                    this.writeBuffer = ByteBuffer.allocateDirect(bufferSize()).order(ByteOrder.nativeOrder());
+                }
+                if(this.writeBuffer.remaining() < this.recordWidth * 4) {
+                    flush();
+                }
+                this.writeBuffer.putFloat(significance);
+                for(int i = 0; i < this.inputCount; i++) {
+                    this.writeBuffer.putFloat(inputs[i]);
+                }
+                for(int i = 0; i < this.outputCount; i++) {
+                    this.writeBuffer.putFloat(outputs[i]);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Error in writing records to " + this.fileName, e);
+            }
+            this.diskCount += 1L;
+        }
+    }
+
+    /**
+     * Buffer size aligned to record bytes, at least one record.
+     */
+    private int bufferSize() {
+        int recordBytes = this.recordWidth * 4;
+        return Math.max(1, BUFFER_BYTES / recordBytes) * recordBytes;
+    }
+
+    private void flush() throws IOException {
+        this.writeBuffer.flip();
+        while(this.writeBuffer.hasRemaining()) {
+            this.writeChannel.write(this.writeBuffer);
+        }
+        this.writeBuffer.clear();
+    }
+
+    /**
+     * Switch from writing state to reading state, remaining disk records are flushed. It is also called by
+     * {@link #iterator()} if not called before.
+     */
+    public void switchState() {
+        if(!this.isWriting) {
+            return;
+        }
+        this.isWriting = false;
+        if(this.writeChannel != null) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new IllegalStateException("Error in writing records to " + this.fileName, e);
+            } finally {
+                closeQuietly(this.writeChannel);
+                this.writeChannel = null;
+                this.writeBuffer = null;
+            }
+        }
+    }
+
+    /**
+     * Record count in memory and disk.
+     */
+    public long size() {
+        return this.memoryCount + this.diskCount;
+    }
+
+    public long getMemoryCount() {
+        return this.memoryCount;
+    }
+
+    public long getDiskCount() {
+        return this.diskCount;
+    }
+
+    public int getInputCount() {
+        return this.inputCount;
+    }
+
+    public int getOutputCount() {
+        return this.outputCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Iterable#iterator()
+     */
+    @Override
+    public Iterator<Record> iterator() {
+        switchState();
+        closeQuietly(this.readChannel);
+        this.readChannel = null;
+        return new RecordIterator();
+    }
+
+    /**
+     * Close disk channels and delete spill file.
+     */
+    public void close() {
+        closeQuietly(this.writeChannel);
+        this.writeChannel = null;
+        closeQuietly(this.readChannel);
+        this.readChannel = null;
+        this.readBuffer = null;
+        this.blocks.clear();
+        if(this.fileName != null) {
+            new File(this.fileName).delete();
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if(channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * One record of the list, arrays are reused by iterator.
+     */
+    public static class Record {
+
+        private float significance;
+
+        private final float[] inputs;
+
+        private final float[] outputs;
+
+        public Record(int inputCount, int outputCount) {
+            this.inputs = new float[inputCount];
+            this.outputs = new float[outputCount];
+        }
+
+        public float getSignificance() {
+            return significance;
+        }
+
+        public float[] getInputs() {
+            return inputs;
+        }
+
+        public float[] getOutputs() {
+            return outputs;
+        }
+    }
+
+    private class RecordIterator implements Iterator<Record> {
+
+        private final Record record = new Record(MemoryDiskFloatRecordList.this.inputCount,
+                MemoryDiskFloatRecordList.this.outputCount);
+
+        private long index = 0L;
+
+        private FloatBuffer floats;
+
+        @Override
+        public boolean hasNext() {
+            return this.index < MemoryDiskFloatRecordList.this.size();
+        }
+
+        @Override
+        public Record next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            MemoryDiskFloatRecordList list = MemoryDiskFloatRecordList.this;
+            if(this.index < list.memoryCount) {
+                float[] block = list.blocks.get((int) (this.index / list.blockRecords));
+                int offset = (int) (this.index % list.blockRecords) * list.recordWidth;
+                this.record.significance = block[offset];
+                System.arraycopy(block, offset + 1, this.record.inputs, 0, list.inputCount);
+                System.arraycopy(block, offset + 1 + list.inputCount, this.record.outputs, 0, list.outputCount);
+            } else {
+                if(this.floats == null || !this.floats.hasRemaining()) {
+                    fill();
+                }
+                this.record.significance = this.floats.get();
+                this.floats.get(this.record.inputs);
+                this.floats.get(this.record.outputs);
+            }
+            this.index += 1L;
+            if(!hasNext()) {
+                closeQuietly(list.readChannel);
+                list.readChannel = null;
+            }
+            return this.record;
+        }
+
+        /**
+         * Read next chunk of whole records from spill file.
+         */
+        private void fill() {
+            MemoryDiskFloatRecordList list = MemoryDiskFloatRecordList.this;
+            try {
+                if(this.floats == null) {
+                    list.readChannel = new FileInputStream(list.fileName).getChannel();
+                    if(list.readBuffer == null) {
+                        list.readBuffer = ByteBuffer.allocateDirect(list.bufferSize()).order(ByteOrder.nativeOrder());
+                    }
+                }
+                ByteBuffer readBuffer = list.readBuffer;
+                readBuffer.clear();
+                long remaining = (list.size() - this.index) * list.recordWidth * 4L;
+                if(remaining < readBuffer.capacity()) {
+                    readBuffer.limit((int) remaining);
+                }
+                while(readBuffer.hasRemaining()) {
+                    if(list.readChannel.read(readBuffer) < 0) {
+                        throw new IllegalStateException("Unexpected end of records in " + list.fileName);
+                    }
+                }
+                readBuffer.flip();
+                this.floats = readBuffer.asFloatBuffer();
+            } catch (IOException e) {
+                throw new IllegalStateException("Error in reading records from " + list.fileName, e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -21,6 +21,7 @@ import java.util.Properties;
 
 import ml.shifu.guagua.master.MasterComputable;
 import ml.shifu.guagua.master.MasterContext;
+import ml.shifu.guagua.master.MasterContext.MasterCompletionCallBack;
 import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
@@ -29,11 +30,17 @@ import ml.shifu.shifu.core.ConvergeJudger;
 import ml.shifu.shifu.core.alg.NNTrainer;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.EarlyStopping;
+import ml.shifu.shifu.core.dtrain.MasterCheckpoint;
+import ml.shifu.shifu.core.dtrain.PlateauLearningRateScheduler;
 import ml.shifu.shifu.core.dtrain.RegulationLevel;
-import ml.shifu.shifu.core.dtrain.Weight;
 import ml.shifu.shifu.core.dtrain.nn.NNConstants;
+import ml.shifu.shifu.core.dtrain.optimizer.Optimizer;
+import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.util.CommonUtils;
 
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,11 +62,26 @@ import org.slf4j.LoggerFactory;
  * 
  * <p>
  * L1 and l2 regulations are supported by configuration: RegularizedConstant in model params of ModelConfig.json.
+ * 
+ * <p>
+ * Early stopping and learning rate decreasing on plateau are the same as {@link ml.shifu.shifu.core.dtrain.nn.NNMaster}
+ * by {@link EarlyStopping} and {@link PlateauLearningRateScheduler}.
+ * 
+ * <p>
+ * Master only aggregates gradients and updates weights, so it is also the master of linear SVM whose gradients are
+ * computed by {@link ml.shifu.shifu.core.dtrain.svm.LinearSVMWorker}.
  */
 public class LogisticRegressionMaster implements MasterComputable<LogisticRegressionParams, LogisticRegressionParams> {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogisticRegressionMaster.class);
 
+    private static final double EPSILON = 0.0000001;
+
+    /**
+     * Learning rate if not set in params, SVM default params don't have it.
+     */
+    private static final double DEFAULT_LEARNING_RATE = 0.1d;
+
     /**
      * Input column number without bias
      */
@@ -83,7 +105,7 @@ public class LogisticRegressionMaster implements MasterComputable<LogisticRegres
     /**
      * To calculate weights according to last weights and accumulated gradients
      */
-    private Weight weightCalculator = null;
+    private Optimizer optimizer = null;
 
     /**
      * Model configuration loaded from configuration file.
@@ -110,10 +132,46 @@ public class LogisticRegressionMaster implements MasterComputable<LogisticRegres
      */
     private String propagation = "Q";
 
+    /**
+     * Checkpoint file of master states, null if checkpoint is disabled.
+     */
+    private Path checkpointPath;
+
+    /**
+     * Save checkpoint every such iterations.
+     */
+    private int checkpointInterval = CommonConstants.DEFAULT_CHECKPOINT_INTERVAL;
+
+    /**
+     * Training iterations finished before resuming from checkpoint.
+     */
+    private int resumedIteration = 0;
+
+    /**
+     * Whether validation error is used to check early stopping and plateau, train error is used if no validation set.
+     */
+    private boolean isValidationEnabled = true;
+
+    /**
+     * Early stopping policy which also keeps weights with minimal validation error.
+     */
+    private EarlyStopping earlyStopping;
+
+    /**
+     * Learning rate scheduler on validation error plateau.
+     */
+    private PlateauLearningRateScheduler lrScheduler;
+
+    /**
+     * Train and validation error of best weights kept in {@link #earlyStopping}.
+     */
+    private double bestTrainError, bestTestError;
+
     private void init(MasterContext<LogisticRegressionParams, LogisticRegressionParams> context) {
         loadConfigFiles(context.getProps());
-        this.learningRate = Double.valueOf(this.modelConfig.getParams().get(CommonConstants.LR_LEARNING_RATE)
-                .toString());
+        Object lrObject = this.modelConfig.getParams().get(CommonConstants.LR_LEARNING_RATE);
+        this.learningRate = NumberFormatUtils.getDouble(lrObject == null ? "" : lrObject.toString(),
+                DEFAULT_LEARNING_RATE);
         int[] inputOutputIndex = DTrainUtils.getInputOutputCandidateCounts(this.columnConfigList);
         this.inputNum = inputOutputIndex[0] == 0 ? inputOutputIndex[2] : inputOutputIndex[0];
 
@@ -121,23 +179,62 @@ public class LogisticRegressionMaster implements MasterComputable<LogisticRegres
         this.convergenceThreshold = threshold == null ? 0d : threshold.doubleValue();
         LOG.info("Convergence threshold in master is :{}", this.convergenceThreshold);
 
+        this.isValidationEnabled = this.modelConfig.getTrain().getValidSetRate() >= EPSILON;
+        this.earlyStopping = EarlyStopping.create(this.modelConfig.getParams());
+        this.lrScheduler = PlateauLearningRateScheduler.create(this.modelConfig.getParams());
+        LOG.info("Early stop patience in master is :{}, plateau patience is :{}", this.earlyStopping.getPatience(),
+                this.lrScheduler.getPatience());
+
         Object pObject = this.modelConfig.getParams().get(NNTrainer.PROPAGATION);
         this.propagation = pObject == null ? "Q" : (String) pObject;
 
         Object rconstant = this.modelConfig.getParams().get(CommonConstants.LR_REGULARIZED_CONSTANT);
         this.regularizedConstant = NumberFormatUtils.getDouble(rconstant == null ? "" : rconstant.toString(), 0d);
+
+        int defaultThreadCount = Math.min(Runtime.getRuntime().availableProcessors(),
+                CommonConstants.DEFAULT_OPTIMIZER_THREAD_COUNT);
+        int threadCount = NumberFormatUtils.getInt(
+                context.getProps().getProperty(CommonConstants.SHIFU_OPTIMIZER_THREAD_COUNT), defaultThreadCount);
+        // train size is set before each update
+        this.optimizer = Optimizer.create(this.propagation, this.inputNum + 1, 1d, this.learningRate,
+                this.regularizedConstant, RegulationLevel.to(this.modelConfig.getParams().get(
+                        CommonConstants.REG_LEVEL_KEY)), threadCount);
+        // register call back for shut down optimizer thread pool.
+        context.addCompletionCallBack(
+                new MasterCompletionCallBack<LogisticRegressionParams, LogisticRegressionParams>() {
+                    @Override
+                    public void callback(MasterContext<LogisticRegressionParams, LogisticRegressionParams> context) {
+                        LogisticRegressionMaster.this.optimizer.shutdown();
+                    }
+                });
+
+        String checkpointFile = context.getProps().getProperty(CommonConstants.SHIFU_DTRAIN_CHECKPOINT_FILE);
+        if(checkpointFile != null && checkpointFile.length() > 0) {
+            this.checkpointPath = new Path(checkpointFile);
+            this.checkpointInterval = NumberFormatUtils.getInt(
+                    context.getProps().getProperty(CommonConstants.SHIFU_DTRAIN_CHECKPOINT_INTERVAL),
+                    CommonConstants.DEFAULT_CHECKPOINT_INTERVAL);
+        }
     }
 
     @Override
     public LogisticRegressionParams compute(MasterContext<LogisticRegressionParams, LogisticRegressionParams> context) {
         if(context.isFirstIteration()) {
             init(context);
-            weights = new double[this.inputNum + 1];
-            for(int i = 0; i < weights.length; i++) {
-                weights[i] = nextDouble(-1, 1);
+            if(Boolean.TRUE.toString().equalsIgnoreCase(
+                    context.getProps().getProperty(NNConstants.NN_CONTINUOUS_TRAINING))
+                    && restoreFromCheckpoint()) {
+                LOG.info("Starting to train model from checkpoint {} of iteration {}.", this.checkpointPath,
+                        this.resumedIteration);
+            } else {
+                weights = new double[this.inputNum + 1];
+                for(int i = 0; i < weights.length; i++) {
+                    weights[i] = nextDouble(-1, 1);
+                }
             }
             return new LogisticRegressionParams(weights);
         } else {
+            long start = System.currentTimeMillis();
             // append bias
             double[] gradients = new double[this.inputNum + 1];
             double trainError = 0.0d, testError = 0d;
@@ -154,18 +251,27 @@ public class LogisticRegressionMaster implements MasterComputable<LogisticRegres
                 }
             }
 
-            if(this.weightCalculator == null) {
-                this.weightCalculator = new Weight(weights.length, trainSize, learningRate, this.propagation,
-                        this.regularizedConstant, RegulationLevel.to(this.modelConfig.getParams().get(
-                                CommonConstants.REG_LEVEL_KEY)));
-            } else {
-                this.weightCalculator.setNumTrainSize(trainSize);
-            }
-
-            this.weights = this.weightCalculator.calculateWeights(this.weights, gradients);
-
             double finalTrainError = trainError / trainSize;
             double finalTestError = testError / testSize;
+
+            // errors of this iteration are computed by workers on weights of last iteration, which are not updated yet
+            double monitoredError = this.isValidationEnabled ? finalTestError : finalTrainError;
+            if(this.earlyStopping.update(context.getCurrentIteration(), monitoredError, this.weights)) {
+                this.bestTrainError = finalTrainError;
+                this.bestTestError = finalTestError;
+            }
+            double adjustedLearningRate = this.lrScheduler.adjust(monitoredError, this.learningRate);
+            if(adjustedLearningRate < this.learningRate) {
+                LOG.info("LRMaster compute iteration {} error is on plateau, learning rate is decreased to {}",
+                        context.getCurrentIteration(), adjustedLearningRate);
+                this.learningRate = adjustedLearningRate;
+                this.optimizer.setLearningRate(this.learningRate);
+            }
+
+            this.optimizer.setNumTrainSize(trainSize);
+            this.weights = this.optimizer.calculateWeights(this.weights, gradients);
+            LOG.info("Iteration {} master compute time: {}ms", context.getCurrentIteration(),
+                    System.currentTimeMillis() - start);
             LOG.info("Iteration {} with train error {}, test error {}", context.getCurrentIteration(), finalTrainError,
                     finalTestError);
             LogisticRegressionParams lrParams = new LogisticRegressionParams(weights, finalTrainError, finalTestError,
@@ -176,10 +282,93 @@ public class LogisticRegressionMaster implements MasterComputable<LogisticRegres
             } else {
                 LOG.info("LRMaster compute iteration {} not converged yet !", context.getCurrentIteration());
             }
+
+            if(this.earlyStopping.shouldStop()) {
+                LOG.info("LRMaster compute iteration {} early stopped, error is not improved since iteration {}.",
+                        context.getCurrentIteration(), this.earlyStopping.getBestIteration());
+                lrParams.setHalt(true);
+            }
+
+            // first iteration is used for initialization
+            int trainedIteration = MasterCheckpoint.getTrainedIteration(this.resumedIteration,
+                    context.getCurrentIteration());
+            if(MasterCheckpoint.isResumedFinished(this.resumedIteration, context.getCurrentIteration(),
+                    context.getTotalIteration())) {
+                lrParams.setHalt(true);
+            }
+            boolean isFinished = lrParams.isHalt() || context.getCurrentIteration() >= context.getTotalIteration();
+            if(isFinished && this.earlyStopping.getBestWeights() != null) {
+                LOG.info("LRMaster restores best weights of iteration {} with error {}.",
+                        this.earlyStopping.getBestIteration(), this.earlyStopping.getBestError());
+                boolean isHalt = lrParams.isHalt();
+                lrParams = new LogisticRegressionParams(this.earlyStopping.getBestWeights(), this.bestTrainError,
+                        this.bestTestError, trainSize, testSize);
+                lrParams.setHalt(isHalt);
+            }
+            updateCheckpoint(trainedIteration, isFinished);
             return lrParams;
         }
     }
 
+    private boolean restoreFromCheckpoint() {
+        if(this.checkpointPath == null) {
+            return false;
+        }
+        try {
+            MasterCheckpoint checkpoint = MasterCheckpoint.load(getCheckpointFileSystem(), this.checkpointPath,
+                    this.optimizer, this.earlyStopping, this.lrScheduler);
+            if(checkpoint == null) {
+                return false;
+            }
+            if(checkpoint.getWeights().length != this.inputNum + 1) {
+                throw new IOException("Checkpoint weights size " + checkpoint.getWeights().length
+                        + " is not consistent with model weights size " + (this.inputNum + 1));
+            }
+            this.weights = checkpoint.getWeights();
+            this.resumedIteration = checkpoint.getIteration();
+            if(this.resumedIteration > 0) {
+                // learning rate may be decreased by plateau scheduler before failure
+                this.learningRate = checkpoint.getLearningRate();
+                this.optimizer.setLearningRate(this.learningRate);
+            }
+            this.bestTrainError = checkpoint.getBestTrainError();
+            this.bestTestError = checkpoint.getBestTestError();
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Save checkpoint periodically, checkpoint is removed if training is finished.
+     */
+    private void updateCheckpoint(int trainedIteration, boolean isFinished) {
+        if(this.checkpointPath == null) {
+            return;
+        }
+        try {
+            if(isFinished) {
+                FileSystem fs = getCheckpointFileSystem();
+                if(fs.exists(this.checkpointPath)) {
+                    fs.delete(this.checkpointPath, false);
+                }
+            } else if(this.checkpointInterval > 0 && trainedIteration % this.checkpointInterval == 0) {
+                MasterCheckpoint checkpoint = new MasterCheckpoint(trainedIteration, this.learningRate, this.weights);
+                checkpoint.setBestErrors(this.bestTrainError, this.bestTestError);
+                checkpoint.save(getCheckpointFileSystem(), this.checkpointPath, this.optimizer, this.earlyStopping,
+                        this.lrScheduler);
+                LOG.info("Checkpoint of iteration {} is saved.", trainedIteration);
+            }
+        } catch (IOException e) {
+            // checkpoint failure should not fail training
+            LOG.warn("Error in updating checkpoint " + this.checkpointPath, e);
+        }
+    }
+
+    private FileSystem getCheckpointFileSystem() {
+        return ShifuFileUtils.getFileSystemBySourceType(this.modelConfig.getDataSet().getSource());
+    }
+
     private void loadConfigFiles(final Properties props) {
         try {
             SourceType sourceType = SourceType.valueOf(props.getProperty(NNConstants.NN_MODELSET_SOURCE_TYPE,
@@ -46,8 +46,6 @@ public class LogisticRegressionOutput extends
 
     private static final Logger LOG = LoggerFactory.getLogger(LogisticRegressionOutput.class);
 
-    private static final double EPSILON = 0.0000001;
-
     private String trainerId;
 
     private String tmpModelsFolder;
@@ -67,16 +65,6 @@ public class LogisticRegressionOutput extends
      */
     private AtomicBoolean isInit = new AtomicBoolean(false);
 
-    /**
-     * The minimum test error during model training
-     */
-    private double minTestError = Double.MAX_VALUE;
-
-    /**
-     * The best weights that we meet
-     */
-    private double[] optimizeddWeights = null;
-
     /**
      * Progress output stream which is used to write progress to that HDFS file. Should be closed in
      * {@link #postApplication(MasterContext)}.
@@ -95,15 +83,6 @@ public class LogisticRegressionOutput extends
             return;
         }
 
-        double currentError = ((modelConfig.getTrain().getValidSetRate() < EPSILON) ? context.getMasterResult()
-                .getTrainError() : context.getMasterResult().getTestError());
-
-        // save the weights according the error decreasing
-        if(currentError < this.minTestError) {
-            this.minTestError = currentError;
-            this.optimizeddWeights = context.getMasterResult().getParameters();
-        }
-
         // save tmp to hdfs according to raw trainer logic
         if(context.getCurrentIteration() % DTrainUtils.tmpModelFactor(context.getTotalIteration()) == 0) {
             Thread tmpNNThread = new Thread(new Runnable() {
@@ -148,12 +127,9 @@ public class LogisticRegressionOutput extends
             return;
         }
 
-        if(optimizeddWeights == null) {
-            optimizeddWeights = context.getMasterResult().getParameters();
-        }
-
+        // weights with minimal error are returned by master in the last iteration, see EarlyStopping
         Path out = new Path(context.getProps().getProperty(CommonConstants.GUAGUA_OUTPUT));
-        writeModelWeightsToFileSystem(optimizeddWeights, out);
+        writeModelWeightsToFileSystem(context.getMasterResult().getParameters(), out);
     }
 
     /**
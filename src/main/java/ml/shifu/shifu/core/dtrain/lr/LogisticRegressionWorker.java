@@ -17,15 +17,12 @@ package ml.shifu.shifu.core.dtrain.lr;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Serializable;
 import java.util.List;
 import java.util.Properties;
 
 import ml.shifu.guagua.hadoop.io.GuaguaLineRecordReader;
 import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
 import ml.shifu.guagua.io.GuaguaFileSplit;
-import ml.shifu.guagua.util.MemoryDiskList;
-import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.guagua.worker.AbstractWorkerComputable;
 import ml.shifu.guagua.worker.WorkerContext;
 import ml.shifu.shifu.container.obj.ColumnConfig;
@@ -33,8 +30,12 @@ import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatRecordList;
+import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatRecordList.Record;
 import ml.shifu.shifu.core.dtrain.nn.NNConstants;
+import ml.shifu.shifu.guagua.GuaguaSequenceTextRecordReader;
 import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.RecordTokenizer;
 
 import org.apache.commons.math3.distribution.PoissonDistribution;
 import org.apache.hadoop.io.LongWritable;
@@ -43,8 +44,6 @@ import org.encog.mathutil.BoundMath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Splitter;
-
 /**
  * {@link LogisticRegressionWorker} defines logic to accumulate local <a
  * href=http://en.wikipedia.org/wiki/Logistic_regression >logistic regression</a> gradients.
@@ -101,14 +100,14 @@ public class LogisticRegressionWorker
     protected long sampleCount;
 
     /**
-     * Testing data set.
+     * Testing data set, records are stored as fixed-width floats.
      */
-    private MemoryDiskList<Data> testingData;
+    private MemoryDiskFloatRecordList testingData;
 
     /**
-     * Training data set.
+     * Training data set, records are stored as fixed-width floats.
      */
-    private MemoryDiskList<Data> trainingData;
+    private MemoryDiskFloatRecordList trainingData;
 
     /**
      * Local logistic regression model.
@@ -118,7 +117,7 @@ public class LogisticRegressionWorker
     /**
      * Model Config read from HDFS
      */
-    private ModelConfig modelConfig;
+    protected ModelConfig modelConfig;
 
     /**
      * Column Config list read from HDFS
@@ -126,9 +125,9 @@ public class LogisticRegressionWorker
     private List<ColumnConfig> columnConfigList;
 
     /**
-     * A splitter to split data with specified delimiter.
+     * A tokenizer to split data with specified delimiter, reused for all records.
      */
-    private Splitter splitter = Splitter.on("|").trimResults();
+    private RecordTokenizer tokenizer = new RecordTokenizer(NNConstants.NN_DEFAULT_COLUMN_SEPARATOR);
 
     /**
      * PoissonDistribution which is used for poisson sampling for bagging with replacement.
@@ -146,7 +145,11 @@ public class LogisticRegressionWorker
 
     @Override
     public void initRecordReader(GuaguaFileSplit fileSplit) throws IOException {
-        this.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        if(GuaguaSequenceTextRecordReader.isSequenceFile(fileSplit.getPath())) {
+            this.setRecordReader(new GuaguaSequenceTextRecordReader(fileSplit));
+        } else {
+            this.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        }
     }
 
     @Override
@@ -170,12 +173,13 @@ public class LogisticRegressionWorker
         LOG.info("Max heap memory: {}, fraction: {}", Runtime.getRuntime().maxMemory(), memoryFraction);
         double crossValidationRate = this.modelConfig.getCrossValidationRate();
         String tmpFolder = context.getProps().getProperty("guagua.data.tmpfolder", "tmp");
-        this.trainingData = new MemoryDiskList<Data>(
+        new File(tmpFolder).mkdirs();
+        this.trainingData = new MemoryDiskFloatRecordList(
                 (long) (Runtime.getRuntime().maxMemory() * memoryFraction * (1 - crossValidationRate)), tmpFolder
-                        + File.separator + "train-" + System.currentTimeMillis());
-        this.testingData = new MemoryDiskList<Data>(
+                        + File.separator + "train-" + System.currentTimeMillis(), this.inputNum, this.outputNum);
+        this.testingData = new MemoryDiskFloatRecordList(
                 (long) (Runtime.getRuntime().maxMemory() * memoryFraction * crossValidationRate), tmpFolder
-                        + File.separator + "test-" + System.currentTimeMillis());
+                        + File.separator + "test-" + System.currentTimeMillis(), this.inputNum, this.outputNum);
         // cannot find a good place to close these two data set, using Shutdown hook
         Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
             @Override
@@ -197,34 +201,14 @@ public class LogisticRegressionWorker
             double testingFinalError = 0.0d;
             long trainingSize = this.trainingData.size();
             long testingSize = this.testingData.size();
-            this.trainingData.reOpen();
-            for(Data data: trainingData) {
-                double result = sigmoid(data.inputs, this.weights);
-                double error = data.outputs[0] - result;
-                trainingFinalError += caculateMSEError(error);
-                for(int i = 0; i < gradients.length; i++) {
-                    if(i < gradients.length - 1) {
-                        // compute gradient for each weight, this is not like traditional LR (no derived function), with
-                        // derived function, we see good convergence speed in our models.
-                        // TODO extract function to provide traditional lr gradients and derived version for user to
-                        // configure
-                        gradients[i] += error * data.inputs[i] * (derivedFunction(result) + FLAT_SPOT_VALUE)
-                                * data.getSignificance();
-                    } else {
-                        // for bias parameter, input is a constant 1d
-                        gradients[i] += error * 1d * (derivedFunction(result) + FLAT_SPOT_VALUE)
-                                * data.getSignificance();
-                    }
-                }
+            for(Record data: trainingData) {
+                trainingFinalError += accumulateGradients(data, this.weights, gradients);
             }
 
-            this.testingData.reOpen();
             // TODO here we should use current weights+gradients to compute testing error, so far it is for last error
             // computing.
-            for(Data data: testingData) {
-                double result = sigmoid(data.inputs, this.weights);
-                double error = result - data.outputs[0];
-                testingFinalError += caculateMSEError(error);
+            for(Record data: testingData) {
+                testingFinalError += computeError(data, this.weights);
             }
             LOG.info("Iteration {} training data with error {}", context.getCurrentIteration(), trainingFinalError
                     / trainingSize);
@@ -235,6 +219,42 @@ public class LogisticRegressionWorker
         }
     }
 
+    /**
+     * Accumulate gradients of one training record, gradients are in the descent direction which are added to weights
+     * by optimizer in master.
+     * 
+     * @param data
+     *            - training record
+     * @param weights
+     *            - current model weights, the last one is bias
+     * @param gradients
+     *            - gradients accumulated, the last one is for bias
+     * @return error of such record
+     */
+    protected double accumulateGradients(Record data, double[] weights, double[] gradients) {
+        float[] inputs = data.getInputs();
+        double result = sigmoid(inputs, weights);
+        double error = data.getOutputs()[0] - result;
+        // compute gradient for each weight, this is not like traditional LR (no derived function), with derived
+        // function, we see good convergence speed in our models.
+        // TODO extract function to provide traditional lr gradients and derived version for user to configure
+        double delta = error * (derivedFunction(result) + FLAT_SPOT_VALUE) * data.getSignificance();
+        for(int i = 0; i < inputs.length; i++) {
+            gradients[i] += delta * inputs[i];
+        }
+        // for bias parameter, input is a constant 1d
+        gradients[inputs.length] += delta;
+        return caculateMSEError(error);
+    }
+
+    /**
+     * Error of one testing record.
+     */
+    protected double computeError(Record data, double[] weights) {
+        double result = sigmoid(data.getInputs(), weights);
+        return caculateMSEError(result - data.getOutputs()[0]);
+    }
+
     /**
      * MSE value computation. We can provide more for user to configure in the future.
      */
@@ -252,7 +272,7 @@ public class LogisticRegressionWorker
     /**
      * Compute sigmoid value by dot operation of two vectors.
      */
-    private double sigmoid(double[] inputs, double[] weights) {
+    private double sigmoid(float[] inputs, double[] weights) {
         double value = 0.0d;
         for(int i = 0; i < inputs.length; i++) {
             value += weights[i] * inputs[i];
@@ -296,38 +316,38 @@ public class LogisticRegressionWorker
         if(!this.modelConfig.isFixInitialInput() && Double.compare(Math.random(), baggingSampleRate) >= 0) {
             return;
         }
-        String line = currentValue.getWritable().toString();
-        double[] inputData = new double[inputNum];
-        double[] outputData = new double[outputNum];
+        float[] inputData = new float[inputNum];
+        float[] outputData = new float[outputNum];
         int index = 0, inputIndex = 0, outputIndex = 0;
         long hashcode = 0;
         double significance = CommonConstants.DEFAULT_SIGNIFICANCE_VALUE;
-        for(String unit: splitter.split(line)) {
-            double doubleValue = NumberFormatUtils.getDouble(unit.trim(), 0.0d);
+        this.tokenizer.reset(currentValue.getWritable());
+        for(int i = 0; i < this.tokenizer.size(); i++) {
+            double doubleValue = this.tokenizer.getDouble(i, 0.0d);
             // no idea about why NaN in input data, we should process it as missing value TODO , according to norm type
             if(Double.isNaN(doubleValue)) {
                 doubleValue = 0d;
             }
             if(index == this.columnConfigList.size()) {
-                significance = NumberFormatUtils.getDouble(unit.trim(), 1.0d);
+                significance = this.tokenizer.getDouble(i, 1.0d);
                 break;
             } else {
                 ColumnConfig columnConfig = this.columnConfigList.get(index);
                 if(columnConfig != null && columnConfig.isTarget()) {
-                    outputData[outputIndex++] = doubleValue;
+                    outputData[outputIndex++] = (float) doubleValue;
                 } else {
                     if(this.inputNum == this.candidateNum) {
                         // no variable selected, good candidate but not meta and not target choosed
                         if(!columnConfig.isMeta() && !columnConfig.isTarget()
                                 && CommonUtils.isGoodCandidate(columnConfig)) {
-                            inputData[inputIndex++] = doubleValue;
+                            inputData[inputIndex++] = (float) doubleValue;
                             hashcode = hashcode * 31 + Double.valueOf(doubleValue).hashCode();
                         }
                     } else {
                         // final select some variables but meta and target are not included
                         if(columnConfig != null && !columnConfig.isMeta() && !columnConfig.isTarget()
                                 && columnConfig.isFinalSelect()) {
-                            inputData[inputIndex++] = doubleValue;
+                            inputData[inputIndex++] = (float) doubleValue;
                             // only fixInitialInput=true, hashcode is effective. Remove Arrays.hashcode to avoid one
                             // iteration for the input columns. Last weight column should be excluded.
                             hashcode = hashcode * 31 + Double.valueOf(doubleValue).hashCode();
@@ -350,7 +370,7 @@ public class LogisticRegressionWorker
             // Double.compare(ideal[0], 1d) == 0 means positive tags; sample + 1 to avoid sample count to 0
             significance *= (this.upSampleRng.sample() + 1);
         }
-        this.addDataPairToDataSet(hashcode, new Data(inputData, outputData, significance));
+        this.addDataPairToDataSet(hashcode, inputData, outputData, significance);
     }
 
     private void loadConfigFiles(final Properties props) {
@@ -370,29 +390,24 @@ public class LogisticRegressionWorker
      * Add data pair to data set according to setting parameters. Still set hashCode to long to make double and long
      * friendly.
      */
-    private void addDataPairToDataSet(long hashcode, Data record) {
+    private void addDataPairToDataSet(long hashcode, float[] inputs, float[] outputs, double significance) {
         double crossValidationRate = this.modelConfig.getCrossValidationRate();
         if(this.modelConfig.isFixInitialInput()) {
             long longCrossValidation = Double.valueOf(crossValidationRate * 100).longValue();
             if(hashcode % 100 < longCrossValidation) {
-                this.testingData.append(record);
+                this.testingData.append(inputs, outputs, (float) significance);
             } else {
-                this.trainingData.append(record);
+                this.trainingData.append(inputs, outputs, (float) significance);
             }
         } else {
             double random = Math.random();
             if(this.modelConfig.isBaggingWithReplacement()) {
                 int count = rng.sample();
                 if(count > 0) {
-                    record.setSignificance(record.significance * count);
-                    if(Double.compare(random, crossValidationRate) < 0) {
-                        this.testingData.append(record);
-                    } else {
-                        this.trainingData.append(record);
-                    }
+                    addDataPairToDataSet(inputs, outputs, significance * count, crossValidationRate, random);
                 }
             } else {
-                addDataPairToDataSet(record, crossValidationRate, random);
+                addDataPairToDataSet(inputs, outputs, significance, crossValidationRate, random);
             }
         }
     }
@@ -400,43 +415,13 @@ public class LogisticRegressionWorker
     /**
      * Add data pair to data set according to random number compare with crossValidationRate.
      */
-    private void addDataPairToDataSet(Data record, double crossValidationRate, double random) {
+    private void addDataPairToDataSet(float[] inputs, float[] outputs, double significance,
+            double crossValidationRate, double random) {
         if(Double.compare(random, crossValidationRate) < 0) {
-            this.testingData.append(record);
+            this.testingData.append(inputs, outputs, (float) significance);
         } else {
-            this.trainingData.append(record);
-        }
-    }
-
-    private static class Data implements Serializable {
-
-        private static final long serialVersionUID = 903201066309036170L;
-
-        private double significance;
-        private final double[] inputs;
-        private final double[] outputs;
-
-        public Data(double[] inputs, double[] outputs, double significance) {
-            this.inputs = inputs;
-            this.outputs = outputs;
-            this.significance = significance;
-        }
-
-        /**
-         * @return the significance
-         */
-        public double getSignificance() {
-            return significance;
+            this.trainingData.append(inputs, outputs, (float) significance);
         }
-
-        /**
-         * @param significance
-         *            the significance to set
-         */
-        public void setSignificance(double significance) {
-            this.significance = significance;
-        }
-
     }
 
-}
\ No newline at end of file
+}
@@ -17,6 +17,7 @@ package ml.shifu.shifu.core.dtrain.nn;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 
@@ -29,6 +30,7 @@ import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.alg.NNTrainer;
+import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLData;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataPair;
@@ -38,6 +40,7 @@ import ml.shifu.shifu.core.dtrain.dataset.FloatFlatNetwork;
 import ml.shifu.shifu.core.dtrain.dataset.FloatMLDataPair;
 import ml.shifu.shifu.core.dtrain.dataset.FloatMLDataSet;
 import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatMLDataSet;
+import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.util.CommonUtils;
 
 import org.apache.commons.lang.math.RandomUtils;
@@ -52,8 +55,6 @@ import org.encog.neural.networks.BasicNetwork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Splitter;
-
 /**
  * {@link AbstractNNWorker} is refactored as a common class for different NN input format.
  */
@@ -62,11 +63,6 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
 
     protected static final Logger LOG = LoggerFactory.getLogger(AbstractNNWorker.class);
 
-    /**
-     * Default splitter used to split input record. Use one instance to prevent more news in Splitter.on.
-     */
-    protected static final Splitter DEFAULT_SPLITTER = Splitter.on(NNConstants.NN_DEFAULT_COLUMN_SEPARATOR);
-
     /**
      * Training data set
      */
@@ -128,6 +124,22 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
      */
     protected int epochsPerIteration = 1;
 
+    /**
+     * Mini-batch count per epoch in each gradient thread. If positive, worker updates weights locally after each
+     * mini-batch and sends weight deltas to master instead of gradients.
+     */
+    protected int miniBatchs = 0;
+
+    /**
+     * Learning rate of local mini-batch updates, decayed iteration by iteration with the same learning decay in master.
+     */
+    protected double learningRate = 0.1d;
+
+    /**
+     * Learning decay of local mini-batch updates.
+     */
+    protected double learningDecay = 0d;
+
     /**
      * Whether to alternative training and testing elements.
      */
@@ -153,6 +165,16 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
      */
     protected Properties props;
 
+    /**
+     * Local cache of parsed records, null if shard cache is disabled.
+     */
+    private ShardCache shardCache;
+
+    /**
+     * If records are restored from shard cache, raw records are skipped in loading.
+     */
+    protected boolean isShardRestored = false;
+
     protected boolean isUpSampleEnabled() {
         return this.upSampleRng != null;
     }
@@ -226,6 +248,16 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
         this.epochsPerIteration = epochsPerIterationInteger == null ? 1 : epochsPerIterationInteger.intValue();
         LOG.info("epochsPerIteration in worker is :{}", epochsPerIteration);
 
+        Object miniBatchsObj = this.modelConfig.getParams().get(NNConstants.MINI_BATCHS);
+        this.miniBatchs = miniBatchsObj == null ? 0 : Integer.valueOf(miniBatchsObj.toString());
+        if(this.miniBatchs > 0) {
+            this.learningRate = Double.valueOf(this.modelConfig.getParams().get(NNTrainer.LEARNING_RATE).toString());
+            Object learningDecayObj = this.modelConfig.getParams().get("LearningDecay");
+            this.learningDecay = learningDecayObj == null ? 0d : Double.valueOf(learningDecayObj.toString());
+            LOG.info("Mini-batch mode in worker with {} mini-batchs per epoch, learning rate {}.", this.miniBatchs,
+                    this.learningRate);
+        }
+
         int[] inputOutputIndex = DTrainUtils.getInputOutputCandidateCounts(this.columnConfigList);
         this.inputNodeCount = inputOutputIndex[0] == 0 ? inputOutputIndex[2] : inputOutputIndex[0];
         this.outputNodeCount = modelConfig.isBinaryClassification() ? inputOutputIndex[1] : modelConfig.getTags()
@@ -272,6 +304,59 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
                 throw new GuaguaRuntimeException(e);
             }
         }
+
+        String shardCacheDir = context.getProps().getProperty(CommonConstants.SHIFU_DTRAIN_SHARD_CACHE_DIR);
+        if(!this.isDry && shardCacheDir != null && shardCacheDir.length() > 0) {
+            initShardCache(context, shardCacheDir);
+        }
+    }
+
+    /**
+     * Restore parsed records from local shard cache if it exists.
+     */
+    private void initShardCache(WorkerContext<NNParams, NNParams> context, String shardCacheDir) {
+        Properties props = context.getProps();
+        String modelConfigPath = props.getProperty(NNConstants.SHIFU_NN_MODEL_CONFIG);
+        String columnConfigPath = props.getProperty(NNConstants.SHIFU_NN_COLUMN_CONFIG);
+        String fileVersions;
+        try {
+            SourceType sourceType = SourceType.valueOf(props.getProperty(NNConstants.NN_MODELSET_SOURCE_TYPE,
+                    SourceType.HDFS.toString()));
+            fileVersions = ShardCache.getFileVersions(ShifuFileUtils.getFileSystemBySourceType(sourceType),
+                    Arrays.asList(modelConfigPath, columnConfigPath), context.getFileSplits());
+        } catch (IOException e) {
+            // cache is only used in restarting, it should not fail training
+            LOG.warn("Error in checking versions of input files, shard cache is disabled.", e);
+            return;
+        }
+        String key = ShardCache.buildKey(context.getFileSplits(), modelConfigPath, columnConfigPath, fileVersions,
+                props.getProperty(NNConstants.NN_TRAINER_ID), this.poissonSampler,
+                this.modelConfig.isFixInitialInput(), this.modelConfig.getBaggingSampleRate(),
+                this.modelConfig.isBaggingWithReplacement(), this.modelConfig.getCrossValidationRate(),
+                this.modelConfig.getTrain().getUpSampleWeight());
+        this.shardCache = new ShardCache(new File(shardCacheDir), key, this.inputNodeCount, this.outputNodeCount);
+        // cache is only kept for restarted workers of a failed job
+        context.addCompletionCallBack(new WorkerCompletionCallBack<NNParams, NNParams>() {
+            @Override
+            public void callback(WorkerContext<NNParams, NNParams> context) {
+                AbstractNNWorker.this.shardCache.delete();
+            }
+        });
+        if(!this.shardCache.isValid()) {
+            LOG.info("No valid shard cache {}, records will be loaded from input splits.", this.shardCache.getFile());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            this.shardCache.restore(this.trainingData, this.testingData);
+        } catch (IOException e) {
+            throw new GuaguaRuntimeException(e);
+        }
+        this.count = this.shardCache.getCount();
+        this.sampleCount = this.shardCache.getSampleCount();
+        this.isShardRestored = true;
+        LOG.info("Records are restored from shard cache {} in {}ms.", this.shardCache.getFile(),
+                System.currentTimeMillis() - start);
     }
 
     private boolean isOnDisk() {
@@ -317,10 +402,18 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
 
         // using the weights from master to train model in current iteration
         double[] gradients = null;
-        for(int i = 0; i < epochsPerIteration; i++) {
-            gradients = this.gradient.computeGradients();
-            if(this.epochsPerIteration > 1) {
-                this.gradient.resetNetworkWeights();
+        if(this.miniBatchs > 0) {
+            // the same decay as master, 2nd iteration is the first training iteration
+            this.gradient.setLearningRate(this.learningRate
+                    * Math.pow(1d - this.learningDecay, Math.max(0, context.getCurrentIteration() - 2)));
+            // weight deltas are sent to master in gradients field
+            gradients = this.gradient.computeLocalDeltas(this.epochsPerIteration);
+        } else {
+            for(int i = 0; i < epochsPerIteration; i++) {
+                gradients = this.gradient.computeGradients();
+                if(this.epochsPerIteration > 1) {
+                    this.gradient.resetNetworkWeights();
+                }
             }
         }
         // get train errors and test errors
@@ -369,6 +462,7 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
 
         this.gradient = new ParallelGradient((FloatFlatNetwork) flat, training, testing, flatSpot,
                 new LinearErrorFunction(), isCrossOver, modelConfig.getTrain().getWorkerThreadCount());
+        this.gradient.setMiniBatchs(this.miniBatchs);
     }
 
     private NNParams buildEmptyNNParams(WorkerContext<NNParams, NNParams> workerContext) {
@@ -393,6 +487,15 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
             LOG.info("    - # Training Records in disk: {}.",
                     ((MemoryDiskFloatMLDataSet) this.trainingData).getDiskCount());
         }
+        if(this.shardCache != null && !this.isShardRestored) {
+            try {
+                this.shardCache.dump(this.trainingData, this.testingData, this.count, this.sampleCount);
+                LOG.info("Records are saved into shard cache {}.", this.shardCache.getFile());
+            } catch (IOException e) {
+                // cache is only used in restarting, it should not fail training
+                LOG.warn("Error in saving shard cache " + this.shardCache.getFile(), e);
+            }
+        }
         LOG.info("    - # Records of the Master Data Set: {}.", this.count);
         LOG.info("    - Bagging Sample Rate: {}.", this.modelConfig.getBaggingSampleRate());
         LOG.info("    - Bagging With Replacement: {}.", this.modelConfig.isBaggingWithReplacement());
@@ -87,5 +87,16 @@ public class NNConstants {
     
     public static final String NN_CONTINUOUS_TRAINING = "nn.continuous.training";
 
+    /**
+     * Train param key of mini-batch count per epoch in each worker thread, if positive, workers update weights locally
+     * after each mini-batch and master averages weight deltas of workers.
+     */
+    public static final String MINI_BATCHS = "MiniBatchs";
+
+    /**
+     * Train param key of momentum used by master when averaging weight deltas of workers.
+     */
+    public static final String MOMENTUM = "Momentum";
+
 
 }
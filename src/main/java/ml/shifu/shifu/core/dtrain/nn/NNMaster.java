@@ -23,6 +23,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import ml.shifu.guagua.GuaguaRuntimeException;
 import ml.shifu.guagua.master.MasterComputable;
 import ml.shifu.guagua.master.MasterContext;
+import ml.shifu.guagua.master.MasterContext.MasterCompletionCallBack;
 import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
@@ -31,11 +32,15 @@ import ml.shifu.shifu.core.ConvergeJudger;
 import ml.shifu.shifu.core.alg.NNTrainer;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.EarlyStopping;
+import ml.shifu.shifu.core.dtrain.MasterCheckpoint;
+import ml.shifu.shifu.core.dtrain.PlateauLearningRateScheduler;
 import ml.shifu.shifu.core.dtrain.RegulationLevel;
-import ml.shifu.shifu.core.dtrain.Weight;
+import ml.shifu.shifu.core.dtrain.optimizer.Optimizer;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.util.CommonUtils;
 
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.encog.neural.networks.BasicNetwork;
 import org.slf4j.Logger;
@@ -58,6 +63,8 @@ public class NNMaster implements MasterComputable<NNParams, NNParams> {
 
     private static final Logger LOG = LoggerFactory.getLogger(NNMaster.class);
 
+    private static final double EPSILON = 0.0000001;
+
     /**
      * Global master NN parameters instance which is used to update model weights by using accumulated gradients.
      */
@@ -74,9 +81,19 @@ public class NNMaster implements MasterComputable<NNParams, NNParams> {
     private ModelConfig modelConfig;
 
     /**
-     * To calculate weights according to last weights and accumulated gradients
+     * To calculate weights according to last weights and accumulated gradients, created in first iteration.
+     */
+    private Optimizer optimizer = null;
+
+    /**
+     * Thread count of optimizer to update weights.
+     */
+    private int optimizerThreadCount = 1;
+
+    /**
+     * Whether weights are not updated by optimizer yet, learning rate is decayed since the second update.
      */
-    private Weight weightCalculator = null;
+    private boolean isFirstUpdate = true;
 
     /**
      * Column configuration loaded from configuration file.
@@ -123,6 +140,67 @@ public class NNMaster implements MasterComputable<NNParams, NNParams> {
      */
     private ConvergeJudger judger = new ConvergeJudger();
 
+    /**
+     * Mini-batch count of workers, if positive, workers send weight deltas of local mini-batch training and master
+     * averages such deltas by train size to update weights.
+     */
+    private int miniBatchs = 0;
+
+    /**
+     * Momentum used when applying averaged weight deltas of workers.
+     */
+    private double momentum = 0d;
+
+    /**
+     * Sum of worker weight deltas multiplied by train size in current iteration.
+     */
+    private double[] deltaSums;
+
+    /**
+     * Last applied weight update, used for momentum.
+     */
+    private double[] lastUpdates;
+
+    /**
+     * Checkpoint file of master states, null if checkpoint is disabled.
+     */
+    private Path checkpointPath;
+
+    /**
+     * Save checkpoint every such iterations.
+     */
+    private int checkpointInterval = CommonConstants.DEFAULT_CHECKPOINT_INTERVAL;
+
+    /**
+     * Training iterations finished before resuming from checkpoint.
+     */
+    private int resumedIteration = 0;
+
+    /**
+     * Start time of training, used in convergence log to compare different training modes.
+     */
+    private long startTime;
+
+    /**
+     * Whether validation error is used to check early stopping and plateau, train error is used if no validation set.
+     */
+    private boolean isValidationEnabled = true;
+
+    /**
+     * Early stopping policy which also keeps weights with minimal validation error.
+     */
+    private EarlyStopping earlyStopping;
+
+    /**
+     * Learning rate scheduler on validation error plateau, only used in full-batch mode.
+     */
+    private PlateauLearningRateScheduler lrScheduler;
+
+    /**
+     * Train and validation error of best weights kept in {@link #earlyStopping}.
+     */
+    private double bestTrainError, bestTestError;
+
     @Override
     public NNParams compute(MasterContext<NNParams, NNParams> context) {
         // For first step, we not only initialize whole context but also return weights to master to make sure all
@@ -133,17 +211,23 @@ public class NNMaster implements MasterComputable<NNParams, NNParams> {
 
             NNParams params = null;
             if(this.isContinuousEnabled) {
-                // read existing model weights
+                // read checkpoint firstly, then existing model weights
                 try {
-                    Path modelPath = new Path(context.getProps().getProperty(CommonConstants.GUAGUA_OUTPUT));
-                    BasicNetwork existingModel = (BasicNetwork) CommonUtils.loadModel(modelPath,
-                            ShifuFileUtils.getFileSystemBySourceType(this.modelConfig.getDataSet().getSource()));
-                    if(existingModel == null) {
-                        params = initWeights();
-                        LOG.info("Starting to train model from scratch.");
+                    params = restoreFromCheckpoint();
+                    if(params != null) {
+                        LOG.info("Starting to train model from checkpoint {} of iteration {}.", this.checkpointPath,
+                                this.resumedIteration);
                     } else {
-                        params = initModelParams(existingModel);
-                        LOG.info("Starting to train model from existing model {}.", modelPath);
+                        Path modelPath = new Path(context.getProps().getProperty(CommonConstants.GUAGUA_OUTPUT));
+                        BasicNetwork existingModel = (BasicNetwork) CommonUtils.loadModel(modelPath,
+                                ShifuFileUtils.getFileSystemBySourceType(this.modelConfig.getDataSet().getSource()));
+                        if(existingModel == null) {
+                            params = initWeights();
+                            LOG.info("Starting to train model from scratch.");
+                        } else {
+                            params = initModelParams(existingModel);
+                            LOG.info("Starting to train model from existing model {}.", modelPath);
+                        }
                     }
                 } catch (IOException e) {
                     throw new GuaguaRuntimeException(e);
@@ -155,6 +239,16 @@ public class NNMaster implements MasterComputable<NNParams, NNParams> {
             }
             // should be set here to make sure master and workers use the same weights
             this.globalNNParams.setWeights(params.getWeights());
+            if(this.optimizer == null) {
+                this.optimizer = createOptimizer(params.getWeights().length);
+            }
+            // register call back for shut down optimizer thread pool.
+            context.addCompletionCallBack(new MasterCompletionCallBack<NNParams, NNParams>() {
+                @Override
+                public void callback(MasterContext<NNParams, NNParams> context) {
+                    NNMaster.this.optimizer.shutdown();
+                }
+            });
             // for continuous model training, here can be optimized by return null and load model weights in worker by
             // reading HDFS.
             return params;
@@ -164,6 +258,8 @@ public class NNMaster implements MasterComputable<NNParams, NNParams> {
             throw new IllegalArgumentException("workers' results are null.");
         }
 
+        long start = System.currentTimeMillis();
+
         double totalTestError = 0;
         double totalTrainError = 0;
         int size = 0;
@@ -175,7 +271,11 @@ public class NNMaster implements MasterComputable<NNParams, NNParams> {
         for(NNParams nn: context.getWorkerResults()) {
             totalTestError += nn.getTestError();
             totalTrainError += nn.getTrainError();
-            this.globalNNParams.accumulateGradients(nn.getGradients());
+            if(this.miniBatchs > 0) {
+                accumulateDeltas(nn.getGradients(), nn.getTrainSize());
+            } else {
+                this.globalNNParams.accumulateGradients(nn.getGradients());
+            }
             this.globalNNParams.accumulateTrainSize(nn.getTrainSize());
             totalCounts += nn.getCount();
             size++;
@@ -188,31 +288,49 @@ public class NNMaster implements MasterComputable<NNParams, NNParams> {
             throw new IllegalArgumentException("workers' results are empty.");
         }
 
-        // initialize weightCalCulater.
-        if(this.weightCalculator == null) {
-            this.learningRate = this.rawLearningRate;
-            this.weightCalculator = new Weight(this.globalNNParams.getGradients().length,
-                    this.globalNNParams.getTrainSize(), learningRate, propagation, this.regularizedConstant,
-                    RegulationLevel.to(this.modelConfig.getParams().get(CommonConstants.REG_LEVEL_KEY)));
-        } else {
-            this.learningRate = this.learningRate * (1.0d - this.learningDecay);
-            // without learningDecay Parameter using sqrt(iteration number) to decrease learning rate
-            // this.learningRate = this.learningRate / Math.sqrt(context.getCurrentIteration() -1);
-            this.weightCalculator.setLearningRate(this.learningRate);
-            this.weightCalculator.setNumTrainSize(this.globalNNParams.getTrainSize());
+        double currentTestError = totalTestError / size;
+        double currentTrainError = totalTrainError / size;
+
+        // errors of this iteration are computed by workers on weights of last iteration, which are not updated yet
+        double monitoredError = this.isValidationEnabled ? currentTestError : currentTrainError;
+        if(this.earlyStopping.update(context.getCurrentIteration(), monitoredError, this.globalNNParams.getWeights())) {
+            this.bestTrainError = currentTrainError;
+            this.bestTestError = currentTestError;
         }
 
-        // use last weights and current gradients to calculate
-        double[] weights = this.weightCalculator.calculateWeights(this.globalNNParams.getWeights(),
-                this.globalNNParams.getGradients());
+        double[] weights;
+        if(this.miniBatchs > 0) {
+            weights = applyDeltas(this.globalNNParams.getWeights(), this.globalNNParams.getTrainSize());
+        } else {
+            if(this.isFirstUpdate) {
+                this.learningRate = this.rawLearningRate;
+                this.isFirstUpdate = false;
+            } else {
+                this.learningRate = this.learningRate * (1.0d - this.learningDecay);
+                // without learningDecay Parameter using sqrt(iteration number) to decrease learning rate
+                // this.learningRate = this.learningRate / Math.sqrt(context.getCurrentIteration() -1);
+            }
+            double adjustedLearningRate = this.lrScheduler.adjust(monitoredError, this.learningRate);
+            if(adjustedLearningRate < this.learningRate) {
+                LOG.info("NNMaster compute iteration {} error is on plateau, learning rate is decreased to {}",
+                        context.getCurrentIteration(), adjustedLearningRate);
+                this.learningRate = adjustedLearningRate;
+            }
+            this.optimizer.setLearningRate(this.learningRate);
+            this.optimizer.setNumTrainSize(this.globalNNParams.getTrainSize());
+
+            // use last weights and current gradients to calculate
+            weights = this.optimizer.calculateWeights(this.globalNNParams.getWeights(),
+                    this.globalNNParams.getGradients());
+        }
 
         this.globalNNParams.setWeights(weights);
 
-        double currentTestError = totalTestError / size;
-        double currentTrainError = totalTrainError / size;
-
-        LOG.info("NNMaster compute iteration {} ( avg train error {}, avg validation error {} )", new Object[] {
-                context.getCurrentIteration(), currentTrainError, currentTestError });
+        LOG.info("NNMaster compute iteration {} ( mode {}, avg train error {}, avg validation error {}, elapsed {}ms )",
+                new Object[] { context.getCurrentIteration(), this.miniBatchs > 0 ? "MiniBatch" : "FullBatch",
+                        currentTrainError, currentTestError, System.currentTimeMillis() - this.startTime });
+        LOG.info("NNMaster compute iteration {} master compute time: {}ms", context.getCurrentIteration(),
+                System.currentTimeMillis() - start);
 
         NNParams params = new NNParams();
         params.setTrainError(currentTrainError);
@@ -235,9 +353,148 @@ public class NNMaster implements MasterComputable<NNParams, NNParams> {
             LOG.info("NNMaster compute iteration {} not converged yet !", context.getCurrentIteration());
         }
 
+        if(this.earlyStopping.shouldStop()) {
+            LOG.info("NNMaster compute iteration {} early stopped, error is not improved since iteration {}.",
+                    context.getCurrentIteration(), this.earlyStopping.getBestIteration());
+            params.setHalt(true);
+        }
+
+        // first iteration is used for initialization
+        int trainedIteration = MasterCheckpoint.getTrainedIteration(this.resumedIteration,
+                context.getCurrentIteration());
+        if(MasterCheckpoint.isResumedFinished(this.resumedIteration, context.getCurrentIteration(),
+                context.getTotalIteration())) {
+            LOG.info("NNMaster compute iteration {} reaches total iterations after resuming.",
+                    context.getCurrentIteration());
+            params.setHalt(true);
+        }
+        boolean isFinished = params.isHalt() || context.getCurrentIteration() >= context.getTotalIteration();
+        if(isFinished && this.earlyStopping.getBestWeights() != null) {
+            LOG.info("NNMaster restores best weights of iteration {} with error {}.",
+                    this.earlyStopping.getBestIteration(), this.earlyStopping.getBestError());
+            params.setWeights(this.earlyStopping.getBestWeights());
+            params.setTrainError(this.bestTrainError);
+            params.setTestError(this.bestTestError);
+        }
+        updateCheckpoint(trainedIteration, isFinished);
+
+        return params;
+    }
+
+    private Optimizer createOptimizer(int numWeight) {
+        // train size is set before each update
+        return Optimizer.create(this.propagation, numWeight, 1d, this.rawLearningRate, this.regularizedConstant,
+                RegulationLevel.to(this.modelConfig.getParams().get(CommonConstants.REG_LEVEL_KEY)),
+                this.optimizerThreadCount);
+    }
+
+    /**
+     * Restore weights, learning rate, optimizer, early stopping and learning rate scheduler states from checkpoint.
+     * 
+     * @return params with checkpoint weights, or null if no checkpoint
+     */
+    private NNParams restoreFromCheckpoint() throws IOException {
+        if(this.checkpointPath == null) {
+            return null;
+        }
+        NNParams params = initWeights();
+        Optimizer checkpointOptimizer = createOptimizer(params.getWeights().length);
+        MasterCheckpoint checkpoint = MasterCheckpoint.load(getCheckpointFileSystem(), this.checkpointPath,
+                checkpointOptimizer, this.earlyStopping, this.lrScheduler);
+        if(checkpoint == null) {
+            checkpointOptimizer.shutdown();
+            return null;
+        }
+        if(checkpoint.getWeights().length != params.getWeights().length) {
+            checkpointOptimizer.shutdown();
+            throw new IOException("Checkpoint weights size " + checkpoint.getWeights().length
+                    + " is not consistent with model weights size " + params.getWeights().length);
+        }
+
+        this.optimizer = checkpointOptimizer;
+        this.resumedIteration = checkpoint.getIteration();
+        if(this.resumedIteration > 0) {
+            this.learningRate = checkpoint.getLearningRate();
+            this.isFirstUpdate = false;
+        }
+        if(checkpoint.getLastUpdates().length > 0) {
+            this.lastUpdates = checkpoint.getLastUpdates();
+            this.deltaSums = new double[this.lastUpdates.length];
+        }
+        this.bestTrainError = checkpoint.getBestTrainError();
+        this.bestTestError = checkpoint.getBestTestError();
+        params.setWeights(checkpoint.getWeights());
         return params;
     }
 
+    /**
+     * Save checkpoint periodically, checkpoint is removed if training is finished.
+     */
+    private void updateCheckpoint(int trainedIteration, boolean isFinished) {
+        if(this.checkpointPath == null) {
+            return;
+        }
+        try {
+            if(isFinished) {
+                FileSystem fs = getCheckpointFileSystem();
+                if(fs.exists(this.checkpointPath)) {
+                    fs.delete(this.checkpointPath, false);
+                }
+            } else if(this.checkpointInterval > 0 && trainedIteration % this.checkpointInterval == 0) {
+                long start = System.currentTimeMillis();
+                MasterCheckpoint checkpoint = new MasterCheckpoint(trainedIteration, this.learningRate,
+                        this.globalNNParams.getWeights());
+                if(this.lastUpdates != null) {
+                    checkpoint.setLastUpdates(this.lastUpdates);
+                }
+                checkpoint.setBestErrors(this.bestTrainError, this.bestTestError);
+                checkpoint.save(getCheckpointFileSystem(), this.checkpointPath, this.optimizer, this.earlyStopping,
+                        this.lrScheduler);
+                LOG.info("Checkpoint of iteration {} is saved in {}ms.", trainedIteration, System.currentTimeMillis()
+                        - start);
+            }
+        } catch (IOException e) {
+            // checkpoint failure should not fail training
+            LOG.warn("Error in updating checkpoint " + this.checkpointPath, e);
+        }
+    }
+
+    private FileSystem getCheckpointFileSystem() {
+        return ShifuFileUtils.getFileSystemBySourceType(this.modelConfig.getDataSet().getSource());
+    }
+
+    /**
+     * Accumulate weight deltas of one worker weighted by its train size.
+     */
+    void accumulateDeltas(double[] deltas, long trainSize) {
+        if(this.deltaSums == null) {
+            this.deltaSums = new double[deltas.length];
+            this.lastUpdates = new double[deltas.length];
+        }
+        for(int i = 0; i < deltas.length; i++) {
+            this.deltaSums[i] += deltas[i] * trainSize;
+        }
+    }
+
+    /**
+     * Apply averaged weight deltas of workers with momentum to weights and reset delta sums for next iteration.
+     */
+    double[] applyDeltas(double[] weights, long totalTrainSize) {
+        if(this.deltaSums == null) {
+            return weights;
+        }
+        // deltas may be empty for dry training
+        int length = Math.min(weights.length, this.deltaSums.length);
+        for(int i = 0; i < length; i++) {
+            double update = (totalTrainSize == 0L ? 0d : this.deltaSums[i] / totalTrainSize) + this.momentum
+                    * this.lastUpdates[i];
+            weights[i] += update;
+            this.lastUpdates[i] = update;
+            this.deltaSums[i] = 0d;
+        }
+        return weights;
+    }
+
     private NNParams initModelParams(BasicNetwork loadModel) {
         NNParams params = new NNParams();
         params.setTrainError(0);
@@ -299,6 +556,34 @@ public class NNMaster implements MasterComputable<NNParams, NNParams> {
                     context.getProps().getProperty(NNConstants.NN_CONTINUOUS_TRAINING));
             Object rconstant = this.modelConfig.getParams().get(CommonConstants.LR_REGULARIZED_CONSTANT);
             this.regularizedConstant = NumberFormatUtils.getDouble(rconstant == null ? "" : rconstant.toString(), 0d);
+
+            Object miniBatchsObj = this.modelConfig.getParams().get(NNConstants.MINI_BATCHS);
+            this.miniBatchs = miniBatchsObj == null ? 0 : Integer.valueOf(miniBatchsObj.toString());
+            Object momentumObj = this.modelConfig.getParams().get(NNConstants.MOMENTUM);
+            this.momentum = NumberFormatUtils.getDouble(momentumObj == null ? "" : momentumObj.toString(), 0d);
+            LOG.info("Mini-batchs in master is :{}, momentum is :{}", this.miniBatchs, this.momentum);
+
+            this.isValidationEnabled = this.modelConfig.getTrain().getValidSetRate() >= EPSILON;
+            this.earlyStopping = EarlyStopping.create(this.modelConfig.getParams());
+            this.lrScheduler = PlateauLearningRateScheduler.create(this.modelConfig.getParams());
+            LOG.info("Early stop patience in master is :{}, plateau patience is :{}", this.earlyStopping.getPatience(),
+                    this.lrScheduler.getPatience());
+            this.startTime = System.currentTimeMillis();
+
+            int defaultThreadCount = Math.min(Runtime.getRuntime().availableProcessors(),
+                    CommonConstants.DEFAULT_OPTIMIZER_THREAD_COUNT);
+            this.optimizerThreadCount = NumberFormatUtils.getInt(
+                    props.getProperty(CommonConstants.SHIFU_OPTIMIZER_THREAD_COUNT), defaultThreadCount);
+            LOG.info("Optimizer thread count in master is :{}", this.optimizerThreadCount);
+
+            String checkpointFile = props.getProperty(CommonConstants.SHIFU_DTRAIN_CHECKPOINT_FILE);
+            if(checkpointFile != null && checkpointFile.length() > 0) {
+                this.checkpointPath = new Path(checkpointFile);
+                this.checkpointInterval = NumberFormatUtils.getInt(
+                        props.getProperty(CommonConstants.SHIFU_DTRAIN_CHECKPOINT_INTERVAL),
+                        CommonConstants.DEFAULT_CHECKPOINT_INTERVAL);
+                LOG.info("Checkpoint in master is :{}, interval is :{}", this.checkpointPath, this.checkpointInterval);
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -28,6 +28,7 @@ import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.alg.NNTrainer;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.dataset.BinaryNetworkPersistence;
 import ml.shifu.shifu.core.dtrain.dataset.PersistBasicFloatNetwork;
 import ml.shifu.shifu.util.CommonUtils;
 
@@ -49,8 +50,6 @@ public class NNOutput extends BasicMasterInterceptor<NNParams, NNParams> {
 
     private static final Logger LOG = LoggerFactory.getLogger(NNOutput.class);
 
-    private static final double EPSILON = 0.0000001;
-
     /**
      * Model Config read from HDFS
      */
@@ -70,6 +69,11 @@ public class NNOutput extends BasicMasterInterceptor<NNParams, NNParams> {
 
     private String tmpModelsFolder;
 
+    /**
+     * Whether models are saved in compact binary format.
+     */
+    private boolean isBinaryModel;
+
     /**
      * Whether the training is dry training.
      */
@@ -80,16 +84,6 @@ public class NNOutput extends BasicMasterInterceptor<NNParams, NNParams> {
      */
     private AtomicBoolean isInit = new AtomicBoolean(false);
 
-    /**
-     * The minimum test error during model training
-     */
-    private double minTestError = Double.MAX_VALUE;
-
-    /**
-     * The best weights that we meet
-     */
-    private double[] optimizeddWeights = null;
-
     /**
      * Progress output stream which is used to write progress to that HDFS file. Should be closed in
      * {@link #postApplication(MasterContext)}.
@@ -108,15 +102,6 @@ public class NNOutput extends BasicMasterInterceptor<NNParams, NNParams> {
             return;
         }
 
-        double currentError = ((modelConfig.getTrain().getValidSetRate() < EPSILON) ? context.getMasterResult()
-                .getTrainError() : context.getMasterResult().getTestError());
-
-        // save the weights according the error decreasing
-        if(currentError < this.minTestError) {
-            this.minTestError = currentError;
-            this.optimizeddWeights = context.getMasterResult().getWeights();
-        }
-
         // save tmp to hdfs according to raw trainer logic
         if(context.getCurrentIteration() % DTrainUtils.tmpModelFactor(context.getTotalIteration()) == 0) {
             Thread tmpNNThread = new Thread(new Runnable() {
@@ -161,9 +146,11 @@ public class NNOutput extends BasicMasterInterceptor<NNParams, NNParams> {
             return;
         }
 
-        if(optimizeddWeights != null) {
+        // weights with minimal error are returned by master in the last iteration, see EarlyStopping
+        double[] weights = context.getMasterResult().getWeights();
+        if(weights != null) {
             Path out = new Path(context.getProps().getProperty(CommonConstants.GUAGUA_OUTPUT));
-            writeModelWeightsToFileSystem(optimizeddWeights, out);
+            writeModelWeightsToFileSystem(weights, out);
         }
     }
 
@@ -187,6 +174,8 @@ public class NNOutput extends BasicMasterInterceptor<NNParams, NNParams> {
             initNetwork();
             this.trainerId = context.getProps().getProperty(NNConstants.NN_TRAINER_ID);
             this.tmpModelsFolder = context.getProps().getProperty(NNConstants.NN_TMP_MODELS_FOLDER);
+            this.isBinaryModel = Boolean.TRUE.toString().equalsIgnoreCase(
+                    context.getProps().getProperty(CommonConstants.SHIFU_NN_BINARY_MODEL));
         }
 
         try {
@@ -236,7 +225,11 @@ public class NNOutput extends BasicMasterInterceptor<NNParams, NNParams> {
             LOG.info("Writing results to {}", out);
             this.network.getFlat().setWeights(weights);
             if(out != null) {
-                EncogDirectoryPersistence.saveObject(fos, (BasicNetwork) this.network);
+                if(this.isBinaryModel) {
+                    BinaryNetworkPersistence.saveObject(fos, this.network);
+                } else {
+                    EncogDirectoryPersistence.saveObject(fos, (BasicNetwork) this.network);
+                }
             }
         } catch (IOException e) {
             LOG.error("Error in writing output.", e);
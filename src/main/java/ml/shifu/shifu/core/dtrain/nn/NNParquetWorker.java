@@ -56,6 +56,10 @@ public class NNParquetWorker extends AbstractNNWorker<Tuple> {
     @Override
     public void load(GuaguaWritableAdapter<LongWritable> currentKey, GuaguaWritableAdapter<Tuple> currentValue,
             WorkerContext<NNParams, NNParams> workerContext) {
+        if(super.isShardRestored) {
+            // records are already restored from shard cache
+            return;
+        }
         // init field list for later read
         this.initFieldList();
 
@@ -20,13 +20,14 @@ import java.io.IOException;
 import ml.shifu.guagua.hadoop.io.GuaguaLineRecordReader;
 import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
 import ml.shifu.guagua.io.GuaguaFileSplit;
-import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.guagua.worker.WorkerContext;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLData;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataPair;
 import ml.shifu.shifu.core.dtrain.dataset.FloatMLDataPair;
+import ml.shifu.shifu.guagua.GuaguaSequenceTextRecordReader;
 import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.RecordTokenizer;
 
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
@@ -44,9 +45,18 @@ import org.apache.hadoop.io.Text;
  */
 public class NNWorker extends AbstractNNWorker<Text> {
 
+    /**
+     * Tokenizer reused for all records, records are loaded in one thread.
+     */
+    private final RecordTokenizer tokenizer = new RecordTokenizer(NNConstants.NN_DEFAULT_COLUMN_SEPARATOR);
+
     @Override
     public void load(GuaguaWritableAdapter<LongWritable> currentKey, GuaguaWritableAdapter<Text> currentValue,
             WorkerContext<NNParams, NNParams> workerContext) {
+        if(super.isShardRestored) {
+            // records are already restored from shard cache
+            return;
+        }
         super.count += 1;
         if((super.count) % 100000 == 0) {
             LOG.info("Read {} records.", super.count);
@@ -70,18 +80,19 @@ public class NNWorker extends AbstractNNWorker<Text> {
 
         long hashcode = 0;
         float significance = 1f;
-        // use guava Splitter to iterate only once
+        // split on bytes of text to avoid creating strings of each field
         // use NNConstants.NN_DEFAULT_COLUMN_SEPARATOR to replace getModelConfig().getDataSetDelimiter(), super follows
         // the function in akka mode.
         int index = 0, inputsIndex = 0, outputIndex = 0;
-        for(String input: DEFAULT_SPLITTER.split(currentValue.getWritable().toString())) {
-            float floatValue = NumberFormatUtils.getFloat(input.trim(), 0f);
+        this.tokenizer.reset(currentValue.getWritable());
+        for(int i = 0; i < this.tokenizer.size(); i++) {
+            float floatValue = this.tokenizer.getFloat(i, 0f);
             // no idea about why NaN in input data, we should process it as missing value TODO , according to norm type
             if(Float.isNaN(floatValue) || Double.isNaN(floatValue)) {
                 floatValue = 0f;
             }
             if(index == super.columnConfigList.size()) {
-                significance = NumberFormatUtils.getFloat(input, 1f);
+                significance = this.tokenizer.getFloat(i, 1f);
                 // the last field is significance, break here
                 break;
             } else {
@@ -143,7 +154,11 @@ public class NNWorker extends AbstractNNWorker<Text> {
      */
     @Override
     public void initRecordReader(GuaguaFileSplit fileSplit) throws IOException {
-        super.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        if(GuaguaSequenceTextRecordReader.isSequenceFile(fileSplit.getPath())) {
+            super.setRecordReader(new GuaguaSequenceTextRecordReader(fileSplit));
+        } else {
+            super.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        }
     }
 
 }
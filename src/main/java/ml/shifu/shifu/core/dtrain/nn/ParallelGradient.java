@@ -93,6 +93,17 @@ public class ParallelGradient {
 
     private SubGradient[] subGradients;
 
+    /**
+     * Mini-batch count of each thread in one epoch, if positive, each thread updates weights of its network copy after
+     * each mini-batch instead of only accumulating gradients.
+     */
+    private int miniBatchs = 0;
+
+    /**
+     * Learning rate of local weights updating in mini-batch mode.
+     */
+    private double learningRate = 0.1d;
+
     /**
      * Create a thread pool to do gradient computing and test set error computing using multiple threads.
      */
@@ -183,6 +194,8 @@ public class ParallelGradient {
                 this.subGradients[i].setNetwork(this.network.clone());
             }
             this.subGradients[i].setSeed(this.getSeed());
+            this.subGradients[i].setMiniBatchs(this.miniBatchs);
+            this.subGradients[i].setLearningRate(this.learningRate);
             completionService.submit(this.subGradients[i]);
         }
 
@@ -212,6 +225,50 @@ public class ParallelGradient {
         return finalGradients;
     }
 
+    /**
+     * Run local mini-batch updates for several epochs and return weight deltas against current network weights. In each
+     * epoch, threads update their own network copies by mini-batches and then weights of all copies are averaged as
+     * weights of current network. After computing, network copies of all threads are set to the averaged weights, so
+     * {@link #calculateError()} is the validation error of the locally trained model.
+     * 
+     * @param epochs
+     *            - how many epochs are run locally
+     * @return weight deltas of locally trained model
+     */
+    public double[] computeLocalDeltas(int epochs) {
+        double[] initWeights = this.network.getWeights().clone();
+        for(int i = 0; i < epochs; i++) {
+            computeGradients();
+            resetNetworkWeights();
+        }
+
+        double[] weights = this.network.getWeights();
+        double[] deltas = new double[weights.length];
+        for(int i = 0; i < deltas.length; i++) {
+            deltas[i] = weights[i] - initWeights[i];
+        }
+        for(int i = 0; i < this.subGradients.length; i++) {
+            this.subGradients[i].setWeights(weights);
+        }
+        return deltas;
+    }
+
+    /**
+     * @param miniBatchs
+     *            the miniBatchs to set
+     */
+    public void setMiniBatchs(int miniBatchs) {
+        this.miniBatchs = miniBatchs;
+    }
+
+    /**
+     * @param learningRate
+     *            the learningRate to set
+     */
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
     /**
      * @return the seed
      */
@@ -271,18 +328,26 @@ public class ParallelGradient {
     }
 
     /**
-     * Average weights for all sub gradients and then set to current network.
+     * Average weights for all sub gradients weighted by train record count of each thread and then set to current
+     * network. Threads may have different record counts, the last thread has more records than others.
      */
     public void resetNetworkWeights() {
         double[] weights = new double[this.network.getWeights().length];
+        long totalCount = 0L;
         for(int i = 0; i < subGradients.length; i++) {
+            long count = Math.max(0L, this.trainHighs[i] - this.trainLows[i] + 1);
+            totalCount += count;
             double[] subWeights = subGradients[i].getNetwork().getWeights();
             for(int j = 0; j < weights.length; j++) {
-                weights[j] += subWeights[j];
+                weights[j] += subWeights[j] * count;
             }
         }
+        if(totalCount == 0L) {
+            // no training record, weights are not changed
+            return;
+        }
         for(int j = 0; j < weights.length; j++) {
-            weights[j] /= subGradients.length;
+            weights[j] /= totalCount;
         }
         this.network.setWeights(weights);
     }
@@ -0,0 +1,312 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.nn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import ml.shifu.guagua.io.GuaguaFileSplit;
+import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataPair;
+import ml.shifu.shifu.core.dtrain.dataset.FloatMLDataPair;
+import ml.shifu.shifu.core.dtrain.dataset.FloatMLDataSet;
+import ml.shifu.shifu.util.Constants;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+
+/**
+ * {@link ShardCache} persists parsed and sampled training and validation records of one worker into a local binary
+ * file. If such worker is restarted on the same splits, records are restored from the cache file and parsing and
+ * sampling of raw records are skipped.
+ * 
+ * <p>
+ * File name is digest of input splits, versions of config and data files and settings which affect parsing and
+ * sampling, a cache file of other splits, rewritten files or other settings will never be loaded. Cache is written to
+ * a temp file and then renamed; a cache without end marker or with inconsistent length is ignored. Cache is deleted by
+ * {@link #delete()} once training is finished successfully.
+ */
+public class ShardCache {
+
+    private static final int MAGIC = 0x53484344;
+
+    private static final String SUFFIX = ".shard";
+
+    private static final byte TRAINING_FLAG = 0;
+
+    private static final byte TESTING_FLAG = 1;
+
+    private static final byte END_FLAG = -1;
+
+    /**
+     * Magic, input size and ideal size.
+     */
+    private static final int HEADER_SIZE = 12;
+
+    /**
+     * End flag, count, sample count, training size and testing size.
+     */
+    private static final int TRAILER_SIZE = 33;
+
+    private final File file;
+
+    private final int inputSize;
+
+    private final int idealSize;
+
+    /**
+     * Count of raw records and sampled records of the restored shard.
+     */
+    private long count;
+
+    private long sampleCount;
+
+    public ShardCache(File dir, String key, int inputSize, int idealSize) {
+        this.file = new File(dir, key + SUFFIX);
+        this.inputSize = inputSize;
+        this.idealSize = idealSize;
+    }
+
+    /**
+     * Build cache key from input splits and other settings like trainer id, sample rate.
+     */
+    public static String buildKey(List<GuaguaFileSplit> splits, Object... settings) {
+        StringBuilder sb = new StringBuilder(256);
+        for(GuaguaFileSplit split: splits) {
+            sb.append(split.getPath()).append(':').append(split.getOffset()).append(':').append(split.getLength())
+                    .append(',');
+        }
+        for(Object setting: settings) {
+            sb.append(setting).append(',');
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(sb.toString().getBytes(Constants.DEFAULT_CHARSET));
+            StringBuilder key = new StringBuilder(digest.length * 2);
+            for(byte b: digest) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Versions of config files and data files of input splits, version of one file is its modification time and
+     * length. Such versions are put into cache key to make sure cache of old files with the same path is not loaded.
+     * 
+     * @param configFs
+     *            - file system of config files
+     * @param configPaths
+     *            - paths of config files like ModelConfig.json and ColumnConfig.json
+     * @param splits
+     *            - input splits, file system is resolved from path of split
+     * @return versions of all files
+     * @throws IOException
+     *             if any exception in getting file status
+     */
+    public static String getFileVersions(FileSystem configFs, List<String> configPaths, List<GuaguaFileSplit> splits)
+            throws IOException {
+        StringBuilder sb = new StringBuilder(256);
+        for(String configPath: configPaths) {
+            appendVersion(sb, configFs.getFileStatus(new Path(configPath)));
+        }
+        Configuration conf = new Configuration();
+        Set<String> dataPaths = new HashSet<String>();
+        for(GuaguaFileSplit split: splits) {
+            if(dataPaths.add(split.getPath())) {
+                Path path = new Path(split.getPath());
+                appendVersion(sb, path.getFileSystem(conf).getFileStatus(path));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendVersion(StringBuilder sb, FileStatus status) {
+        sb.append(status.getPath()).append(':').append(status.getModificationTime()).append(':')
+                .append(status.getLen()).append(',');
+    }
+
+    /**
+     * If cache file exists and is complete. Header and trailer are checked and file length should be consistent with
+     * record count, so records can be added into data sets safely in {@link #restore(FloatMLDataSet, FloatMLDataSet)}.
+     */
+    public boolean isValid() {
+        if(!this.file.isFile() || this.file.length() < HEADER_SIZE + TRAILER_SIZE) {
+            return false;
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(this.file, "r");
+            if(raf.readInt() != MAGIC || raf.readInt() != this.inputSize || raf.readInt() != this.idealSize) {
+                return false;
+            }
+            raf.seek(this.file.length() - TRAILER_SIZE);
+            if(raf.readByte() != END_FLAG) {
+                return false;
+            }
+            this.count = raf.readLong();
+            this.sampleCount = raf.readLong();
+            long records = raf.readLong() + raf.readLong();
+            long recordSize = 1L + 4L * (1 + this.inputSize + this.idealSize);
+            return this.file.length() == HEADER_SIZE + records * recordSize + TRAILER_SIZE;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            IOUtils.closeStream(raf);
+        }
+    }
+
+    /**
+     * Restore records in cache file into training and testing data set, {@link #isValid()} should be checked before.
+     * 
+     * @throws IOException
+     *             if any exception in reading cache file.
+     */
+    public void restore(FloatMLDataSet trainingData, FloatMLDataSet testingData) throws IOException {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+            in.skipBytes(HEADER_SIZE);
+            while(true) {
+                byte flag = in.readByte();
+                if(flag == END_FLAG) {
+                    break;
+                }
+                FloatMLDataPair pair = BasicFloatMLDataPair.createPair(this.inputSize, this.idealSize);
+                pair.setSignificance(in.readFloat());
+                readFloats(in, pair.getInputArray());
+                readFloats(in, pair.getIdealArray());
+                if(flag == TRAINING_FLAG) {
+                    trainingData.add(pair);
+                } else {
+                    testingData.add(pair);
+                }
+            }
+        } finally {
+            IOUtils.closeStream(in);
+        }
+    }
+
+    /**
+     * Dump all records in training and testing data set into cache file.
+     * 
+     * @param count
+     *            - count of raw records
+     * @param sampleCount
+     *            - count of sampled records
+     * @throws IOException
+     *             if any exception in writing cache file.
+     */
+    public void dump(FloatMLDataSet trainingData, FloatMLDataSet testingData, long count, long sampleCount)
+            throws IOException {
+        File parent = this.file.getAbsoluteFile().getParentFile();
+        if(!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create shard cache dir " + parent);
+        }
+        File tmpFile = new File(parent, this.file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            out.writeInt(MAGIC);
+            out.writeInt(this.inputSize);
+            out.writeInt(this.idealSize);
+            writePairs(out, trainingData, TRAINING_FLAG);
+            writePairs(out, testingData, TESTING_FLAG);
+            out.writeByte(END_FLAG);
+            out.writeLong(count);
+            out.writeLong(sampleCount);
+            out.writeLong(trainingData.getRecordCount());
+            out.writeLong(testingData.getRecordCount());
+        } finally {
+            IOUtils.closeStream(out);
+        }
+        if(this.file.exists() && !this.file.delete()) {
+            throw new IOException("Cannot delete old shard cache " + this.file);
+        }
+        if(!tmpFile.renameTo(this.file)) {
+            throw new IOException("Cannot rename shard cache " + tmpFile + " to " + this.file);
+        }
+    }
+
+    private static void writePairs(DataOutputStream out, FloatMLDataSet dataSet, byte flag) throws IOException {
+        for(FloatMLDataPair pair: dataSet) {
+            out.writeByte(flag);
+            out.writeFloat(pair.getSignificance());
+            for(float f: pair.getInputArray()) {
+                out.writeFloat(f);
+            }
+            for(float f: pair.getIdealArray()) {
+                out.writeFloat(f);
+            }
+        }
+    }
+
+    private static void readFloats(DataInputStream in, float[] data) throws IOException {
+        for(int i = 0; i < data.length; i++) {
+            data[i] = in.readFloat();
+        }
+    }
+
+    /**
+     * Delete cache file and also cache dir if it is empty, cache dir may be shared by other workers.
+     */
+    public void delete() {
+        if(this.file.exists() && !this.file.delete()) {
+            this.file.deleteOnExit();
+        }
+        File parent = this.file.getAbsoluteFile().getParentFile();
+        String[] children = parent.list();
+        if(children != null && children.length == 0) {
+            parent.delete();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the count of raw records of the restored shard
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the count of sampled records of the restored shard
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+}
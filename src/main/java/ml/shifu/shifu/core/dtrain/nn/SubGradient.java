@@ -147,6 +147,17 @@ public class SubGradient implements Callable<double[]> {
 
     private double[] doubleIdeal;
 
+    /**
+     * Mini-batch count in one epoch, if positive, weights of current network are updated after each mini-batch by mean
+     * gradients of such mini-batch.
+     */
+    private int miniBatchs = 0;
+
+    /**
+     * Learning rate used in local weights updating.
+     */
+    private double learningRate = 0.1d;
+
     /**
      * Construct a gradient worker.
      * 
@@ -274,6 +285,12 @@ public class SubGradient implements Callable<double[]> {
             this.errorCalculation.reset();
             Arrays.fill(this.gradients, 0.0);
 
+            long batchSize = 0L;
+            if(this.miniBatchs > 0) {
+                long recordCount = this.trainHigh - this.trainLow + 1;
+                batchSize = Math.max(1L, (recordCount + this.miniBatchs - 1) / this.miniBatchs);
+            }
+            long batchStart = this.trainLow;
             for(long i = this.trainLow; i <= this.trainHigh; i++) {
                 synchronized(this.owner) {
                     if(this.isCrossOver) {
@@ -296,6 +313,10 @@ public class SubGradient implements Callable<double[]> {
                     }
                 }
                 process(this.pair.getInputArray(), this.pair.getIdealArray(), pair.getSignificance());
+                if(batchSize > 0L && (i - batchStart + 1 == batchSize || i == this.trainHigh)) {
+                    updateLocalWeights(i - batchStart + 1);
+                    batchStart = i + 1;
+                }
             }
             this.error = this.errorCalculation.calculate();
         } catch (final Throwable ex) {
@@ -304,6 +325,18 @@ public class SubGradient implements Callable<double[]> {
         return this.gradients;
     }
 
+    /**
+     * Update weights of current network by mean gradients of last mini-batch and then reset gradients for next
+     * mini-batch. Gradients are computed with (ideal - actual), so they are added to weights.
+     */
+    private void updateLocalWeights(long batchCount) {
+        double rate = this.learningRate / batchCount;
+        for(int i = 0; i < this.gradients.length; i++) {
+            this.weights[i] += rate * this.gradients[i];
+            this.gradients[i] = 0d;
+        }
+    }
+
     /**
      * Calculate the error for this neural network. The error is calculated
      * using root-mean-square(RMS).
@@ -413,6 +446,22 @@ public class SubGradient implements Callable<double[]> {
         this.seed = seed;
     }
 
+    /**
+     * @param miniBatchs
+     *            the miniBatchs to set
+     */
+    public void setMiniBatchs(int miniBatchs) {
+        this.miniBatchs = miniBatchs;
+    }
+
+    /**
+     * @param learningRate
+     *            the learningRate to set
+     */
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
     /**
      * @param network
      *            the network to set
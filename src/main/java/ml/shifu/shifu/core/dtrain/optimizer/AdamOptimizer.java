@@ -0,0 +1,91 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import ml.shifu.shifu.core.dtrain.RegulationLevel;
+
+/**
+ * Adam optimizer, step of each weight is adapted by bias-corrected first and second moments of gradients. Since the
+ * step is invariant to the scale of gradients, accumulated gradients of all workers can be used directly.
+ */
+public class AdamOptimizer extends Optimizer {
+
+    private static final double BETA1 = 0.9d;
+
+    private static final double BETA2 = 0.999d;
+
+    private static final double EPSILON = 1e-8;
+
+    /**
+     * First moment of gradients.
+     */
+    private final double[] m;
+
+    /**
+     * Second moment of gradients.
+     */
+    private final double[] v;
+
+    /**
+     * Current time step, increased in each iteration.
+     */
+    private int t = 0;
+
+    /**
+     * Bias corrected learning rate of current time step.
+     */
+    private double stepSize;
+
+    public AdamOptimizer(int numWeight, double numTrainSize, double learningRate, double reg, RegulationLevel rl,
+            int threadCount) {
+        super(numTrainSize, learningRate, reg, rl, threadCount);
+        this.m = new double[numWeight];
+        this.v = new double[numWeight];
+    }
+
+    @Override
+    protected void beforeUpdate() {
+        this.t += 1;
+        this.stepSize = this.getLearningRate() * Math.sqrt(1d - Math.pow(BETA2, this.t))
+                / (1d - Math.pow(BETA1, this.t));
+    }
+
+    @Override
+    protected double updateWeight(int index, double[] weights, double[] gradients) {
+        double g = gradients[index];
+        this.m[index] = BETA1 * this.m[index] + (1d - BETA1) * g;
+        this.v[index] = BETA2 * this.v[index] + (1d - BETA2) * g * g;
+        return this.stepSize * this.m[index] / (Math.sqrt(this.v[index]) + EPSILON);
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(this.t);
+        writeDoubles(out, this.m);
+        writeDoubles(out, this.v);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        this.t = in.readInt();
+        readDoubles(in, this.m);
+        readDoubles(in, this.v);
+    }
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import ml.shifu.shifu.core.dtrain.RegulationLevel;
+
+/**
+ * Back propagation with momentum, copied from Encog.
+ */
+public class BackPropagationOptimizer extends Optimizer {
+
+    private static final double MOMENTUM = 0.5;
+
+    private final double[] lastDelta;
+
+    public BackPropagationOptimizer(int numWeight, double numTrainSize, double learningRate, double reg,
+            RegulationLevel rl, int threadCount) {
+        super(numTrainSize, learningRate, reg, rl, threadCount);
+        this.lastDelta = new double[numWeight];
+    }
+
+    @Override
+    protected double updateWeight(int index, double[] weights, double[] gradients) {
+        double delta = (gradients[index] * this.getLearningRate()) + (this.lastDelta[index] * MOMENTUM);
+        this.lastDelta[index] = delta;
+        return delta;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        writeDoubles(out, this.lastDelta);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        readDoubles(in, this.lastDelta);
+    }
+
+}
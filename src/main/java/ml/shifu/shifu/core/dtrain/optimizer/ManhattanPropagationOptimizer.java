@@ -0,0 +1,46 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.optimizer;
+
+import ml.shifu.shifu.core.dtrain.RegulationLevel;
+
+/**
+ * Manhattan propagation, only sign of gradient is used and each weight is updated by learning rate.
+ */
+public class ManhattanPropagationOptimizer extends Optimizer {
+
+    /**
+     * The zero tolerance to use.
+     */
+    private static final double ZERO_TOLERANCE = 0.00000000000000001;
+
+    public ManhattanPropagationOptimizer(double numTrainSize, double learningRate, double reg, RegulationLevel rl,
+            int threadCount) {
+        super(numTrainSize, learningRate, reg, rl, threadCount);
+    }
+
+    @Override
+    protected double updateWeight(int index, double[] weights, double[] gradients) {
+        if(Math.abs(gradients[index]) < ZERO_TOLERANCE) {
+            return 0;
+        } else if(gradients[index] > 0) {
+            return this.getLearningRate();
+        } else {
+            return -this.getLearningRate();
+        }
+    }
+
+}
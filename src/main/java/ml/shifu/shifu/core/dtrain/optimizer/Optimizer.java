@@ -0,0 +1,306 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.RegulationLevel;
+
+/**
+ * {@link Optimizer} updates model weights by accumulated gradients in master.
+ * 
+ * <p>
+ * Optimizer implementation is resolved once by {@link #create(String, int, double, double, double, RegulationLevel,
+ * int)}, no algorithm checking happens in weight updating. Each implementation only computes the update of one weight,
+ * regularization is applied per chunk of weights.
+ * 
+ * <p>
+ * All per-weight states in optimizers are indexed by weight index, so weights are split into chunks and updated by
+ * multiple threads if thread count is larger than 1 and the number of weights is large enough.
+ */
+public abstract class Optimizer {
+
+    /**
+     * Minimal number of weights in one chunk, small models are updated in current thread.
+     */
+    public static final int MIN_CHUNK_SIZE = 8192;
+
+    private double learningRate;
+
+    private double numTrainSize;
+
+    /**
+     * L1 or L2 regulation parameter.
+     */
+    private final double reg;
+
+    /**
+     * Regulation level
+     */
+    private final RegulationLevel rl;
+
+    private final int threadCount;
+
+    /**
+     * Thread pool to update weights in parallel, null if only one thread.
+     */
+    private ExecutorService threadPool;
+
+    protected Optimizer(double numTrainSize, double learningRate, double reg, RegulationLevel rl, int threadCount) {
+        this.numTrainSize = numTrainSize;
+        this.learningRate = learningRate;
+        this.reg = reg;
+        this.rl = rl == null ? RegulationLevel.NONE : rl;
+        this.threadCount = Math.max(1, threadCount);
+        if(this.threadCount > 1) {
+            this.threadPool = Executors.newFixedThreadPool(this.threadCount, new DaemonThreadFactory());
+        }
+    }
+
+    /**
+     * Create optimizer according to propagation algorithm.
+     * 
+     * @param algorithm
+     *            - propagation algorithm like Q, B, M, R and A
+     * @param numWeight
+     *            - number of weights
+     * @param numTrainSize
+     *            - train size of all workers
+     * @param learningRate
+     *            - learning rate
+     * @param reg
+     *            - L1 or L2 regulation parameter
+     * @param rl
+     *            - regulation level
+     * @param threadCount
+     *            - thread count used to update weights
+     * @return optimizer instance
+     * @throws IllegalArgumentException
+     *             if algorithm is not supported
+     */
+    public static Optimizer create(String algorithm, int numWeight, double numTrainSize, double learningRate,
+            double reg, RegulationLevel rl, int threadCount) {
+        if(DTrainUtils.BACK_PROPAGATION.equalsIgnoreCase(algorithm)) {
+            return new BackPropagationOptimizer(numWeight, numTrainSize, learningRate, reg, rl, threadCount);
+        } else if(DTrainUtils.QUICK_PROPAGATION.equalsIgnoreCase(algorithm)) {
+            return new QuickPropagationOptimizer(numWeight, numTrainSize, learningRate, reg, rl, threadCount);
+        } else if(DTrainUtils.MANHATTAN_PROPAGATION.equalsIgnoreCase(algorithm)) {
+            return new ManhattanPropagationOptimizer(numTrainSize, learningRate, reg, rl, threadCount);
+        } else if(DTrainUtils.RESILIENTPROPAGATION.equalsIgnoreCase(algorithm)) {
+            return new ResilientPropagationOptimizer(numWeight, numTrainSize, learningRate, reg, rl, threadCount);
+        } else if(DTrainUtils.ADAM.equalsIgnoreCase(algorithm)) {
+            return new AdamOptimizer(numWeight, numTrainSize, learningRate, reg, rl, threadCount);
+        }
+        throw new IllegalArgumentException("Propagation " + algorithm
+                + " is not supported in distributed training, please use one of Q, B, M, R and A.");
+    }
+
+    /**
+     * Update weights by gradients, weights array is updated in place.
+     * 
+     * @param weights
+     *            - weights of last iteration
+     * @param gradients
+     *            - accumulated gradients of current iteration
+     * @return updated weights
+     */
+    public double[] calculateWeights(final double[] weights, final double[] gradients) {
+        beforeUpdate();
+
+        final int length = gradients.length;
+        int chunks = Math.min(this.threadCount, length / MIN_CHUNK_SIZE);
+        if(chunks <= 1) {
+            updateWeights(weights, gradients, 0, length);
+            return weights;
+        }
+
+        CompletionService<Object> completionService = new ExecutorCompletionService<Object>(this.threadPool);
+        int chunkSize = (length + chunks - 1) / chunks;
+        for(int i = 0; i < chunks; i++) {
+            final int from = i * chunkSize;
+            final int to = Math.min(length, from + chunkSize);
+            completionService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    updateWeights(weights, gradients, from, to);
+                }
+            }, null);
+        }
+
+        for(int i = 0; i < chunks; i++) {
+            try {
+                completionService.take().get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return weights;
+    }
+
+    private void updateWeights(double[] weights, double[] gradients, int from, int to) {
+        switch(this.rl) {
+            case NONE:
+                for(int i = from; i < to; i++) {
+                    weights[i] += updateWeight(i, weights, gradients);
+                }
+                break;
+            case L1:
+                if(Double.compare(this.reg, 0d) == 0) {
+                    for(int i = from; i < to; i++) {
+                        weights[i] += updateWeight(i, weights, gradients);
+                    }
+                } else {
+                    double shrinkValue = this.reg / this.numTrainSize;
+                    for(int i = from; i < to; i++) {
+                        double delta = updateWeight(i, weights, gradients);
+                        weights[i] += Math.signum(delta) * Math.max(0.0, Math.abs(delta) - shrinkValue);
+                    }
+                }
+                break;
+            case L2:
+            default:
+                for(int i = from; i < to; i++) {
+                    weights[i] += (updateWeight(i, weights, gradients) - this.reg * weights[i] / this.numTrainSize);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Called once in each iteration before weights are updated.
+     */
+    protected void beforeUpdate() {
+    }
+
+    /**
+     * Compute update of one weight.
+     * 
+     * @param index
+     *            - weight index
+     * @param weights
+     *            - weights of last iteration
+     * @param gradients
+     *            - accumulated gradients
+     * @return update value which will be added to weight
+     */
+    protected abstract double updateWeight(int index, double[] weights, double[] gradients);
+
+    /**
+     * Write per-weight states of optimizer, which are saved in master checkpoint. Learning rate and train size are set
+     * by master in each iteration and not included.
+     */
+    public void write(DataOutput out) throws IOException {
+    }
+
+    /**
+     * Read per-weight states written by {@link #write(DataOutput)}.
+     */
+    public void readFields(DataInput in) throws IOException {
+    }
+
+    protected static void writeDoubles(DataOutput out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for(double value: values) {
+            out.writeDouble(value);
+        }
+    }
+
+    /**
+     * Read doubles into existing array, size should be the same as the array.
+     */
+    protected static void readDoubles(DataInput in, double[] values) throws IOException {
+        int length = in.readInt();
+        if(length != values.length) {
+            throw new IOException("Inconsistent optimizer state size " + length + ", expected " + values.length);
+        }
+        for(int i = 0; i < length; i++) {
+            values[i] = in.readDouble();
+        }
+    }
+
+    /**
+     * Shut down thread pool if exists.
+     */
+    public void shutdown() {
+        if(this.threadPool != null) {
+            this.threadPool.shutdownNow();
+            try {
+                this.threadPool.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return the learningRate
+     */
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * @param learningRate
+     *            the learningRate to set
+     */
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * @return the numTrainSize
+     */
+    public double getNumTrainSize() {
+        return numTrainSize;
+    }
+
+    /**
+     * @param numTrainSize
+     *            the numTrainSize to set
+     */
+    public void setNumTrainSize(double numTrainSize) {
+        this.numTrainSize = numTrainSize;
+    }
+
+    /**
+     * Daemon threads make sure master jvm can exit without shutting down optimizer.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "optimizer-" + this.threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import ml.shifu.shifu.core.dtrain.RegulationLevel;
+
+/**
+ * Quick propagation, copied from Encog.
+ */
+public class QuickPropagationOptimizer extends Optimizer {
+
+    private static final double DECAY = 0.0001d;
+
+    private static final double OUTPUT_EPSILON = 0.35;
+
+    private final double[] lastDelta;
+
+    private final double[] lastGradient;
+
+    private final double shrink;
+
+    private double eps;
+
+    public QuickPropagationOptimizer(int numWeight, double numTrainSize, double learningRate, double reg,
+            RegulationLevel rl, int threadCount) {
+        super(numTrainSize, learningRate, reg, rl, threadCount);
+        this.lastDelta = new double[numWeight];
+        this.lastGradient = new double[numWeight];
+        this.shrink = learningRate / (1.0 + learningRate);
+        this.eps = OUTPUT_EPSILON / numTrainSize;
+    }
+
+    @Override
+    public void setNumTrainSize(double numTrainSize) {
+        super.setNumTrainSize(numTrainSize);
+        this.eps = OUTPUT_EPSILON / numTrainSize;
+    }
+
+    @Override
+    protected double updateWeight(int index, double[] weights, double[] gradients) {
+        final double w = weights[index];
+        final double d = this.lastDelta[index];
+        final double s = -gradients[index] + DECAY * w;
+        final double p = -this.lastGradient[index];
+        double nextStep = 0.0;
+
+        // The step must always be in direction opposite to the slope.
+        if(d < 0.0) {
+            // If last step was negative...
+            if(s > 0.0) {
+                // Add in linear term if current slope is still positive.
+                nextStep -= this.eps * s;
+            }
+            // If current slope is close to or larger than prev slope...
+            if(s >= (this.shrink * p)) {
+                // Take maximum size negative step.
+                nextStep += this.getLearningRate() * d;
+            } else {
+                // Else, use quadratic estimate.
+                nextStep += d * s / (p - s);
+            }
+        } else if(d > 0.0) {
+            // If last step was positive...
+            if(s < 0.0) {
+                // Add in linear term if current slope is still negative.
+                nextStep -= this.eps * s;
+            }
+            // If current slope is close to or more neg than prev slope...
+            if(s <= (this.shrink * p)) {
+                // Take maximum size negative step.
+                nextStep += this.getLearningRate() * d;
+            } else {
+                // Else, use quadratic estimate.
+                nextStep += d * s / (p - s);
+            }
+        } else {
+            // Last step was zero, so use only linear term.
+            nextStep -= this.eps * s;
+        }
+
+        // update global data arrays
+        this.lastDelta[index] = nextStep;
+        this.lastGradient[index] = gradients[index];
+
+        return nextStep;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        writeDoubles(out, this.lastDelta);
+        writeDoubles(out, this.lastGradient);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        readDoubles(in, this.lastDelta);
+        readDoubles(in, this.lastGradient);
+    }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.RegulationLevel;
+
+/**
+ * Resilient propagation, copied from Encog. Learning rate is not used.
+ */
+public class ResilientPropagationOptimizer extends Optimizer {
+
+    private static final double DEFAULT_MAX_STEP = 50;
+
+    private final double[] lastDelta;
+
+    private final double[] lastGradient;
+
+    private final double[] updateValues;
+
+    public ResilientPropagationOptimizer(int numWeight, double numTrainSize, double learningRate, double reg,
+            RegulationLevel rl, int threadCount) {
+        super(numTrainSize, learningRate, reg, rl, threadCount);
+        this.lastDelta = new double[numWeight];
+        this.lastGradient = new double[numWeight];
+        this.updateValues = new double[numWeight];
+        Arrays.fill(this.updateValues, DTrainUtils.DEFAULT_INITIAL_UPDATE);
+    }
+
+    @Override
+    protected double updateWeight(int index, double[] weights, double[] gradients) {
+        // multiply the current and previous gradient, and take the
+        // sign. We want to see if the gradient has changed its sign.
+        final int change = DTrainUtils.sign(gradients[index] * this.lastGradient[index]);
+        double weightChange = 0;
+
+        // if the gradient has retained its sign, then we increase the
+        // delta so that it will converge faster
+        if(change > 0) {
+            double delta = this.updateValues[index] * DTrainUtils.POSITIVE_ETA;
+            delta = Math.min(delta, DEFAULT_MAX_STEP);
+            weightChange = DTrainUtils.sign(gradients[index]) * delta;
+            this.updateValues[index] = delta;
+            this.lastGradient[index] = gradients[index];
+        } else if(change < 0) {
+            // if change<0, then the sign has changed, and the last
+            // delta was too big
+            double delta = this.updateValues[index] * DTrainUtils.NEGATIVE_ETA;
+            delta = Math.max(delta, DTrainUtils.DELTA_MIN);
+            this.updateValues[index] = delta;
+            weightChange = -this.lastDelta[index];
+            // set the previous gradent to zero so that there will be no
+            // adjustment the next iteration
+            this.lastGradient[index] = 0;
+        } else {
+            // if change==0 then there is no change to the delta
+            final double delta = this.updateValues[index];
+            weightChange = DTrainUtils.sign(gradients[index]) * delta;
+            this.lastGradient[index] = gradients[index];
+        }
+
+        this.lastDelta[index] = weightChange;
+        // apply the weight change, if any
+        return weightChange;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        writeDoubles(out, this.lastDelta);
+        writeDoubles(out, this.lastGradient);
+        writeDoubles(out, this.updateValues);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        readDoubles(in, this.lastDelta);
+        readDoubles(in, this.lastGradient);
+        readDoubles(in, this.updateValues);
+    }
+
+}
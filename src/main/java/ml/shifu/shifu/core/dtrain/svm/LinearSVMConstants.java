@@ -0,0 +1,39 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.svm;
+
+/**
+ * Constants of distributed linear SVM.
+ */
+public interface LinearSVMConstants {
+
+    public static final String SVM_ALG_NAME = "SVM";
+
+    /**
+     * Loss function in model params, hinge by default.
+     */
+    public static final String SVM_LOSS = "Loss";
+
+    public static final String HINGE_LOSS = "hinge";
+
+    public static final String SQUARED_HINGE_LOSS = "squaredhinge";
+
+    /**
+     * Only linear kernel is supported in distributed training.
+     */
+    public static final String LINEAR_KERNEL = "linear";
+
+}
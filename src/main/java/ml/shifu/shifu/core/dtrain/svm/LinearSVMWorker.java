@@ -0,0 +1,111 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.svm;
+
+import ml.shifu.guagua.worker.WorkerContext;
+import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatRecordList.Record;
+import ml.shifu.shifu.core.dtrain.lr.LogisticRegressionParams;
+import ml.shifu.shifu.core.dtrain.lr.LogisticRegressionWorker;
+
+/**
+ * {@link LinearSVMWorker} accumulates local gradients of linear SVM with hinge or squared hinge loss.
+ * 
+ * <p>
+ * Data loading, bagging and validation set splitting are the same as {@link LogisticRegressionWorker}, only gradients
+ * of each record are different. Target 1 is positive class and 0 is negative class, bias is the last weight. L1 or L2
+ * regulation is applied in master by the same settings of LR: RegularizedConstant and L1orL2 in model params.
+ * 
+ * <p>
+ * Gradients of all workers are summed in {@link ml.shifu.shifu.core.dtrain.lr.LogisticRegressionMaster}, the final
+ * model is the same weights format of LR, margin of one record is converted to score by sigmoid function.
+ */
+public class LinearSVMWorker extends LogisticRegressionWorker {
+
+    /**
+     * Squared hinge loss (L2-SVM) or hinge loss (L1-SVM).
+     */
+    private boolean isSquaredHinge;
+
+    @Override
+    public void init(WorkerContext<LogisticRegressionParams, LogisticRegressionParams> context) {
+        super.init(context);
+        this.isSquaredHinge = isSquaredHingeLoss(super.modelConfig.getParams().get(LinearSVMConstants.SVM_LOSS));
+    }
+
+    /**
+     * Check loss setting in model params.
+     * 
+     * @throws IllegalArgumentException
+     *             if loss is not hinge or squared hinge
+     */
+    public static boolean isSquaredHingeLoss(Object loss) {
+        if(loss == null || LinearSVMConstants.HINGE_LOSS.equalsIgnoreCase(loss.toString())) {
+            return false;
+        } else if(LinearSVMConstants.SQUARED_HINGE_LOSS.equalsIgnoreCase(loss.toString())) {
+            return true;
+        }
+        throw new IllegalArgumentException("SVM loss should be " + LinearSVMConstants.HINGE_LOSS + " or "
+                + LinearSVMConstants.SQUARED_HINGE_LOSS + " but is " + loss);
+    }
+
+    @Override
+    protected double accumulateGradients(Record data, double[] weights, double[] gradients) {
+        float[] inputs = data.getInputs();
+        double label = toLabel(data.getOutputs()[0]);
+        double slack = 1d - label * margin(inputs, weights);
+        if(slack <= 0d) {
+            // correctly classified out of margin, no loss and no gradient
+            return 0d;
+        }
+        // negative sub-gradient of loss to be the same direction as LR gradients
+        double delta = (this.isSquaredHinge ? 2d * slack : 1d) * label * data.getSignificance();
+        for(int i = 0; i < inputs.length; i++) {
+            gradients[i] += delta * inputs[i];
+        }
+        gradients[inputs.length] += delta;
+        return loss(slack, this.isSquaredHinge);
+    }
+
+    @Override
+    protected double computeError(Record data, double[] weights) {
+        double slack = 1d - toLabel(data.getOutputs()[0]) * margin(data.getInputs(), weights);
+        return slack <= 0d ? 0d : loss(slack, this.isSquaredHinge);
+    }
+
+    private static double loss(double slack, boolean isSquaredHinge) {
+        return isSquaredHinge ? slack * slack : slack;
+    }
+
+    /**
+     * Positive target to 1 and negative target to -1.
+     */
+    private static double toLabel(float target) {
+        return target > 0.5f ? 1d : -1d;
+    }
+
+    /**
+     * Margin value by dot operation of inputs and weights with bias.
+     */
+    static double margin(float[] inputs, double[] weights) {
+        double value = 0.0d;
+        for(int i = 0; i < inputs.length; i++) {
+            value += weights[i] * inputs[i];
+        }
+        // append bias
+        return value + weights[inputs.length];
+    }
+
+}
@@ -16,6 +16,7 @@
 package ml.shifu.shifu.core.dvarsel;
 
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
@@ -110,7 +111,19 @@ public class VarSelWorker extends AbstractWorkerComputable<VarSelMasterResult, V
         this.inputNodeCount = normalizedColumnIdList.size();
         this.outputNodeCount = this.getTargetColumnCount();
 
-        trainingDataSet = new TrainingDataSet(normalizedColumnIdList);
+        double memoryFraction = Double.valueOf(props.getProperty("guagua.data.memoryFraction", "0.6"));
+        String tmpFolder = props.getProperty("guagua.data.tmpfolder", "tmp");
+        new File(tmpFolder).mkdirs();
+        trainingDataSet = new TrainingDataSet(normalizedColumnIdList,
+                (long) (Runtime.getRuntime().maxMemory() * memoryFraction), tmpFolder + File.separator + "varsel-"
+                        + System.currentTimeMillis());
+        // cannot find a good place to close data set, using Shutdown hook
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                VarSelWorker.this.trainingDataSet.close();
+            }
+        }));
         try {
             dataPurifier = new DataPurifier(modelConfig);
         } catch (IOException e) {
@@ -162,7 +175,7 @@ public class VarSelWorker extends AbstractWorkerComputable<VarSelMasterResult, V
         String[] fields = CommonUtils.split(record, this.modelConfig.getDataSetDelimiter());
         String tag = StringUtils.trim(fields[this.targetColumnId]);
 
-        if(this.dataPurifier.isFilterOut(record) && isPosOrNegTag(this.modelConfig, tag)) {
+        if(this.dataPurifier.isFilterOut(fields) && isPosOrNegTag(this.modelConfig, tag)) {
             this.totalRecordCount ++;
             if ( this.modelConfig.getPosTags().contains(tag) ) {
                 this.posRecordCount ++;
@@ -15,32 +15,52 @@
  */
 package ml.shifu.shifu.core.dvarsel.dataset;
 
+import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatRecordList;
+import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatRecordList.Record;
+
 import org.encog.ml.data.MLDataPair;
 import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.basic.BasicMLDataPair;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
 /**
  * Created on 11/24/2014.
+ *
+ * Training records are kept as fixed-width floats in {@link MemoryDiskFloatRecordList}, records over the memory limit
+ * are spilled to disk.
  */
 public class TrainingDataSet {
     @SuppressWarnings("unused")
     private static Random rd = new Random(System.currentTimeMillis());
 
     private List<Integer> dataColumnIdList;
-    private List<TrainingRecord> trainingRecords;
+    private MemoryDiskFloatRecordList trainingRecords;
+
+    private long maxByteSize = Long.MAX_VALUE;
+    private String fileName;
 
     public TrainingDataSet(List<Integer> dataColumnIdList) {
         this.dataColumnIdList = dataColumnIdList;
-        this.trainingRecords = new ArrayList<TrainingRecord>();
+    }
+
+    public TrainingDataSet(List<Integer> dataColumnIdList, long maxByteSize, String fileName) {
+        this.dataColumnIdList = dataColumnIdList;
+        this.maxByteSize = maxByteSize;
+        this.fileName = fileName;
     }
 
     public void addTrainingRecord(TrainingRecord trainingRecord) {
         if (trainingRecord != null ) {
-            this.trainingRecords.add(trainingRecord);
+            if ( this.trainingRecords == null ) {
+                this.trainingRecords = new MemoryDiskFloatRecordList(this.maxByteSize, this.fileName,
+                        trainingRecord.getInputs().length, trainingRecord.getIdeal().length);
+            }
+            this.trainingRecords.append(toFloats(trainingRecord.getInputs()),
+                    toFloats(trainingRecord.getIdeal()), (float) trainingRecord.getSignificance());
         }
     }
 
@@ -48,8 +68,31 @@ public class TrainingDataSet {
                                      double validationRate,
                                      MLDataSet trainingData,
                                      MLDataSet testingData ) {
-        for ( TrainingRecord trainingRecord : trainingRecords ) {
-            MLDataPair pair = trainingRecord.toMLDataPair(dataColumnIdList, workingColumnIdSet);
+        if ( this.trainingRecords == null ) {
+            return;
+        }
+
+        boolean[] isWorking = new boolean[dataColumnIdList.size()];
+        for (int i = 0; i < dataColumnIdList.size(); i ++) {
+            isWorking[i] = workingColumnIdSet.contains(dataColumnIdList.get(i));
+        }
+
+        for ( Record record : trainingRecords ) {
+            float[] inputs = record.getInputs();
+            double[] params = new double[workingColumnIdSet.size()];
+            int pos = 0;
+            for (int i = 0; i < isWorking.length; i ++) {
+                if ( isWorking[i] ) {
+                    params[pos++] = inputs[i];
+                }
+            }
+
+            float[] outputs = record.getOutputs();
+            double[] ideal = new double[outputs.length];
+            for (int i = 0; i < outputs.length; i ++) {
+                ideal[i] = outputs[i];
+            }
+            MLDataPair pair = new BasicMLDataPair(new BasicMLData(params), new BasicMLData(ideal));
 
             //double seed = rd.nextDouble();
             //if (seed > validationRate) {
@@ -63,4 +106,25 @@ public class TrainingDataSet {
     public List<Integer> getDataColumnIdList() {
         return this.dataColumnIdList;
     }
+
+    public long getRecordCount() {
+        return this.trainingRecords == null ? 0L : this.trainingRecords.size();
+    }
+
+    /**
+     * Release memory records and delete spilled file.
+     */
+    public void close() {
+        if ( this.trainingRecords != null ) {
+            this.trainingRecords.close();
+        }
+    }
+
+    private static float[] toFloats(double[] values) {
+        float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; i ++) {
+            floats[i] = (float) values[i];
+        }
+        return floats;
+    }
 }
@@ -0,0 +1,147 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.eval;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import ml.shifu.shifu.container.obj.EvalConfig;
+import ml.shifu.shifu.container.obj.ModelConfig;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * {@link ScoreGroup} is a group of eval sets scored by one scoring job. Eval sets in one group read the same raw data
+ * with the same models and score selector, the first one is the scoring eval set.
+ * 
+ * <p>
+ * If more than one eval set is in the group, score output is shared by all of them. Records selected by any eval set
+ * are scored once, target and weight columns of other eval sets are appended as meta columns, and a selected column
+ * of each eval set tells whether the record passes its filter and has a valid target. Counters of scoring job are kept
+ * per eval set. Each eval set applies its own selection, target and weight when reading the shared score output.
+ */
+public class ScoreGroup {
+
+    /**
+     * Prefix of selected column of eval set in shared score output, followed by eval set name.
+     */
+    public static final String SELECTED_COLUMN_PREFIX = "shifu_selected_";
+
+    private final ModelConfig modelConfig;
+
+    private final List<EvalConfig> evalConfigs;
+
+    public ScoreGroup(ModelConfig modelConfig, List<EvalConfig> evalConfigs) {
+        if(CollectionUtils.isEmpty(evalConfigs)) {
+            throw new IllegalArgumentException("Score group should have at least one eval set.");
+        }
+        this.modelConfig = modelConfig;
+        this.evalConfigs = evalConfigs;
+    }
+
+    /**
+     * Create group from eval set names joined by comma, which is how the group is passed to scoring pig job.
+     */
+    public static ScoreGroup fromNames(ModelConfig modelConfig, String evalSetNames) {
+        List<EvalConfig> evalConfigs = new ArrayList<EvalConfig>();
+        for(String name: evalSetNames.split(",")) {
+            EvalConfig evalConfig = modelConfig.getEvalConfigByName(name.trim());
+            if(evalConfig == null) {
+                throw new IllegalArgumentException("Eval set " + name + " doesn't exist.");
+            }
+            evalConfigs.add(evalConfig);
+        }
+        return new ScoreGroup(modelConfig, evalConfigs);
+    }
+
+    /**
+     * Name of column in shared score output which is 'true' if the record is selected by the eval set.
+     */
+    public static String getSelectedColumnName(EvalConfig evalConfig) {
+        return SELECTED_COLUMN_PREFIX + evalConfig.getName();
+    }
+
+    /**
+     * Eval set names joined by comma.
+     */
+    public String getNames() {
+        List<String> names = new ArrayList<String>(this.evalConfigs.size());
+        for(EvalConfig evalConfig: this.evalConfigs) {
+            names.add(evalConfig.getName());
+        }
+        return StringUtils.join(names, ",");
+    }
+
+    public EvalConfig getScoreEvalConfig() {
+        return this.evalConfigs.get(0);
+    }
+
+    public List<EvalConfig> getEvalConfigs() {
+        return Collections.unmodifiableList(this.evalConfigs);
+    }
+
+    public boolean isShared() {
+        return this.evalConfigs.size() > 1;
+    }
+
+    /**
+     * Meta columns appended after scores. For shared score output, score meta columns of all eval sets are appended,
+     * then target and weight columns of eval sets which are not in score output yet. Each column is appended once.
+     */
+    public List<String> getMetaColumns() throws IOException {
+        EvalConfig scoreEvalConfig = getScoreEvalConfig();
+        if(!isShared()) {
+            return scoreEvalConfig.getScoreMetaColumns(this.modelConfig);
+        }
+
+        Set<String> metaColumns = new LinkedHashSet<String>();
+        for(EvalConfig evalConfig: this.evalConfigs) {
+            List<String> columns = evalConfig.getScoreMetaColumns(this.modelConfig);
+            if(CollectionUtils.isNotEmpty(columns)) {
+                metaColumns.addAll(columns);
+            }
+        }
+
+        // target and weight of scoring eval set are the first two columns of score output
+        Set<String> existingColumns = new LinkedHashSet<String>(metaColumns);
+        existingColumns.add(this.modelConfig.getTargetColumnName(scoreEvalConfig));
+        existingColumns.add(scoreEvalConfig.getDataSet().getWeightColumnName());
+        for(EvalConfig evalConfig: this.evalConfigs) {
+            String targetColumn = this.modelConfig.getTargetColumnName(evalConfig);
+            if(existingColumns.add(targetColumn)) {
+                metaColumns.add(targetColumn);
+            }
+            String weightColumn = evalConfig.getDataSet().getWeightColumnName();
+            if(StringUtils.isNotBlank(weightColumn) && existingColumns.add(weightColumn)) {
+                metaColumns.add(weightColumn);
+            }
+        }
+        return new ArrayList<String>(metaColumns);
+    }
+
+    /**
+     * Hadoop counter name of eval set, counters of shared score output are suffixed by eval set name.
+     */
+    public String getCounterName(String counter, EvalConfig evalConfig) {
+        return isShared() ? counter + "_" + evalConfig.getName() : counter;
+    }
+
+}
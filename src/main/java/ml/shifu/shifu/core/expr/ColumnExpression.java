@@ -0,0 +1,188 @@
+/**
+ * Copyright [2013-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.expr;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.jexl2.Expression;
+import org.apache.commons.jexl2.JexlEngine;
+import org.apache.commons.jexl2.MapContext;
+import org.apache.commons.jexl2.Script;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ColumnExpression} evaluates a jexl expression on split fields of a record whose column names are headers.
+ *
+ * <p>
+ * Expression is compiled by {@link ExpressionCompiler} if possible, then most records are evaluated without jexl.
+ * Jexl is still used for unsupported syntax or records whose result in compiled form is unknown, in that case only
+ * columns referenced by the expression are set into jexl context instead of all columns.
+ *
+ * <p>
+ * Instance is not thread-safe as jexl context is reused.
+ */
+public class ColumnExpression {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ColumnExpression.class);
+
+    private final String[] headers;
+
+    private final Expression expression;
+
+    private final CompiledExpression compiled;
+
+    /**
+     * Indexes of columns referenced by expression, only such fields are read.
+     */
+    private final int[] columnIndexes;
+
+    private final Map<String, Object> variables = new HashMap<String, Object>();
+
+    private final MapContext context = new MapContext(variables);
+
+    /**
+     * Constructor.
+     *
+     * @param expression
+     *            jexl expression
+     * @param headers
+     *            column names
+     * @throws org.apache.commons.jexl2.JexlException
+     *             if expression is invalid
+     */
+    public ColumnExpression(String expression, String[] headers) {
+        this.headers = headers;
+        JexlEngine jexl = new JexlEngine();
+        this.expression = jexl.createExpression(expression);
+
+        Map<String, Integer> nameIndexes = new HashMap<String, Integer>();
+        for(int i = 0; i < headers.length; i++) {
+            // the same as jexl context, the last one wins if names are duplicated
+            nameIndexes.put(headers[i], i);
+        }
+
+        this.compiled = ExpressionCompiler.compile(expression, nameIndexes);
+        if(this.compiled != null) {
+            this.columnIndexes = this.compiled.getColumnIndexes();
+        } else {
+            this.columnIndexes = getReferencedIndexes(jexl, this.expression, nameIndexes, headers.length);
+            LOG.info("Expression '{}' is evaluated by jexl with {} columns.", expression, this.columnIndexes.length);
+        }
+    }
+
+    private static int[] getReferencedIndexes(JexlEngine jexl, Expression expression, Map<String, Integer> nameIndexes,
+            int size) {
+        Set<Integer> indexes = new HashSet<Integer>();
+        try {
+            if(!(expression instanceof Script)) {
+                return allIndexes(size);
+            }
+            Set<List<String>> names = jexl.getVariables((Script) expression);
+            for(List<String> name: names) {
+                if(name.isEmpty()) {
+                    continue;
+                }
+                // 'a.b' may be column 'a' or column 'a.b'
+                Integer index = nameIndexes.get(name.get(0));
+                if(index != null) {
+                    indexes.add(index);
+                }
+                index = nameIndexes.get(StringUtils.join(name, '.'));
+                if(index != null) {
+                    indexes.add(index);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.debug("Cannot get variables of expression, all columns are used.", e);
+            return allIndexes(size);
+        }
+
+        int[] result = new int[indexes.size()];
+        int i = 0;
+        for(Integer index: indexes) {
+            result[i++] = index;
+        }
+        return result;
+    }
+
+    private static int[] allIndexes(int size) {
+        int[] result = new int[size];
+        for(int i = 0; i < size; i++) {
+            result[i] = i;
+        }
+        return result;
+    }
+
+    /**
+     * Evaluate expression as a filter.
+     *
+     * @param fields
+     *            fields of the record, length should be the same as headers
+     * @return true only if expression result is Boolean.TRUE; false for other results or errors
+     */
+    public boolean evaluateAsBoolean(String[] fields) {
+        if(this.compiled != null && this.compiled.isBoolean()) {
+            int result = this.compiled.evaluateBoolean(fields);
+            if(result != CompiledExpression.UNKNOWN) {
+                return result == CompiledExpression.TRUE;
+            }
+        }
+
+        Object result = evaluate(fields);
+        return (result instanceof Boolean) && ((Boolean) result).booleanValue();
+    }
+
+    /**
+     * Evaluate expression by jexl.
+     *
+     * @param fields
+     *            fields of the record, length should be the same as headers
+     * @return jexl result or null if any error
+     */
+    public Object evaluate(String[] fields) {
+        this.variables.clear();
+        for(int index: this.columnIndexes) {
+            this.variables.put(this.headers[index], fields[index]);
+        }
+        try {
+            return this.expression.evaluate(this.context);
+        } catch (Throwable e) {
+            LOG.debug("Error occurred when trying to evaluate {}", this.expression.getExpression(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Compiled form of expression, null if not supported by {@link ExpressionCompiler}.
+     */
+    public CompiledExpression getCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Indexes of columns referenced by expression.
+     */
+    public int[] getColumnIndexes() {
+        return columnIndexes;
+    }
+
+}
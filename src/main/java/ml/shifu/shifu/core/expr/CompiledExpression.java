@@ -0,0 +1,532 @@
+/**
+ * Copyright [2013-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.expr;
+
+/**
+ * {@link CompiledExpression} is an expression tree built by {@link ExpressionCompiler}, which is evaluated directly on
+ * split fields of one record.
+ *
+ * <p>
+ * Values are coerced the same as jexl 2 arithmetic does. For cases whose jexl result is not obvious (like a value
+ * which is not a number in numeric context or division by zero), {@link #UNKNOWN} or {@link Double#NaN} is returned,
+ * then caller should evaluate such record by jexl, see {@link ColumnExpression}.
+ *
+ * <p>
+ * Instance is stateless and can be shared by threads.
+ */
+public class CompiledExpression {
+
+    public static final int FALSE = 0;
+
+    public static final int TRUE = 1;
+
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Max long value can be represented exactly in double, integral values out of this range are evaluated by jexl.
+     */
+    private static final double MAX_EXACT_LONG = 9007199254740992d;
+
+    private final Node root;
+
+    private final int[] columnIndexes;
+
+    CompiledExpression(Node root, int[] columnIndexes) {
+        this.root = root;
+        this.columnIndexes = columnIndexes;
+    }
+
+    /**
+     * If expression result is boolean, {@link #evaluateBoolean(String[])} can be called.
+     */
+    public boolean isBoolean() {
+        return this.root instanceof BooleanNode;
+    }
+
+    /**
+     * If expression result is number, {@link #evaluateNumber(String[])} can be called.
+     */
+    public boolean isNumber() {
+        return this.root instanceof NumberNode;
+    }
+
+    /**
+     * If expression is a column name only, jexl result is the raw string of the field.
+     */
+    public boolean isColumn() {
+        return this.root instanceof FieldNode;
+    }
+
+    /**
+     * If expression is an arithmetic operation, jexl result is Integer, Long or Double.
+     */
+    public boolean isArithmetic() {
+        return this.root instanceof Arithmetic;
+    }
+
+    /**
+     * Whether result of numeric expression is a floating point number, should be called after
+     * {@link #evaluateNumber(String[])} returns a valid result.
+     */
+    public boolean isFloating(String[] fields) {
+        return ((NumberNode) this.root).isFloating(fields);
+    }
+
+    /**
+     * Evaluate boolean expression.
+     *
+     * @param fields
+     *            split fields, only fields in {@link #getColumnIndexes()} are read
+     * @return {@link #TRUE}, {@link #FALSE} or {@link #UNKNOWN}
+     */
+    public int evaluateBoolean(String[] fields) {
+        return ((BooleanNode) this.root).test(fields);
+    }
+
+    /**
+     * Evaluate numeric expression.
+     *
+     * @param fields
+     *            split fields, only fields in {@link #getColumnIndexes()} are read
+     * @return result or {@link Double#NaN} if unknown
+     */
+    public double evaluateNumber(String[] fields) {
+        return ((NumberNode) this.root).value(fields);
+    }
+
+    /**
+     * Indexes of fields referenced by this expression.
+     */
+    public int[] getColumnIndexes() {
+        return columnIndexes;
+    }
+
+    abstract static class Node {
+    }
+
+    abstract static class BooleanNode extends Node {
+        abstract int test(String[] fields);
+    }
+
+    abstract static class NumberNode extends Node {
+        /**
+         * @return value or {@link Double#NaN} if unknown
+         */
+        abstract double value(String[] fields);
+
+        /**
+         * Whether value is a floating point number in jexl arithmetic.
+         */
+        abstract boolean isFloating(String[] fields);
+    }
+
+    /**
+     * Constant null, for null literal or variable not in columns.
+     */
+    static class NullNode extends Node {
+    }
+
+    static class StringNode extends Node {
+        final String value;
+
+        StringNode(String value) {
+            this.value = value;
+        }
+    }
+
+    static class BooleanConstant extends BooleanNode {
+        final int value;
+
+        BooleanConstant(boolean value) {
+            this.value = value ? TRUE : FALSE;
+        }
+
+        @Override
+        int test(String[] fields) {
+            return this.value;
+        }
+    }
+
+    static class NumberConstant extends NumberNode {
+        final double value;
+        final boolean floating;
+
+        NumberConstant(double value, boolean floating) {
+            this.value = value;
+            this.floating = floating;
+        }
+
+        @Override
+        double value(String[] fields) {
+            return this.value;
+        }
+
+        @Override
+        boolean isFloating(String[] fields) {
+            return this.floating;
+        }
+    }
+
+    /**
+     * Raw field value, as a number it is parsed the same as jexl toLong/toDouble.
+     */
+    static class FieldNode extends NumberNode {
+        final int index;
+
+        FieldNode(int index) {
+            this.index = index;
+        }
+
+        @Override
+        double value(String[] fields) {
+            String str = fields[this.index];
+            if(str == null || str.length() == 0) {
+                return Double.NaN;
+            }
+            try {
+                if(isFloatingString(str)) {
+                    return Double.parseDouble(str);
+                }
+                double value = Long.parseLong(str);
+                return Math.abs(value) > MAX_EXACT_LONG ? Double.NaN : value;
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        @Override
+        boolean isFloating(String[] fields) {
+            String str = fields[this.index];
+            return str != null && isFloatingString(str);
+        }
+    }
+
+    static boolean isFloatingString(String str) {
+        for(int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if(c == '.' || c == 'e' || c == 'E') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static class Arithmetic extends NumberNode {
+        final char op;
+        final NumberNode left;
+        final NumberNode right;
+
+        Arithmetic(char op, NumberNode left, NumberNode right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double value(String[] fields) {
+            double l = this.left.value(fields);
+            if(Double.isNaN(l)) {
+                return Double.NaN;
+            }
+            double r = this.right.value(fields);
+            if(Double.isNaN(r)) {
+                return Double.NaN;
+            }
+            boolean floating = this.left.isFloating(fields) || this.right.isFloating(fields);
+            double result;
+            switch(this.op) {
+                case '+':
+                    result = l + r;
+                    break;
+                case '-':
+                    result = l - r;
+                    break;
+                case '*':
+                    result = l * r;
+                    break;
+                case '/':
+                    if(r == 0d) {
+                        // jexl throws ArithmeticException
+                        return Double.NaN;
+                    }
+                    result = floating ? l / r : (double) ((long) l / (long) r);
+                    break;
+                case '%':
+                    if(r == 0d || (!floating && (l < 0d || r < 0d))) {
+                        // jexl uses BigInteger.mod for integers which differs from '%' for negative values
+                        return Double.NaN;
+                    }
+                    result = floating ? l % r : (double) ((long) l % (long) r);
+                    break;
+                default:
+                    return Double.NaN;
+            }
+            if(!floating && Math.abs(result) > MAX_EXACT_LONG) {
+                return Double.NaN;
+            }
+            return result;
+        }
+
+        @Override
+        boolean isFloating(String[] fields) {
+            return this.left.isFloating(fields) || this.right.isFloating(fields);
+        }
+    }
+
+    /**
+     * Negation of a typed number, jexl doesn't negate strings.
+     */
+    static class Negate extends NumberNode {
+        final NumberNode node;
+
+        Negate(NumberNode node) {
+            this.node = node;
+        }
+
+        @Override
+        double value(String[] fields) {
+            return -this.node.value(fields);
+        }
+
+        @Override
+        boolean isFloating(String[] fields) {
+            return this.node.isFloating(fields);
+        }
+    }
+
+    static class NumberCondition extends NumberNode {
+        final BooleanNode condition;
+        final NumberNode whenTrue;
+        final NumberNode whenFalse;
+
+        NumberCondition(BooleanNode condition, NumberNode whenTrue, NumberNode whenFalse) {
+            this.condition = condition;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        @Override
+        double value(String[] fields) {
+            int cond = this.condition.test(fields);
+            if(cond == UNKNOWN) {
+                return Double.NaN;
+            }
+            return cond == TRUE ? this.whenTrue.value(fields) : this.whenFalse.value(fields);
+        }
+
+        @Override
+        boolean isFloating(String[] fields) {
+            return this.condition.test(fields) == TRUE ? this.whenTrue.isFloating(fields) : this.whenFalse
+                    .isFloating(fields);
+        }
+    }
+
+    /**
+     * Numeric comparison, op is one of "==", "!=", "<", "<=", ">", ">=". At least one side is a typed number, two raw
+     * fields are compared as strings by jexl.
+     */
+    static class NumberCompare extends BooleanNode {
+        final String op;
+        final NumberNode left;
+        final NumberNode right;
+        final boolean leftRaw;
+        final boolean rightRaw;
+
+        NumberCompare(String op, NumberNode left, NumberNode right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+            this.leftRaw = left instanceof FieldNode;
+            this.rightRaw = right instanceof FieldNode;
+        }
+
+        @Override
+        int test(String[] fields) {
+            double l = this.left.value(fields);
+            if(Double.isNaN(l)) {
+                return UNKNOWN;
+            }
+            double r = this.right.value(fields);
+            if(Double.isNaN(r)) {
+                return UNKNOWN;
+            }
+
+            boolean lf = this.left.isFloating(fields);
+            boolean rf = this.right.isFloating(fields);
+            if((lf && this.leftRaw) || (rf && this.rightRaw)) {
+                // a raw string like '1.5' is compared by double only if the other side is double, else jexl calls
+                // toLong on it
+                if(!((lf && !this.leftRaw) || (rf && !this.rightRaw))) {
+                    return UNKNOWN;
+                }
+            }
+
+            boolean result;
+            if(this.op.equals("==")) {
+                result = l == r;
+            } else if(this.op.equals("!=")) {
+                result = l != r;
+            } else if(this.op.equals("<")) {
+                result = l < r;
+            } else if(this.op.equals("<=")) {
+                result = l <= r;
+            } else if(this.op.equals(">")) {
+                result = l > r;
+            } else {
+                result = l >= r;
+            }
+            return result ? TRUE : FALSE;
+        }
+    }
+
+    /**
+     * Field equals to a string literal, both are strings so no coercion in jexl.
+     */
+    static class StringEquals extends BooleanNode {
+        final int index;
+        final String value;
+        final boolean negate;
+
+        StringEquals(int index, String value, boolean negate) {
+            this.index = index;
+            this.value = value;
+            this.negate = negate;
+        }
+
+        @Override
+        int test(String[] fields) {
+            String str = fields[this.index];
+            boolean equals = str != null && this.value.equals(str);
+            return (equals != this.negate) ? TRUE : FALSE;
+        }
+    }
+
+    /**
+     * Field equals to another field.
+     */
+    static class FieldEquals extends BooleanNode {
+        final int left;
+        final int right;
+        final boolean negate;
+
+        FieldEquals(int left, int right, boolean negate) {
+            this.left = left;
+            this.right = right;
+            this.negate = negate;
+        }
+
+        @Override
+        int test(String[] fields) {
+            String l = fields[this.left];
+            String r = fields[this.right];
+            boolean equals = (l == null) ? r == null : l.equals(r);
+            return (equals != this.negate) ? TRUE : FALSE;
+        }
+    }
+
+    /**
+     * Field is or is not null.
+     */
+    static class NullCheck extends BooleanNode {
+        final int index;
+        final boolean negate;
+
+        NullCheck(int index, boolean negate) {
+            this.index = index;
+            this.negate = negate;
+        }
+
+        @Override
+        int test(String[] fields) {
+            return ((fields[this.index] == null) != this.negate) ? TRUE : FALSE;
+        }
+    }
+
+    static class And extends BooleanNode {
+        final BooleanNode left;
+        final BooleanNode right;
+
+        And(BooleanNode left, BooleanNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int test(String[] fields) {
+            int l = this.left.test(fields);
+            if(l != TRUE) {
+                // short-circuit as jexl
+                return l;
+            }
+            return this.right.test(fields);
+        }
+    }
+
+    static class Or extends BooleanNode {
+        final BooleanNode left;
+        final BooleanNode right;
+
+        Or(BooleanNode left, BooleanNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int test(String[] fields) {
+            int l = this.left.test(fields);
+            if(l != FALSE) {
+                return l;
+            }
+            return this.right.test(fields);
+        }
+    }
+
+    static class Not extends BooleanNode {
+        final BooleanNode node;
+
+        Not(BooleanNode node) {
+            this.node = node;
+        }
+
+        @Override
+        int test(String[] fields) {
+            int value = this.node.test(fields);
+            return value == UNKNOWN ? UNKNOWN : (TRUE - value);
+        }
+    }
+
+    static class BooleanCondition extends BooleanNode {
+        final BooleanNode condition;
+        final BooleanNode whenTrue;
+        final BooleanNode whenFalse;
+
+        BooleanCondition(BooleanNode condition, BooleanNode whenTrue, BooleanNode whenFalse) {
+            this.condition = condition;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        @Override
+        int test(String[] fields) {
+            int cond = this.condition.test(fields);
+            if(cond == UNKNOWN) {
+                return UNKNOWN;
+            }
+            return cond == TRUE ? this.whenTrue.test(fields) : this.whenFalse.test(fields);
+        }
+    }
+
+}
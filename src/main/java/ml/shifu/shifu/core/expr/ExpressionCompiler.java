@@ -0,0 +1,487 @@
+/**
+ * Copyright [2013-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.expr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import ml.shifu.shifu.core.expr.CompiledExpression.And;
+import ml.shifu.shifu.core.expr.CompiledExpression.Arithmetic;
+import ml.shifu.shifu.core.expr.CompiledExpression.BooleanCondition;
+import ml.shifu.shifu.core.expr.CompiledExpression.BooleanConstant;
+import ml.shifu.shifu.core.expr.CompiledExpression.BooleanNode;
+import ml.shifu.shifu.core.expr.CompiledExpression.FieldEquals;
+import ml.shifu.shifu.core.expr.CompiledExpression.FieldNode;
+import ml.shifu.shifu.core.expr.CompiledExpression.Negate;
+import ml.shifu.shifu.core.expr.CompiledExpression.Node;
+import ml.shifu.shifu.core.expr.CompiledExpression.Not;
+import ml.shifu.shifu.core.expr.CompiledExpression.NullCheck;
+import ml.shifu.shifu.core.expr.CompiledExpression.NullNode;
+import ml.shifu.shifu.core.expr.CompiledExpression.NumberCompare;
+import ml.shifu.shifu.core.expr.CompiledExpression.NumberCondition;
+import ml.shifu.shifu.core.expr.CompiledExpression.NumberConstant;
+import ml.shifu.shifu.core.expr.CompiledExpression.NumberNode;
+import ml.shifu.shifu.core.expr.CompiledExpression.Or;
+import ml.shifu.shifu.core.expr.CompiledExpression.StringEquals;
+import ml.shifu.shifu.core.expr.CompiledExpression.StringNode;
+
+/**
+ * {@link ExpressionCompiler} compiles the common subset of jexl expressions used in filter and weight settings into
+ * {@link CompiledExpression}.
+ *
+ * <p>
+ * Supported: column names, integer/decimal/string/boolean/null literals, comparison (==, !=, &lt;, &lt;=, &gt;,
+ * &gt;=, eq, ne, lt, le, gt, ge), logical (&amp;&amp;, ||, !, and, or, not), arithmetic (+, -, *, /, %, div, mod),
+ * ternary operator and parentheses. For any other syntax like methods, functions, regex match or where result type
+ * cannot be decided at compile time, {@link #compile(String, Map)} returns null and jexl should be used.
+ */
+public final class ExpressionCompiler {
+
+    private static final int EOF = 0;
+    private static final int INTEGER = 1;
+    private static final int DECIMAL = 2;
+    private static final int STRING = 3;
+    private static final int IDENTIFIER = 4;
+    private static final int OPERATOR = 5;
+
+    private final String source;
+
+    private final Map<String, Integer> columnIndexes;
+
+    private final List<Token> tokens = new ArrayList<Token>();
+
+    private final TreeSet<Integer> referenced = new TreeSet<Integer>();
+
+    private int position = 0;
+
+    private ExpressionCompiler(String source, Map<String, Integer> columnIndexes) {
+        this.source = source;
+        this.columnIndexes = columnIndexes;
+    }
+
+    /**
+     * Compile expression.
+     *
+     * @param expression
+     *            jexl expression
+     * @param columnIndexes
+     *            column name to index of split fields
+     * @return compiled expression or null if expression is not supported
+     */
+    public static CompiledExpression compile(String expression, Map<String, Integer> columnIndexes) {
+        if(expression == null) {
+            return null;
+        }
+        ExpressionCompiler compiler = new ExpressionCompiler(expression, columnIndexes);
+        try {
+            compiler.tokenize();
+            Node root = compiler.parseConditional();
+            if(compiler.peek().type != EOF || !(root instanceof BooleanNode || root instanceof NumberNode)) {
+                return null;
+            }
+            int[] indexes = new int[compiler.referenced.size()];
+            int i = 0;
+            for(Integer index: compiler.referenced) {
+                indexes[i++] = index;
+            }
+            return new CompiledExpression(root, indexes);
+        } catch (UnsupportedException e) {
+            return null;
+        }
+    }
+
+    private void tokenize() {
+        int length = this.source.length();
+        int i = 0;
+        while(i < length) {
+            char c = this.source.charAt(i);
+            if(Character.isWhitespace(c)) {
+                i++;
+            } else if(c >= '0' && c <= '9') {
+                i = readNumber(i);
+            } else if(c == '\'' || c == '"') {
+                i = readString(i, c);
+            } else if(Character.isLetter(c) || c == '_' || c == '$') {
+                int start = i;
+                while(i < length && isIdentifierPart(this.source.charAt(i))) {
+                    i++;
+                }
+                String word = this.source.substring(start, i);
+                String operator = toOperator(word);
+                if(operator != null) {
+                    this.tokens.add(new Token(OPERATOR, operator));
+                } else {
+                    this.tokens.add(new Token(IDENTIFIER, word));
+                }
+            } else {
+                String two = i + 1 < length ? this.source.substring(i, i + 2) : null;
+                if("==".equals(two) || "!=".equals(two) || "<=".equals(two) || ">=".equals(two) || "&&".equals(two)
+                        || "||".equals(two)) {
+                    this.tokens.add(new Token(OPERATOR, two));
+                    i += 2;
+                } else if("+-*/%<>!?:()".indexOf(c) >= 0) {
+                    this.tokens.add(new Token(OPERATOR, String.valueOf(c)));
+                    i++;
+                } else {
+                    // '=~', '!~', bit operators, '.', '[', '{', ';', '=' and other syntax
+                    throw new UnsupportedException();
+                }
+            }
+        }
+        this.tokens.add(new Token(EOF, null));
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static String toOperator(String word) {
+        if("eq".equals(word)) {
+            return "==";
+        } else if("ne".equals(word)) {
+            return "!=";
+        } else if("lt".equals(word)) {
+            return "<";
+        } else if("le".equals(word)) {
+            return "<=";
+        } else if("gt".equals(word)) {
+            return ">";
+        } else if("ge".equals(word)) {
+            return ">=";
+        } else if("and".equals(word)) {
+            return "&&";
+        } else if("or".equals(word)) {
+            return "||";
+        } else if("not".equals(word)) {
+            return "!";
+        } else if("div".equals(word)) {
+            return "/";
+        } else if("mod".equals(word)) {
+            return "%";
+        } else if("true".equals(word) || "false".equals(word) || "null".equals(word)) {
+            return word;
+        } else if("empty".equals(word) || "size".equals(word) || "new".equals(word) || "if".equals(word)
+                || "else".equals(word) || "for".equals(word) || "foreach".equals(word) || "while".equals(word)
+                || "var".equals(word) || "return".equals(word) || "function".equals(word) || "in".equals(word)) {
+            throw new UnsupportedException();
+        }
+        return null;
+    }
+
+    private int readNumber(int start) {
+        int length = this.source.length();
+        int i = start;
+        while(i < length && Character.isDigit(this.source.charAt(i))) {
+            i++;
+        }
+        boolean decimal = false;
+        if(i + 1 < length && this.source.charAt(i) == '.' && Character.isDigit(this.source.charAt(i + 1))) {
+            decimal = true;
+            i++;
+            while(i < length && Character.isDigit(this.source.charAt(i))) {
+                i++;
+            }
+        }
+        if(i < length && (isIdentifierPart(this.source.charAt(i)) || this.source.charAt(i) == '.')) {
+            // type suffix, exponent, hex and so on
+            throw new UnsupportedException();
+        }
+        String text = this.source.substring(start, i);
+        if(!decimal && text.length() > 1 && text.charAt(0) == '0') {
+            // octal
+            throw new UnsupportedException();
+        }
+        this.tokens.add(new Token(decimal ? DECIMAL : INTEGER, text));
+        return i;
+    }
+
+    private int readString(int start, char quote) {
+        int length = this.source.length();
+        StringBuilder sb = new StringBuilder();
+        int i = start + 1;
+        while(i < length) {
+            char c = this.source.charAt(i);
+            if(c == quote) {
+                this.tokens.add(new Token(STRING, sb.toString()));
+                return i + 1;
+            }
+            if(c == '\\') {
+                if(i + 1 >= length || this.source.charAt(i + 1) == 'u') {
+                    throw new UnsupportedException();
+                }
+                sb.append(this.source.charAt(i + 1));
+                i += 2;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        throw new UnsupportedException();
+    }
+
+    private Token peek() {
+        return this.tokens.get(this.position);
+    }
+
+    private boolean accept(String operator) {
+        Token token = peek();
+        if(token.type == OPERATOR && token.text.equals(operator)) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String operator) {
+        if(!accept(operator)) {
+            throw new UnsupportedException();
+        }
+    }
+
+    private Node parseConditional() {
+        Node condition = parseOr();
+        if(!accept("?")) {
+            return condition;
+        }
+        Node whenTrue = parseConditional();
+        expect(":");
+        Node whenFalse = parseConditional();
+        BooleanNode cond = toBoolean(condition);
+        if(whenTrue instanceof BooleanNode && whenFalse instanceof BooleanNode) {
+            return new BooleanCondition(cond, (BooleanNode) whenTrue, (BooleanNode) whenFalse);
+        }
+        if(isTypedNumber(whenTrue) && isTypedNumber(whenFalse)) {
+            return new NumberCondition(cond, (NumberNode) whenTrue, (NumberNode) whenFalse);
+        }
+        throw new UnsupportedException();
+    }
+
+    private Node parseOr() {
+        Node left = parseAnd();
+        while(accept("||")) {
+            left = new Or(toBoolean(left), toBoolean(parseAnd()));
+        }
+        return left;
+    }
+
+    private Node parseAnd() {
+        Node left = parseEquality();
+        while(accept("&&")) {
+            left = new And(toBoolean(left), toBoolean(parseEquality()));
+        }
+        return left;
+    }
+
+    private Node parseEquality() {
+        Node left = parseRelational();
+        if(accept("==")) {
+            return equality(left, parseRelational(), false);
+        } else if(accept("!=")) {
+            return equality(left, parseRelational(), true);
+        }
+        return left;
+    }
+
+    private Node parseRelational() {
+        Node left = parseAdditive();
+        Token token = peek();
+        if(token.type == OPERATOR
+                && ("<".equals(token.text) || "<=".equals(token.text) || ">".equals(token.text) || ">="
+                        .equals(token.text))) {
+            this.position++;
+            Node right = parseAdditive();
+            if(isNumberCompare(left, right)) {
+                return new NumberCompare(token.text, (NumberNode) left, (NumberNode) right);
+            }
+            throw new UnsupportedException();
+        }
+        return left;
+    }
+
+    private Node parseAdditive() {
+        Node left = parseMultiplicative();
+        while(true) {
+            if(accept("+")) {
+                left = arithmetic('+', left, parseMultiplicative());
+            } else if(accept("-")) {
+                left = arithmetic('-', left, parseMultiplicative());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Node parseMultiplicative() {
+        Node left = parseUnary();
+        while(true) {
+            if(accept("*")) {
+                left = arithmetic('*', left, parseUnary());
+            } else if(accept("/")) {
+                left = arithmetic('/', left, parseUnary());
+            } else if(accept("%")) {
+                left = arithmetic('%', left, parseUnary());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Node parseUnary() {
+        if(accept("!")) {
+            return new Not(toBoolean(parseUnary()));
+        }
+        if(accept("-")) {
+            Node node = parseUnary();
+            if(node instanceof NumberConstant) {
+                NumberConstant constant = (NumberConstant) node;
+                return new NumberConstant(-constant.value, constant.floating);
+            }
+            if(isTypedNumber(node)) {
+                return new Negate((NumberNode) node);
+            }
+            throw new UnsupportedException();
+        }
+        return parsePrimary();
+    }
+
+    private Node parsePrimary() {
+        Token token = peek();
+        this.position++;
+        switch(token.type) {
+            case INTEGER:
+                long value;
+                try {
+                    value = Long.parseLong(token.text);
+                } catch (NumberFormatException e) {
+                    throw new UnsupportedException();
+                }
+                if(value > Integer.MAX_VALUE) {
+                    // Long or BigInteger in jexl, integral result is narrowed to Integer only for Integer operands
+                    throw new UnsupportedException();
+                }
+                return new NumberConstant(value, false);
+            case DECIMAL:
+                // jexl creates Float for decimal literal, only accept values whose float and double are the same
+                double d = Double.parseDouble(token.text);
+                if((double) Float.parseFloat(token.text) != d) {
+                    throw new UnsupportedException();
+                }
+                return new NumberConstant(d, true);
+            case STRING:
+                return new StringNode(token.text);
+            case IDENTIFIER:
+                Integer index = this.columnIndexes.get(token.text);
+                if(index == null) {
+                    // undefined variable is null in jexl
+                    return new NullNode();
+                }
+                this.referenced.add(index);
+                return new FieldNode(index);
+            case OPERATOR:
+                if("(".equals(token.text)) {
+                    Node node = parseConditional();
+                    expect(")");
+                    return node;
+                } else if("true".equals(token.text)) {
+                    return new BooleanConstant(true);
+                } else if("false".equals(token.text)) {
+                    return new BooleanConstant(false);
+                } else if("null".equals(token.text)) {
+                    return new NullNode();
+                }
+                throw new UnsupportedException();
+            default:
+                throw new UnsupportedException();
+        }
+    }
+
+    private Node equality(Node left, Node right, boolean negate) {
+        if(left instanceof NullNode || right instanceof NullNode) {
+            Node other = left instanceof NullNode ? right : left;
+            if(other instanceof NullNode) {
+                return new BooleanConstant(!negate);
+            }
+            if(other instanceof FieldNode) {
+                return new NullCheck(((FieldNode) other).index, negate);
+            }
+            if(other instanceof StringNode || other instanceof NumberConstant) {
+                return new BooleanConstant(negate);
+            }
+            throw new UnsupportedException();
+        }
+        if(left instanceof FieldNode && right instanceof FieldNode) {
+            return new FieldEquals(((FieldNode) left).index, ((FieldNode) right).index, negate);
+        }
+        if(left instanceof FieldNode && right instanceof StringNode) {
+            return new StringEquals(((FieldNode) left).index, ((StringNode) right).value, negate);
+        }
+        if(left instanceof StringNode && right instanceof FieldNode) {
+            return new StringEquals(((FieldNode) right).index, ((StringNode) left).value, negate);
+        }
+        if(left instanceof StringNode && right instanceof StringNode) {
+            return new BooleanConstant(((StringNode) left).value.equals(((StringNode) right).value) != negate);
+        }
+        if(isNumberCompare(left, right)) {
+            return new NumberCompare(negate ? "!=" : "==", (NumberNode) left, (NumberNode) right);
+        }
+        throw new UnsupportedException();
+    }
+
+    private Node arithmetic(char op, Node left, Node right) {
+        // jexl coerces raw strings to numbers, '+' falls back to concatenation only if not numbers which is unknown
+        if(left instanceof NumberNode && right instanceof NumberNode) {
+            return new Arithmetic(op, (NumberNode) left, (NumberNode) right);
+        }
+        throw new UnsupportedException();
+    }
+
+    private static boolean isNumberCompare(Node left, Node right) {
+        return left instanceof NumberNode && right instanceof NumberNode
+                && (isTypedNumber(left) || isTypedNumber(right));
+    }
+
+    private static boolean isTypedNumber(Node node) {
+        return node instanceof NumberNode && !(node instanceof FieldNode);
+    }
+
+    private static BooleanNode toBoolean(Node node) {
+        if(node instanceof BooleanNode) {
+            return (BooleanNode) node;
+        }
+        // jexl coerces non boolean values, leave it to jexl
+        throw new UnsupportedException();
+    }
+
+    private static class Token {
+        final int type;
+        final String text;
+
+        Token(int type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Internal signal that expression is out of compiled subset.
+     */
+    private static class UnsupportedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+}
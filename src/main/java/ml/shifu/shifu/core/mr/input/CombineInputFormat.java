@@ -22,18 +22,21 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import ml.shifu.guagua.mapreduce.GuaguaMapReduceConstants;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.BlockLocation;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -56,6 +59,26 @@ public class CombineInputFormat extends TextInputFormat {
 
     public static final String SHIFU_VS_SPLIT_COMBINABLE = "shifu.vs.split.combinable";
 
+    /**
+     * If combined splits are balanced by estimated record count instead of byte size, false by default.
+     */
+    public static final String SHIFU_VS_SPLIT_BALANCE_BY_RECORDS = "shifu.vs.split.balanceByRecords";
+
+    /**
+     * Number of offsets sampled in each uncompressed file to estimate record count.
+     */
+    public static final String SHIFU_VS_SPLIT_SAMPLE_POINTS = "shifu.vs.split.samplePoints";
+
+    /**
+     * Bytes read at each sampled offset.
+     */
+    public static final String SHIFU_VS_SPLIT_SAMPLE_BYTES = "shifu.vs.split.sampleBytes";
+
+    /**
+     * Extra load (ratio of average task load) accepted to keep splits of the same host or rack in one task.
+     */
+    public static final String SHIFU_VS_SPLIT_LOCALITY_SLACK = "shifu.vs.split.localitySlack";
+
     /**
      * Splitter building logic including master setting, also includes combining input feature like Pig.
      */
@@ -75,7 +98,11 @@ public class CombineInputFormat extends TextInputFormat {
             job.getConfiguration().setLong(GuaguaMapReduceConstants.MAPRED_MAX_SPLIT_SIZE, combineSize);
             List<InputSplit> splits = super.getSplits(job);
             LOG.debug("combine size:{}, splits:{}", combineSize, splits);
-            newSplits = getFinalCombineSplits(splits, combineSize);
+            if(job.getConfiguration().getBoolean(SHIFU_VS_SPLIT_BALANCE_BY_RECORDS, false)) {
+                newSplits = getRecordBalancedSplits(job, splits, combineSize);
+            } else {
+                newSplits = getFinalCombineSplits(splits, combineSize);
+            }
         } else {
             newSplits = getCommonSplits(job);
         }
@@ -105,6 +132,151 @@ public class CombineInputFormat extends TextInputFormat {
         return newSplits;
     }
 
+    /**
+     * Combine splits to make each task have about the same number of records. Number of tasks is the same as byte size
+     * combining, record count of each split is estimated by {@link FileRecordIndex} of its file. Expected load skew of
+     * tasks is logged, together with skew of byte size combining for comparison.
+     */
+    protected List<InputSplit> getRecordBalancedSplits(JobContext job, List<InputSplit> splits, long combineSize)
+            throws IOException {
+        List<FileSplit> fileSplits = new ArrayList<FileSplit>();
+        long totalSize = 0L;
+        for(InputSplit split: splits) {
+            FileSplit fileSplit = (FileSplit) split;
+            if(fileSplit.getLength() > 0L) {
+                fileSplits.add(fileSplit);
+                totalSize += fileSplit.getLength();
+            }
+        }
+        if(fileSplits.size() <= 1) {
+            return getFinalCombineSplits(splits, combineSize);
+        }
+
+        long start = System.currentTimeMillis();
+        int numGroups = (int) Math.max(1L, (totalSize + combineSize - 1) / combineSize);
+        Map<InputSplit, Double> splitRecords = new IdentityHashMap<InputSplit, Double>();
+        List<FileSplit[]> groups;
+        try {
+            groups = combineByRecords(job.getConfiguration(), fileSplits, numGroups, splitRecords);
+        } catch (IOException e) {
+            LOG.warn("Error in estimating record count of splits, combine splits by byte size.", e);
+            return getFinalCombineSplits(splits, combineSize);
+        }
+        List<InputSplit> newSplits = new ArrayList<InputSplit>();
+        for(FileSplit[] group: groups) {
+            newSplits.add(new CombineInputSplit(group));
+        }
+
+        double byteSizeSkew = getByteSizeCombineSkew(new ArrayList<InputSplit>(fileSplits), combineSize,
+                splitRecords);
+        LOG.info("Combined {} splits into {} tasks in {}ms, skew of byte size combining {}.", new Object[] {
+                fileSplits.size(), newSplits.size(), System.currentTimeMillis() - start,
+                String.format("%.3f", byteSizeSkew) });
+        return newSplits;
+    }
+
+    /**
+     * Combine file splits into given number of groups with about the same number of records, record count of each
+     * split is estimated by {@link FileRecordIndex} of its file. This is shared by {@link CombineInputFormat} and
+     * {@link ml.shifu.shifu.guagua.RecordBalancedGuaguaInputFormat}.
+     * 
+     * @param conf
+     *            - job configuration with sampling and locality settings
+     * @param fileSplits
+     *            - non-empty file splits to be combined
+     * @param numGroups
+     *            - number of groups (tasks)
+     * @param splitRecords
+     *            - output of estimated record count of each split, can be null
+     * @return combined groups of file splits
+     * @throws IOException
+     *             if any error in estimating record count
+     */
+    public static List<FileSplit[]> combineByRecords(Configuration conf, List<FileSplit> fileSplits, int numGroups,
+            Map<InputSplit, Double> splitRecords) throws IOException {
+        int samplePoints = conf.getInt(SHIFU_VS_SPLIT_SAMPLE_POINTS, 4);
+        int sampleBytes = conf.getInt(SHIFU_VS_SPLIT_SAMPLE_BYTES, 64 * 1024);
+        String delimiter = conf.get(TEXTINPUTFORMAT_RECORD_DELIMITER);
+        byte delimiterByte = (delimiter == null || delimiter.length() == 0) ? (byte) '\n' : delimiter
+                .getBytes()[delimiter.getBytes().length - 1];
+        CompressionCodecFactory codecFactory = new CompressionCodecFactory(conf);
+
+        Map<Path, FileRecordIndex> indexes = new HashMap<Path, FileRecordIndex>();
+        Map<String, String> hostRacks = new HashMap<String, String>();
+        double[] records = new double[fileSplits.size()];
+        String[][] hosts = new String[fileSplits.size()][];
+        for(int i = 0; i < fileSplits.size(); i++) {
+            FileSplit fileSplit = fileSplits.get(i);
+            Path path = fileSplit.getPath();
+            FileRecordIndex index = indexes.get(path);
+            if(index == null) {
+                FileSystem fs = path.getFileSystem(conf);
+                FileStatus status = fs.getFileStatus(path);
+                index = FileRecordIndex.build(fs, status, codecFactory, samplePoints, sampleBytes, delimiterByte);
+                indexes.put(path, index);
+                addHostRacks(fs.getFileBlockLocations(status, 0, status.getLen()), hostRacks);
+            }
+            records[i] = index.estimateRecords(fileSplit.getStart(), fileSplit.getLength());
+            hosts[i] = fileSplit.getLocations();
+            if(splitRecords != null) {
+                splitRecords.put(fileSplit, records[i]);
+            }
+        }
+
+        RecordBalancedCombiner.Result result = new RecordBalancedCombiner(numGroups, conf.getFloat(
+                SHIFU_VS_SPLIT_LOCALITY_SLACK, 0.05f)).combine(records, hosts, hostRacks);
+        List<FileSplit[]> groups = new ArrayList<FileSplit[]>();
+        for(int[] group: result.getGroups()) {
+            FileSplit[] fss = new FileSplit[group.length];
+            for(int i = 0; i < group.length; i++) {
+                fss[i] = fileSplits.get(group[i]);
+            }
+            groups.add(fss);
+        }
+        LOG.info("Record balanced combining of {} splits from {} files into {} groups, estimated records per group: "
+                + "min {}, max {}, skew (max/avg) {}; {} splits are combined with splits on the same host, {} on the "
+                + "same rack.", new Object[] { fileSplits.size(), indexes.size(), groups.size(),
+                (long) result.getMinLoad(), (long) result.getMaxLoad(), String.format("%.3f", result.getSkew()),
+                result.getNodeLocal(), result.getRackLocal() });
+        return groups;
+    }
+
+    private static void addHostRacks(BlockLocation[] locations, Map<String, String> hostRacks) throws IOException {
+        for(BlockLocation location: locations) {
+            String[] blockHosts = location.getHosts();
+            // topology path is like /rack/host:port, the same order as hosts
+            String[] topologyPaths = location.getTopologyPaths();
+            if(blockHosts == null || topologyPaths == null || blockHosts.length != topologyPaths.length) {
+                continue;
+            }
+            for(int i = 0; i < blockHosts.length; i++) {
+                int slash = topologyPaths[i].lastIndexOf('/');
+                if(slash > 0) {
+                    hostRacks.put(blockHosts[i], topologyPaths[i].substring(0, slash));
+                }
+            }
+        }
+    }
+
+    private static double getByteSizeCombineSkew(List<InputSplit> splits, long combineSize,
+            Map<InputSplit, Double> splitRecords) throws IOException {
+        List<List<InputSplit>> combined;
+        try {
+            combined = getCombineSplits(splits, combineSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        double[] loads = new double[combined.size()];
+        for(int i = 0; i < combined.size(); i++) {
+            for(InputSplit split: combined.get(i)) {
+                Double value = splitRecords.get(split);
+                loads[i] += value == null ? 0d : value;
+            }
+        }
+        return RecordBalancedCombiner.skew(loads);
+    }
+
     /**
      * Generate the list of files and make them into FileSplits.
      */
@@ -17,6 +17,9 @@ package ml.shifu.shifu.core.mr.input;
 
 import java.io.IOException;
 
+import ml.shifu.shifu.fs.SequenceTextReader;
+import ml.shifu.shifu.util.Constants;
+
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
@@ -44,6 +47,10 @@ public class CombineRecordReader extends RecordReader<LongWritable, Text> {
     private long pos;
     private long end;
     private LineReader in;
+    /**
+     * Reader of sequence file split, text and sequence files can be combined in one task.
+     */
+    private SequenceTextReader seqIn;
     private int maxLineLength;
     private LongWritable key = null;
     private Text value = null;
@@ -78,6 +85,13 @@ public class CombineRecordReader extends RecordReader<LongWritable, Text> {
         start = split.getStart();
         end = start + split.getLength();
         final Path file = split.getPath();
+        if(file.getName().endsWith(Constants.SEQ_SUFFIX)) {
+            this.in = null;
+            this.seqIn = new SequenceTextReader(job, file, start, split.getLength());
+            this.pos = start;
+            return;
+        }
+        this.seqIn = null;
         compressionCodecs = new CompressionCodecFactory(job);
         final CompressionCodec codec = compressionCodecs.getCodec(file);
 
@@ -119,7 +133,12 @@ public class CombineRecordReader extends RecordReader<LongWritable, Text> {
             value = new Text();
         }
         int newSize = 0;
-        while(pos < end) {
+        if(this.seqIn != null) {
+            // only zero size is checked as end of split
+            newSize = this.seqIn.next(value) ? 1 : 0;
+            pos = Math.min(this.seqIn.getPosition(), end);
+        }
+        while(this.seqIn == null && pos < end) {
             newSize = in.readLine(value, maxLineLength,
                     Math.max((int) Math.min(Integer.MAX_VALUE, end - pos), maxLineLength));
             if(newSize == 0) {
@@ -176,5 +195,8 @@ public class CombineRecordReader extends RecordReader<LongWritable, Text> {
         if(in != null) {
             in.close();
         }
+        if(this.seqIn != null) {
+            this.seqIn.close();
+        }
     }
 }
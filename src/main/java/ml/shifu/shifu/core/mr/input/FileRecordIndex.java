@@ -0,0 +1,174 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.mr.input;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+
+/**
+ * {@link FileRecordIndex} is a sampled index of record density (records per byte of file length) in one text file.
+ * 
+ * <p>
+ * For uncompressed files, a small chunk is read at several evenly distributed offsets and the density of each chunk
+ * is used for the file range starting at such offset. For compressed files, the head of the file is decompressed and
+ * density is computed by compressed bytes consumed, one density is used for the whole file. Small files are read
+ * fully and the record count is exact.
+ */
+public class FileRecordIndex {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long length;
+
+    /**
+     * Start offsets of sampled ranges, the first one is always 0.
+     */
+    private final long[] offsets;
+
+    /**
+     * Records per byte of each range in {@link #offsets}.
+     */
+    private final double[] densities;
+
+    public FileRecordIndex(long length, long[] offsets, double[] densities) {
+        this.length = length;
+        this.offsets = offsets;
+        this.densities = densities;
+    }
+
+    /**
+     * Build index of one file.
+     * 
+     * @param fs
+     *            - file system of such file
+     * @param file
+     *            - file status
+     * @param codecFactory
+     *            - factory to find compression codec by file name
+     * @param samplePoints
+     *            - number of sampled offsets for uncompressed file
+     * @param sampleBytes
+     *            - bytes read at each sampled offset
+     * @param delimiter
+     *            - record delimiter, the last byte of multiple bytes delimiter is enough for counting
+     * @return index of such file
+     * @throws IOException
+     *             - if any exception in reading file
+     */
+    public static FileRecordIndex build(FileSystem fs, FileStatus file, CompressionCodecFactory codecFactory,
+            int samplePoints, int sampleBytes, byte delimiter) throws IOException {
+        long length = file.getLen();
+        if(length == 0L) {
+            return new FileRecordIndex(0L, new long[] { 0L }, new double[] { 0d });
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        CompressionCodec codec = codecFactory.getCodec(file.getPath());
+        FSDataInputStream fsIn = fs.open(file.getPath());
+        try {
+            if(codec != null) {
+                InputStream in = codec.createInputStream(fsIn);
+                try {
+                    long limit = (long) samplePoints * sampleBytes;
+                    long[] counted = count(in, buffer, limit, delimiter);
+                    // file is fully decompressed, record count is exact
+                    long consumed = counted[0] < limit ? length : Math.min(length, Math.max(1L, fsIn.getPos()));
+                    return new FileRecordIndex(length, new long[] { 0L }, new double[] { density(counted,
+                            consumed) });
+                } finally {
+                    IOUtils.closeStream(in);
+                }
+            }
+
+            int points = length <= (long) samplePoints * sampleBytes ? 1 : Math.max(1, samplePoints);
+            long[] offsets = new long[points];
+            double[] densities = new double[points];
+            for(int i = 0; i < points; i++) {
+                offsets[i] = length * i / points;
+                fsIn.seek(offsets[i]);
+                long limit = points == 1 ? length : Math.min(sampleBytes, length - offsets[i]);
+                long[] counted = count(fsIn, buffer, limit, delimiter);
+                densities[i] = density(counted, counted[0]);
+            }
+            return new FileRecordIndex(length, offsets, densities);
+        } finally {
+            IOUtils.closeStream(fsIn);
+        }
+    }
+
+    /**
+     * @return {bytes read, delimiters found}
+     */
+    private static long[] count(InputStream in, byte[] buffer, long limit, byte delimiter) throws IOException {
+        long read = 0L, records = 0L;
+        while(read < limit) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, limit - read));
+            if(n < 0) {
+                break;
+            }
+            for(int i = 0; i < n; i++) {
+                if(buffer[i] == delimiter) {
+                    records += 1L;
+                }
+            }
+            read += n;
+        }
+        return new long[] { read, records };
+    }
+
+    private static double density(long[] counted, long bytes) {
+        if(bytes <= 0L) {
+            return 0d;
+        }
+        // one record longer than sampled bytes
+        return Math.max(counted[1], 1L) * 1d / bytes;
+    }
+
+    /**
+     * Estimated record count of range [start, start + len) in such file.
+     */
+    public double estimateRecords(long start, long len) {
+        long end = Math.min(this.length, start + len);
+        double records = 0d;
+        for(int i = 0; i < this.offsets.length; i++) {
+            long rangeEnd = i + 1 < this.offsets.length ? this.offsets[i + 1] : this.length;
+            long overlap = Math.min(end, rangeEnd) - Math.max(start, this.offsets[i]);
+            if(overlap > 0L) {
+                records += overlap * this.densities[i];
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Estimated record count of the whole file.
+     */
+    public double estimateRecords() {
+        return estimateRecords(0L, this.length);
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+}
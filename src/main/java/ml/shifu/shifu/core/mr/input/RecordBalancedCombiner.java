@@ -0,0 +1,231 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.mr.input;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link RecordBalancedCombiner} assigns splits into a fixed number of groups to balance estimated record count of
+ * each group, each group is one task.
+ * 
+ * <p>
+ * Splits are assigned in descending order of record count, each split goes to the group with the least records
+ * (longest processing time first). Locality is the secondary goal: a group which already has a split on the same
+ * host (or else the same rack) is preferred if its load is not larger than the least load by
+ * <code>localitySlack * averageLoad</code>.
+ */
+public class RecordBalancedCombiner {
+
+    private final int numGroups;
+
+    private final double localitySlack;
+
+    public RecordBalancedCombiner(int numGroups, double localitySlack) {
+        if(numGroups <= 0) {
+            throw new IllegalArgumentException("Number of groups should be positive.");
+        }
+        this.numGroups = numGroups;
+        this.localitySlack = localitySlack;
+    }
+
+    /**
+     * Combine splits.
+     * 
+     * @param records
+     *            - estimated record count of each split
+     * @param hosts
+     *            - hosts of each split, can be null
+     * @param hostRacks
+     *            - rack of each host, can be null or not include all hosts
+     * @return combined groups with indexes of splits
+     */
+    public Result combine(final double[] records, String[][] hosts, Map<String, String> hostRacks) {
+        int size = records.length;
+        Integer[] order = new Integer[size];
+        double total = 0d;
+        for(int i = 0; i < size; i++) {
+            order[i] = i;
+            total += records[i];
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                int cmp = Double.compare(records[o2], records[o1]);
+                return cmp == 0 ? o1.compareTo(o2) : cmp;
+            }
+        });
+
+        int groups = Math.max(1, Math.min(this.numGroups, size));
+        double slack = this.localitySlack * total / groups;
+        double[] loads = new double[groups];
+        List<List<Integer>> members = new ArrayList<List<Integer>>(groups);
+        List<Set<String>> groupHosts = new ArrayList<Set<String>>(groups);
+        List<Set<String>> groupRacks = new ArrayList<Set<String>>(groups);
+        for(int i = 0; i < groups; i++) {
+            members.add(new ArrayList<Integer>());
+            groupHosts.add(new HashSet<String>());
+            groupRacks.add(new HashSet<String>());
+        }
+
+        int nodeLocal = 0, rackLocal = 0;
+        for(int index: order) {
+            String[] splitHosts = hosts == null || hosts[index] == null ? new String[0] : hosts[index];
+            Set<String> splitRacks = new HashSet<String>();
+            if(hostRacks != null) {
+                for(String host: splitHosts) {
+                    String rack = hostRacks.get(host);
+                    if(rack != null) {
+                        splitRacks.add(rack);
+                    }
+                }
+            }
+
+            int least = 0, leastNode = -1, leastRack = -1;
+            for(int i = 0; i < groups; i++) {
+                if(loads[i] < loads[least]) {
+                    least = i;
+                }
+                if((leastNode < 0 || loads[i] < loads[leastNode]) && intersects(groupHosts.get(i), splitHosts)) {
+                    leastNode = i;
+                }
+                if((leastRack < 0 || loads[i] < loads[leastRack])
+                        && intersects(groupRacks.get(i), splitRacks.toArray(new String[0]))) {
+                    leastRack = i;
+                }
+            }
+
+            int selected = least;
+            if(leastNode >= 0 && loads[leastNode] <= loads[least] + slack) {
+                selected = leastNode;
+                nodeLocal += 1;
+            } else if(leastRack >= 0 && loads[leastRack] <= loads[least] + slack) {
+                selected = leastRack;
+                rackLocal += 1;
+            }
+            loads[selected] += records[index];
+            members.get(selected).add(index);
+            groupHosts.get(selected).addAll(Arrays.asList(splitHosts));
+            groupRacks.get(selected).addAll(splitRacks);
+        }
+
+        int[][] result = new int[groups][];
+        for(int i = 0; i < groups; i++) {
+            List<Integer> list = members.get(i);
+            result[i] = new int[list.size()];
+            for(int j = 0; j < list.size(); j++) {
+                result[i][j] = list.get(j);
+            }
+        }
+        return new Result(result, loads, nodeLocal, rackLocal);
+    }
+
+    private static boolean intersects(Set<String> set, String[] values) {
+        if(set.isEmpty()) {
+            return false;
+        }
+        for(String value: values) {
+            if(set.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Load skew of groups: max load / average load, 1 means all groups have the same load.
+     */
+    public static double skew(double[] loads) {
+        if(loads.length == 0) {
+            return 1d;
+        }
+        double max = 0d, sum = 0d;
+        for(double load: loads) {
+            max = Math.max(max, load);
+            sum += load;
+        }
+        return sum <= 0d ? 1d : max * loads.length / sum;
+    }
+
+    /**
+     * Result of combining.
+     */
+    public static class Result {
+
+        private final int[][] groups;
+
+        private final double[] loads;
+
+        /**
+         * Count of splits put into a group with another split on the same host.
+         */
+        private final int nodeLocal;
+
+        /**
+         * Count of splits put into a group with another split on the same rack but not the same host.
+         */
+        private final int rackLocal;
+
+        public Result(int[][] groups, double[] loads, int nodeLocal, int rackLocal) {
+            this.groups = groups;
+            this.loads = loads;
+            this.nodeLocal = nodeLocal;
+            this.rackLocal = rackLocal;
+        }
+
+        public int[][] getGroups() {
+            return groups;
+        }
+
+        public double[] getLoads() {
+            return loads;
+        }
+
+        public int getNodeLocal() {
+            return nodeLocal;
+        }
+
+        public int getRackLocal() {
+            return rackLocal;
+        }
+
+        public double getSkew() {
+            return skew(this.loads);
+        }
+
+        public double getMaxLoad() {
+            double max = 0d;
+            for(double load: this.loads) {
+                max = Math.max(max, load);
+            }
+            return max;
+        }
+
+        public double getMinLoad() {
+            double min = this.loads.length == 0 ? 0d : Double.MAX_VALUE;
+            for(double load: this.loads) {
+                min = Math.min(min, load);
+            }
+            return min;
+        }
+    }
+
+}
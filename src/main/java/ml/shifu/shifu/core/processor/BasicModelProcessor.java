@@ -36,6 +36,7 @@ import ml.shifu.shifu.core.validator.ModelInspector;
 import ml.shifu.shifu.core.validator.ModelInspector.ModelStep;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.PathFinder;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.util.CommonUtils;
@@ -235,6 +236,19 @@ public class BasicModelProcessor {
         }
     }
 
+    /**
+     * Close all data line readers
+     * 
+     * @param readers
+     */
+    protected void closeReaders(List<DataLineReader> readers) {
+        if(CollectionUtils.isNotEmpty(readers)) {
+            for(DataLineReader reader: readers) {
+                reader.close();
+            }
+        }
+    }
+
     /**
      * Sync data into HDFS if necessary:
      * RunMode == pig && SourceType == HDFS
@@ -18,24 +18,36 @@ package ml.shifu.shifu.core.processor;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import ml.shifu.shifu.actor.AkkaSystemExecutor;
 import ml.shifu.shifu.container.obj.EvalConfig;
+import ml.shifu.shifu.container.obj.ModelBasicConf.RunMode;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.RawSourceData;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.ConfusionMatrix;
 import ml.shifu.shifu.core.PerformanceEvaluator;
+import ml.shifu.shifu.core.eval.ScoreGroup;
 import ml.shifu.shifu.core.validator.ModelInspector.ModelStep;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.PathFinder;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.pig.PigExecutor;
+import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.util.Environment;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
@@ -65,17 +77,37 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
 
     private String evalName = null;
 
+    /**
+     * If eval sets are run concurrently in pig mode, by default eval sets are run one by one.
+     */
+    public static final String SHIFU_EVAL_PARALLEL = "shifu.eval.parallel";
+
+    public static final String SHIFU_DEFAULT_EVAL_PARALLEL = "false";
+
+    /**
+     * Max number of eval sets running at the same time if {@link #SHIFU_EVAL_PARALLEL} is enabled.
+     */
+    public static final String SHIFU_EVAL_PARALLEL_NUM = "shifu.eval.parallel.num";
+
+    public static final String SHIFU_DEFAULT_EVAL_PARALLEL_NUM = "4";
+
     private EvalStep evalStep;
 
-    private long pigPosTags = 0l;
+    /**
+     * Counters of one pig scoring job, kept per eval set as eval sets may be scored concurrently.
+     */
+    private static class EvalCounters {
 
-    private long pigNegTags = 0l;
+        private long posTags = 0l;
 
-    private double pigPosWeightTags = 0d;
+        private long negTags = 0l;
 
-    private double pigNegWeightTags = 0d;
+        private double posWeightTags = 0d;
 
-    private long evalRecords = 0l;
+        private double negWeightTags = 0d;
+
+        private long records = 0l;
+    }
 
     /**
      * Constructor
@@ -231,7 +263,7 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
         switch(modelConfig.getBasic().getRunMode()) {
             case DIST:
             case MAPRED:
-                runPigScore(config);
+                runPigScore(new ScoreGroup(modelConfig, Arrays.asList(config)));
                 break;
             case LOCAL:
                 runAkkaScore(config);
@@ -242,13 +274,16 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
     }
 
     /**
-     * run pig mode scoring
+     * run pig mode scoring, eval sets of score group are scored by one pig job
      * 
-     * @param config
+     * @param scoreGroup
+     *            - eval sets scored together, score output is written to path of the first eval set
+     * @return counters of pig job by eval set name
      * @throws IOException
      */
     @SuppressWarnings("deprecation")
-    private void runPigScore(EvalConfig evalConfig) throws IOException {
+    private Map<String, EvalCounters> runPigScore(ScoreGroup scoreGroup) throws IOException {
+        EvalConfig evalConfig = scoreGroup.getScoreEvalConfig();
         // clean up output directories
         SourceType sourceType = evalConfig.getDataSet().getSource();
 
@@ -264,7 +299,7 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
         paramsMap.put("pathEvalNormalized", pathFinder.getEvalNormalizedPath(evalConfig));
         paramsMap.put("pathEvalScore", pathFinder.getEvalScorePath(evalConfig));
         paramsMap.put("pathEvalPerformance", pathFinder.getEvalPerformancePath(evalConfig));
-        paramsMap.put("eval_set_name", evalConfig.getName());
+        paramsMap.put("eval_set_name", scoreGroup.getNames());
         paramsMap.put("delimiter", evalConfig.getDataSet().getDataDelimiter());
         paramsMap.put("columnIndex", evalConfig.getPerformanceScoreSelector().trim());
 
@@ -281,30 +316,44 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
             throw new RuntimeException(e);
         }
 
+        // PigStats is thread local, counters are of the pig job submitted in current thread
+        Map<String, EvalCounters> countersMap = new HashMap<String, EvalCounters>();
+        for(EvalConfig config: scoreGroup.getEvalConfigs()) {
+            countersMap.put(config.getName(), new EvalCounters());
+        }
         Iterator<JobStats> iter = PigStats.get().getJobGraph().iterator();
 
         while(iter.hasNext()) {
             JobStats jobStats = iter.next();
-            this.evalRecords = jobStats.getHadoopCounters().getGroup(Constants.SHIFU_GROUP_COUNTER)
-                    .getCounter(Constants.COUNTER_RECORDS);
-            log.info("evalRecords:" + evalRecords);
+            boolean hasRecords = false;
+            for(EvalConfig config: scoreGroup.getEvalConfigs()) {
+                EvalCounters counters = countersMap.get(config.getName());
+                counters.records = jobStats.getHadoopCounters().getGroup(Constants.SHIFU_GROUP_COUNTER)
+                        .getCounter(scoreGroup.getCounterName(Constants.COUNTER_RECORDS, config));
+                log.info("evalRecords of {}: {}", config.getName(), counters.records);
+                hasRecords |= counters.records > 0L;
+            }
             // If no basic record counter, check next one
-            if(this.evalRecords == 0L) {
+            if(!hasRecords) {
                 continue;
             }
-            this.pigPosTags = jobStats.getHadoopCounters().getGroup(Constants.SHIFU_GROUP_COUNTER)
-                    .getCounter(Constants.COUNTER_POSTAGS);
-            this.pigNegTags = jobStats.getHadoopCounters().getGroup(Constants.SHIFU_GROUP_COUNTER)
-                    .getCounter(Constants.COUNTER_NEGTAGS);
-            this.pigPosWeightTags = jobStats.getHadoopCounters().getGroup(Constants.SHIFU_GROUP_COUNTER)
-                    .getCounter(Constants.COUNTER_WPOSTAGS)
-                    / (Constants.EVAL_COUNTER_WEIGHT_SCALE * 1.0d);
-            this.pigNegWeightTags = jobStats.getHadoopCounters().getGroup(Constants.SHIFU_GROUP_COUNTER)
-                    .getCounter(Constants.COUNTER_WNEGTAGS)
-                    / (Constants.EVAL_COUNTER_WEIGHT_SCALE * 1.0d);
+            for(EvalConfig config: scoreGroup.getEvalConfigs()) {
+                EvalCounters counters = countersMap.get(config.getName());
+                counters.posTags = jobStats.getHadoopCounters().getGroup(Constants.SHIFU_GROUP_COUNTER)
+                        .getCounter(scoreGroup.getCounterName(Constants.COUNTER_POSTAGS, config));
+                counters.negTags = jobStats.getHadoopCounters().getGroup(Constants.SHIFU_GROUP_COUNTER)
+                        .getCounter(scoreGroup.getCounterName(Constants.COUNTER_NEGTAGS, config));
+                counters.posWeightTags = jobStats.getHadoopCounters().getGroup(Constants.SHIFU_GROUP_COUNTER)
+                        .getCounter(scoreGroup.getCounterName(Constants.COUNTER_WPOSTAGS, config))
+                        / (Constants.EVAL_COUNTER_WEIGHT_SCALE * 1.0d);
+                counters.negWeightTags = jobStats.getHadoopCounters().getGroup(Constants.SHIFU_GROUP_COUNTER)
+                        .getCounter(scoreGroup.getCounterName(Constants.COUNTER_WNEGTAGS, config))
+                        / (Constants.EVAL_COUNTER_WEIGHT_SCALE * 1.0d);
+            }
             // only one pig job with such counters, break
             break;
         }
+        return countersMap;
     }
 
     /**
@@ -315,15 +364,15 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
      */
     private void runAkkaScore(EvalConfig config) throws IOException {
         SourceType sourceType = config.getDataSet().getSource();
-        List<Scanner> scanners = ShifuFileUtils.getDataScanners(
+        List<DataLineReader> readers = ShifuFileUtils.getDataLineReaders(
                 ShifuFileUtils.expandPath(config.getDataSet().getDataPath(), sourceType), sourceType);
 
         AkkaSystemExecutor.getExecutor().submitModelEvalJob(modelConfig,
-                ShifuFileUtils.searchColumnConfig(config, this.columnConfigList), config, scanners);
+                ShifuFileUtils.searchColumnConfig(config, this.columnConfigList), config, readers);
 
         // TODO A bug here in local mode
         // this.evalRecords = ...;
-        closeScanners(scanners);
+        closeReaders(readers);
     }
 
     /**
@@ -362,70 +411,144 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
      * <p>
      * this function will switch to pig or akka evaluation depends on the modelConfig running mode
      * </p>
+     * <p>
+     * In pig mode, if {@link #SHIFU_EVAL_PARALLEL} is enabled, eval sets are run concurrently with at most
+     * {@link #SHIFU_EVAL_PARALLEL_NUM} jobs. ModelConfig and ColumnConfig list of this processor are shared by all
+     * eval sets.
+     * </p>
      * 
      * @throws IOException
      *             any exception in running pig evaluation or akka evaluation
      */
     private void runEval(List<EvalConfig> evalSetList) throws IOException {
+        // directories and data sync are not thread safe, prepare all eval sets before running any of them
+        prepareEval(evalSetList);
+
+        // in pig mode eval sets with the same raw data, models and score selector are scored only once, local scoring
+        // writes score output of one eval set only
+        List<List<EvalConfig>> scoreGroups = groupByScoring(evalSetList,
+                modelConfig.getBasic().getRunMode() != RunMode.LOCAL);
+
+        boolean isParallel = Boolean.valueOf(
+                Environment.getProperty(SHIFU_EVAL_PARALLEL, SHIFU_DEFAULT_EVAL_PARALLEL)).booleanValue();
+        // akka system is shared in local mode, only pig mode eval sets can be run concurrently
+        if(!isParallel || scoreGroups.size() <= 1 || modelConfig.getBasic().getRunMode() == RunMode.LOCAL) {
+            for(List<EvalConfig> scoreGroup: scoreGroups) {
+                runScoreGroup(scoreGroup);
+            }
+            return;
+        }
+
+        int parallelNum = Math.min(scoreGroups.size(), Math.max(1, Integer.parseInt(Environment.getProperty(
+                SHIFU_EVAL_PARALLEL_NUM, SHIFU_DEFAULT_EVAL_PARALLEL_NUM).trim())));
+        log.info("Run {} score jobs of {} eval sets with parallel number {}.", scoreGroups.size(),
+                evalSetList.size(), parallelNum);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelNum);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(scoreGroups.size());
+        List<String> taskNames = new ArrayList<String>(scoreGroups.size());
+        try {
+            for(final List<EvalConfig> scoreGroup: scoreGroups) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        runScoreGroup(scoreGroup);
+                        return null;
+                    }
+                }));
+                taskNames.add("eval set " + scoreGroup.get(0).getName());
+            }
+
+            // wait for all eval sets, the first failure is thrown after all jobs are finished
+            CommonUtils.waitForAll(futures, taskNames);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Group eval sets which can be scored by one scoring job, the order of eval sets is kept. Eval sets in one group
+     * read the same raw data path with the same delimiter and header, and use the same models. Score selector is
+     * compared as score output is sorted by it, and eval sets with custom score path are scored into their own
+     * path. Filter, target, weight and meta columns can be different, see {@link ScoreGroup}.
+     * 
+     * @param evalSetList
+     *            - eval sets to run
+     * @param isShared
+     *            - if false, each eval set is in its own group
+     * @return groups of eval sets
+     */
+    static List<List<EvalConfig>> groupByScoring(List<EvalConfig> evalSetList, boolean isShared) {
+        Map<String, List<EvalConfig>> groups = new LinkedHashMap<String, List<EvalConfig>>();
         for(EvalConfig evalConfig: evalSetList) {
-            runEval(evalConfig);
+            String key = evalConfig.getName();
+            if(isShared) {
+                RawSourceData dataSet = evalConfig.getDataSet();
+                key = dataSet.getSource() + "|" + dataSet.getDataPath() + "|" + dataSet.getDataDelimiter() + "|"
+                        + dataSet.getHeaderPath() + "|" + dataSet.getHeaderDelimiter() + "|"
+                        + evalConfig.getModelsPath() + "|" + evalConfig.getPerformanceScoreSelector() + "|"
+                        + evalConfig.getScorePath();
+            }
+            List<EvalConfig> group = groups.get(key);
+            if(group == null) {
+                group = new ArrayList<EvalConfig>();
+                groups.put(key, group);
+            }
+            group.add(evalConfig);
+        }
+        return new ArrayList<List<EvalConfig>>(groups.values());
+    }
+
+    /**
+     * Create eval set home directories in local file system and sync data to hdfs.
+     */
+    private void prepareEval(List<EvalConfig> evalSetList) throws IOException {
+        PathFinder pathFinder = new PathFinder(modelConfig);
+        for(EvalConfig evalConfig: evalSetList) {
+            // create evalset home directory firstly in local file system
+            String evalSetPath = pathFinder.getEvalSetPath(evalConfig, SourceType.LOCAL);
+            FileUtils.forceMkdir(new File(evalSetPath));
+            syncDataToHdfs(evalConfig.getDataSet().getSource());
         }
     }
 
     /**
-     * Run evaluation by @EvalConfig
+     * Run evaluation of eval sets with the same scoring output. The first eval set is scored and confusion matrix and
+     * performance of all eval sets are computed from its score output.
      * 
-     * @param evalConfig
+     * @param scoreGroup
+     *            - eval sets grouped by {@link #groupByScoring(List, boolean)}
      * @throws IOException
+     *             any exception in scoring or computing performance
      */
-    private void runEval(EvalConfig evalConfig) throws IOException {
-        // create evalset home directory firstly in local file system
-        PathFinder pathFinder = new PathFinder(modelConfig);
-        String evalSetPath = pathFinder.getEvalSetPath(evalConfig, SourceType.LOCAL);
-        FileUtils.forceMkdir(new File(evalSetPath));
-        syncDataToHdfs(evalConfig.getDataSet().getSource());
+    private void runScoreGroup(List<EvalConfig> scoreGroup) throws IOException {
+        EvalConfig scoreEvalConfig = scoreGroup.get(0);
+        for(int i = 1; i < scoreGroup.size(); i++) {
+            log.info("Eval set {} reuses score output of eval set {}.", scoreGroup.get(i).getName(),
+                    scoreEvalConfig.getName());
+        }
 
         switch(modelConfig.getBasic().getRunMode()) {
             case DIST:
             case MAPRED:
-                runPigEval(evalConfig);
+                Map<String, EvalCounters> countersMap = runPigScore(new ScoreGroup(modelConfig, scoreGroup));
+                for(EvalConfig evalConfig: scoreGroup) {
+                    // TODO code refacter because of several magic numbers and not good name functions ...
+                    runConfusionMatrix(evalConfig, scoreEvalConfig, countersMap.get(evalConfig.getName()));
+                }
                 break;
             case LOCAL:
-                runAkkaEval(evalConfig);
+                runAkkaScore(scoreEvalConfig);
+                for(EvalConfig evalConfig: scoreGroup) {
+                    // performance is written while computing confusion matrix
+                    runConfusionMatrix(evalConfig, scoreEvalConfig, new EvalCounters());
+                }
                 break;
             default:
                 break;
         }
     }
 
-    /**
-     * Use pig to run model evaluation
-     * 
-     * @param evalConfig
-     *            the evaluation instance
-     * @throws IOException
-     *             any exception in delete the old tmp files
-     */
-    private void runPigEval(EvalConfig evalConfig) throws IOException {
-        runPigScore(evalConfig);
-        // TODO code refacter because of several magic numbers and not good name functions ...
-        runConfusionMatrix(evalConfig);
-    }
-
-    /**
-     * Use akka to run model evaluation
-     * 
-     * @param evalConfig
-     *            the evaluation instance
-     * @throws IOException
-     *             the error while create data scanner for input data
-     */
-    private void runAkkaEval(EvalConfig evalConfig) throws IOException {
-        runAkkaScore(evalConfig);
-        runConfusionMatrix(evalConfig);
-        runPerformance(evalConfig);
-    }
-
     /**
      * Running the performance matrices
      * 
@@ -453,7 +576,8 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
         switch(modelConfig.getBasic().getRunMode()) {
             case DIST:
             case MAPRED:
-                perfEval.review(this.evalRecords);
+                // records count is unknown without scoring in this step
+                perfEval.review(0L);
                 break;
             case LOCAL:
             default:
@@ -471,27 +595,32 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
      */
     private void runConfusionMatrix(List<EvalConfig> evalSetList) throws IOException {
         for(EvalConfig config: evalSetList) {
-            runConfusionMatrix(config);
+            runConfusionMatrix(config, config, new EvalCounters());
         }
     }
 
     /**
      * Run confusion matrix
      * 
-     * @param EvalConfig
-     * @return List of ConfusionMatrixObject
+     * @param config
+     *            - eval set to compute confusion matrix and performance
+     * @param scoreConfig
+     *            - eval set whose score output is used, it is the same as config if config is scored itself
+     * @param counters
+     *            - counters of pig scoring job
      * @throws IOException
      */
-    private void runConfusionMatrix(EvalConfig config) throws IOException {
-        ConfusionMatrix worker = new ConfusionMatrix(modelConfig, config);
+    private void runConfusionMatrix(EvalConfig config, EvalConfig scoreConfig, EvalCounters counters)
+            throws IOException {
+        ConfusionMatrix worker = new ConfusionMatrix(modelConfig, config, scoreConfig);
         switch(modelConfig.getBasic().getRunMode()) {
             case DIST:
             case MAPRED:
                 if(modelConfig.isBinaryClassification()) {
-                    worker.bufferedComputeConfusionMatrixAndPerformance(this.pigPosTags, this.pigNegTags,
-                            this.pigPosWeightTags, this.pigNegWeightTags, this.evalRecords);
+                    worker.bufferedComputeConfusionMatrixAndPerformance(counters.posTags, counters.negTags,
+                            counters.posWeightTags, counters.negWeightTags, counters.records);
                 } else {
-                    worker.computeConfusionMatixForMultipleClassification(this.evalRecords);
+                    worker.computeConfusionMatixForMultipleClassification(counters.records);
                 }
                 break;
             default:
@@ -30,6 +30,7 @@ import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.autotype.AutoTypeDistinctCountMapper;
 import ml.shifu.shifu.core.autotype.AutoTypeDistinctCountReducer;
 import ml.shifu.shifu.core.autotype.CountAndFrequentItemsWritable;
+import ml.shifu.shifu.core.binning.AutoTypeBinning;
 import ml.shifu.shifu.core.dtrain.nn.NNConstants;
 import ml.shifu.shifu.core.mr.input.CombineInputFormat;
 import ml.shifu.shifu.core.validator.ModelInspector.ModelStep;
@@ -102,6 +103,8 @@ public class InitModelProcessor extends BasicModelProcessor implements Processor
             Map<Integer, Data> distinctCountMap = null;
             if(autoTypeEnableCondition()) {
                 distinctCountMap = getApproxDistinctCountByMRJob();
+            } else if(modelConfig.isAutoTypeInStats()) {
+                log.info("Auto type checking is done in stats step together with binning.");
             }
 
             if(autoTypeEnableCondition() && distinctCountMap != null) {
@@ -132,7 +135,8 @@ public class InitModelProcessor extends BasicModelProcessor implements Processor
      * @return
      */
     private boolean autoTypeEnableCondition() {
-        return modelConfig.isMapReduceRunMode() && modelConfig.getDataSet().getAutoType();
+        return modelConfig.isMapReduceRunMode() && modelConfig.getDataSet().getAutoType()
+                && !modelConfig.isAutoTypeInStats();
     }
 
     private int setCategoricalColumnsAndDistinctAccount(Map<Integer, Data> distinctCountMap, boolean cateOn,
@@ -144,20 +148,16 @@ public class InitModelProcessor extends BasicModelProcessor implements Processor
                 if(cateOn) {
                     if(distinctCount < modelConfig.getDataSet().getAutoTypeThreshold().longValue()) {
                         String[] items = distinctCountMap.get(columnConfig.getColumnNum()).items;
-                        if(is01Variable(distinctCount, items)) {
+                        // the same rules as auto type checking in stats step
+                        ColumnType columnType = AutoTypeBinning.resolveType(columnConfig.getColumnType(),
+                                distinctCount, items, modelConfig.getDataSet().getAutoTypeThreshold());
+                        columnConfig.setColumnType(columnType);
+                        if(columnType == ColumnType.N) {
                             log.info(
-                                    "Column {} with index {} is set to numeric type because of 0-1 variable. Distinct count {}, items {}.",
+                                    "Column {} with index {} is set to numeric type because of 0-1 variable or all sampled items are double(including blank). Distinct count {}, items {}.",
                                     columnConfig.getColumnName(), columnConfig.getColumnNum(), distinctCount,
                                     Arrays.toString(items));
-                            columnConfig.setColumnType(ColumnType.N);
-                        } else if(isDoubleFrequentVariable(distinctCount, items)) {
-                            log.info(
-                                    "Column {} with index {} is set to numeric type because of all sampled items are double(including blank). Distinct count {}, items {}.",
-                                    columnConfig.getColumnName(), columnConfig.getColumnNum(), distinctCount,
-                                    Arrays.toString(items));
-                            columnConfig.setColumnType(ColumnType.N);
                         } else {
-                            columnConfig.setColumnType(ColumnType.C);
                             cateCount += 1;
                             log.info(
                                     "Column {} with index {} is set to categorical type according to auto type checking: distinct count {}, threshold {}.",
@@ -174,62 +174,6 @@ public class InitModelProcessor extends BasicModelProcessor implements Processor
         return cateCount;
     }
 
-    private boolean is01Variable(long distinctCount, String[] items) {
-        if(distinctCount != 2) {
-            return false;
-        }
-        if(items.length > 2) {
-            return false;
-        }
-        for(String string: items) {
-            try {
-                Double d = Double.valueOf(string);
-                if(d.compareTo(Double.valueOf(0d)) == 0 || d.compareTo(Double.valueOf(1d)) == 0) {
-                    continue;
-                } else {
-                    return false;
-                }
-            } catch (NumberFormatException e) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private boolean isDoubleFrequentVariable(long distinctCount, String[] items) {
-        int doubleNotInfSize = 0;
-        boolean isExistNotEmptyAndNotNumberItem = false;
-        for(String string: items) {
-            boolean isDouble = false;
-            boolean isInt = false;
-            try {
-                Double.parseDouble(string);
-                isDouble = true;
-            } catch (NumberFormatException e) {
-                isDouble = false;
-                if(StringUtils.isNotBlank(string)) {
-                    isExistNotEmptyAndNotNumberItem = true;
-                }
-            }
-            try {
-                Integer.parseInt(string);
-                isInt = true;
-            } catch (NumberFormatException e) {
-                isInt = false;
-            }
-            if(isDouble && !isInt) {
-                doubleNotInfSize += 1;
-            }
-        }
-
-        if(doubleNotInfSize == items.length
-                || (doubleNotInfSize == items.length - 1 && !isExistNotEmptyAndNotNumberItem)) {
-            return true;
-        }
-
-        return false;
-    }
-
     // GuaguaOptionsParser doesn't to support *.jar currently.
     private String addRuntimeJars() {
         List<String> jars = new ArrayList<String>(16);
@@ -298,6 +242,9 @@ public class InitModelProcessor extends BasicModelProcessor implements Processor
         }
 
         conf.setBoolean(CombineInputFormat.SHIFU_VS_SPLIT_COMBINABLE, true);
+        conf.setBoolean(CombineInputFormat.SHIFU_VS_SPLIT_BALANCE_BY_RECORDS, Boolean.TRUE.toString()
+                .equalsIgnoreCase(Environment.getProperty(CombineInputFormat.SHIFU_VS_SPLIT_BALANCE_BY_RECORDS,
+                        Boolean.FALSE.toString())));
 
         @SuppressWarnings("deprecation")
         Job job = new Job(conf, "Shifu: Column Type Auto Checking Job : " + this.modelConfig.getModelSetName());
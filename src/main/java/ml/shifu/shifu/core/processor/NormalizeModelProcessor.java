@@ -20,6 +20,7 @@ import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.validator.ModelInspector.ModelStep;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.pig.PigExecutor;
 import ml.shifu.shifu.util.CommonUtils;
@@ -30,7 +31,6 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
 /**
  * Normalize processor, scaling data
@@ -81,24 +81,24 @@ public class NormalizeModelProcessor extends BasicModelProcessor implements Proc
         ShifuFileUtils.deleteFile(pathFinder.getNormalizedDataPath(), sourceType);
         ShifuFileUtils.deleteFile(pathFinder.getSelectedRawDataPath(), sourceType);
 
-        List<Scanner> scanners = null;
+        List<DataLineReader> readers = null;
         try {
-            scanners = ShifuFileUtils.getDataScanners(
+            readers = ShifuFileUtils.getDataLineReaders(
                     ShifuFileUtils.expandPath(modelConfig.getDataSetRawPath(), sourceType), sourceType);
         } catch (IOException e) {
             throw new ShifuException(ShifuErrorCode.ERROR_INPUT_NOT_FOUND, e, ", could not get input files "
                     + modelConfig.getDataSetRawPath());
         }
 
-        if(scanners == null || scanners.size() == 0) {
+        if(readers == null || readers.size() == 0) {
             throw new ShifuException(ShifuErrorCode.ERROR_INPUT_NOT_FOUND, ", please check the data in "
                     + modelConfig.getDataSetRawPath() + " in " + sourceType);
         }
 
-        AkkaSystemExecutor.getExecutor().submitNormalizeJob(modelConfig, columnConfigList, scanners);
+        AkkaSystemExecutor.getExecutor().submitNormalizeJob(modelConfig, columnConfigList, readers);
 
         // release
-        closeScanners(scanners);
+        closeReaders(readers);
     }
 
     /**
@@ -21,6 +21,7 @@ import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.validator.ModelInspector.ModelStep;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.pig.PigExecutor;
 import ml.shifu.shifu.util.CommonUtils;
@@ -114,13 +115,13 @@ public class PostTrainModelProcessor extends BasicModelProcessor implements Proc
     private void runAkkaPostTrain() throws IOException {
         SourceType sourceType = modelConfig.getDataSet().getSource();
 
-        List<Scanner> scanners = ShifuFileUtils.getDataScanners(pathFinder.getSelectedRawDataPath(sourceType),
-                sourceType);
+        List<DataLineReader> readers = ShifuFileUtils.getDataLineReaders(
+                pathFinder.getSelectedRawDataPath(sourceType), sourceType);
 
-        log.info("Num of Scanners: " + scanners.size());
-        AkkaSystemExecutor.getExecutor().submitPostTrainJob(modelConfig, columnConfigList, scanners);
+        log.info("Num of Readers: " + readers.size());
+        AkkaSystemExecutor.getExecutor().submitPostTrainJob(modelConfig, columnConfigList, readers);
 
-        closeScanners(scanners);
+        closeReaders(readers);
     }
 
     /**
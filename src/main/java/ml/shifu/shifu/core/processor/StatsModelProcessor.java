@@ -15,6 +15,7 @@
  */
 package ml.shifu.shifu.core.processor;
 
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
 import com.google.common.base.Splitter;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -70,6 +71,7 @@ import ml.shifu.shifu.core.mr.input.CombineInputFormat;
 import ml.shifu.shifu.core.validator.ModelInspector.ModelStep;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.pig.PigExecutor;
 import ml.shifu.shifu.udf.CalculateStatsUDF;
@@ -122,28 +124,28 @@ public class StatsModelProcessor extends BasicModelProcessor implements Processo
      * run akka stats
      */
     private void runAkkaStats() {
-        List<Scanner> scanners = null;
+        List<DataLineReader> readers = null;
 
         try {
             SourceType sourceType = modelConfig.getDataSet().getSource();
             // the bug is caused when merging code? please take care
-            scanners = ShifuFileUtils.getDataScanners(
+            readers = ShifuFileUtils.getDataLineReaders(
                     ShifuFileUtils.expandPath(modelConfig.getDataSetRawPath(), sourceType), sourceType);
         } catch (IOException e) {
             throw new ShifuException(ShifuErrorCode.ERROR_INPUT_NOT_FOUND, e);
         }
 
-        if(CollectionUtils.isEmpty(scanners)) {
+        if(CollectionUtils.isEmpty(readers)) {
             throw new ShifuException(ShifuErrorCode.ERROR_INPUT_NOT_FOUND,
                     ", please check your data and start from init");
         }
 
-        log.info("Num of Scanners: " + scanners.size());
+        log.info("Num of Readers: " + readers.size());
 
-        AkkaSystemExecutor.getExecutor().submitStatsCalJob(modelConfig, columnConfigList, scanners);
+        AkkaSystemExecutor.getExecutor().submitStatsCalJob(modelConfig, columnConfigList, readers);
 
         // release
-        closeScanners(scanners);
+        closeReaders(readers);
     }
 
     /**
@@ -181,8 +183,15 @@ public class StatsModelProcessor extends BasicModelProcessor implements Processo
                 ShifuFileUtils.deleteFile(pathFinder.getUpdatedBinningInfoPath(modelConfig.getDataSet().getSource()),
                         modelConfig.getDataSet().getSource());
 
+                // stream-lib jar for HyperLogLogPlus used in auto type checking
+                paramsMap.put("path_stream_jar", JarManager.findContainingJar(HyperLogLogPlus.class));
+
                 PigExecutor.getExecutor().submitJob(modelConfig, pathFinder.getAbsolutePath("scripts/StatsSpdtI.pig"),
                         paramsMap);
+                if(modelConfig.isAutoTypeInStats()) {
+                    log.info("Updating column type with auto type checking result ...");
+                    updateColumnTypeWithBinningInfo();
+                }
                 // update
                 log.info("Updating binning info ...");
                 updateBinningInfoWithMRJob();
@@ -251,6 +260,9 @@ public class StatsModelProcessor extends BasicModelProcessor implements Processo
         new GenericOptionsParser(conf, new String[] { "-libjars", addRuntimeJars(), "-files", filePath });
 
         conf.setBoolean(CombineInputFormat.SHIFU_VS_SPLIT_COMBINABLE, true);
+        conf.setBoolean(CombineInputFormat.SHIFU_VS_SPLIT_BALANCE_BY_RECORDS, Boolean.TRUE.toString()
+                .equalsIgnoreCase(Environment.getProperty(CombineInputFormat.SHIFU_VS_SPLIT_BALANCE_BY_RECORDS,
+                        Boolean.FALSE.toString())));
 
         conf.set(Constants.SHIFU_STATS_EXLCUDE_MISSING,
                 Environment.getProperty(Constants.SHIFU_STATS_EXLCUDE_MISSING, "true"));
@@ -282,6 +294,46 @@ public class StatsModelProcessor extends BasicModelProcessor implements Processo
         }
     }
 
+    /**
+     * Update column type and distinct count by auto type checking result in binning info, ColumnConfig is saved and
+     * synced to make sure binning info updating job reads the resolved column type.
+     */
+    private void updateColumnTypeWithBinningInfo() throws IOException {
+        SourceType source = this.modelConfig.getDataSet().getSource();
+        int cateCount = 0;
+        List<DataLineReader> readers = null;
+        try {
+            readers = ShifuFileUtils.getDataLineReaders(pathFinder.getUpdatedBinningInfoPath(source), source);
+            for(DataLineReader reader: readers) {
+                while(reader.hasNextLine()) {
+                    // columnId|bins|columnType|distinctCount
+                    String[] cols = reader.nextLine().trim().split(Constants.DEFAULT_ESCAPE_DELIMITER);
+                    if(cols.length < 4) {
+                        continue;
+                    }
+                    ColumnConfig config = this.columnConfigList.get(Integer.parseInt(cols[0]));
+                    ColumnType columnType = ColumnType.valueOf(cols[2]);
+                    if(columnType != config.getColumnType()) {
+                        log.info("Column {} with index {} is set to {} type according to auto type checking.",
+                                config.getColumnName(), config.getColumnNum(), columnType);
+                    }
+                    config.setColumnType(columnType);
+                    if(columnType == ColumnType.C) {
+                        cateCount += 1;
+                    }
+                    config.getColumnStats().setDistinctCount(parseLong(cols[3]));
+                }
+            }
+        } finally {
+            // release
+            closeReaders(readers);
+        }
+        log.info("Automatically check {} variables to categorical type.", cateCount);
+
+        saveColumnConfigListAndColumnStats(false);
+        syncDataToHdfs(source);
+    }
+
     private void updateBinningInfoWithMRJob() throws IOException, InterruptedException, ClassNotFoundException {
         SourceType source = this.modelConfig.getDataSet().getSource();
         Configuration conf = new Configuration();
@@ -477,7 +529,6 @@ public class StatsModelProcessor extends BasicModelProcessor implements Processo
             Map<String, String> paramsMap = new HashMap<String, String>();
             paramsMap.put("delimiter", CommonUtils.escapePigString(modelConfig.getDataSetDelimiter()));
             paramsMap.put("PSIColumn", modelConfig.getPSIColumnName().trim());
-            paramsMap.put("value_index", "2");
 
             PigExecutor.getExecutor().submitJob(modelConfig, pathFinder.getAbsolutePath("scripts/PSI.pig"),
                     paramsMap);
@@ -25,7 +25,6 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
 import ml.shifu.guagua.GuaguaConstants;
 import ml.shifu.guagua.mapreduce.GuaguaMapReduceClient;
@@ -40,6 +39,7 @@ import ml.shifu.shifu.core.alg.NNTrainer;
 import ml.shifu.shifu.core.alg.SVMTrainer;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.WorkerSizingPlanner;
 import ml.shifu.shifu.core.dtrain.lr.LogisticRegressionContants;
 import ml.shifu.shifu.core.dtrain.lr.LogisticRegressionMaster;
 import ml.shifu.shifu.core.dtrain.lr.LogisticRegressionOutput;
@@ -51,11 +51,16 @@ import ml.shifu.shifu.core.dtrain.nn.NNOutput;
 import ml.shifu.shifu.core.dtrain.nn.NNParams;
 import ml.shifu.shifu.core.dtrain.nn.NNParquetWorker;
 import ml.shifu.shifu.core.dtrain.nn.NNWorker;
+import ml.shifu.shifu.core.dtrain.svm.LinearSVMConstants;
+import ml.shifu.shifu.core.dtrain.svm.LinearSVMWorker;
+import ml.shifu.shifu.core.mr.input.CombineInputFormat;
 import ml.shifu.shifu.core.validator.ModelInspector.ModelStep;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.guagua.GuaguaParquetMapReduceClient;
+import ml.shifu.shifu.guagua.RecordBalancedGuaguaMapReduceClient;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
 import ml.shifu.shifu.util.Environment;
@@ -119,6 +124,20 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
 
     private static final String LOGS = "./logs";
 
+    private static final String CHECKPOINTS_FOLDER = "checkpoints";
+
+    private static final String CHECKPOINT_SUFFIX = ".ckpt";
+
+    /**
+     * Default heap size of guagua workers if auto sizing is disabled.
+     */
+    private static final long DEFAULT_WORKER_HEAP_MB = 1638L;
+
+    /**
+     * Records read from normalized data to estimate total record count.
+     */
+    private static final int SIZING_SAMPLE_RECORDS = 10000;
+
     /**
      * If for variable selection, only using bagging number 1 to train only one model.
      */
@@ -220,34 +239,34 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
             trainers.add(trainer);
         }
 
-        List<Scanner> scanners = null;
+        List<DataLineReader> readers = null;
         if(modelConfig.getAlgorithm().equalsIgnoreCase("DT")) {
             LOG.info("Raw Data: " + pathFinder.getNormalizedDataPath());
             try {
-                scanners = ShifuFileUtils.getDataScanners(modelConfig.getDataSetRawPath(), modelConfig.getDataSet()
-                        .getSource());
+                readers = ShifuFileUtils.getDataLineReaders(modelConfig.getDataSetRawPath(), modelConfig
+                        .getDataSet().getSource());
             } catch (IOException e) {
                 throw new ShifuException(ShifuErrorCode.ERROR_INPUT_NOT_FOUND, e, pathFinder.getNormalizedDataPath());
             }
-            if(CollectionUtils.isNotEmpty(scanners)) {
-                AkkaSystemExecutor.getExecutor().submitDecisionTreeTrainJob(modelConfig, columnConfigList, scanners,
+            if(CollectionUtils.isNotEmpty(readers)) {
+                AkkaSystemExecutor.getExecutor().submitDecisionTreeTrainJob(modelConfig, columnConfigList, readers,
                         trainers);
             }
         } else {
             LOG.info("Normalized Data: " + pathFinder.getNormalizedDataPath());
             try {
-                scanners = ShifuFileUtils.getDataScanners(pathFinder.getNormalizedDataPath(), modelConfig.getDataSet()
-                        .getSource());
+                readers = ShifuFileUtils.getDataLineReaders(pathFinder.getNormalizedDataPath(), modelConfig
+                        .getDataSet().getSource());
             } catch (IOException e) {
                 throw new ShifuException(ShifuErrorCode.ERROR_INPUT_NOT_FOUND, e, pathFinder.getNormalizedDataPath());
             }
-            if(CollectionUtils.isNotEmpty(scanners)) {
-                AkkaSystemExecutor.getExecutor().submitModelTrainJob(modelConfig, columnConfigList, scanners, trainers);
+            if(CollectionUtils.isNotEmpty(readers)) {
+                AkkaSystemExecutor.getExecutor().submitModelTrainJob(modelConfig, columnConfigList, readers, trainers);
             }
         }
 
         // release
-        closeScanners(scanners);
+        closeReaders(readers);
     }
 
     /**
@@ -274,9 +293,22 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
 
     private void validateDistributedTrain() throws IOException {
         String alg = super.getModelConfig().getTrain().getAlgorithm();
-        if(!(NNConstants.NN_ALG_NAME.equalsIgnoreCase(alg) || LogisticRegressionContants.LR_ALG_NAME
+        if(!(NNConstants.NN_ALG_NAME.equalsIgnoreCase(alg)
+                || LogisticRegressionContants.LR_ALG_NAME.equalsIgnoreCase(alg) || LinearSVMConstants.SVM_ALG_NAME
                 .equalsIgnoreCase(alg))) {
-            throw new IllegalArgumentException("Currently we only support NN and LR distributed training.");
+            throw new IllegalArgumentException("Currently we only support NN, LR and SVM distributed training.");
+        }
+
+        if(LinearSVMConstants.SVM_ALG_NAME.equalsIgnoreCase(alg)) {
+            Object kernel = super.getModelConfig().getParams().get(SVMTrainer.SVM_KERNEL);
+            if(kernel != null && !LinearSVMConstants.LINEAR_KERNEL.equalsIgnoreCase(kernel.toString())) {
+                throw new IllegalArgumentException(
+                        "Currently we only support linear kernel in SVM distributed training.");
+            }
+            if(!super.getModelConfig().isBinaryClassification()) {
+                throw new IllegalArgumentException("Currently we only support binary classification in SVM distributed "
+                        + "training.");
+            }
         }
 
         if(super.getModelConfig().getDataSet().getSource() != SourceType.HDFS) {
@@ -365,6 +397,8 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
                     serializeRequiredFieldList(requiredFieldList)));
             args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, "parquet.private.pig.column.index.access",
                     "true"));
+        } else if(isBalanceByRecords()) {
+            guaguaClient = new RecordBalancedGuaguaMapReduceClient();
         } else {
             guaguaClient = new GuaguaMapReduceClient();
         }
@@ -381,8 +415,17 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
             Path modelPath = fileSystem.makeQualified(new Path(super.getPathFinder().getModelsPath(sourceType),
                     modelName));
 
+            Path checkpointPath = fileSystem.makeQualified(new Path(super.getPathFinder().getPathBySourceType(
+                    new Path(Constants.TMP, CHECKPOINTS_FOLDER), sourceType), modelName + CHECKPOINT_SUFFIX));
+
             // check if job is continunous trainining, this can be set multiple times and we only get last one
-            boolean isContinous = checkContinuousTraining(fileSystem, localArgs, modelPath);
+            boolean isContinous = checkContinuousTraining(fileSystem, localArgs, modelPath, checkpointPath);
+            if(!isContinous && fileSystem.exists(checkpointPath)) {
+                // stale checkpoint should not be resumed in later continuous training
+                fileSystem.delete(checkpointPath, false);
+            }
+            localArgs.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT,
+                    CommonConstants.SHIFU_DTRAIN_CHECKPOINT_FILE, checkpointPath.toString()));
             if(!isContinous && !isOneJobNotContinuous) {
                 isOneJobNotContinuous = true;
                 // delete all old models if not continous
@@ -446,14 +489,18 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
         }
     }
 
-    private boolean checkContinuousTraining(FileSystem fileSystem, List<String> localArgs, Path modelPath)
-            throws IOException {
+    private boolean checkContinuousTraining(FileSystem fileSystem, List<String> localArgs, Path modelPath,
+            Path checkpointPath) throws IOException {
         boolean finalContinuous = false;
         if(Boolean.TRUE.toString().equals(this.modelConfig.getTrain().getIsContinuous().toString())) {
             // if varselect d-training or no such existing models, directly to disable continuous training.
             if(this.isForVarSelect) {
                 finalContinuous = false;
                 LOG.warn("For varSelect step, continous model training is always disabled.");
+            } else if(fileSystem.exists(checkpointPath)) {
+                // checkpoint of one failed job, master will resume from it
+                finalContinuous = true;
+                LOG.info("Checkpoint {} is found, model training will resume from it.", checkpointPath);
             } else if(!fileSystem.exists(modelPath)) {
                 finalContinuous = false;
                 LOG.info("No existing model, model training will start from scratch.");
@@ -524,7 +571,12 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
 
     private void prepareLRParams(final List<String> args, final SourceType sourceType) {
         args.add("-w");
-        args.add(LogisticRegressionWorker.class.getName());
+        // linear SVM shares LR master and output, only gradients computing in worker is different
+        if(LinearSVMConstants.SVM_ALG_NAME.equalsIgnoreCase(super.getModelConfig().getTrain().getAlgorithm())) {
+            args.add(LinearSVMWorker.class.getName());
+        } else {
+            args.add(LogisticRegressionWorker.class.getName());
+        }
 
         args.add("-m");
         args.add(LogisticRegressionMaster.class.getName());
@@ -574,7 +626,8 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
         }
 
         String alg = super.getModelConfig().getTrain().getAlgorithm();
-        if(LogisticRegressionContants.LR_ALG_NAME.equalsIgnoreCase(alg)) {
+        if(LogisticRegressionContants.LR_ALG_NAME.equalsIgnoreCase(alg)
+                || LinearSVMConstants.SVM_ALG_NAME.equalsIgnoreCase(alg)) {
             this.prepareLRParams(args, sourceType);
         } else {
             this.prepareNNParams(args, sourceType);
@@ -609,7 +662,7 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
         // hard code set computation threshold for 50s. Can be changed in shifuconfig file
         args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT,
                 GuaguaConstants.GUAGUA_COMPUTATION_TIME_THRESHOLD, 60 * 1000L));
-        setHeapSizeAndSplitSize(args);
+        setHeapSizeAndSplitSize(args, sourceType);
 
         args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, "mapreduce.map.cpu.vcores", modelConfig
                 .getTrain().getWorkerThreadCount() == null ? 1 : modelConfig.getTrain().getWorkerThreadCount()));
@@ -624,21 +677,31 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
         }
     }
 
-    private void setHeapSizeAndSplitSize(final List<String> args) {
+    private void setHeapSizeAndSplitSize(final List<String> args, final SourceType sourceType) {
+        WorkerSizingPlanner.Plan plan = planWorkerSizing(sourceType);
+        long heapSizeInMB = plan == null ? DEFAULT_WORKER_HEAP_MB : plan.getHeapSizeInMB();
+        String heapOpts = String.format("-Xms%dm -Xmx%dm", Math.min(1024L, heapSizeInMB), heapSizeInMB);
         // can be override by shifuconfig, ok for hard code
         if(this.isDebug()) {
             args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT,
-                    GuaguaMapReduceConstants.MAPRED_CHILD_JAVA_OPTS,
-                    "-Xms1024m -Xmx1638m -verbose:gc -XX:+PrintGCDetails -XX:+PrintGCTimeStamps"));
+                    GuaguaMapReduceConstants.MAPRED_CHILD_JAVA_OPTS, heapOpts
+                            + " -verbose:gc -XX:+PrintGCDetails -XX:+PrintGCTimeStamps"));
         } else {
             args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT,
-                    GuaguaMapReduceConstants.MAPRED_CHILD_JAVA_OPTS,
-                    "-Xms1024m -Xmx1638m -verbose:gc -XX:+PrintGCDetails -XX:+PrintGCTimeStamps"));
-            args.add(String
-                    .format(CommonConstants.MAPREDUCE_PARAM_FORMAT,
-                            "mapreduce.map.java.opts",
-                            "-Xms1024m -Xmx1638m -server -XX:+UseParNewGC -XX:+UseConcMarkSweepGC "
-                                    + "-XX:CMSInitiatingOccupancyFraction=70 -verbose:gc -XX:+PrintGCDetails -XX:+PrintGCTimeStamps"));
+                    GuaguaMapReduceConstants.MAPRED_CHILD_JAVA_OPTS, heapOpts
+                            + " -verbose:gc -XX:+PrintGCDetails -XX:+PrintGCTimeStamps"));
+            args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, "mapreduce.map.java.opts", heapOpts
+                    + " -server -XX:+UseParNewGC -XX:+UseConcMarkSweepGC "
+                    + "-XX:CMSInitiatingOccupancyFraction=70 -verbose:gc -XX:+PrintGCDetails -XX:+PrintGCTimeStamps"));
+        }
+        if(heapSizeInMB > DEFAULT_WORKER_HEAP_MB) {
+            // container should be larger than heap for non-heap memory
+            args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, "mapreduce.map.memory.mb",
+                    heapSizeInMB + Math.max(512L, heapSizeInMB / 5)));
+        }
+        if(plan != null) {
+            args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, CommonConstants.GUAGUA_DATA_MEMORY_FRACTION,
+                    plan.getMemoryFraction()));
         }
         if(super.modelConfig.getNormalize().getIsParquet()) {
             args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, GuaguaConstants.GUAGUA_SPLIT_COMBINABLE,
@@ -646,11 +709,14 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
         } else {
             args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, GuaguaConstants.GUAGUA_SPLIT_COMBINABLE,
                     Environment.getProperty(GuaguaConstants.GUAGUA_SPLIT_COMBINABLE, "true")));
-            // set to 512M to save mappers, sometimes maybe OOM, users should tune guagua.split.maxCombinedSplitSize in
+            // set to 256M to save mappers, sometimes maybe OOM, split size is decreased by planner if records of one
+            // split cannot be kept in worker memory, users can still tune guagua.split.maxCombinedSplitSize in
             // shifuconfig
             args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT,
-                    GuaguaConstants.GUAGUA_SPLIT_MAX_COMBINED_SPLIT_SIZE,
-                    Environment.getProperty(GuaguaConstants.GUAGUA_SPLIT_MAX_COMBINED_SPLIT_SIZE, "268435456")));
+                    GuaguaConstants.GUAGUA_SPLIT_MAX_COMBINED_SPLIT_SIZE, plan == null ? getMaxCombinedSplitSize()
+                            : plan.getSplitSize()));
+            args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT,
+                    CombineInputFormat.SHIFU_VS_SPLIT_BALANCE_BY_RECORDS, isBalanceByRecords()));
         }
         // special tuning parameters for shifu, 0.99 means each iteation master wait for 99% workers and then can go to
         // next iteration.
@@ -660,6 +726,99 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
                 2 * 1000L));
     }
 
+    /**
+     * If combined splits of workers are re-balanced by estimated record count, only for text data.
+     */
+    private boolean isBalanceByRecords() {
+        return Boolean.TRUE.toString().equalsIgnoreCase(
+                Environment.getProperty(CombineInputFormat.SHIFU_VS_SPLIT_BALANCE_BY_RECORDS,
+                        Boolean.FALSE.toString()));
+    }
+
+    private long getMaxCombinedSplitSize() {
+        return Long.parseLong(Environment.getProperty(GuaguaConstants.GUAGUA_SPLIT_MAX_COMBINED_SPLIT_SIZE,
+                "268435456"));
+    }
+
+    /**
+     * Plan split size, worker heap and memory fraction by estimated record count and record memory size of normalized
+     * data.
+     * 
+     * @return sizing plan, null if auto sizing is disabled or failed
+     */
+    private WorkerSizingPlanner.Plan planWorkerSizing(SourceType sourceType) {
+        if(!Boolean.TRUE.toString().equalsIgnoreCase(
+                Environment.getProperty(CommonConstants.SHIFU_DTRAIN_AUTO_SIZING, Boolean.TRUE.toString()))
+                || super.modelConfig.getNormalize().getIsParquet()) {
+            return null;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            long[] records = WorkerSizingPlanner.estimateRecords(ShifuFileUtils.getFileSystemBySourceType(sourceType),
+                    this.pathFinder.getNormalizedDataPath(), SIZING_SAMPLE_RECORDS);
+            if(records[1] <= 0L) {
+                LOG.warn("No record is found in normalized data, worker sizing is skipped.");
+                return null;
+            }
+
+            int[] inputOutputIndex = DTrainUtils.getInputOutputCandidateCounts(this.columnConfigList);
+            int inputCount = inputOutputIndex[0] == 0 ? inputOutputIndex[2] : inputOutputIndex[0];
+            int outputCount = modelConfig.isBinaryClassification() ? inputOutputIndex[1] : modelConfig.getTags()
+                    .size();
+            long recordSize = WorkerSizingPlanner.estimateRecordSize(inputCount, outputCount);
+            int threadCount = modelConfig.getTrain().getWorkerThreadCount() == null ? 1 : modelConfig.getTrain()
+                    .getWorkerThreadCount();
+            // weights, gradients of each thread and optimizer states
+            long modelSize = getNumWeights(inputCount, outputCount) * 8L * (4L + 2L * threadCount);
+
+            WorkerSizingPlanner planner = new WorkerSizingPlanner(Long.parseLong(Environment.getProperty(
+                    CommonConstants.SHIFU_DTRAIN_WORKER_MIN_HEAP_MB, "1024")) * WorkerSizingPlanner.MB,
+                    Long.parseLong(Environment.getProperty(CommonConstants.SHIFU_DTRAIN_WORKER_MAX_HEAP_MB,
+                            Long.toString(DEFAULT_WORKER_HEAP_MB))) * WorkerSizingPlanner.MB,
+                    Double.parseDouble(Environment.getProperty(CommonConstants.SHIFU_DTRAIN_WORKER_MAX_MEMORY_FRACTION,
+                            "0.6")), Long.parseLong(Environment.getProperty(
+                            CommonConstants.SHIFU_DTRAIN_MIN_SPLIT_SIZE, "33554432")), getMaxCombinedSplitSize());
+            WorkerSizingPlanner.Plan plan = planner.plan(records[0], records[1], recordSize, modelSize);
+            LOG.info("Normalized data size {} with about {} records, record memory size {}, model memory size {}.",
+                    new Object[] { records[0], records[1], recordSize, modelSize });
+            LOG.info("Worker sizing plan: split size {}, heap {}m, memory fraction {}, about {} workers, {} records "
+                    + "per worker, planned in {}ms.", new Object[] { plan.getSplitSize(), plan.getHeapSizeInMB(),
+                    plan.getMemoryFraction(), plan.getNumWorkers(), plan.getRecordsPerWorker(),
+                    System.currentTimeMillis() - start });
+            if(!plan.isFit()) {
+                LOG.warn("Records of one worker cannot be kept in max heap, part of them will be trained on disk. "
+                        + "Please increase {} in shifuconfig.", CommonConstants.SHIFU_DTRAIN_WORKER_MAX_HEAP_MB);
+            } else if(modelConfig.getTrain().getTrainOnDisk() != null
+                    && modelConfig.getTrain().getTrainOnDisk().booleanValue()) {
+                LOG.info("Records of one worker can be kept in memory, trainOnDisk can be disabled for faster "
+                        + "training.");
+            }
+            return plan;
+        } catch (Exception e) {
+            LOG.warn("Error in planning worker sizing, default sizing is used.", e);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long getNumWeights(int inputCount, int outputCount) {
+        String alg = super.getModelConfig().getTrain().getAlgorithm();
+        if(LogisticRegressionContants.LR_ALG_NAME.equalsIgnoreCase(alg)
+                || LinearSVMConstants.SVM_ALG_NAME.equalsIgnoreCase(alg)) {
+            return inputCount + 1L;
+        }
+        List<Integer> hiddenNodes = (List<Integer>) modelConfig.getParams().get(NNTrainer.NUM_HIDDEN_NODES);
+        long numWeights = 0L;
+        int previous = inputCount;
+        if(hiddenNodes != null) {
+            for(Integer nodes: hiddenNodes) {
+                numWeights += (previous + 1L) * nodes;
+                previous = nodes;
+            }
+        }
+        return numWeights + (previous + 1L) * outputCount;
+    }
+
     private void copyModelToLocal(String modelName, Path modelPath, SourceType sourceType) throws IOException {
         if(!this.isDryTrain()) {
             ShifuFileUtils.getFileSystemBySourceType(sourceType).copyToLocalFile(modelPath,
@@ -48,6 +48,7 @@ import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.fs.PathFinder;
 import ml.shifu.shifu.fs.ShifuFileUtils;
+import ml.shifu.shifu.guagua.RecordBalancedGuaguaMapReduceClient;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
 import ml.shifu.shifu.util.Environment;
@@ -205,7 +206,8 @@ public class VarSelectModelProcessor extends BasicModelProcessor implements Proc
 
         long start = System.currentTimeMillis();
 
-        GuaguaMapReduceClient guaguaClient = new GuaguaMapReduceClient();
+        GuaguaMapReduceClient guaguaClient = isBalanceByRecords() ? new RecordBalancedGuaguaMapReduceClient()
+                : new GuaguaMapReduceClient();
 
         guaguaClient.createJob(args.toArray(new String[0])).waitForCompletion(true);
 
@@ -685,6 +687,17 @@ public class VarSelectModelProcessor extends BasicModelProcessor implements Proc
         args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT,
                 GuaguaConstants.GUAGUA_SPLIT_MAX_COMBINED_SPLIT_SIZE,
                 Environment.getProperty(GuaguaConstants.GUAGUA_SPLIT_MAX_COMBINED_SPLIT_SIZE, "268435456")));
+        args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT,
+                CombineInputFormat.SHIFU_VS_SPLIT_BALANCE_BY_RECORDS, isBalanceByRecords()));
+    }
+
+    /**
+     * If combined splits of workers are re-balanced by estimated record count.
+     */
+    private boolean isBalanceByRecords() {
+        return Boolean.TRUE.toString().equalsIgnoreCase(
+                Environment.getProperty(CombineInputFormat.SHIFU_VS_SPLIT_BALANCE_BY_RECORDS,
+                        Boolean.FALSE.toString()));
     }
 
     /**
@@ -35,6 +35,10 @@ import ml.shifu.shifu.container.obj.ModelVarSelectConf;
 import ml.shifu.shifu.container.obj.RawSourceData;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.alg.NNTrainer;
+import ml.shifu.shifu.core.dtrain.CommonConstants;
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.nn.NNConstants;
+import ml.shifu.shifu.core.dtrain.svm.LinearSVMConstants;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.util.CommonUtils;
 
@@ -137,7 +141,7 @@ public class ModelInspector {
         } else if(ModelStep.NORMALIZE.equals(modelStep)) {
             result = ValidateResult.mergeResult(result, checkNormSetting(modelConfig, modelConfig.getNormalize()));
         } else if(ModelStep.TRAIN.equals(modelStep)) {
-            result = ValidateResult.mergeResult(result, checkTrainSetting(modelConfig.getTrain()));
+            result = ValidateResult.mergeResult(result, checkTrainSetting(modelConfig, modelConfig.getTrain()));
             if(modelConfig.isMultiClassification()) {
                 if(!"nn".equalsIgnoreCase((modelConfig.getTrain().getAlgorithm()))) {
                     ValidateResult tmpResult = new ValidateResult(true);
@@ -406,6 +410,19 @@ public class ModelInspector {
             result = ValidateResult.mergeResult(result, tmpResult);
         }
 
+        if(norm.getSampleRates() != null) {
+            for(Map.Entry<String, Double> entry: norm.getSampleRates().entrySet()) {
+                Double rate = entry.getValue();
+                if(rate == null || rate <= 0 || rate > 1) {
+                    ValidateResult tmpResult = new ValidateResult(true);
+                    tmpResult.setStatus(false);
+                    tmpResult.getCauses().add(
+                            "sampleRates of tag " + entry.getKey() + " should be in (0, 1] in normalize configuration");
+                    result = ValidateResult.mergeResult(result, tmpResult);
+                }
+            }
+        }
+
         if(norm.getNormType() == null) {
             ValidateResult tmpResult = new ValidateResult(true);
             tmpResult.setStatus(false);
@@ -430,12 +447,14 @@ public class ModelInspector {
      * && num_of_layers = hidden_nodes_size
      * && num_of_layse = active_func_size)
      * 
+     * @param modelConfig
+     *            - @ModelConfig to check run mode
      * @param train
      *            - @ModelTrainConf to check
      * @return @ValidateResult
      */
     @SuppressWarnings("unchecked")
-    private ValidateResult checkTrainSetting(ModelTrainConf train) {
+    private ValidateResult checkTrainSetting(ModelConfig modelConfig, ModelTrainConf train) {
         ValidateResult result = new ValidateResult(true);
 
         if(train.getBaggingNum() == null || train.getBaggingNum() < 0) {
@@ -534,6 +553,88 @@ public class ModelInspector {
                 }
             }
 
+            Object miniBatchsO = params.get(NNConstants.MINI_BATCHS);
+            if(miniBatchsO != null) {
+                Integer miniBatchs = Integer.valueOf(miniBatchsO.toString());
+                if(miniBatchs != null && miniBatchs.compareTo(Integer.valueOf(0)) < 0) {
+                    ValidateResult tmpResult = new ValidateResult(true);
+                    tmpResult.setStatus(false);
+                    tmpResult.getCauses().add("MiniBatchs should be larger than or equal to 0 if set.");
+                    result = ValidateResult.mergeResult(result, tmpResult);
+                }
+            }
+
+            Object momentumO = params.get(NNConstants.MOMENTUM);
+            if(momentumO != null) {
+                Double momentum = Double.valueOf(momentumO.toString());
+                if(momentum != null
+                        && ((momentum.compareTo(Double.valueOf(0)) < 0) || (momentum.compareTo(Double
+                                .valueOf(1)) >= 0))) {
+                    ValidateResult tmpResult = new ValidateResult(true);
+                    tmpResult.setStatus(false);
+                    tmpResult.getCauses().add("Momentum should be in [0, 1) if set.");
+                    result = ValidateResult.mergeResult(result, tmpResult);
+                }
+            }
+
+            Object propagationO = params.get(NNTrainer.PROPAGATION);
+            if(propagationO != null && !modelConfig.isDistributedRunMode()
+                    && DTrainUtils.ADAM.equalsIgnoreCase(propagationO.toString())) {
+                ValidateResult tmpResult = new ValidateResult(true);
+                tmpResult.setStatus(false);
+                tmpResult.getCauses().add(
+                        "Propagation A (Adam) is only supported in distributed training, please use one of "
+                                + "S, R, M, B and Q in local training.");
+                result = ValidateResult.mergeResult(result, tmpResult);
+            }
+
+        }
+
+        if(train.getAlgorithm().equalsIgnoreCase("nn") || train.getAlgorithm().equalsIgnoreCase("lr")) {
+            Map<String, Object> params = train.getParams();
+            Object patienceO = params.get(CommonConstants.EARLY_STOP_PATIENCE);
+            if(patienceO != null && Integer.valueOf(patienceO.toString()).compareTo(Integer.valueOf(0)) < 0) {
+                ValidateResult tmpResult = new ValidateResult(true);
+                tmpResult.setStatus(false);
+                tmpResult.getCauses().add(
+                        CommonConstants.EARLY_STOP_PATIENCE + " should be larger than or equal to 0 if set.");
+                result = ValidateResult.mergeResult(result, tmpResult);
+            }
+
+            Object factorO = params.get(CommonConstants.PLATEAU_FACTOR);
+            if(factorO != null) {
+                Double factor = Double.valueOf(factorO.toString());
+                if(factor.compareTo(Double.valueOf(0)) <= 0 || factor.compareTo(Double.valueOf(1)) >= 0) {
+                    ValidateResult tmpResult = new ValidateResult(true);
+                    tmpResult.setStatus(false);
+                    tmpResult.getCauses().add(CommonConstants.PLATEAU_FACTOR + " should be in (0, 1) if set.");
+                    result = ValidateResult.mergeResult(result, tmpResult);
+                }
+            }
+
+            Object propagationO = params.get(NNTrainer.PROPAGATION);
+            if(propagationO != null && modelConfig.isDistributedRunMode()
+                    && DTrainUtils.SCALEDCONJUGATEGRADIENT.equalsIgnoreCase(propagationO.toString())) {
+                ValidateResult tmpResult = new ValidateResult(true);
+                tmpResult.setStatus(false);
+                tmpResult.getCauses().add(
+                        "Propagation S (Scaled Conjugate Gradient) is not supported in distributed training, please "
+                                + "use one of Q, B, M, R and A.");
+                result = ValidateResult.mergeResult(result, tmpResult);
+            }
+        }
+
+        if(LinearSVMConstants.SVM_ALG_NAME.equalsIgnoreCase(train.getAlgorithm())) {
+            Object lossO = train.getParams().get(LinearSVMConstants.SVM_LOSS);
+            if(lossO != null && !LinearSVMConstants.HINGE_LOSS.equalsIgnoreCase(lossO.toString())
+                    && !LinearSVMConstants.SQUARED_HINGE_LOSS.equalsIgnoreCase(lossO.toString())) {
+                ValidateResult tmpResult = new ValidateResult(true);
+                tmpResult.setStatus(false);
+                tmpResult.getCauses().add(
+                        LinearSVMConstants.SVM_LOSS + " should be " + LinearSVMConstants.HINGE_LOSS + " or "
+                                + LinearSVMConstants.SQUARED_HINGE_LOSS + " if set.");
+                result = ValidateResult.mergeResult(result, tmpResult);
+            }
         }
         return result;
     }
@@ -21,7 +21,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
@@ -29,6 +28,7 @@ import ml.shifu.shifu.core.dtrain.DTrainUtils;
 import ml.shifu.shifu.core.dtrain.nn.NNConstants;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.util.RecordTokenizer;
 
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
@@ -38,8 +38,6 @@ import org.encog.ml.data.basic.BasicMLData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Splitter;
-
 /**
  * Mapper implementation to accumulate MSE value when remove one column.
  * 
@@ -58,9 +56,9 @@ public class VarSelectMapper extends Mapper<LongWritable, Text, LongWritable, Co
     private final static Logger LOG = LoggerFactory.getLogger(VarSelectMapper.class);
 
     /**
-     * Default splitter used to split input record. Use one instance to prevent more news in Splitter.on.
+     * Tokenizer used to split input record, reused for all records to avoid creating strings of each field.
      */
-    private static final Splitter DEFAULT_SPLITTER = Splitter.on(NNConstants.NN_DEFAULT_COLUMN_SEPARATOR);
+    private final RecordTokenizer tokenizer = new RecordTokenizer(NNConstants.NN_DEFAULT_COLUMN_SEPARATOR);
 
     /**
      * Model Config read from HDFS
@@ -179,8 +177,9 @@ public class VarSelectMapper extends Mapper<LongWritable, Text, LongWritable, Co
     protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
         recordCount += 1L;
         int index = 0, inputsIndex = 0, outputsIndex = 0;
-        for(String input: DEFAULT_SPLITTER.split(value.toString())) {
-            double doubleValue = NumberFormatUtils.getDouble(input.trim(), 0.0d);
+        this.tokenizer.reset(value);
+        for(int i = 0; i < this.tokenizer.size(); i++) {
+            double doubleValue = this.tokenizer.getDouble(i, 0.0d);
             if(index == this.columnConfigList.size()) {
                 break;
             } else {
@@ -52,6 +52,7 @@ public enum ShifuErrorCode {
     ERROR_COPY_TO_HDFS(1013, "Could not copy file to hdfs"),
     ERROR_COPY_DATA(1014, "Could not copy data, it could be the source data unavailable or targe path is lock by system"),
     ERROR_NO_EVAL_SET(1015, "Could not copy eval file to hdfs"),
+    ERROR_READ_DATA(1016, "Could not read the input data"),
     /*
      * ModelConfig validated 1051 - 1100
      */
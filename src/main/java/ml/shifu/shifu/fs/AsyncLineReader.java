@@ -0,0 +1,154 @@
+/**
+ * Copyright [2013-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.fs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import ml.shifu.shifu.exception.ShifuErrorCode;
+import ml.shifu.shifu.exception.ShifuException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AsyncLineReader} consumes a delegate reader in a separated daemon thread and hands lines over in batches. It
+ * is used for gzip/bz2 files, so decompression and line decoding run in parallel with the actor which processes lines.
+ */
+public class AsyncLineReader extends DataLineReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncLineReader.class);
+
+    /**
+     * Lines per batch hand over to consumer
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * Max batches buffered, to bound memory if consumer is slow
+     */
+    private static final int QUEUE_SIZE = 16;
+
+    /**
+     * End marker, compared by reference
+     */
+    private static final List<String> END_OF_DATA = Collections.emptyList();
+
+    private final DataLineReader delegate;
+
+    private final BlockingQueue<List<String>> queue = new ArrayBlockingQueue<List<String>>(QUEUE_SIZE);
+
+    private final Thread producer;
+
+    private volatile RuntimeException producerException;
+
+    private volatile boolean closed = false;
+
+    private List<String> batch = new ArrayList<String>(0);
+
+    private int batchIndex = 0;
+
+    private boolean finished = false;
+
+    public AsyncLineReader(DataLineReader delegate, String name) {
+        this.delegate = delegate;
+        this.producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                produce();
+            }
+        }, "shifu-line-reader-" + name);
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    private void produce() {
+        try {
+            List<String> lines = new ArrayList<String>(BATCH_SIZE);
+            while(!this.closed && this.delegate.hasNextLine()) {
+                lines.add(this.delegate.nextLine());
+                if(lines.size() == BATCH_SIZE) {
+                    this.queue.put(lines);
+                    lines = new ArrayList<String>(BATCH_SIZE);
+                }
+            }
+            if(lines.size() > 0) {
+                this.queue.put(lines);
+            }
+        } catch (InterruptedException e) {
+            // closed by consumer
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            LOG.error("Error in reading data in {}.", Thread.currentThread().getName(), e);
+            this.producerException = e;
+        }
+
+        try {
+            this.queue.put(END_OF_DATA);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean hasNextLine() {
+        while(!this.finished && this.batchIndex >= this.batch.size()) {
+            List<String> next;
+            try {
+                next = this.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ShifuException(ShifuErrorCode.ERROR_READ_DATA, e);
+            }
+            if(next == END_OF_DATA) {
+                this.finished = true;
+                if(this.producerException != null) {
+                    throw this.producerException;
+                }
+            } else {
+                this.batch = next;
+                this.batchIndex = 0;
+            }
+        }
+        return this.batchIndex < this.batch.size();
+    }
+
+    @Override
+    public String nextLine() {
+        if(!hasNextLine()) {
+            throw new NoSuchElementException("No line found");
+        }
+        return this.batch.get(this.batchIndex++);
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.producer.interrupt();
+        try {
+            this.producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.delegate.close();
+    }
+
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright [2013-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.fs;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.NoSuchElementException;
+
+import ml.shifu.shifu.exception.ShifuErrorCode;
+import ml.shifu.shifu.exception.ShifuException;
+import ml.shifu.shifu.util.Constants;
+
+/**
+ * {@link ByteLineReader} decodes lines from a raw byte buffer by searching '\n' directly, no regex and no
+ * {@link java.io.Reader} is involved. Sub-classes only need to fill the byte buffer.
+ */
+abstract class ByteLineReader extends DataLineReader {
+
+    private static final Charset CHARSET = Charset.forName(Constants.DEFAULT_CHARSET);
+
+    /**
+     * Default read buffer size
+     */
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final byte[] buffer;
+
+    private int position = 0;
+
+    private int limit = 0;
+
+    /**
+     * Bytes of line which is across two buffer fills.
+     */
+    private byte[] lineBytes = new byte[256];
+
+    private int lineLength = 0;
+
+    /**
+     * How many bytes are consumed including line separators, used by range reader to find its range end.
+     */
+    private long bytesConsumed = 0L;
+
+    private String nextLine;
+
+    private boolean eof = false;
+
+    protected ByteLineReader(int bufferSize) {
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Fill buffer from underlying source.
+     *
+     * @param buffer
+     *            the buffer to fill from index 0
+     * @return bytes filled, -1 if end of source
+     * @throws IOException
+     *             any I/O exception in reading
+     */
+    protected abstract int fill(byte[] buffer) throws IOException;
+
+    /**
+     * Hook for range readers to stop before reading next line.
+     *
+     * @param consumed
+     *            bytes consumed before next line
+     * @return true if no more line should be read
+     */
+    protected boolean isEndOfRange(long consumed) {
+        return false;
+    }
+
+    @Override
+    public boolean hasNextLine() {
+        if(this.nextLine == null && !this.eof && !isEndOfRange(this.bytesConsumed)) {
+            this.nextLine = readLine();
+        }
+        return this.nextLine != null;
+    }
+
+    @Override
+    public String nextLine() {
+        if(!hasNextLine()) {
+            throw new NoSuchElementException("No line found");
+        }
+        String line = this.nextLine;
+        this.nextLine = null;
+        return line;
+    }
+
+    /**
+     * Read one line from buffer, return null if no more data.
+     */
+    protected String readLine() {
+        this.lineLength = 0;
+        boolean hasData = false;
+        try {
+            while(true) {
+                if(this.position >= this.limit) {
+                    int size = fill(this.buffer);
+                    if(size < 0) {
+                        this.eof = true;
+                        return hasData ? decode(this.lineBytes, 0, this.lineLength) : null;
+                    }
+                    this.position = 0;
+                    this.limit = size;
+                    continue;
+                }
+
+                hasData = true;
+                int start = this.position;
+                while(this.position < this.limit && this.buffer[this.position] != '\n') {
+                    this.position++;
+                }
+                int length = this.position - start;
+                this.bytesConsumed += length;
+
+                if(this.position < this.limit) {
+                    // skip '\n'
+                    this.position++;
+                    this.bytesConsumed++;
+                    if(this.lineLength == 0) {
+                        // the whole line in buffer, no copy needed
+                        return decode(this.buffer, start, length);
+                    }
+                    append(start, length);
+                    return decode(this.lineBytes, 0, this.lineLength);
+                }
+
+                append(start, length);
+            }
+        } catch (IOException e) {
+            throw new ShifuException(ShifuErrorCode.ERROR_READ_DATA, e);
+        }
+    }
+
+    private void append(int start, int length) {
+        if(this.lineLength + length > this.lineBytes.length) {
+            byte[] newBytes = new byte[Math.max(this.lineBytes.length * 2, this.lineLength + length)];
+            System.arraycopy(this.lineBytes, 0, newBytes, 0, this.lineLength);
+            this.lineBytes = newBytes;
+        }
+        System.arraycopy(this.buffer, start, this.lineBytes, this.lineLength, length);
+        this.lineLength += length;
+    }
+
+    private String decode(byte[] bytes, int start, int length) {
+        // windows line separator
+        if(length > 0 && bytes[start + length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, start, length, CHARSET);
+    }
+
+    protected long getBytesConsumed() {
+        return this.bytesConsumed;
+    }
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright [2013-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.fs;
+
+import java.io.Closeable;
+
+/**
+ * {@link DataLineReader} is the line-oriented input of local (akka) jobs. It replaces {@link java.util.Scanner} which
+ * tokenizes by regex and can only be created per file.
+ *
+ * <p>
+ * One reader can be a whole file, a byte range of a big local file or a compressed file decompressed in another
+ * thread, see {@link ShifuFileUtils#getDataLineReaders(String, ml.shifu.shifu.container.obj.RawSourceData.SourceType)}
+ * for how readers are created.
+ *
+ * <p>
+ * !!! Warning: reader instances are not thread-safe, one reader should be consumed by only one actor.
+ */
+public abstract class DataLineReader implements Closeable {
+
+    /**
+     * Check whether there is one more line in this reader.
+     *
+     * @return true if {@link #nextLine()} can be called
+     * @throws ml.shifu.shifu.exception.ShifuException
+     *             if any I/O exception in reading
+     */
+    public abstract boolean hasNextLine();
+
+    /**
+     * Return next line without line separator('\n' or "\r\n").
+     *
+     * @return next line
+     * @throws java.util.NoSuchElementException
+     *             if no more line
+     */
+    public abstract String nextLine();
+
+    /**
+     * Release underlying resources, I/O exceptions are ignored.
+     */
+    @Override
+    public abstract void close();
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright [2013-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * {@link FileRangeLineReader} reads lines in byte range [start, end) of a local uncompressed file through NIO
+ * {@link FileChannel}, several readers on the same file can be consumed in parallel.
+ *
+ * <p>
+ * Line ownership is the same as hadoop LineRecordReader: if start is not 0, the first (maybe partial) line is skipped
+ * since it belongs to previous range; a line which starts at or before end is read even it ends after end.
+ */
+public class FileRangeLineReader extends ByteLineReader {
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer byteBuffer;
+
+    private final long start;
+
+    private final long end;
+
+    public FileRangeLineReader(File file, long start, long end) throws IOException {
+        super(DEFAULT_BUFFER_SIZE);
+        this.start = start;
+        this.end = end;
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.channel.position(start);
+        this.byteBuffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+        if(start != 0L) {
+            // skip first partial line which is read by previous range
+            readLine();
+        }
+    }
+
+    @Override
+    protected int fill(byte[] buffer) throws IOException {
+        this.byteBuffer.clear();
+        int size = 0;
+        while(size == 0) {
+            size = this.channel.read(this.byteBuffer);
+        }
+        if(size > 0) {
+            this.byteBuffer.flip();
+            this.byteBuffer.get(buffer, 0, size);
+        }
+        return size;
+    }
+
+    @Override
+    protected boolean isEndOfRange(long consumed) {
+        // start + consumed is the offset of next line
+        return this.start + consumed > this.end;
+    }
+
+    @Override
+    public void close() {
+        IOUtils.closeQuietly(this.channel);
+        IOUtils.closeQuietly(this.file);
+    }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.fs;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * {@link SequenceTextInputStream} exposes lines of a {@link SequenceTextReader} as a text stream, each line is
+ * followed by '\n'. It is used for scanners and line readers of sequence files.
+ */
+public class SequenceTextInputStream extends InputStream {
+
+    private final SequenceTextReader reader;
+
+    private final Text line = new Text();
+
+    /**
+     * Position in current line, line length means the new line char.
+     */
+    private int pos;
+
+    private boolean hasLine = false;
+
+    private final byte[] single = new byte[1];
+
+    public SequenceTextInputStream(SequenceTextReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(this.single, 0, 1) < 0 ? -1 : (this.single[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0) {
+            return 0;
+        }
+        int size = 0;
+        while(size < len) {
+            if(!this.hasLine) {
+                if(!this.reader.next(this.line)) {
+                    break;
+                }
+                this.pos = 0;
+                this.hasLine = true;
+            }
+            int remaining = this.line.getLength() - this.pos;
+            if(remaining > 0) {
+                int count = Math.min(remaining, len - size);
+                System.arraycopy(this.line.getBytes(), this.pos, b, off + size, count);
+                this.pos += count;
+                size += count;
+            } else {
+                b[off + size] = '\n';
+                size += 1;
+                this.hasLine = false;
+            }
+        }
+        return size == 0 ? -1 : size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.fs;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * {@link SequenceTextReader} reads text values of a sequence file written by
+ * {@link ml.shifu.shifu.pig.SequenceTextStorage} in byte range [start, start + length).
+ * 
+ * <p>
+ * Record ownership is the same as hadoop SequenceFileRecordReader: reader seeks to the first sync marker after start,
+ * and records are read until the first sync marker after end, so each record is read by exactly one split.
+ */
+public class SequenceTextReader implements Closeable {
+
+    private final SequenceFile.Reader reader;
+
+    private final long end;
+
+    private final Writable key;
+
+    private boolean more;
+
+    public SequenceTextReader(Configuration conf, Path path) throws IOException {
+        this(conf, path, 0L, Long.MAX_VALUE);
+    }
+
+    @SuppressWarnings("deprecation")
+    public SequenceTextReader(Configuration conf, Path path, long start, long length) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        this.reader = new SequenceFile.Reader(fs, path, conf);
+        if(!Text.class.equals(this.reader.getValueClass())) {
+            this.reader.close();
+            throw new IOException("Value class of sequence file " + path + " is " + this.reader.getValueClassName()
+                    + ", not text.");
+        }
+        this.end = length == Long.MAX_VALUE ? Long.MAX_VALUE : start + length;
+        if(start > this.reader.getPosition()) {
+            this.reader.sync(start);
+        }
+        this.more = this.reader.getPosition() < this.end;
+
+        Class<?> keyClass = this.reader.getKeyClass();
+        if(NullWritable.class.equals(keyClass)) {
+            this.key = NullWritable.get();
+        } else {
+            this.key = (Writable) ReflectionUtils.newInstance(keyClass, conf);
+        }
+    }
+
+    /**
+     * Read next line into value.
+     * 
+     * @return false if no more lines in this range
+     */
+    public boolean next(Text value) throws IOException {
+        if(!this.more) {
+            return false;
+        }
+        long pos = this.reader.getPosition();
+        boolean remaining = this.reader.next(this.key, value);
+        // record after the first sync marker beyond end belongs to next split
+        if(pos >= this.end && this.reader.syncSeen()) {
+            this.more = false;
+        } else {
+            this.more = remaining;
+        }
+        return this.more;
+    }
+
+    /**
+     * Current byte position in file.
+     */
+    public long getPosition() throws IOException {
+        return this.reader.getPosition();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+}
@@ -18,6 +18,7 @@ package ml.shifu.shifu.fs;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
@@ -33,6 +34,7 @@ import ml.shifu.shifu.container.obj.EvalConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.util.Environment;
 import ml.shifu.shifu.util.HDFSUtils;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
@@ -56,6 +58,11 @@ public class ShifuFileUtils {
 
     private static final Logger log = LoggerFactory.getLogger(ShifuFileUtils.class);
 
+    /**
+     * Default size of byte range to split big local file, 64M
+     */
+    private static final int DEFAULT_LOCAL_SPLIT_SIZE = 64 * 1024 * 1024;
+
     // avoid user to create instance
     private ShifuFileUtils() {
     }
@@ -229,32 +236,7 @@ public class ShifuFileUtils {
     @SuppressWarnings("deprecation")
     public static List<Scanner> getDataScanners(String path, SourceType sourceType) throws IOException {
         FileSystem fs = getFileSystemBySourceType(sourceType);
-
-        FileStatus[] listStatus;
-        Path p = new Path(path);
-        if(fs.getFileStatus(p).isDir()) {
-            // for folder we need filter pig header files
-            listStatus = fs.listStatus(p, new PathFilter() {
-                @Override
-                public boolean accept(Path path) {
-                    return !path.getName().startsWith(Constants.HIDDEN_FILES)
-                            && !path.getName().equalsIgnoreCase("_SUCCESS");
-                }
-            });
-        } else {
-            listStatus = new FileStatus[] { fs.getFileStatus(p) };
-        }
-
-        if(listStatus.length > 1) {
-            Arrays.sort(listStatus, new Comparator<FileStatus>() {
-
-                @Override
-                public int compare(FileStatus f1, FileStatus f2) {
-                    return f1.getPath().getName().compareTo(f2.getPath().getName());
-                }
-
-            });
-        }
+        FileStatus[] listStatus = getDataFileStatus(fs, path);
 
         List<Scanner> scanners = new ArrayList<Scanner>();
         for(FileStatus f: listStatus) {
@@ -271,6 +253,9 @@ public class ShifuFileUtils {
             } else if(filename.endsWith(Constants.BZ2_SUFFIX)) {
                 scanners.add(new Scanner(new BZip2CompressorInputStream(fs.open(f.getPath())),
                         Constants.DEFAULT_CHARSET));
+            } else if(filename.endsWith(Constants.SEQ_SUFFIX)) {
+                scanners.add(new Scanner(new SequenceTextInputStream(new SequenceTextReader(fs.getConf(), f
+                        .getPath())), Constants.DEFAULT_CHARSET));
             } else {
                 scanners.add(new Scanner(new BufferedInputStream(fs.open(f.getPath())), Constants.DEFAULT_CHARSET));
             }
@@ -296,6 +281,127 @@ public class ShifuFileUtils {
         return getDataScanners(sourceFile.getPath(), sourceFile.getSourceType());
     }
 
+    /**
+     * Get the data line readers for a list specified paths, see {@link #getDataLineReaders(String, SourceType)}.
+     * !!! Warning: reader instances should be closed by caller.
+     * 
+     * @param paths
+     *            - file paths to get the readers
+     * @param sourceType
+     *            - local/hdfs
+     * @return readers for specified paths
+     * @throws IOException
+     *             - if any I/O exception in processing
+     */
+    public static List<DataLineReader> getDataLineReaders(List<String> paths, SourceType sourceType)
+            throws IOException {
+        if(paths == null || sourceType == null) {
+            throw new IllegalArgumentException("paths should not be null, sourceType should not be null.");
+        }
+        List<DataLineReader> readers = new ArrayList<DataLineReader>();
+        for(String path: paths) {
+            readers.addAll(getDataLineReaders(path, sourceType));
+        }
+        return readers;
+    }
+
+    /**
+     * Get the data line readers for some specified path, which are used by local akka jobs.
+     * if the file is directory, get all readers of normal sub-files
+     * if the file is local uncompressed file bigger than {@link Environment#LOCAL_SPLIT_SIZE}, split it into several
+     * byte range readers which can be consumed in parallel
+     * if the file is gzip/bz2 or sequence file, it is decompressed in a separated thread
+     * !!! Notice, all hidden files (file name start with ".") will be skipped
+     * !!! Warning: reader instances should be closed by caller.
+     * 
+     * @param path
+     *            - file path to get the readers
+     * @param sourceType
+     *            - local/hdfs
+     * @return readers for specified path
+     * @throws IOException
+     *             - if any I/O exception in processing
+     */
+    @SuppressWarnings("deprecation")
+    public static List<DataLineReader> getDataLineReaders(String path, SourceType sourceType) throws IOException {
+        FileSystem fs = getFileSystemBySourceType(sourceType);
+        FileStatus[] listStatus = getDataFileStatus(fs, path);
+        long splitSize = Environment.getInt(Environment.LOCAL_SPLIT_SIZE, DEFAULT_LOCAL_SPLIT_SIZE);
+
+        List<DataLineReader> readers = new ArrayList<DataLineReader>();
+        for(FileStatus f: listStatus) {
+            String filename = f.getPath().getName();
+
+            if(f.isDir()) {
+                log.warn("Skip - {}, since it's direcory, please check your configuration.", filename);
+                continue;
+            }
+
+            if(filename.endsWith(Constants.GZ_SUFFIX)) {
+                log.debug("Creating async reader for file: {} ", filename);
+                readers.add(new AsyncLineReader(new StreamLineReader(new GZIPInputStream(fs.open(f.getPath()),
+                        StreamLineReader.DEFAULT_BUFFER_SIZE)), filename));
+            } else if(filename.endsWith(Constants.BZ2_SUFFIX)) {
+                log.debug("Creating async reader for file: {} ", filename);
+                readers.add(new AsyncLineReader(new StreamLineReader(new BZip2CompressorInputStream(
+                        new BufferedInputStream(fs.open(f.getPath()), StreamLineReader.DEFAULT_BUFFER_SIZE))),
+                        filename));
+            } else if(filename.endsWith(Constants.SEQ_SUFFIX)) {
+                log.debug("Creating async reader for file: {} ", filename);
+                readers.add(new AsyncLineReader(new StreamLineReader(new SequenceTextInputStream(
+                        new SequenceTextReader(fs.getConf(), f.getPath()))), filename));
+            } else if(sourceType == SourceType.LOCAL && splitSize > 0 && f.getLen() > splitSize) {
+                File file = new File(f.getPath().toUri().getPath());
+                long length = f.getLen();
+                int splits = 0;
+                for(long start = 0L; start < length; start += splitSize) {
+                    readers.add(new FileRangeLineReader(file, start, Math.min(start + splitSize, length)));
+                    splits++;
+                }
+                log.debug("Creating {} range readers for file: {} ", splits, filename);
+            } else {
+                log.debug("Creating reader for file: {} ", filename);
+                readers.add(new StreamLineReader(fs.open(f.getPath())));
+            }
+        }
+
+        return readers;
+    }
+
+    /**
+     * List data files of path, pig header files, hidden files and _SUCCESS files are filtered, files are sorted by
+     * name.
+     */
+    @SuppressWarnings("deprecation")
+    public static FileStatus[] getDataFileStatus(FileSystem fs, String path) throws IOException {
+        FileStatus[] listStatus;
+        Path p = new Path(path);
+        if(fs.getFileStatus(p).isDir()) {
+            // for folder we need filter pig header files
+            listStatus = fs.listStatus(p, new PathFilter() {
+                @Override
+                public boolean accept(Path path) {
+                    return !path.getName().startsWith(Constants.HIDDEN_FILES)
+                            && !path.getName().equalsIgnoreCase("_SUCCESS");
+                }
+            });
+        } else {
+            listStatus = new FileStatus[] { fs.getFileStatus(p) };
+        }
+
+        if(listStatus.length > 1) {
+            Arrays.sort(listStatus, new Comparator<FileStatus>() {
+
+                @Override
+                public int compare(FileStatus f1, FileStatus f2) {
+                    return f1.getPath().getName().compareTo(f2.getPath().getName());
+                }
+
+            });
+        }
+        return listStatus;
+    }
+
     /**
      * Copy src file to dst file in the same FileSystem. Such as copy local source to local destination,
      * copy hdfs source to hdfs dest.
@@ -0,0 +1,55 @@
+/**
+ * Copyright [2013-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.fs;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * {@link StreamLineReader} reads lines from a whole {@link InputStream}, it is used for HDFS files and decompressed
+ * streams.
+ */
+public class StreamLineReader extends ByteLineReader {
+
+    private final InputStream input;
+
+    public StreamLineReader(InputStream input) {
+        this(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamLineReader(InputStream input, int bufferSize) {
+        super(bufferSize);
+        this.input = input;
+    }
+
+    @Override
+    protected int fill(byte[] buffer) throws IOException {
+        int size = 0;
+        // some streams like GZIPInputStream may return 0 before end of stream
+        while(size == 0) {
+            size = this.input.read(buffer, 0, buffer.length);
+        }
+        return size;
+    }
+
+    @Override
+    public void close() {
+        IOUtils.closeQuietly(this.input);
+    }
+
+}
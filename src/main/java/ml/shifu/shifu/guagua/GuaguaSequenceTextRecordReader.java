@@ -0,0 +1,125 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.guagua;
+
+import java.io.IOException;
+
+import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
+import ml.shifu.guagua.io.GuaguaFileSplit;
+import ml.shifu.guagua.io.GuaguaRecordReader;
+import ml.shifu.shifu.fs.SequenceTextReader;
+import ml.shifu.shifu.util.Constants;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * {@link GuaguaSequenceTextRecordReader} reads lines of one split of sequence file written by
+ * {@link ml.shifu.shifu.pig.SequenceTextStorage}. Keys and values are the same as GuaguaLineRecordReader: key is byte
+ * position of the record and value is the line, so workers can use both readers by file name.
+ */
+public class GuaguaSequenceTextRecordReader implements
+        GuaguaRecordReader<GuaguaWritableAdapter<LongWritable>, GuaguaWritableAdapter<Text>> {
+
+    private final Configuration conf;
+
+    private SequenceTextReader reader;
+
+    private final LongWritable key = new LongWritable();
+
+    private final Text value = new Text();
+
+    private final GuaguaWritableAdapter<LongWritable> keyAdapter = new GuaguaWritableAdapter<LongWritable>(this.key);
+
+    private final GuaguaWritableAdapter<Text> valueAdapter = new GuaguaWritableAdapter<Text>(this.value);
+
+    public GuaguaSequenceTextRecordReader() {
+        this.conf = new Configuration();
+    }
+
+    public GuaguaSequenceTextRecordReader(GuaguaFileSplit split) throws IOException {
+        this(new Configuration(), split);
+    }
+
+    public GuaguaSequenceTextRecordReader(Configuration conf, GuaguaFileSplit split) throws IOException {
+        this.conf = conf;
+        initialize(split);
+    }
+
+    /**
+     * If file is a sequence file written by {@link ml.shifu.shifu.pig.SequenceTextStorage}.
+     */
+    public static boolean isSequenceFile(String path) {
+        return path.endsWith(Constants.SEQ_SUFFIX);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#initialize(ml.shifu.guagua.io.GuaguaFileSplit)
+     */
+    @Override
+    public void initialize(GuaguaFileSplit split) throws IOException {
+        this.reader = new SequenceTextReader(this.conf, new Path(split.getPath()), split.getOffset(),
+                split.getLength());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#nextKeyValue()
+     */
+    @Override
+    public boolean nextKeyValue() throws IOException {
+        this.key.set(this.reader.getPosition());
+        return this.reader.next(this.value);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#getCurrentKey()
+     */
+    @Override
+    public GuaguaWritableAdapter<LongWritable> getCurrentKey() {
+        return this.keyAdapter;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#getCurrentValue()
+     */
+    @Override
+    public GuaguaWritableAdapter<Text> getCurrentValue() {
+        return this.valueAdapter;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#close()
+     */
+    @Override
+    public void close() throws IOException {
+        if(this.reader != null) {
+            this.reader.close();
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright [2013-2014] PayPal Software Foundation
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.guagua;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ml.shifu.guagua.mapreduce.GuaguaInputFormat;
+import ml.shifu.guagua.mapreduce.GuaguaInputSplit;
+import ml.shifu.shifu.core.mr.input.CombineInputFormat;
+
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RecordBalancedGuaguaInputFormat} re-combines file splits of guagua workers to make each worker have about the
+ * same number of records, which is enabled by {@link CombineInputFormat#SHIFU_VS_SPLIT_BALANCE_BY_RECORDS}.
+ * 
+ * <p>
+ * Number of workers and master splits are kept the same as {@link GuaguaInputFormat}, only file splits are moved
+ * among workers. Splits are not changed if record count cannot be estimated.
+ */
+public class RecordBalancedGuaguaInputFormat extends GuaguaInputFormat {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecordBalancedGuaguaInputFormat.class);
+
+    @Override
+    public List<InputSplit> getSplits(JobContext job) throws IOException {
+        List<InputSplit> splits = super.getSplits(job);
+        if(!job.getConfiguration().getBoolean(CombineInputFormat.SHIFU_VS_SPLIT_BALANCE_BY_RECORDS, false)) {
+            return splits;
+        }
+
+        int workers = 0;
+        List<FileSplit> fileSplits = new ArrayList<FileSplit>();
+        for(InputSplit split: splits) {
+            GuaguaInputSplit guaguaSplit = (GuaguaInputSplit) split;
+            if(guaguaSplit.isMaster()) {
+                continue;
+            }
+            workers += 1;
+            for(FileSplit fileSplit: guaguaSplit.getFileSplits()) {
+                if(fileSplit != null && fileSplit.getLength() > 0L) {
+                    fileSplits.add(fileSplit);
+                }
+            }
+        }
+        // nothing to move if each worker has at most one file split
+        if(workers <= 1 || fileSplits.size() <= workers) {
+            return splits;
+        }
+
+        List<FileSplit[]> groups;
+        try {
+            groups = CombineInputFormat.combineByRecords(job.getConfiguration(), fileSplits, workers, null);
+        } catch (IOException e) {
+            LOG.warn("Error in estimating record count of splits, keep guagua splits.", e);
+            return splits;
+        }
+
+        // keep master splits in their positions and replace worker splits one by one
+        List<InputSplit> newSplits = new ArrayList<InputSplit>(splits.size());
+        int groupIndex = 0;
+        for(InputSplit split: splits) {
+            if(((GuaguaInputSplit) split).isMaster()) {
+                newSplits.add(split);
+            } else {
+                newSplits.add(new GuaguaInputSplit(false, groups.get(groupIndex++)));
+            }
+        }
+        return newSplits;
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright [2013-2014] PayPal Software Foundation
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.guagua;
+
+import java.io.IOException;
+
+import ml.shifu.guagua.mapreduce.GuaguaMapReduceClient;
+
+import org.apache.hadoop.mapreduce.Job;
+
+/**
+ * {@link RecordBalancedGuaguaMapReduceClient} is to set {@link RecordBalancedGuaguaInputFormat} as input format of
+ * guagua jobs, jobs added by {@link #addJob(String[])} are also created by {@link #createJob(String[])}.
+ */
+public class RecordBalancedGuaguaMapReduceClient extends GuaguaMapReduceClient {
+
+    /**
+     * Create Hadoop job according to arguments from main.
+     */
+    @Override
+    public synchronized Job createJob(String[] args) throws IOException {
+        Job job = super.createJob(args);
+        job.setInputFormatClass(RecordBalancedGuaguaInputFormat.class);
+        return job;
+    }
+
+}
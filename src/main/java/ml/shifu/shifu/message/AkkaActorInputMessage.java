@@ -16,21 +16,22 @@
 package ml.shifu.shifu.message;
 
 import java.util.List;
-import java.util.Scanner;
+
+import ml.shifu.shifu.fs.DataLineReader;
 
 /**
  * AkkaActorInputMessage class is the message for AKKA input.
- * It's container of list @Scanner
+ * It's container of list {@link DataLineReader}
  */
 public class AkkaActorInputMessage {
 
-    private List<Scanner> scanners;
+    private List<DataLineReader> readers;
 
-    public AkkaActorInputMessage(List<Scanner> scanners) {
-        this.scanners = scanners;
+    public AkkaActorInputMessage(List<DataLineReader> readers) {
+        this.readers = readers;
     }
 
-    public List<Scanner> getScanners() {
-        return scanners;
+    public List<DataLineReader> getReaders() {
+        return readers;
     }
 }
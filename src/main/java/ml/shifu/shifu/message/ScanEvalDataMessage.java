@@ -15,7 +15,7 @@
  */
 package ml.shifu.shifu.message;
 
-import java.util.Scanner;
+import ml.shifu.shifu.fs.DataLineReader;
 
 /**
  * ScanEvalDataMessage class is the message class that contains input for evaluation
@@ -24,12 +24,12 @@ public class ScanEvalDataMessage {
 
     private int streamId;
     private int totalStreamCnt;
-    private Scanner scanner;
+    private DataLineReader reader;
 
-    public ScanEvalDataMessage(int streamId, int totalStreamCnt, Scanner scanner) {
+    public ScanEvalDataMessage(int streamId, int totalStreamCnt, DataLineReader reader) {
         this.streamId = streamId;
         this.totalStreamCnt = totalStreamCnt;
-        this.scanner = scanner;
+        this.reader = reader;
     }
 
     public int getStreamId() {
@@ -40,8 +40,8 @@ public class ScanEvalDataMessage {
         return totalStreamCnt;
     }
 
-    public Scanner getScanner() {
-        return scanner;
+    public DataLineReader getReader() {
+        return reader;
     }
 
 }
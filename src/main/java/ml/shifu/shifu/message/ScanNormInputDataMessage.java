@@ -15,7 +15,7 @@
  */
 package ml.shifu.shifu.message;
 
-import java.util.Scanner;
+import ml.shifu.shifu.fs.DataLineReader;
 
 /**
  * ScanNormInputDataMessage class is message class that contains the input for normalization
@@ -23,19 +23,19 @@ import java.util.Scanner;
 public class ScanNormInputDataMessage {
 
     private int totalMsgCnt;
-    private Scanner scanner;
+    private DataLineReader reader;
 
-    public ScanNormInputDataMessage(int totalMsgCnt, Scanner scanner) {
+    public ScanNormInputDataMessage(int totalMsgCnt, DataLineReader reader) {
         this.totalMsgCnt = totalMsgCnt;
-        this.scanner = scanner;
+        this.reader = reader;
     }
 
     public int getTotalMsgCnt() {
         return totalMsgCnt;
     }
 
-    public Scanner getScanner() {
-        return scanner;
+    public DataLineReader getReader() {
+        return reader;
     }
 
 }
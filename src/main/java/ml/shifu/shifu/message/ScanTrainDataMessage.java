@@ -15,7 +15,7 @@
  */
 package ml.shifu.shifu.message;
 
-import java.util.Scanner;
+import ml.shifu.shifu.fs.DataLineReader;
 
 /**
  * ScanTrainDataMessage class is message class that contains the input for training
@@ -24,12 +24,12 @@ public class ScanTrainDataMessage {
 
     private int totalMsgCnt;
     private boolean isDryRun;
-    private Scanner scanner;
+    private DataLineReader reader;
 
-    public ScanTrainDataMessage(int totalMsgCnt, boolean isDryRun, Scanner scanner) {
+    public ScanTrainDataMessage(int totalMsgCnt, boolean isDryRun, DataLineReader reader) {
         this.totalMsgCnt = totalMsgCnt;
         this.isDryRun = isDryRun;
-        this.scanner = scanner;
+        this.reader = reader;
     }
 
     public int getTotalMsgCnt() {
@@ -40,8 +40,8 @@ public class ScanTrainDataMessage {
         return isDryRun;
     }
 
-    public Scanner getScanner() {
-        return scanner;
+    public DataLineReader getReader() {
+        return reader;
     }
 
 }
@@ -0,0 +1,181 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.pig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import ml.shifu.shifu.util.Constants;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.pig.ResourceSchema;
+import org.apache.pig.ResourceSchema.ResourceFieldSchema;
+import org.apache.pig.ResourceStatistics;
+import org.apache.pig.StoreFunc;
+import org.apache.pig.StoreMetadata;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.impl.util.StorageUtil;
+
+/**
+ * {@link SequenceTextStorage} stores each tuple as one delimited text line, the same as PigStorage, into block
+ * compressed sequence files.
+ * 
+ * <p>
+ * Gzip text files cannot be split, so one part file is always read by one worker. Sequence files have sync markers
+ * between compressed blocks and can be split at any offset, workers can be sized by bytes without caring how many
+ * mappers or reducers wrote the output. Part files have suffix {@link Constants#SEQ_SUFFIX}, keys are
+ * {@link NullWritable} and values are lines in {@link Text}.
+ * 
+ * <p>
+ * Like PigStorage with '-schema' option, field names are written into {@link Constants#PIG_HEADER} file.
+ */
+public class SequenceTextStorage extends StoreFunc implements StoreMetadata {
+
+    public static final String DEFAULT_CODEC = DefaultCodec.class.getName();
+
+    private final byte fieldDel;
+
+    private final String codec;
+
+    private RecordWriter<NullWritable, Text> writer;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+
+    private final Text line = new Text();
+
+    public SequenceTextStorage() {
+        this("|");
+    }
+
+    public SequenceTextStorage(String delimiter) {
+        this(delimiter, DEFAULT_CODEC);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param delimiter
+     *            - field delimiter, escaped the same as PigStorage
+     * @param codec
+     *            - compression codec class name of sequence file blocks
+     */
+    public SequenceTextStorage(String delimiter, String codec) {
+        this.fieldDel = StorageUtil.parseFieldDel(delimiter);
+        this.codec = codec;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public OutputFormat getOutputFormat() throws IOException {
+        return new SequenceTextOutputFormat();
+    }
+
+    @Override
+    public void setStoreLocation(String location, Job job) throws IOException {
+        FileOutputFormat.setOutputPath(job, new Path(location));
+        // overwrite compression settings in pig scripts which are for text output
+        FileOutputFormat.setCompressOutput(job, true);
+        SequenceFileOutputFormat.setOutputCompressionType(job, CompressionType.BLOCK);
+        try {
+            FileOutputFormat.setOutputCompressorClass(job,
+                    job.getConfiguration().getClassByName(this.codec).asSubclass(CompressionCodec.class));
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Compression codec " + this.codec + " is not found.", e);
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public void prepareToWrite(RecordWriter writer) throws IOException {
+        this.writer = writer;
+    }
+
+    @Override
+    public void putNext(Tuple t) throws IOException {
+        this.buffer.reset();
+        int size = t.size();
+        for(int i = 0; i < size; i++) {
+            StorageUtil.putField(this.buffer, t.get(i));
+            if(i != size - 1) {
+                this.buffer.write(this.fieldDel);
+            }
+        }
+        this.line.set(this.buffer.toByteArray());
+        try {
+            this.writer.write(NullWritable.get(), this.line);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void storeSchema(ResourceSchema schema, String location, Job job) throws IOException {
+        if(schema == null) {
+            return;
+        }
+        Path headerPath = new Path(location, Constants.PIG_HEADER);
+        FileSystem fs = headerPath.getFileSystem(job.getConfiguration());
+        OutputStream out = fs.create(headerPath, true);
+        try {
+            ResourceFieldSchema[] fields = schema.getFields();
+            for(int i = 0; i < fields.length; i++) {
+                String name = fields[i].getName();
+                if(name != null) {
+                    out.write(name.getBytes(Constants.DEFAULT_CHARSET));
+                }
+                if(i != fields.length - 1) {
+                    out.write(this.fieldDel);
+                }
+            }
+            out.write('\n');
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    @Override
+    public void storeStatistics(ResourceStatistics stats, String location, Job job) throws IOException {
+        // no statistics
+    }
+
+    /**
+     * Sequence file output format with {@link Constants#SEQ_SUFFIX} in part file names, so readers can tell sequence
+     * files from text files by name like gzip or bzip2 files.
+     */
+    private static class SequenceTextOutputFormat extends SequenceFileOutputFormat<NullWritable, Text> {
+
+        @Override
+        public Path getDefaultWorkFile(TaskAttemptContext context, String extension) throws IOException {
+            return super.getDefaultWorkFile(context, extension + Constants.SEQ_SUFFIX);
+        }
+    }
+
+}
@@ -16,12 +16,11 @@
 package ml.shifu.shifu.udf;
 
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Random;
-import java.util.Set;
 
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelStatsConf.BinningMethod;
+import ml.shifu.shifu.core.RecordSampler;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
 
@@ -45,12 +44,18 @@ import org.apache.pig.impl.logicalLayer.schema.Schema.FieldSchema;
  */
 public class AddColumnNumAndFilterUDF extends AbstractTrainerUDF<DataBag> {
 
-    protected Set<String> negTags;
-
     private Random random = new Random(System.currentTimeMillis());
 
+    private RecordSampler sampler;
+
     private final boolean isAppendRandom;
 
+    /**
+     * If auto type checking is done together with binning, all records are kept for each column and one more field is
+     * appended to tell if the record is used in numerical binning.
+     */
+    private final boolean isAutoTypeInStats;
+
     public AddColumnNumAndFilterUDF(String source, String pathModelConfig, String pathColumnConfig, String withScoreStr)
             throws Exception {
         this(source, pathModelConfig, pathColumnConfig, withScoreStr, "true");
@@ -60,7 +65,8 @@ public class AddColumnNumAndFilterUDF extends AbstractTrainerUDF<DataBag> {
             String withScoreStr, String isAppendRandom) throws Exception {
         super(source, pathModelConfig, pathColumnConfig);
         this.isAppendRandom = Boolean.TRUE.toString().equalsIgnoreCase(isAppendRandom);
-        negTags = new HashSet<String>(modelConfig.getNegTags());
+        this.isAutoTypeInStats = this.isAppendRandom && modelConfig.isAutoTypeInStats();
+        sampler = RecordSampler.createStatsSampler(modelConfig, columnConfigList);
     }
 
     public DataBag exec(Tuple input) throws IOException {
@@ -89,15 +95,8 @@ public class AddColumnNumAndFilterUDF extends AbstractTrainerUDF<DataBag> {
             return null;
         }
 
-        Double rate = modelConfig.getBinningSampleRate();
-        if(modelConfig.isBinningSampleNegOnly()) {
-            if(negTags.contains(tag) && random.nextDouble() > rate) {
-                return null;
-            }
-        } else {
-            if(random.nextDouble() > rate) {
-                return null;
-            }
+        if(sampler.sample(tag, input.getAll()) <= 0d) {
+            return null;
         }
 
         for(int i = 0; i < size; i++) {
@@ -112,10 +111,12 @@ public class AddColumnNumAndFilterUDF extends AbstractTrainerUDF<DataBag> {
                         isPositive = false;
                     }
                 }
-                if(!isValidRecord(modelConfig.isBinaryClassification(), isPositive, config)) {
+                // in auto type checking, all records are kept for both categorical and numerical binning
+                if(!this.isAutoTypeInStats
+                        && !isValidRecord(modelConfig.isBinaryClassification(), isPositive, config)) {
                     continue;
                 }
-                Tuple tuple = tupleFactory.newTuple(3);
+                Tuple tuple = tupleFactory.newTuple(this.isAutoTypeInStats ? 4 : 3);
                 tuple.set(0, i);
                 // Set Data
                 tuple.set(1, input.get(i) == null ? null : input.get(i).toString());
@@ -123,6 +124,10 @@ public class AddColumnNumAndFilterUDF extends AbstractTrainerUDF<DataBag> {
                 if(this.isAppendRandom) {
                     tuple.set(2, Math.abs(random.nextInt() % 300));
                 }
+                if(this.isAutoTypeInStats) {
+                    // column type is not final, check as numerical column
+                    tuple.set(3, isValidRecord(modelConfig.isBinaryClassification(), isPositive, false));
+                }
                 bag.add(tuple);
             }
         }
@@ -138,6 +143,9 @@ public class AddColumnNumAndFilterUDF extends AbstractTrainerUDF<DataBag> {
             if(this.isAppendRandom) {
                 tupleSchema.add(new FieldSchema("rand", DataType.INTEGER));
             }
+            if(this.isAutoTypeInStats) {
+                tupleSchema.add(new FieldSchema("numerical", DataType.BOOLEAN));
+            }
             return new Schema(new Schema.FieldSchema("columnInfos", new Schema(new Schema.FieldSchema("columnInfo",
                     tupleSchema, DataType.TUPLE)), DataType.BAG));
         } catch (IOException e) {
@@ -147,16 +155,18 @@ public class AddColumnNumAndFilterUDF extends AbstractTrainerUDF<DataBag> {
     }
 
     private boolean isValidRecord(boolean isBinary, boolean isPositive, ColumnConfig columnConfig) {
+        return columnConfig != null && isValidRecord(isBinary, isPositive, columnConfig.isCategorical());
+    }
+
+    private boolean isValidRecord(boolean isBinary, boolean isPositive, boolean isCategorical) {
         if(isBinary) {
-            return columnConfig != null
-                    && (columnConfig.isCategorical() || modelConfig.getBinningMethod().equals(BinningMethod.EqualTotal)
-                            || modelConfig.getBinningMethod().equals(BinningMethod.EqualInterval)
-                            || (modelConfig.getBinningMethod().equals(BinningMethod.EqualPositive) && isPositive) || (modelConfig
-                            .getBinningMethod().equals(BinningMethod.EqualNegtive) && !isPositive));
+            return isCategorical || modelConfig.getBinningMethod().equals(BinningMethod.EqualTotal)
+                    || modelConfig.getBinningMethod().equals(BinningMethod.EqualInterval)
+                    || (modelConfig.getBinningMethod().equals(BinningMethod.EqualPositive) && isPositive)
+                    || (modelConfig.getBinningMethod().equals(BinningMethod.EqualNegtive) && !isPositive);
         } else {
-            return columnConfig != null
-                    && (columnConfig.isCategorical() || modelConfig.getBinningMethod().equals(BinningMethod.EqualTotal) || modelConfig
-                            .getBinningMethod().equals(BinningMethod.EqualInterval));
+            return isCategorical || modelConfig.getBinningMethod().equals(BinningMethod.EqualTotal)
+                    || modelConfig.getBinningMethod().equals(BinningMethod.EqualInterval);
         }
     }
 }
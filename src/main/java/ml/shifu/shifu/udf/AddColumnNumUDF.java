@@ -16,11 +16,10 @@
 package ml.shifu.shifu.udf;
 
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Random;
-import java.util.Set;
 
 import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.core.RecordSampler;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
 
@@ -44,15 +43,15 @@ import org.apache.pig.impl.logicalLayer.schema.Schema.FieldSchema;
  */
 public class AddColumnNumUDF extends AbstractTrainerUDF<DataBag> {
 
-    protected Set<String> negTags;
-
     private Random random = new Random(System.currentTimeMillis());
 
+    private RecordSampler sampler;
+
     public AddColumnNumUDF(String source, String pathModelConfig, String pathColumnConfig, String withScoreStr)
             throws Exception {
         super(source, pathModelConfig, pathColumnConfig);
 
-        negTags = new HashSet<String>(modelConfig.getNegTags());
+        sampler = RecordSampler.createStatsSampler(modelConfig, columnConfigList);
     }
 
     public DataBag exec(Tuple input) throws IOException {
@@ -81,15 +80,8 @@ public class AddColumnNumUDF extends AbstractTrainerUDF<DataBag> {
             return null;
         }
 
-        Double rate = modelConfig.getBinningSampleRate();
-        if(modelConfig.isBinningSampleNegOnly()) {
-            if(negTags.contains(tag) && random.nextDouble() > rate) {
-                return null;
-            }
-        } else {
-            if(random.nextDouble() > rate) {
-                return null;
-            }
+        if(sampler.sample(tag, input.getAll()) <= 0d) {
+            return null;
         }
 
         for(int i = 0; i < size; i++) {
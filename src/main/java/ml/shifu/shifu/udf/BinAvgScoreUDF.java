@@ -0,0 +1,237 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.udf;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import ml.shifu.shifu.udf.stats.BinScoreSums;
+
+import org.apache.pig.Algebraic;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.DataByteArray;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.apache.pig.impl.logicalLayer.schema.Schema;
+
+/**
+ * BinAvgScoreUDF class is to calculate the average score for each bin of final selected columns in one pass.
+ *
+ * <p>
+ * Input is the bag of scored rows: (FullScoreUDF output, raw columns...). The first field of full score is average
+ * score of all models, the same as {@link SimpleScoreUDF}, rows with invalid tags are skipped. Output is a bag of
+ * (columnNum, binAvgScore...), the same as {@link CalculateBinAvgScoreUDF}.
+ *
+ * <p>
+ * As an {@link Algebraic} UDF, each row is turned into a compact tuple of (bin position, score) pairs of bins it hits in
+ * mappers, and pairs are expanded to score sums and counts of each bin only when merged in combiners and reducers.
+ */
+public class BinAvgScoreUDF extends AbstractTrainerUDF<DataBag> implements Algebraic {
+
+    private BinScoreSums layout;
+
+    public BinAvgScoreUDF(String source, String pathModelConfig, String pathColumnConfig) throws IOException {
+        super(source, pathModelConfig, pathColumnConfig);
+        this.layout = new BinScoreSums(columnConfigList);
+    }
+
+    @Override
+    public DataBag exec(Tuple input) throws IOException {
+        if(input == null || input.size() == 0) {
+            return null;
+        }
+
+        BinScoreSums sums = new BinScoreSums(this.layout);
+        accumulate(this, (DataBag) input.get(0), sums);
+        return toBag(sums);
+    }
+
+    @Override
+    public String getInitial() {
+        return Initial.class.getName();
+    }
+
+    @Override
+    public String getIntermed() {
+        return Intermediate.class.getName();
+    }
+
+    @Override
+    public String getFinal() {
+        return Final.class.getName();
+    }
+
+    public Schema outputSchema(Schema input) {
+        return null;
+    }
+
+    private static void accumulate(AbstractTrainerUDF<?> udf, DataBag rows, BinScoreSums sums) throws IOException {
+        if(rows == null) {
+            return;
+        }
+        Iterator<Tuple> iter = rows.iterator();
+        while(iter.hasNext()) {
+            Tuple row = iter.next();
+            Double avgScore = getAvgScore(udf, row);
+            if(avgScore == null) {
+                continue;
+            }
+            for(int i = 0; i < sums.size(); i++) {
+                int columnNum = sums.getColumnId(i) + 1;
+                sums.add(i, columnNum < row.size() ? row.get(columnNum) : null, avgScore);
+            }
+        }
+    }
+
+    /**
+     * Average score of a scored row, null if row is invalid or its tag is not a valid tag.
+     */
+    private static Double getAvgScore(AbstractTrainerUDF<?> udf, Tuple row) throws IOException {
+        if(row == null || row.size() <= udf.tagColumnNum + 1 || row.get(0) == null) {
+            return null;
+        }
+
+        Object tag = row.get(udf.tagColumnNum + 1);
+        if(tag == null || !isValidTag(udf, tag.toString())) {
+            // invalid record
+            return null;
+        }
+
+        Object score = ((Tuple) row.get(0)).get(0);
+        if(score == null) {
+            return null;
+        }
+        return ((Number) score).doubleValue();
+    }
+
+    private static boolean isValidTag(AbstractTrainerUDF<?> udf, String tag) {
+        return (udf.posTagSet != null && udf.posTagSet.contains(tag))
+                || (udf.negTagSet != null && udf.negTagSet.contains(tag));
+    }
+
+    private static DataBag toBag(BinScoreSums sums) {
+        DataBag bag = BagFactory.getInstance().newDefaultBag();
+        for(int i = 0; i < sums.size(); i++) {
+            Tuple tuple = TupleFactory.getInstance().newTuple();
+            tuple.append(sums.getColumnId(i));
+            for(int score: sums.getBinAvgScores(i)) {
+                tuple.append(score);
+            }
+            bag.add(tuple);
+        }
+        return bag;
+    }
+
+    /**
+     * Merge partial results into empty sums of the layout. A partial result is either a tuple of (bin position, score)
+     * pairs from {@link Initial} or a tuple of serialized sums from {@link Intermediate}, since combiner may not run.
+     */
+    private static BinScoreSums merge(BinScoreSums layout, DataBag bag) throws IOException {
+        BinScoreSums sums = new BinScoreSums(layout);
+        Iterator<Tuple> iter = bag.iterator();
+        while(iter.hasNext()) {
+            Tuple tuple = iter.next();
+            if(tuple == null || tuple.size() == 0 || tuple.get(0) == null) {
+                continue;
+            }
+            if(tuple.get(0) instanceof DataByteArray) {
+                sums.merge(((DataByteArray) tuple.get(0)).get());
+            } else {
+                for(int i = 0; i + 1 < tuple.size(); i += 2) {
+                    sums.addPosition((Integer) tuple.get(i), (Double) tuple.get(i + 1));
+                }
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Turn rows into (bin position, score) pairs in map side, it is called with a bag of one row. Output is an empty
+     * tuple if the row is invalid.
+     */
+    public static class Initial extends AbstractTrainerUDF<Tuple> {
+
+        private BinScoreSums layout;
+
+        public Initial(String source, String pathModelConfig, String pathColumnConfig) throws IOException {
+            super(source, pathModelConfig, pathColumnConfig);
+            this.layout = new BinScoreSums(columnConfigList);
+        }
+
+        @Override
+        public Tuple exec(Tuple input) throws IOException {
+            Tuple output = TupleFactory.getInstance().newTuple();
+            if(input == null || input.size() == 0 || input.get(0) == null) {
+                return output;
+            }
+            Iterator<Tuple> iter = ((DataBag) input.get(0)).iterator();
+            while(iter.hasNext()) {
+                Tuple row = iter.next();
+                Double avgScore = getAvgScore(this, row);
+                if(avgScore == null) {
+                    continue;
+                }
+                for(int i = 0; i < this.layout.size(); i++) {
+                    int columnNum = this.layout.getColumnId(i) + 1;
+                    int position = this.layout.getPosition(i, columnNum < row.size() ? row.get(columnNum) : null);
+                    if(position >= 0) {
+                        output.append(position);
+                        output.append(avgScore);
+                    }
+                }
+            }
+            return output;
+        }
+    }
+
+    /**
+     * Merge score sums in combiner.
+     */
+    public static class Intermediate extends AbstractTrainerUDF<Tuple> {
+
+        private BinScoreSums layout;
+
+        public Intermediate(String source, String pathModelConfig, String pathColumnConfig) throws IOException {
+            super(source, pathModelConfig, pathColumnConfig);
+            this.layout = new BinScoreSums(columnConfigList);
+        }
+
+        @Override
+        public Tuple exec(Tuple input) throws IOException {
+            BinScoreSums sums = merge(this.layout, (DataBag) input.get(0));
+            return TupleFactory.getInstance().newTuple(new DataByteArray(sums.toBytes()));
+        }
+    }
+
+    /**
+     * Merge score sums in reducer and output average score of each bin per column.
+     */
+    public static class Final extends AbstractTrainerUDF<DataBag> {
+
+        private BinScoreSums layout;
+
+        public Final(String source, String pathModelConfig, String pathColumnConfig) throws IOException {
+            super(source, pathModelConfig, pathColumnConfig);
+            this.layout = new BinScoreSums(columnConfigList);
+        }
+
+        @Override
+        public DataBag exec(Tuple input) throws IOException {
+            return toBag(merge(this.layout, (DataBag) input.get(0)));
+        }
+    }
+}
@@ -22,7 +22,9 @@ import java.util.Iterator;
 import java.util.List;
 
 import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ColumnConfig.ColumnType;
 import ml.shifu.shifu.core.binning.AbstractBinning;
+import ml.shifu.shifu.core.binning.AutoTypeBinning;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.pig.data.DataBag;
@@ -66,6 +68,7 @@ public class BinningDataMergeUDF extends AbstractTrainerUDF<Tuple> {
         ColumnConfig columnConfig = super.columnConfigList.get(columnId);
 
         AbstractBinning<?> binning = null;
+        AutoTypeBinning autoTypeBinning = null;
         log.info("Start merging bin info for columnId - " + columnId + ", the bag size is - " + databag.size());
 
         Iterator<Tuple> iterator = databag.iterator();
@@ -77,6 +80,16 @@ public class BinningDataMergeUDF extends AbstractTrainerUDF<Tuple> {
 
             String objValStr = (String) element.get(1);
             long start = System.currentTimeMillis();
+            if(modelConfig.isAutoTypeInStats()) {
+                AutoTypeBinning partialBinning = AutoTypeBinning.constructBinningFromStr(modelConfig, objValStr);
+                if(autoTypeBinning == null) {
+                    autoTypeBinning = partialBinning;
+                } else {
+                    autoTypeBinning.mergeBin(partialBinning);
+                }
+                log.info("merge auto type binning: " + (System.currentTimeMillis() - start) + "ms");
+                continue;
+            }
             AbstractBinning<?> partialBinning = AbstractBinning.constructBinningFromStr(modelConfig, columnConfig,
                     objValStr);
             log.info("constructBinningFromStr: " + (System.currentTimeMillis() - start) + "ms");
@@ -90,8 +103,18 @@ public class BinningDataMergeUDF extends AbstractTrainerUDF<Tuple> {
             log.info("mergeBin: " + (System.currentTimeMillis() - start) + "ms");
         }
 
-        Tuple output = TupleFactory.getInstance().newTuple(2);
+        Tuple output = TupleFactory.getInstance().newTuple(autoTypeBinning == null ? 2 : 4);
         output.set(0, columnId);
+        if(autoTypeBinning != null) {
+            // resolve column type before bin boundaries are generated
+            ColumnType columnType = autoTypeBinning.resolveType(columnConfig.getColumnType(), modelConfig
+                    .getDataSet().getAutoTypeThreshold());
+            log.info("Auto type of columnId - " + columnId + " is " + columnType + ", distinct count - "
+                    + autoTypeBinning.getDistinctCount() + ", numeric ratio - " + autoTypeBinning.getNumericRatio());
+            binning = autoTypeBinning.getBinning(columnType);
+            output.set(2, columnType.toString());
+            output.set(3, autoTypeBinning.getDistinctCount());
+        }
         List<?> binFields = binning.getDataBin();
 
         // Do check here. It's because if there are too many value for categorical variable,
@@ -113,6 +136,10 @@ public class BinningDataMergeUDF extends AbstractTrainerUDF<Tuple> {
             Schema tupleSchema = new Schema();
             tupleSchema.add(new FieldSchema("columnId", DataType.INTEGER));
             tupleSchema.add(new FieldSchema("binningDataInfo", DataType.CHARARRAY));
+            if(modelConfig.isAutoTypeInStats()) {
+                tupleSchema.add(new FieldSchema("columnType", DataType.CHARARRAY));
+                tupleSchema.add(new FieldSchema("distinctCount", DataType.LONG));
+            }
 
             return new Schema(new Schema.FieldSchema("BinningDataInfo", tupleSchema, DataType.TUPLE));
         } catch (IOException e) {
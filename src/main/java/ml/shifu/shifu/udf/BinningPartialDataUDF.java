@@ -24,6 +24,7 @@ import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelStatsConf.BinningMethod;
 import ml.shifu.shifu.core.binning.AbstractBinning;
+import ml.shifu.shifu.core.binning.AutoTypeBinning;
 import ml.shifu.shifu.core.binning.CategoricalBinning;
 import ml.shifu.shifu.core.binning.EqualIntervalBinning;
 import ml.shifu.shifu.core.binning.EqualPopulationBinning;
@@ -43,6 +44,7 @@ public class BinningPartialDataUDF extends AbstractTrainerUDF<String> {
 
     private int columnId = -1;
     private AbstractBinning<?> binning = null;
+    private AutoTypeBinning autoTypeBinning = null;
     private int histoScaleFactor;
 
     /**
@@ -92,7 +94,9 @@ public class BinningPartialDataUDF extends AbstractTrainerUDF<String> {
             if(columnId < 0) {
                 columnId = (Integer) element.get(0);
                 ColumnConfig columnConfig = super.columnConfigList.get(columnId);
-                if(columnConfig.isCategorical()) {
+                if(super.modelConfig.isAutoTypeInStats()) {
+                    autoTypeBinning = new AutoTypeBinning(super.modelConfig);
+                } else if(columnConfig.isCategorical()) {
                     binning = new CategoricalBinning(-1);
                 } else {
                     if(super.modelConfig.getBinningMethod().equals(BinningMethod.EqualInterval)) {
@@ -105,11 +109,22 @@ public class BinningPartialDataUDF extends AbstractTrainerUDF<String> {
 
             Object value = element.get(1);
             if(value != null) {
-                binning.addData(value.toString());
+                if(autoTypeBinning != null) {
+                    // the 4th field tells if the record is used in numerical binning
+                    autoTypeBinning.addData(value.toString(), element.size() < 4 || element.get(3) == null
+                            || (Boolean) element.get(3));
+                } else {
+                    binning.addData(value.toString());
+                }
             }
         }
 
-        String binningObjStr = ((binning == null) ? null : binning.objToString());
+        String binningObjStr = null;
+        if(autoTypeBinning != null) {
+            binningObjStr = autoTypeBinning.objToString();
+        } else if(binning != null) {
+            binningObjStr = binning.objToString();
+        }
 
         cleanUp();
 
@@ -122,6 +137,7 @@ public class BinningPartialDataUDF extends AbstractTrainerUDF<String> {
     private void cleanUp() {
         this.columnId = -1;
         this.binning = null;
+        this.autoTypeBinning = null;
     }
 
     @Override
@@ -17,7 +17,7 @@ package ml.shifu.shifu.udf;
 
 import ml.shifu.shifu.container.obj.EvalConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
-import ml.shifu.shifu.core.Reasoner;
+import ml.shifu.shifu.core.ReasonCodeEngine;
 import ml.shifu.shifu.fs.PathFinder;
 import ml.shifu.shifu.util.CommonUtils;
 import org.apache.pig.data.Tuple;
@@ -36,9 +36,34 @@ import java.util.Map;
  */
 public class CalculateReasonCodeUDF extends AbstractTrainerUDF<Tuple> {
 
+    private static final String[] OUTPUT_HEADERS = new String[] { "UnauthScore", "TxnSnrId", "TxnCpId",
+            "TxnCreatedTs", "TxnAmtUsd", "ActivityID" };
+
     private Map<String, String> reasonCodeMap;
     private String[] headers;
 
+    /**
+     * Reason code engine with lookup tables built once
+     */
+    private ReasonCodeEngine reasonCodeEngine;
+
+    /**
+     * Input index of each column in reason code engine, -1 if not in headers
+     */
+    private int[] columnIndexes;
+
+    /**
+     * Input index of each output header, -1 if not in headers
+     */
+    private int[] outputIndexes;
+
+    /**
+     * Raw values of columns in reason code engine, reused for each record
+     */
+    private String[] columnValues;
+
+    private SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
     public CalculateReasonCodeUDF(String source, String pathModelConfig, String pathColumnConfig, String evalSetName) throws Exception {
         super(source, pathModelConfig, pathColumnConfig);
 
@@ -58,6 +83,28 @@ public class CalculateReasonCodeUDF extends AbstractTrainerUDF<Tuple> {
                 evalConfig.getDataSet().getSource());
 
         log.debug("The length of header is: " + headers.length);
+
+        Map<String, Integer> headerIndexes = new HashMap<String, Integer>();
+        for (int i = 0; i < headers.length; i++) {
+            headerIndexes.put(headers[i], i);
+        }
+
+        reasonCodeEngine = new ReasonCodeEngine(columnConfigList, reasonCodeMap);
+        columnIndexes = new int[reasonCodeEngine.size()];
+        for (int i = 0; i < columnIndexes.length; i++) {
+            Integer index = headerIndexes.get(reasonCodeEngine.getColumnName(i));
+            if (index == null) {
+                log.error("Variable Missing in Test Data: " + reasonCodeEngine.getColumnName(i));
+            }
+            columnIndexes[i] = index == null ? -1 : index;
+        }
+        columnValues = new String[columnIndexes.length];
+
+        outputIndexes = new int[OUTPUT_HEADERS.length];
+        for (int i = 0; i < outputIndexes.length; i++) {
+            Integer index = headerIndexes.get(OUTPUT_HEADERS[i]);
+            outputIndexes[i] = index == null ? -1 : index;
+        }
     }
 
     public Tuple exec(Tuple input) throws IOException {
@@ -67,35 +114,27 @@ public class CalculateReasonCodeUDF extends AbstractTrainerUDF<Tuple> {
             return null;
         }
 
-        Map<String, String> rawDataMap = new HashMap<String, String>();
-
+        String[] outputValues = new String[outputIndexes.length];
         try {
-            for (int i = 0; i < headers.length; i++) {
-                Object t = input.get(i);
-                if (t == null) {
-                    continue;
-                }
-                rawDataMap.put(headers[i], t.toString());
-                //log.info(headers[i] + ", " + t.toString());
+            for (int i = 0; i < columnIndexes.length; i++) {
+                columnValues[i] = getValue(input, columnIndexes[i]);
+            }
+            for (int i = 0; i < outputIndexes.length; i++) {
+                outputValues[i] = getValue(input, outputIndexes[i]);
             }
         } catch (Exception e) {
             e.printStackTrace();
             return null;
         }
 
-        //result.append(rawDataMap.toString());
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        result.append(outputValues[0]);
+        result.append(outputValues[1]);
+        result.append(outputValues[2]);
+        result.append(sdf.format(new Date(1000 * Long.parseLong(outputValues[3]))));
+        result.append(outputValues[4]);
+        result.append(outputValues[5]);
 
-        Reasoner reasoner = new Reasoner(this.reasonCodeMap);
-        result.append(rawDataMap.get("UnauthScore"));
-        result.append(rawDataMap.get("TxnSnrId"));
-        result.append(rawDataMap.get("TxnCpId"));
-        result.append(sdf.format(new Date(1000 * Long.parseLong(rawDataMap.get("TxnCreatedTs")))));
-        result.append(rawDataMap.get("TxnAmtUsd"));
-        result.append(rawDataMap.get("ActivityID"));
-        reasoner.calculateReasonCodes(columnConfigList, rawDataMap);
-
-        List<String> reasons = reasoner.getReasonCodes();
+        List<String> reasons = reasonCodeEngine.calculateReasonCodes(columnValues);
 
         try {
             if (reasons != null) {
@@ -112,6 +151,14 @@ public class CalculateReasonCodeUDF extends AbstractTrainerUDF<Tuple> {
         return result;
     }
 
+    private static String getValue(Tuple input, int index) throws IOException {
+        if (index < 0) {
+            return null;
+        }
+        Object t = input.get(index);
+        return t == null ? null : t.toString();
+    }
+
     public Schema outputSchema(Schema input) {
         //Utils.getSchemaFromString(schemaString)
         return null;
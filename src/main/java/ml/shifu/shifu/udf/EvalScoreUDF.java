@@ -16,12 +16,15 @@
 package ml.shifu.shifu.udf;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import ml.shifu.shifu.container.CaseScoreResult;
 import ml.shifu.shifu.container.obj.EvalConfig;
+import ml.shifu.shifu.core.DataPurifier;
 import ml.shifu.shifu.core.ModelRunner;
+import ml.shifu.shifu.core.eval.ScoreGroup;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
@@ -39,12 +42,23 @@ import org.encog.ml.BasicML;
 
 /**
  * Calculate the score for each evaluation data
+ * <p>
+ * Eval set names can be joined by comma to score eval sets of one {@link ScoreGroup} together. The first eval set is
+ * used for models and score output layout, and selected column of each eval set is appended after meta columns.
  */
 public class EvalScoreUDF extends AbstractTrainerUDF<Tuple> {
 
     private static final String SCHEMA_PREFIX = "shifu::";
 
     private EvalConfig evalConfig;
+    private ScoreGroup scoreGroup;
+    private List<String> metaColumns;
+
+    /**
+     * Filters of eval sets in shared score output, in the same order of eval sets in {@link #scoreGroup}.
+     */
+    private List<DataPurifier> dataPurifiers;
+
     private ModelRunner modelRunner;
     private String[] headers;
 
@@ -58,7 +72,15 @@ public class EvalScoreUDF extends AbstractTrainerUDF<Tuple> {
             throws IOException {
         super(source, pathModelConfig, pathColumnConfig);
 
-        evalConfig = modelConfig.getEvalConfigByName(evalSetName);
+        scoreGroup = ScoreGroup.fromNames(modelConfig, evalSetName);
+        evalConfig = scoreGroup.getScoreEvalConfig();
+        metaColumns = scoreGroup.getMetaColumns();
+        if(scoreGroup.isShared()) {
+            dataPurifiers = new ArrayList<DataPurifier>();
+            for(EvalConfig config: scoreGroup.getEvalConfigs()) {
+                dataPurifiers.add(new DataPurifier(config));
+            }
+        }
 
         if(evalConfig.getModelsPath() != null) {
             // renew columnConfig
@@ -96,8 +118,15 @@ public class EvalScoreUDF extends AbstractTrainerUDF<Tuple> {
 
         String tag = rawDataMap.get(modelConfig.getTargetColumnName(evalConfig));
 
-        // filter invalid tag record out
-        if(!tagSet.contains(tag)) {
+        boolean[] selected = null;
+        if(scoreGroup.isShared()) {
+            // record is kept if any eval set selects it
+            selected = select(input, rawDataMap);
+            if(selected == null) {
+                return null;
+            }
+        } else if(!tagSet.contains(tag)) {
+            // filter invalid tag record out
             if(System.currentTimeMillis() % 100 == 0) {
                 log.warn("Invalid tag: " + tag);
             }
@@ -115,15 +144,20 @@ public class EvalScoreUDF extends AbstractTrainerUDF<Tuple> {
         Tuple tuple = TupleFactory.getInstance().newTuple();
         tuple.append(StringUtils.trimToEmpty(tag));
 
-        String weight = null;
-        if(StringUtils.isNotBlank(evalConfig.getDataSet().getWeightColumnName())) {
-            weight = rawDataMap.get(evalConfig.getDataSet().getWeightColumnName());
+        String weight = getWeight(evalConfig, rawDataMap);
+        if(selected == null) {
+            incrementTagCounters(tag, weight, evalConfig);
         } else {
-            weight = "1.0";
+            List<EvalConfig> evalConfigs = scoreGroup.getEvalConfigs();
+            for(int i = 0; i < selected.length; i++) {
+                if(selected[i]) {
+                    EvalConfig config = evalConfigs.get(i);
+                    incrementTagCounters(rawDataMap.get(modelConfig.getTargetColumnName(config)),
+                            getWeight(config, rawDataMap), config);
+                }
+            }
         }
 
-        incrementTagCounters(tag, weight);
-
         tuple.append(weight);
 
         if(modelConfig.isBinaryClassification()) {
@@ -142,45 +176,67 @@ public class EvalScoreUDF extends AbstractTrainerUDF<Tuple> {
         }
 
         // append meta data
-        List<String> metaColumns = evalConfig.getScoreMetaColumns(modelConfig);
         if(CollectionUtils.isNotEmpty(metaColumns)) {
             for(String meta: metaColumns) {
                 tuple.append(rawDataMap.get(meta));
             }
         }
 
+        if(selected != null) {
+            for(boolean isSelected: selected) {
+                tuple.append(Boolean.toString(isSelected));
+            }
+        }
+
         return tuple;
     }
 
-    @SuppressWarnings("deprecation")
-    private void incrementTagCounters(String tag, String weight) {
-        long weightLong = (long) (Double.parseDouble(weight) * Constants.EVAL_COUNTER_WEIGHT_SCALE);
+    /**
+     * Check whether record is selected by each eval set of shared score output: the record passes filter of eval set
+     * and has a valid target.
+     * 
+     * @return selected flags of eval sets, or null if no eval set selects the record
+     */
+    private boolean[] select(Tuple input, Map<String, String> rawDataMap) throws IOException {
+        List<EvalConfig> evalConfigs = scoreGroup.getEvalConfigs();
+        boolean[] selected = new boolean[evalConfigs.size()];
+        boolean isAnySelected = false;
+        for(int i = 0; i < selected.length; i++) {
+            selected[i] = tagSet.contains(rawDataMap.get(modelConfig.getTargetColumnName(evalConfigs.get(i))))
+                    && dataPurifiers.get(i).isFilterOut(input);
+            isAnySelected |= selected[i];
+        }
+        return isAnySelected ? selected : null;
+    }
 
-        if(isPigEnabled(Constants.SHIFU_GROUP_COUNTER, Constants.COUNTER_RECORDS)) {
-            PigStatusReporter.getInstance().getCounter(Constants.SHIFU_GROUP_COUNTER, Constants.COUNTER_RECORDS)
-                    .increment(1);
+    private String getWeight(EvalConfig config, Map<String, String> rawDataMap) {
+        if(StringUtils.isNotBlank(config.getDataSet().getWeightColumnName())) {
+            return rawDataMap.get(config.getDataSet().getWeightColumnName());
+        } else {
+            return "1.0";
         }
+    }
+
+    private void incrementTagCounters(String tag, String weight, EvalConfig config) {
+        long weightLong = (long) (Double.parseDouble(weight) * Constants.EVAL_COUNTER_WEIGHT_SCALE);
+
+        incrementCounter(scoreGroup.getCounterName(Constants.COUNTER_RECORDS, config), 1);
 
         if(posTagSet.contains(tag)) {
-            if(isPigEnabled(Constants.SHIFU_GROUP_COUNTER, Constants.COUNTER_POSTAGS)) {
-                PigStatusReporter.getInstance().getCounter(Constants.SHIFU_GROUP_COUNTER, Constants.COUNTER_POSTAGS)
-                        .increment(1);
-            }
-            if(isPigEnabled(Constants.SHIFU_GROUP_COUNTER, Constants.COUNTER_WPOSTAGS)) {
-                PigStatusReporter.getInstance().getCounter(Constants.SHIFU_GROUP_COUNTER, Constants.COUNTER_WPOSTAGS)
-                        .increment(weightLong);
-            }
+            incrementCounter(scoreGroup.getCounterName(Constants.COUNTER_POSTAGS, config), 1);
+            incrementCounter(scoreGroup.getCounterName(Constants.COUNTER_WPOSTAGS, config), weightLong);
         }
 
         if(negTagSet.contains(tag)) {
-            if(isPigEnabled(Constants.SHIFU_GROUP_COUNTER, Constants.COUNTER_NEGTAGS)) {
-                PigStatusReporter.getInstance().getCounter(Constants.SHIFU_GROUP_COUNTER, Constants.COUNTER_NEGTAGS)
-                        .increment(1);
-            }
-            if(isPigEnabled(Constants.SHIFU_GROUP_COUNTER, Constants.COUNTER_WNEGTAGS)) {
-                PigStatusReporter.getInstance().getCounter(Constants.SHIFU_GROUP_COUNTER, Constants.COUNTER_WNEGTAGS)
-                        .increment(weightLong);
-            }
+            incrementCounter(scoreGroup.getCounterName(Constants.COUNTER_NEGTAGS, config), 1);
+            incrementCounter(scoreGroup.getCounterName(Constants.COUNTER_WNEGTAGS, config), weightLong);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void incrementCounter(String counter, long value) {
+        if(isPigEnabled(Constants.SHIFU_GROUP_COUNTER, counter)) {
+            PigStatusReporter.getInstance().getCounter(Constants.SHIFU_GROUP_COUNTER, counter).increment(value);
         }
     }
 
@@ -222,13 +278,18 @@ public class EvalScoreUDF extends AbstractTrainerUDF<Tuple> {
                 }
             }
 
-            List<String> metaColumns = evalConfig.getScoreMetaColumns(modelConfig);
             if(CollectionUtils.isNotEmpty(metaColumns)) {
                 for(String columnName: metaColumns) {
                     tupleSchema.add(new FieldSchema(columnName, DataType.CHARARRAY));
                 }
             }
 
+            if(scoreGroup.isShared()) {
+                for(EvalConfig config: scoreGroup.getEvalConfigs()) {
+                    tupleSchema.add(new FieldSchema(ScoreGroup.getSelectedColumnName(config), DataType.CHARARRAY));
+                }
+            }
+
             return new Schema(new Schema.FieldSchema("EvalScore", tupleSchema, DataType.TUPLE));
         } catch (IOException e) {
             log.error("Error in outputSchema", e);
@@ -23,8 +23,8 @@ import java.util.Map;
 import ml.shifu.shifu.container.WeightAmplifier;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelNormalizeConf.NormType;
-import ml.shifu.shifu.core.DataSampler;
 import ml.shifu.shifu.core.Normalizer;
+import ml.shifu.shifu.core.RecordSampler;
 import ml.shifu.shifu.util.CommonUtils;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -50,6 +50,7 @@ public class NormalizeParquetUDF extends AbstractTrainerUDF<Tuple> {
     private NormType normType;
     private Expression weightExpr;
     private JexlContext weightContext;
+    private RecordSampler sampler;
 
     // private DecimalFormat df = new DecimalFormat("#.######");
 
@@ -75,6 +76,8 @@ public class NormalizeParquetUDF extends AbstractTrainerUDF<Tuple> {
             weightContext = new MapContext();
         }
 
+        sampler = RecordSampler.createNormalizeSampler(modelConfig, columnConfigList);
+
         log.debug("NormalizeUDF Initialized");
 
     }
@@ -86,9 +89,12 @@ public class NormalizeParquetUDF extends AbstractTrainerUDF<Tuple> {
 
         // do data sampling. Unselected data or data with invalid tag will be filtered out.
         final String rawTag = input.get(tagColumnNum).toString();
-        boolean isNotSampled = DataSampler.isNotSampled(posTags, negTags, modelConfig.getNormalizeSampleRate(),
-                modelConfig.isNormalizeSampleNegOnly(), rawTag);
-        if(isNotSampled) {
+        if(!(posTags.contains(rawTag) || negTags.contains(rawTag))) {
+            log.error("Invalid target column value - " + rawTag);
+            return null;
+        }
+        double sampleWeight = sampler.sample(rawTag, input.getAll());
+        if(sampleWeight <= 0d) {
             return null;
         }
 
@@ -126,7 +132,7 @@ public class NormalizeParquetUDF extends AbstractTrainerUDF<Tuple> {
         }
 
         // append tuple with weight.
-        double weight = evaluateWeight(weightExpr, weightContext);
+        double weight = evaluateWeight(weightExpr, weightContext) * sampleWeight;
         tuple.append(weight);
 
         return tuple;
@@ -16,7 +16,6 @@
 package ml.shifu.shifu.udf;
 
 import java.io.IOException;
-import java.text.DecimalFormat;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,15 +24,15 @@ import java.util.Set;
 import ml.shifu.shifu.container.WeightAmplifier;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelNormalizeConf.NormType;
-import ml.shifu.shifu.core.DataSampler;
 import ml.shifu.shifu.core.Normalizer;
+import ml.shifu.shifu.core.RecordSampler;
+import ml.shifu.shifu.core.expr.ColumnExpression;
+import ml.shifu.shifu.core.expr.CompiledExpression;
 import ml.shifu.shifu.util.CommonUtils;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.jexl2.Expression;
-import org.apache.commons.jexl2.JexlContext;
 import org.apache.commons.jexl2.JexlEngine;
-import org.apache.commons.jexl2.MapContext;
 import org.apache.commons.lang.StringUtils;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
@@ -42,6 +41,12 @@ import org.apache.pig.impl.util.Utils;
 
 /**
  * NormalizeUDF class normalize the training data for parquet format.
+ * 
+ * <p>
+ * Normalized values of numerical and categorical columns and weight are appended as float and declared as float in
+ * {@link #outputSchema(Schema)}. Stored text of float is {@link Float#toString()}, very small or big values are in
+ * scientific notation like {@code 1.0E-4}, which is accepted by all number parsers of normalized data. Weight
+ * expression is compiled and only columns referenced by it are read, see {@link ColumnExpression}.
  */
 public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
 
@@ -49,9 +54,14 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
 
     private Double cutoff;
     private NormType normType;
-    private Expression weightExpr;
-    private JexlContext weightContext;
-    private DecimalFormat df = new DecimalFormat("#.######");
+    private ColumnExpression weightExpr;
+
+    /**
+     * Reused fields for weight expression, only columns referenced by weight expression are set.
+     */
+    private String[] weightFields;
+
+    private RecordSampler sampler;
 
     public NormalizeUDF(String source, String pathModelConfig, String pathColumnConfig) throws Exception {
         super(source, pathModelConfig, pathColumnConfig);
@@ -66,10 +76,11 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
 
         weightExpr = createExpression(modelConfig.getWeightColumnName());
         if(weightExpr != null) {
-            weightContext = new MapContext();
+            weightFields = new String[columnConfigList.size()];
         }
 
         this.tags = super.modelConfig.getSetTags();
+        this.sampler = RecordSampler.createNormalizeSampler(modelConfig, columnConfigList);
 
         log.debug("NormalizeUDF Initialized");
     }
@@ -86,11 +97,9 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
             return null;
         }
 
-        // do data sampling. Unselected data or data with invalid tag will be filtered out.
-        boolean isNotSampled = DataSampler.isNotSampled(modelConfig.isBinaryClassification(), super.tagSet,
-                super.posTagSet, super.negTagSet, modelConfig.getNormalizeSampleRate(),
-                modelConfig.isNormalizeSampleNegOnly(), rawTag);
-        if(isNotSampled) {
+        // do data sampling, weight of record sampled by tag sample rate is compensated.
+        double sampleWeight = this.sampler.sample(rawTag, input.getAll());
+        if(sampleWeight <= 0d) {
             return null;
         }
 
@@ -102,11 +111,6 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
             ColumnConfig config = columnConfigList.get(i);
             String val = (input.get(i) == null) ? "" : input.get(i).toString();
 
-            // load variables for weight calculating.
-            if(weightExpr != null) {
-                weightContext.set(config.getColumnName(), val);
-            }
-
             // check tag type.
             if(tagColumnNum == i) {
                 if(modelConfig.isBinaryClassification()) {
@@ -139,30 +143,68 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
                 tuple.append(null);
             } else {
                 Double normVal = Normalizer.normalize(config, val, cutoff, normType);
-                tuple.append(df.format(normVal));
+                tuple.append(normVal.floatValue());
             }
         }
 
         // append tuple with weight.
-        double weight = evaluateWeight(weightExpr, weightContext);
-        tuple.append(weight);
+        double weight = evaluateWeight(input) * sampleWeight;
+        tuple.append((float) weight);
 
         return tuple;
     }
 
     /**
-     * Evaluate weight expression based on the variables context.
+     * Evaluate weight expression, columns referenced by weight expression are read from input.
      * 
-     * @param expr
-     *            - weight evaluation expression
-     * @param jc
-     *            - A JexlContext containing variables for weight expression.
+     * @param input
+     *            - input tuple
      * @return The result of this evaluation
+     * @throws IOException
+     *             - if any exception in reading input tuple
      */
-    public double evaluateWeight(Expression expr, JexlContext jc) {
+    private double evaluateWeight(Tuple input) throws IOException {
+        if(weightExpr == null) {
+            return 1.0d;
+        }
+
+        for(int i: weightExpr.getColumnIndexes()) {
+            if(i < input.size()) {
+                weightFields[i] = (input.get(i) == null) ? "" : input.get(i).toString();
+            } else {
+                weightFields[i] = null;
+            }
+        }
+
+        CompiledExpression compiled = weightExpr.getCompiled();
+        if(compiled != null) {
+            if(compiled.isColumn()) {
+                // jexl returns raw string for column name
+                return toWeight(weightFields[compiled.getColumnIndexes()[0]]);
+            }
+            if(compiled.isArithmetic()) {
+                double weight = compiled.evaluateNumber(weightFields);
+                // integral result out of int range is Long in jexl, which is not accepted
+                if(!Double.isNaN(weight)
+                        && (compiled.isFloating(weightFields) || (weight >= Integer.MIN_VALUE
+                                && weight <= Integer.MAX_VALUE))) {
+                    return weight;
+                }
+            }
+        }
+        return toWeight(weightExpr.evaluate(weightFields));
+    }
+
+    /**
+     * Convert result of weight expression to weight.
+     * 
+     * @param result
+     *            - result of weight expression
+     * @return weight, 1.0 if result is not a number
+     */
+    private double toWeight(Object result) {
         double weight = 1.0d;
-        if(expr != null) {
-            Object result = expr.evaluate(jc);
+        if(result != null) {
             if(result instanceof Integer) {
                 weight = ((Integer) result).doubleValue();
             } else if(result instanceof Double) {
@@ -209,11 +251,17 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
         try {
             StringBuilder schemaStr = new StringBuilder();
             schemaStr.append("Normalized:Tuple(");
-            for(ColumnConfig config: columnConfigList) {
-                if(!config.isMeta() && config.isNumerical()) {
-                    schemaStr.append(config.getColumnName() + ":float" + ",");
-                } else {
+            for(int i = 0; i < columnConfigList.size(); i++) {
+                ColumnConfig config = columnConfigList.get(i);
+                if(i == tagColumnNum) {
+                    // tag type is "0" or "1" for binary classification and tag index for multiple classification
+                    schemaStr.append(config.getColumnName()
+                            + (modelConfig.isBinaryClassification() ? ":chararray" : ":int") + ",");
+                } else if(config.isMeta()) {
                     schemaStr.append(config.getColumnName() + ":chararray" + ",");
+                } else {
+                    // both numerical and categorical columns are normalized to float
+                    schemaStr.append(config.getColumnName() + ":float" + ",");
                 }
             }
             schemaStr.append("weight:float)");
@@ -251,10 +299,13 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
      * @param weightAmplifier
      * @return expression for weight amplifier
      */
-    private Expression createExpression(String weightAmplifier) {
+    private ColumnExpression createExpression(String weightAmplifier) {
         if(StringUtils.isNotBlank(weightAmplifier)) {
-            JexlEngine jexl = new JexlEngine();
-            return jexl.createExpression(weightAmplifier);
+            String[] columnNames = new String[columnConfigList.size()];
+            for(int i = 0; i < columnNames.length; i++) {
+                columnNames[i] = columnConfigList.get(i).getColumnName();
+            }
+            return new ColumnExpression(weightAmplifier, columnNames);
         }
         return null;
     }
@@ -1,6 +1,7 @@
 package ml.shifu.shifu.udf;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.data.DataBag;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
@@ -55,31 +56,21 @@ public class PSICalculatorUDF extends AbstractTrainerUDF<Tuple> {
         while (iter.hasNext()) {
             Tuple tuple = iter.next();
             if (tuple != null && tuple.size() != 0) {
-                String subBinStr = (String) tuple.get(1);
-                String[] subBinArr = StringUtils.split(subBinStr, CalculateStatsUDF.CATEGORY_VAL_SEPARATOR);
-                List<Double> subCounter = new ArrayList<Double>();
-                Double total = 0D;
-                for(String binningElement: subBinArr) {
-                    Double dVal = Double.valueOf(binningElement);
-                    subCounter.add(dVal);
-                    total += dVal;
+                double[] subCounter = toCounter(tuple.get(1));
+                double total = 0D;
+                for (double sub : subCounter) {
+                    total += sub;
+                }
+                if (total == 0) {
+                    continue;
                 }
 
-                int i = 0;
-                for (Double sub : subCounter) {
-                    if ( total == 0 ) {
-                        continue;
-                    } else if (expected.get(i) == 0) {
+                for (int i = 0; i < subCounter.length && i < expected.size(); i ++) {
+                    double actual = subCounter[i] / total;
+                    if (expected.get(i) == 0 || actual <= 0) {
                         continue;
-                    } else {
-                        double logNum = (sub / total) / expected.get(i);
-                        if (logNum <= 0) {
-                            continue;
-                        } else {
-                            psi = psi + ((sub / total - expected.get(i)) * Math.log((sub / total) / expected.get(i)));
-                        }
                     }
-                    i ++;
+                    psi = psi + ((actual - expected.get(i)) * Math.log(actual / expected.get(i)));
                 }
             }
         }
@@ -90,6 +81,28 @@ public class PSICalculatorUDF extends AbstractTrainerUDF<Tuple> {
         return output;
     }
 
+    /**
+     * Population is a tuple of bin counts from {@link PopulationCounterUDF}, or joined string of counts.
+     */
+    private double[] toCounter(Object population) throws ExecException {
+        if (population instanceof Tuple) {
+            Tuple bins = (Tuple) population;
+            double[] counter = new double[bins.size()];
+            for (int i = 0; i < counter.length; i ++) {
+                Object bin = bins.get(i);
+                counter[i] = (bin == null) ? 0D : ((Number) bin).doubleValue();
+            }
+            return counter;
+        }
+
+        String[] subBinArr = StringUtils.split((String) population, CalculateStatsUDF.CATEGORY_VAL_SEPARATOR);
+        double[] counter = new double[subBinArr.length];
+        for (int i = 0; i < counter.length; i ++) {
+            counter[i] = Double.parseDouble(subBinArr[i]);
+        }
+        return counter;
+    }
+
     public Schema outputSchema(Schema input) {
         try {
             return Utils
@@ -1,89 +1,277 @@
 package ml.shifu.shifu.udf;
 
-import org.apache.commons.lang.StringUtils;
+import java.io.IOException;
+import java.util.Iterator;
+
+import ml.shifu.shifu.core.RecordSampler;
+import ml.shifu.shifu.exception.ShifuErrorCode;
+import ml.shifu.shifu.exception.ShifuException;
+import ml.shifu.shifu.udf.stats.PopulationCounts;
+
+import org.apache.pig.Accumulator;
+import org.apache.pig.Algebraic;
+import org.apache.pig.data.BagFactory;
 import org.apache.pig.data.DataBag;
+import org.apache.pig.data.DataByteArray;
+import org.apache.pig.data.DataType;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
 import org.apache.pig.impl.logicalLayer.schema.Schema;
-import org.apache.pig.impl.util.Utils;
-import org.apache.pig.parser.ParserException;
-
-import java.io.IOException;
-import java.util.Iterator;
-import java.util.List;
-
-import ml.shifu.shifu.container.obj.ColumnConfig;
-import ml.shifu.shifu.udf.stats.CategoryCounter;
-import ml.shifu.shifu.udf.stats.Counter;
-import ml.shifu.shifu.udf.stats.NumericCounter;
+import org.apache.pig.impl.logicalLayer.schema.Schema.FieldSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Calculate the counter for each bin
+ * Calculate the counter for each bin of each column in one PSI unit.
+ *
+ * <p>
+ * Input is the bag of raw data rows in one PSI unit, output is a bag of (columnId, population) while population is a
+ * tuple of bin counts, the last one is count of missing values. As an {@link Algebraic} UDF, each row is turned into
+ * a compact tuple of positions of bins it hits in mappers, and positions are expanded to count arrays only when
+ * merged in combiners and reducers.
  */
-public class PopulationCounterUDF extends AbstractTrainerUDF<Tuple> {
+public class PopulationCounterUDF extends AbstractTrainerUDF<DataBag> implements Algebraic, Accumulator<DataBag> {
 
-    private Counter counter;
-    private int index;
+    private RowSampler sampler;
 
-    // DO NOT use this constructor
-    private PopulationCounterUDF(String source, String pathModelConfig, String pathColumnConfig)
-        throws IOException {
-        super(source, pathModelConfig, pathColumnConfig);
-        this.index = 1;
-    }
+    private PopulationCounts layout;
+
+    private PopulationCounts counts;
 
-    public PopulationCounterUDF(String source, String pathModelConfig, String pathColumnConfig, String index)
-        throws IOException {
+    public PopulationCounterUDF(String source, String pathModelConfig, String pathColumnConfig) throws IOException {
         super(source, pathModelConfig, pathColumnConfig);
-        this.index = Integer.valueOf(index);
+        this.sampler = new RowSampler(this);
+        this.layout = new PopulationCounts(columnConfigList);
     }
 
     @Override
-    public Tuple exec(Tuple input) throws IOException {
-        if (input == null || input.size() == 0) {
+    public DataBag exec(Tuple input) throws IOException {
+        if(input == null || input.size() == 0) {
             return null;
         }
 
-        Tuple groupInfo = (Tuple) input.get(0);
-        DataBag bag = (DataBag) input.get(1);
+        PopulationCounts population = new PopulationCounts(this.layout);
+        sampler.count((DataBag) input.get(0), population);
+        return toBag(population);
+    }
 
-        Integer columnId = (Integer) groupInfo.get(1);
-        ColumnConfig columnConfig = columnConfigList.get(columnId);
+    @Override
+    public void accumulate(Tuple input) throws IOException {
+        if(input == null || input.size() == 0) {
+            return;
+        }
+        if(this.counts == null) {
+            this.counts = new PopulationCounts(this.layout);
+        }
+        sampler.count((DataBag) input.get(0), this.counts);
+    }
 
-        if (columnConfig.isCategorical()) {
-            this.counter = new CategoryCounter(columnConfig.getBinCategory());
-        } else if (columnConfig.isNumerical()){
-            this.counter = new NumericCounter(columnConfig.getColumnName(), columnConfig.getBinBoundary());
-        } else {
+    @Override
+    public DataBag getValue() {
+        try {
+            return toBag(this.counts == null ? new PopulationCounts(this.layout) : this.counts);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        this.counts = null;
+    }
+
+    @Override
+    public String getInitial() {
+        return Initial.class.getName();
+    }
+
+    @Override
+    public String getIntermed() {
+        return Intermediate.class.getName();
+    }
+
+    @Override
+    public String getFinal() {
+        return Final.class.getName();
+    }
+
+    @Override
+    public Schema outputSchema(Schema input) {
+        try {
+            Schema tupleSchema = new Schema();
+            tupleSchema.add(new FieldSchema("columnId", DataType.INTEGER));
+            tupleSchema.add(new FieldSchema("population", DataType.TUPLE));
+
+            return new Schema(new Schema.FieldSchema("PopulationInfo", new Schema(new Schema.FieldSchema(
+                    "columnPopulation", tupleSchema, DataType.TUPLE)), DataType.BAG));
+        } catch (IOException e) {
+            log.error("Error in outputSchema", e);
             return null;
         }
+    }
+
+    private static DataBag toBag(PopulationCounts population) throws IOException {
+        DataBag bag = BagFactory.getInstance().newDefaultBag();
+        TupleFactory tupleFactory = TupleFactory.getInstance();
+        for(int i = 0; i < population.size(); i++) {
+            long[] bins = population.getCounts(i);
+            Tuple binTuple = tupleFactory.newTuple(bins.length);
+            for(int j = 0; j < bins.length; j++) {
+                binTuple.set(j, bins[j]);
+            }
+            Tuple tuple = tupleFactory.newTuple(2);
+            tuple.set(0, population.getColumnId(i));
+            tuple.set(1, binTuple);
+            bag.add(tuple);
+        }
+        return bag;
+    }
 
+    /**
+     * Merge partial results into empty counts of the layout. A partial result is either a tuple of bin positions from
+     * {@link Initial} or a tuple of serialized counts from {@link Intermediate}, since combiner may not run.
+     */
+    private static PopulationCounts merge(PopulationCounts layout, DataBag bag) throws IOException {
+        PopulationCounts population = new PopulationCounts(layout);
         Iterator<Tuple> iter = bag.iterator();
-        while (iter.hasNext()) {
+        while(iter.hasNext()) {
             Tuple tuple = iter.next();
-            if (tuple != null && tuple.size() != 0) {
-                Object value = tuple.get(index);
-                counter.addData(value);
+            if(tuple == null || tuple.size() == 0 || tuple.get(0) == null) {
+                continue;
+            }
+            if(tuple.get(0) instanceof DataByteArray) {
+                population.merge(((DataByteArray) tuple.get(0)).get());
+            } else {
+                for(int i = 0; i < tuple.size(); i++) {
+                    population.addPosition((Integer) tuple.get(i));
+                }
             }
         }
+        return population;
+    }
+
+    /**
+     * Turn rows into positions of bins in map side, it is called with a bag of one row. Output is an empty tuple if the
+     * row is not sampled.
+     */
+    public static class Initial extends AbstractTrainerUDF<Tuple> {
+
+        private RowSampler sampler;
 
-        List<Integer> dataBin = counter.getCounter();
+        private PopulationCounts layout;
 
-        Tuple output = TupleFactory.getInstance().newTuple(2);
-        output.set(0, columnId);
-        output.set(1, StringUtils.join(dataBin, CalculateStatsUDF.CATEGORY_VAL_SEPARATOR));
+        public Initial(String source, String pathModelConfig, String pathColumnConfig) throws IOException {
+            super(source, pathModelConfig, pathColumnConfig);
+            this.sampler = new RowSampler(this);
+            this.layout = new PopulationCounts(columnConfigList);
+        }
 
-        return output;
+        @Override
+        public Tuple exec(Tuple input) throws IOException {
+            Tuple output = TupleFactory.getInstance().newTuple();
+            if(input == null || input.size() == 0 || input.get(0) == null) {
+                return output;
+            }
+            Iterator<Tuple> iter = ((DataBag) input.get(0)).iterator();
+            while(iter.hasNext()) {
+                Tuple row = iter.next();
+                if(sampler.isSampled(row)) {
+                    for(int position: this.layout.getPositions(row)) {
+                        output.append(position);
+                    }
+                }
+            }
+            return output;
+        }
     }
 
-    public Schema outputSchema(Schema input) {
-        try {
-            return Utils
-                .getSchemaFromString("PopulationInfo:Tuple(columnId : int, population : chararray)");
-        } catch (ParserException e) {
-            log.debug("Error when generating output schema.", e);
-            // just ignore
-            return null;
+    /**
+     * Merge counts in combiner.
+     */
+    public static class Intermediate extends AbstractTrainerUDF<Tuple> {
+
+        private PopulationCounts layout;
+
+        public Intermediate(String source, String pathModelConfig, String pathColumnConfig) throws IOException {
+            super(source, pathModelConfig, pathColumnConfig);
+            this.layout = new PopulationCounts(columnConfigList);
+        }
+
+        @Override
+        public Tuple exec(Tuple input) throws IOException {
+            PopulationCounts population = merge(this.layout, (DataBag) input.get(0));
+            return TupleFactory.getInstance().newTuple(new DataByteArray(population.toBytes()));
+        }
+    }
+
+    /**
+     * Merge counts in reducer and output bin counts per column.
+     */
+    public static class Final extends AbstractTrainerUDF<DataBag> {
+
+        private PopulationCounts layout;
+
+        public Final(String source, String pathModelConfig, String pathColumnConfig) throws IOException {
+            super(source, pathModelConfig, pathColumnConfig);
+            this.layout = new PopulationCounts(columnConfigList);
+        }
+
+        @Override
+        public DataBag exec(Tuple input) throws IOException {
+            return toBag(merge(this.layout, (DataBag) input.get(0)));
+        }
+    }
+
+    /**
+     * Filter rows by tag and binning sample rate, the same as {@link AddColumnNumUDF}.
+     */
+    private static class RowSampler {
+
+        private static final Logger LOG = LoggerFactory.getLogger(RowSampler.class);
+
+        private final AbstractTrainerUDF<?> udf;
+
+        private final RecordSampler sampler;
+
+        public RowSampler(AbstractTrainerUDF<?> udf) {
+            this.udf = udf;
+            this.sampler = RecordSampler.createStatsSampler(udf.modelConfig, udf.columnConfigList);
+        }
+
+        public void count(DataBag rows, PopulationCounts population) throws IOException {
+            if(rows == null) {
+                return;
+            }
+            Iterator<Tuple> iter = rows.iterator();
+            while(iter.hasNext()) {
+                Tuple row = iter.next();
+                if(isSampled(row)) {
+                    population.add(row);
+                }
+            }
+        }
+
+        private boolean isSampled(Tuple row) throws IOException {
+            if(row == null || row.size() == 0) {
+                return false;
+            }
+
+            if(row.size() < udf.columnConfigList.size()) {
+                LOG.info("the input size - " + row.size() + ", while column size - " + udf.columnConfigList.size());
+                throw new ShifuException(ShifuErrorCode.ERROR_NO_EQUAL_COLCONFIG);
+            }
+
+            if(row.get(udf.tagColumnNum) == null) {
+                throw new ShifuException(ShifuErrorCode.ERROR_NO_TARGET_COLUMN);
+            }
+
+            String tag = row.get(udf.tagColumnNum).toString();
+            // filter out tag not in setting tagging list
+            if(!udf.tagSet.contains(tag)) {
+                return false;
+            }
+
+            return this.sampler.sample(tag, row.getAll()) > 0d;
         }
     }
 }
@@ -17,9 +17,12 @@ package ml.shifu.shifu.udf;
 
 import ml.shifu.shifu.container.obj.EvalConfig;
 import ml.shifu.shifu.core.DataPurifier;
+import ml.shifu.shifu.core.eval.ScoreGroup;
 import org.apache.pig.data.Tuple;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -30,7 +33,11 @@ import java.io.IOException;
  */
 public class PurifyDataUDF extends AbstractTrainerUDF<Boolean> {
 
-    private DataPurifier dataPurifier;
+    /**
+     * Record is selected if any purifier selects it, more than one purifier is only used by eval sets of one
+     * {@link ScoreGroup}.
+     */
+    private List<DataPurifier> dataPurifiers = new ArrayList<DataPurifier>();
 
     /**
      * @param source
@@ -41,21 +48,22 @@ public class PurifyDataUDF extends AbstractTrainerUDF<Boolean> {
     public PurifyDataUDF(String source, String pathModelConfig, String pathColumnConfig)
             throws IOException {
         super(source, pathModelConfig, pathColumnConfig);
-        dataPurifier = new DataPurifier(modelConfig);
+        dataPurifiers.add(new DataPurifier(modelConfig));
     }
 
     /**
      * @param source
      * @param pathModelConfig
      * @param pathColumnConfig
-     * @param evalSetName
+     * @param evalSetName - eval set name, or eval set names joined by comma
      * @throws IOException
      */
     public PurifyDataUDF(String source, String pathModelConfig, String pathColumnConfig, String evalSetName)
             throws IOException {
         super(source, pathModelConfig, pathColumnConfig);
-        EvalConfig evalConfig = modelConfig.getEvalConfigByName(evalSetName);
-        dataPurifier = new DataPurifier(evalConfig);
+        for (EvalConfig evalConfig : ScoreGroup.fromNames(modelConfig, evalSetName).getEvalConfigs()) {
+            dataPurifiers.add(new DataPurifier(evalConfig));
+        }
     }
 
     /* (non-Javadoc)
@@ -63,7 +71,12 @@ public class PurifyDataUDF extends AbstractTrainerUDF<Boolean> {
      */
     @Override
     public Boolean exec(Tuple input) throws IOException {
-        return dataPurifier.isFilterOut(input);
+        for (DataPurifier dataPurifier : dataPurifiers) {
+            if (dataPurifier.isFilterOut(input)) {
+                return true;
+            }
+        }
+        return false;
     }
 
 }
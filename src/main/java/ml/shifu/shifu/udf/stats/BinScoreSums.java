@@ -0,0 +1,164 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.udf.stats;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.util.CommonUtils;
+
+/**
+ * {@link BinScoreSums} keeps score sum and count of each bin of all final selected columns in primitive arrays. Bins
+ * are the same as {@link CommonUtils#getBinNum(ColumnConfig, String)}, values without valid bin are skipped.
+ *
+ * <p>
+ * Column layout only depends on ColumnConfig, so sums from different tasks can be merged through {@link #toBytes()}
+ * and {@link #merge(byte[])}. Values of a single row are better described by {@link #getPosition(int, Object)}, the
+ * position of the bin it hits, which is added back by {@link #addPosition(int, double)}.
+ */
+public class BinScoreSums {
+
+    private final ColumnBinLayout layout;
+
+    private final double[] sums;
+
+    private final long[] counts;
+
+    public BinScoreSums(List<ColumnConfig> columnConfigList) {
+        List<ColumnConfig> columns = new ArrayList<ColumnConfig>();
+        for(ColumnConfig config: columnConfigList) {
+            if(config.isFinalSelect()) {
+                columns.add(config);
+            }
+        }
+        this.layout = new ColumnBinLayout(columns, false);
+        this.sums = new double[this.layout.getLength()];
+        this.counts = new long[this.layout.getLength()];
+    }
+
+    /**
+     * Create empty sums with the same column layout as the given one, layout is shared and not rebuilt.
+     *
+     * @param layout
+     *            - sums whose column layout is used
+     */
+    public BinScoreSums(BinScoreSums layout) {
+        this.layout = layout.layout;
+        this.sums = new double[layout.sums.length];
+        this.counts = new long[layout.counts.length];
+    }
+
+    /**
+     * Add score to the bin of value of the i-th column.
+     *
+     * @param i
+     *            - index of column, not column id
+     * @param value
+     *            - raw value of column
+     * @param score
+     *            - score of the row
+     */
+    public void add(int i, Object value, double score) {
+        int position = getPosition(i, value);
+        if(position >= 0) {
+            addPosition(position, score);
+        }
+    }
+
+    /**
+     * Position of the bin of value of the i-th column. Sums are not changed.
+     *
+     * @param i
+     *            - index of column, not column id
+     * @param value
+     *            - raw value of column
+     * @return position which can be added by {@link #addPosition(int, double)}, or -1 if value has no valid bin
+     */
+    public int getPosition(int i, Object value) {
+        int index = this.layout.getBinIndex(i, value);
+        if(index < 0 || index >= this.layout.getBinCount(i)) {
+            return -1;
+        }
+        return this.layout.getOffset(i) + index;
+    }
+
+    /**
+     * Add score at position returned by {@link #getPosition(int, Object)}.
+     */
+    public void addPosition(int position, double score) {
+        if(position < 0 || position >= this.counts.length) {
+            throw new IllegalArgumentException("Bin score position " + position
+                    + " doesn't match with column config " + this.counts.length);
+        }
+        this.sums[position] += score;
+        this.counts[position] += 1L;
+    }
+
+    /**
+     * Add sums serialized by {@link #toBytes()}.
+     */
+    public void merge(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if(buffer.remaining() != this.counts.length * 16) {
+            throw new IllegalArgumentException("Bin score size " + (buffer.remaining() / 16)
+                    + " doesn't match with column config " + this.counts.length);
+        }
+        for(int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += buffer.getLong();
+        }
+        for(int i = 0; i < this.sums.length; i++) {
+            this.sums[i] += buffer.getDouble();
+        }
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(this.counts.length * 16);
+        for(long count: this.counts) {
+            buffer.putLong(count);
+        }
+        for(double sum: this.sums) {
+            buffer.putDouble(sum);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Number of columns.
+     */
+    public int size() {
+        return this.layout.size();
+    }
+
+    public int getColumnId(int i) {
+        return this.layout.getColumnId(i);
+    }
+
+    /**
+     * Rounded average score of each bin of the i-th column, 0 for empty bins.
+     */
+    public int[] getBinAvgScores(int i) {
+        int[] scores = new int[this.layout.getBinCount(i)];
+        int offset = this.layout.getOffset(i);
+        for(int j = 0; j < scores.length; j++) {
+            int index = offset + j;
+            scores[j] = (int) Math.round(this.sums[index] / this.counts[index]);
+        }
+        return scores;
+    }
+
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.udf.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.util.CommonUtils;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * {@link ColumnBinLayout} lays out bins of several columns in one primitive array, which is shared by
+ * {@link PopulationCounts} and {@link BinScoreSums}. Layout only depends on ColumnConfig and is immutable, so it can be
+ * shared by all counters built on the same ColumnConfig.
+ */
+class ColumnBinLayout {
+
+    private final int[] columnIds;
+
+    /**
+     * Start of each column in the array, the last element is length of the array.
+     */
+    private final int[] offsets;
+
+    /**
+     * Bin boundaries for numerical columns, null for categorical columns.
+     */
+    private final double[][] binBoundaries;
+
+    /**
+     * Category to bin index for categorical columns, null for numerical columns.
+     */
+    private final List<Map<String, Integer>> categoryIndexes;
+
+    /**
+     * Constructor
+     *
+     * @param columns
+     *            - columns laid out in order
+     * @param withMissingBin
+     *            - if one more missing value bin is appended after bins of ColumnConfig, else bin length of ColumnConfig
+     *            is used
+     */
+    ColumnBinLayout(List<ColumnConfig> columns, boolean withMissingBin) {
+        this.columnIds = new int[columns.size()];
+        this.offsets = new int[columns.size() + 1];
+        this.binBoundaries = new double[columns.size()][];
+        this.categoryIndexes = new ArrayList<Map<String, Integer>>(columns.size());
+
+        int offset = 0;
+        for(int i = 0; i < columns.size(); i++) {
+            ColumnConfig config = columns.get(i);
+            this.columnIds[i] = config.getColumnNum();
+            this.offsets[i] = offset;
+            int bins;
+            if(config.isCategorical()) {
+                List<String> categories = config.getBinCategory();
+                Map<String, Integer> indexes = new HashMap<String, Integer>(categories.size() * 2);
+                for(int j = 0; j < categories.size(); j++) {
+                    if(!indexes.containsKey(categories.get(j))) {
+                        indexes.put(categories.get(j), j);
+                    }
+                }
+                this.categoryIndexes.add(indexes);
+                bins = categories.size();
+            } else {
+                List<Double> boundary = config.getBinBoundary();
+                double[] values = new double[boundary.size()];
+                for(int j = 0; j < values.length; j++) {
+                    values[j] = boundary.get(j);
+                }
+                this.binBoundaries[i] = values;
+                this.categoryIndexes.add(null);
+                bins = values.length;
+            }
+            offset += withMissingBin ? bins + 1 : config.getBinLength();
+        }
+        this.offsets[columns.size()] = offset;
+    }
+
+    /**
+     * Number of columns.
+     */
+    int size() {
+        return this.columnIds.length;
+    }
+
+    int getColumnId(int i) {
+        return this.columnIds[i];
+    }
+
+    /**
+     * Start of the i-th column in the array.
+     */
+    int getOffset(int i) {
+        return this.offsets[i];
+    }
+
+    /**
+     * Number of bins of the i-th column.
+     */
+    int getBinCount(int i) {
+        return this.offsets[i + 1] - this.offsets[i];
+    }
+
+    /**
+     * Length of the array of all columns.
+     */
+    int getLength() {
+        return this.offsets[this.columnIds.length];
+    }
+
+    /**
+     * Bin index of value of the i-th column in ColumnConfig bins.
+     *
+     * @param i
+     *            - index of column, not column id
+     * @param value
+     *            - raw value of column
+     * @return bin index, or -1 if value is missing, invalid number or unknown category
+     */
+    int getBinIndex(int i, Object value) {
+        if(value == null) {
+            return -1;
+        }
+        String str = value.toString();
+        if(this.binBoundaries[i] != null) {
+            if(StringUtils.isBlank(str)) {
+                return -1;
+            }
+            try {
+                return CommonUtils.getBinIndex(this.binBoundaries[i], Double.parseDouble(str));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        } else {
+            Integer category = this.categoryIndexes.get(i).get(str);
+            return category == null ? -1 : category;
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.udf.stats;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+
+import org.apache.pig.backend.executionengine.ExecException;
+import org.apache.pig.data.Tuple;
+
+/**
+ * {@link PopulationCounts} keeps bin counts of all candidate columns in one primitive array. Bins are the same as
+ * {@link NumericCounter} and {@link CategoryCounter}: bins of ColumnConfig plus the last missing value bin.
+ *
+ * <p>
+ * Column layout only depends on ColumnConfig, so counts from different tasks can be merged through
+ * {@link #toBytes()} and {@link #merge(byte[])}. A single row is better described by {@link #getPositions(Tuple)}, the
+ * positions of bins it hits, which are added back by {@link #addPosition(int)}.
+ */
+public class PopulationCounts {
+
+    private final ColumnBinLayout layout;
+
+    private final long[] counts;
+
+    public PopulationCounts(List<ColumnConfig> columnConfigList) {
+        List<ColumnConfig> columns = new ArrayList<ColumnConfig>();
+        for(ColumnConfig config: columnConfigList) {
+            if(config.isCandidate()
+                    && ((config.isCategorical() && config.getBinCategory() != null) || (config.isNumerical() && config
+                            .getBinBoundary() != null))) {
+                columns.add(config);
+            }
+        }
+        this.layout = new ColumnBinLayout(columns, true);
+        this.counts = new long[this.layout.getLength()];
+    }
+
+    /**
+     * Create empty counts with the same column layout as the given one, layout is shared and not rebuilt.
+     *
+     * @param layout
+     *            - counts whose column layout is used
+     */
+    public PopulationCounts(PopulationCounts layout) {
+        this.layout = layout.layout;
+        this.counts = new long[layout.counts.length];
+    }
+
+    /**
+     * Count values of one raw data row.
+     *
+     * @param row
+     *            raw data row whose fields are in the order of ColumnConfig
+     * @throws ExecException
+     *             if any exception in reading tuple
+     */
+    public void add(Tuple row) throws ExecException {
+        int size = row.size();
+        for(int i = 0; i < this.layout.size(); i++) {
+            int columnId = this.layout.getColumnId(i);
+            this.counts[getPosition(i, columnId < size ? row.get(columnId) : null)] += 1L;
+        }
+    }
+
+    /**
+     * Positions of bins hit by one raw data row, one position per column. Counts are not changed.
+     *
+     * @param row
+     *            - raw data row whose fields are in the order of ColumnConfig
+     * @return positions which can be counted by {@link #addPosition(int)}
+     * @throws ExecException
+     *             if any exception in reading tuple
+     */
+    public int[] getPositions(Tuple row) throws ExecException {
+        int size = row.size();
+        int[] positions = new int[this.layout.size()];
+        for(int i = 0; i < positions.length; i++) {
+            int columnId = this.layout.getColumnId(i);
+            positions[i] = getPosition(i, columnId < size ? row.get(columnId) : null);
+        }
+        return positions;
+    }
+
+    /**
+     * Count one value at position returned by {@link #getPositions(Tuple)}.
+     */
+    public void addPosition(int position) {
+        if(position < 0 || position >= this.counts.length) {
+            throw new IllegalArgumentException("Population position " + position
+                    + " doesn't match with column config " + this.counts.length);
+        }
+        this.counts[position] += 1L;
+    }
+
+    /**
+     * Values without valid bin are counted in the last missing value bin.
+     */
+    private int getPosition(int i, Object value) {
+        int index = this.layout.getBinIndex(i, value);
+        return this.layout.getOffset(i) + (index < 0 ? this.layout.getBinCount(i) - 1 : index);
+    }
+
+    /**
+     * Add counts serialized by {@link #toBytes()}.
+     */
+    public void merge(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if(buffer.remaining() != this.counts.length * 8) {
+            throw new IllegalArgumentException("Population counts size " + (buffer.remaining() / 8)
+                    + " doesn't match with column config " + this.counts.length);
+        }
+        for(int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += buffer.getLong();
+        }
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(this.counts.length * 8);
+        for(long count: this.counts) {
+            buffer.putLong(count);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Number of columns counted.
+     */
+    public int size() {
+        return this.layout.size();
+    }
+
+    public int getColumnId(int i) {
+        return this.layout.getColumnId(i);
+    }
+
+    /**
+     * Bin counts of the i-th column, the last one is missing value count.
+     */
+    public long[] getCounts(int i) {
+        int offset = this.layout.getOffset(i);
+        return Arrays.copyOfRange(this.counts, offset, offset + this.layout.getBinCount(i));
+    }
+
+}
@@ -0,0 +1,367 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ml.shifu.shifu.container.obj.ColumnBinning;
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ColumnConfig.ColumnFlag;
+import ml.shifu.shifu.container.obj.ColumnConfig.ColumnType;
+import ml.shifu.shifu.container.obj.ColumnStats;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * {@link ColumnConfigSnapshot} is compact binary format of ColumnConfig list. Decoding binary snapshot is much faster
+ * than parsing ColumnConfig.json with Jackson, which is important for tasks with thousands of columns.
+ * 
+ * <p>
+ * Snapshot is saved beside ColumnConfig.json with {@link #SUFFIX}. Length and modification time of the json file are
+ * kept in snapshot header, a snapshot is only used if the json file is not changed after snapshot is saved.
+ * 
+ * <p>
+ * All fields of {@link ColumnConfig}, {@link ColumnStats} and {@link ColumnBinning} are written, new fields of such
+ * classes should also be added here and {@link #VERSION} should be increased.
+ */
+public final class ColumnConfigSnapshot {
+
+    public static final String SUFFIX = ".bin";
+
+    /**
+     * 'SHCC' in ASCII.
+     */
+    private static final int MAGIC = 0x53484343;
+
+    private static final int VERSION = 1;
+
+    private ColumnConfigSnapshot() {
+    }
+
+    public static Path getSnapshotPath(Path jsonPath) {
+        return new Path(jsonPath.getParent(), jsonPath.getName() + SUFFIX);
+    }
+
+    /**
+     * Save snapshot of ColumnConfig list beside the json file, json file should be already saved.
+     */
+    public static void save(FileSystem fs, Path jsonPath, List<ColumnConfig> columnConfigList) throws IOException {
+        FileStatus status = fs.getFileStatus(jsonPath);
+        FSDataOutputStream out = null;
+        try {
+            out = fs.create(getSnapshotPath(jsonPath), true);
+            out.write(toBytes(columnConfigList, status.getLen(), status.getModificationTime()));
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Load snapshot bytes of the json file.
+     * 
+     * @return snapshot bytes, or null if no snapshot or snapshot is not consistent with the json file
+     */
+    public static byte[] load(FileSystem fs, FileStatus jsonStatus) throws IOException {
+        Path snapshotPath = getSnapshotPath(jsonStatus.getPath());
+        if(!fs.exists(snapshotPath)) {
+            return null;
+        }
+        FSDataInputStream in = null;
+        try {
+            in = fs.open(snapshotPath);
+            byte[] bytes = IOUtils.toByteArray(in);
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes));
+            if(bytes.length < 24 || header.readInt() != MAGIC || header.readInt() != VERSION
+                    || header.readLong() != jsonStatus.getLen()
+                    || header.readLong() != jsonStatus.getModificationTime()) {
+                return null;
+            }
+            return bytes;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    public static byte[] toBytes(List<ColumnConfig> columnConfigList, long jsonLength, long jsonModificationTime)
+            throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(columnConfigList.size() * 256);
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(jsonLength);
+        out.writeLong(jsonModificationTime);
+        out.writeInt(columnConfigList.size());
+        for(ColumnConfig config: columnConfigList) {
+            writeColumnConfig(out, config);
+        }
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    /**
+     * Decode new ColumnConfig list from snapshot bytes, each call returns new objects which can be changed by caller.
+     */
+    public static List<ColumnConfig> fromBytes(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Invalid ColumnConfig snapshot.");
+        }
+        // skip json length and modification time
+        in.readLong();
+        in.readLong();
+        int size = in.readInt();
+        List<ColumnConfig> columnConfigList = new ArrayList<ColumnConfig>(size);
+        for(int i = 0; i < size; i++) {
+            columnConfigList.add(readColumnConfig(in));
+        }
+        return columnConfigList;
+    }
+
+    private static void writeColumnConfig(DataOutput out, ColumnConfig config) throws IOException {
+        writeInteger(out, config.getColumnNum());
+        writeString(out, config.getColumnName());
+        writeString(out, config.getVersion());
+        writeString(out, config.getColumnType() == null ? null : config.getColumnType().name());
+        writeString(out, config.getColumnFlag() == null ? null : config.getColumnFlag().name());
+        out.writeByte(config.isFinalSelect() == null ? -1 : (config.isFinalSelect() ? 1 : 0));
+
+        ColumnStats stats = config.getColumnStats();
+        out.writeBoolean(stats != null);
+        if(stats != null) {
+            writeDouble(out, stats.getMax());
+            writeDouble(out, stats.getMin());
+            writeDouble(out, stats.getMean());
+            writeDouble(out, stats.getMedian());
+            writeLong(out, stats.getTotalCount());
+            writeLong(out, stats.getDistinctCount());
+            writeLong(out, stats.getMissingCount());
+            writeDouble(out, stats.getStdDev());
+            writeDouble(out, stats.getMissingPercentage());
+            writeDouble(out, stats.getWoe());
+            writeDouble(out, stats.getKs());
+            writeDouble(out, stats.getIv());
+            writeDouble(out, stats.getWeightedKs());
+            writeDouble(out, stats.getWeightedIv());
+            writeDouble(out, stats.getWeightedWoe());
+            writeDouble(out, stats.getSkewness());
+            writeDouble(out, stats.getKurtosis());
+            writeDouble(out, stats.getPsi());
+        }
+
+        ColumnBinning binning = config.getColumnBinning();
+        out.writeBoolean(binning != null);
+        if(binning != null) {
+            writeInteger(out, binning.getLength());
+            writeDoubleList(out, binning.getBinBoundary());
+            writeStringList(out, binning.getBinCategory());
+            writeIntegerList(out, binning.getBinCountNeg());
+            writeIntegerList(out, binning.getBinCountPos());
+            writeDoubleList(out, binning.getBinPosRate());
+            writeIntegerList(out, binning.getBinAvgScore());
+            writeDoubleList(out, binning.getBinWeightedNeg());
+            writeDoubleList(out, binning.getBinWeightedPos());
+            writeDoubleList(out, binning.getBinCountWoe());
+            writeDoubleList(out, binning.getBinWeightedWoe());
+        }
+    }
+
+    private static ColumnConfig readColumnConfig(DataInput in) throws IOException {
+        ColumnConfig config = new ColumnConfig();
+        config.setColumnNum(readInteger(in));
+        config.setColumnName(readString(in));
+        config.setVersion(readString(in));
+        String columnType = readString(in);
+        config.setColumnType(columnType == null ? null : ColumnType.valueOf(columnType));
+        String columnFlag = readString(in);
+        config.setColumnFlag(columnFlag == null ? null : ColumnFlag.valueOf(columnFlag));
+        byte finalSelect = in.readByte();
+        config.setFinalSelect(finalSelect < 0 ? null : Boolean.valueOf(finalSelect == 1));
+
+        if(in.readBoolean()) {
+            ColumnStats stats = new ColumnStats();
+            stats.setMax(readDouble(in));
+            stats.setMin(readDouble(in));
+            stats.setMean(readDouble(in));
+            stats.setMedian(readDouble(in));
+            stats.setTotalCount(readLong(in));
+            stats.setDistinctCount(readLong(in));
+            stats.setMissingCount(readLong(in));
+            stats.setStdDev(readDouble(in));
+            stats.setMissingPercentage(readDouble(in));
+            stats.setWoe(readDouble(in));
+            stats.setKs(readDouble(in));
+            stats.setIv(readDouble(in));
+            stats.setWeightedKs(readDouble(in));
+            stats.setWeightedIv(readDouble(in));
+            stats.setWeightedWoe(readDouble(in));
+            stats.setSkewness(readDouble(in));
+            stats.setKurtosis(readDouble(in));
+            stats.setPsi(readDouble(in));
+            config.setColumnStats(stats);
+        } else {
+            config.setColumnStats(null);
+        }
+
+        if(in.readBoolean()) {
+            ColumnBinning binning = new ColumnBinning();
+            binning.setLength(readInteger(in));
+            binning.setBinBoundary(readDoubleList(in));
+            binning.setBinCategory(readStringList(in));
+            binning.setBinCountNeg(readIntegerList(in));
+            binning.setBinCountPos(readIntegerList(in));
+            binning.setBinPosRate(readDoubleList(in));
+            binning.setBinAvgScore(readIntegerList(in));
+            binning.setBinWeightedNeg(readDoubleList(in));
+            binning.setBinWeightedPos(readDoubleList(in));
+            binning.setBinCountWoe(readDoubleList(in));
+            binning.setBinWeightedWoe(readDoubleList(in));
+            config.setColumnBinning(binning);
+        } else {
+            config.setColumnBinning(null);
+        }
+        return config;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if(value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(Constants.DEFAULT_CHARSET);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if(length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, Constants.DEFAULT_CHARSET);
+    }
+
+    private static void writeInteger(DataOutput out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInput in) throws IOException {
+        return in.readBoolean() ? Integer.valueOf(in.readInt()) : null;
+    }
+
+    private static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? Long.valueOf(in.readLong()) : null;
+    }
+
+    private static void writeDouble(DataOutput out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static Double readDouble(DataInput in) throws IOException {
+        return in.readBoolean() ? Double.valueOf(in.readDouble()) : null;
+    }
+
+    private static void writeDoubleList(DataOutput out, List<Double> values) throws IOException {
+        out.writeInt(values == null ? -1 : values.size());
+        if(values != null) {
+            for(Double value: values) {
+                writeDouble(out, value);
+            }
+        }
+    }
+
+    private static List<Double> readDoubleList(DataInput in) throws IOException {
+        int size = in.readInt();
+        if(size < 0) {
+            return null;
+        }
+        List<Double> values = new ArrayList<Double>(size);
+        for(int i = 0; i < size; i++) {
+            values.add(readDouble(in));
+        }
+        return values;
+    }
+
+    private static void writeIntegerList(DataOutput out, List<Integer> values) throws IOException {
+        out.writeInt(values == null ? -1 : values.size());
+        if(values != null) {
+            for(Integer value: values) {
+                writeInteger(out, value);
+            }
+        }
+    }
+
+    private static List<Integer> readIntegerList(DataInput in) throws IOException {
+        int size = in.readInt();
+        if(size < 0) {
+            return null;
+        }
+        List<Integer> values = new ArrayList<Integer>(size);
+        for(int i = 0; i < size; i++) {
+            values.add(readInteger(in));
+        }
+        return values;
+    }
+
+    private static void writeStringList(DataOutput out, List<String> values) throws IOException {
+        out.writeInt(values == null ? -1 : values.size());
+        if(values != null) {
+            for(String value: values) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    private static List<String> readStringList(DataInput in) throws IOException {
+        int size = in.readInt();
+        if(size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<String>(size);
+        for(int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+}
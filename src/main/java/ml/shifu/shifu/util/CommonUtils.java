@@ -15,6 +15,7 @@
  */
 package ml.shifu.shifu.util;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -36,6 +37,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import ml.shifu.guagua.GuaguaRuntimeException;
 import ml.shifu.shifu.container.obj.ColumnConfig;
@@ -46,20 +49,23 @@ import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.ModelTrainConf.ALGORITHM;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.LR;
+import ml.shifu.shifu.core.ModelCache;
 import ml.shifu.shifu.core.Normalizer;
+import ml.shifu.shifu.core.dtrain.dataset.BinaryNetworkPersistence;
 import ml.shifu.shifu.core.dtrain.dataset.PersistBasicFloatNetwork;
 import ml.shifu.shifu.core.dtrain.lr.LogisticRegressionContants;
+import ml.shifu.shifu.core.dtrain.svm.LinearSVMConstants;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.fs.PathFinder;
 import ml.shifu.shifu.fs.ShifuFileUtils;
+import ml.shifu.shifu.pig.SequenceTextStorage;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Predicate;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -122,6 +128,9 @@ public final class CommonUtils {
         Path dstColumnConfig = new Path(pathFinder.getColumnConfigPath(SourceType.HDFS));
         if(ShifuFileUtils.isFileExists(srcColumnConfig.toString(), SourceType.LOCAL)) {
             hdfs.copyFromLocalFile(srcColumnConfig, dstColumnConfig);
+            // binary snapshot for fast loading in tasks
+            ColumnConfigSnapshot.save(hdfs, dstColumnConfig,
+                    loadColumnConfigList(srcColumnConfig.toString(), SourceType.LOCAL));
         }
 
         // copy others
@@ -200,7 +209,8 @@ public final class CommonUtils {
      *             if {@code path} is null or empty, if sourceType is null.
      */
     public static ModelConfig loadModelConfig(String path, SourceType sourceType) throws IOException {
-        return loadJSON(path, sourceType, ModelConfig.class);
+        checkPathAndMode(path, sourceType);
+        return ConfigCache.loadModelConfig(path, sourceType);
     }
 
     private static void checkPathAndMode(String path, SourceType sourceType) {
@@ -273,7 +283,8 @@ public final class CommonUtils {
      *             if {@code path} is null or empty, if sourceType is null.
      */
     public static List<ColumnConfig> loadColumnConfigList(String path, SourceType sourceType) throws IOException {
-        return Arrays.asList(loadJSON(path, sourceType, ColumnConfig[].class));
+        checkPathAndMode(path, sourceType);
+        return ConfigCache.loadColumnConfigList(path, sourceType);
     }
 
     /**
@@ -454,10 +465,15 @@ public final class CommonUtils {
             throw new IllegalArgumentException(String.format(
                     "raw and delimeter should not be null or empty, raw:%s, delimeter:%s", raw, delimiter));
         }
+        // plain indexOf loop instead of a new Splitter in each call, empty fields are kept as Splitter does
         List<String> headerList = new ArrayList<String>();
-        for(String str: Splitter.on(delimiter).split(raw)) {
-            headerList.add(str);
+        int start = 0;
+        int pos;
+        while((pos = raw.indexOf(delimiter, start)) >= 0) {
+            headerList.add(raw.substring(start, pos));
+            start = pos + delimiter.length();
         }
+        headerList.add(raw.substring(start));
         return headerList;
     }
 
@@ -536,6 +552,31 @@ public final class CommonUtils {
         return low == 0 ? 0 : low - 1;
     }
 
+    /**
+     * Get bin index by binary search on primitive bin boundaries, the same as {@link #getBinIndex(List, Double)}
+     * without boxing.
+     */
+    public static int getBinIndex(double[] binBoundary, double dVal) {
+        assert binBoundary != null && binBoundary.length > 0;
+        int low = 0;
+        int high = binBoundary.length - 1;
+
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Double.compare(binBoundary[mid], dVal);
+
+            if(cmp < 0) {
+                low = mid + 1;
+            } else if(cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid; // key found
+            }
+        }
+
+        return low == 0 ? 0 : low - 1;
+    }
+
     /**
      * Load basic models from files.
      * 
@@ -571,9 +612,13 @@ public final class CommonUtils {
         int baggingModelSize = modelConfig.getTrain().getBaggingNum();
         listStatus = listStatus.size() <= baggingModelSize ? listStatus : listStatus.subList(0, baggingModelSize);
 
+        // NN, LR and linear SVM models are shared in JVM to avoid parsing the same models in each UDF instance
+        boolean isCached = ALGORITHM.NN.name().equalsIgnoreCase(modelConfig.getAlgorithm())
+                || ALGORITHM.LR.name().equalsIgnoreCase(modelConfig.getAlgorithm())
+                || ALGORITHM.SVM.name().equalsIgnoreCase(modelConfig.getAlgorithm());
         List<BasicML> models = new ArrayList<BasicML>(listStatus.size());
         for(FileStatus f: listStatus) {
-            models.add(loadModel(f.getPath(), fs));
+            models.add(isCached ? ModelCache.getInstance().getModel(fs, f) : loadModel(f.getPath(), fs));
         }
         return models;
     }
@@ -598,13 +643,20 @@ public final class CommonUtils {
         }
         // we have to register PersistBasicFloatNetwork for loading such models
         PersistorRegistry.getInstance().add(new PersistBasicFloatNetwork());
-        FSDataInputStream stream = null;
+        InputStream stream = null;
         BufferedReader br = null;
         try {
-            stream = fs.open(modelPath);
-            if(modelPath.getName().endsWith(LogisticRegressionContants.LR_ALG_NAME.toLowerCase())) {
+            stream = new BufferedInputStream(fs.open(modelPath));
+            // LR and distributed linear SVM models are both saved as weights text, while SVM models trained in local
+            // share the same extension and are saved by Encog persistence
+            String modelName = modelPath.getName();
+            if(modelName.endsWith("." + LogisticRegressionContants.LR_ALG_NAME.toLowerCase())
+                    || (modelName.endsWith("." + LinearSVMConstants.SVM_ALG_NAME.toLowerCase())
+                            && isWeightsText(stream))) {
                 br = new BufferedReader(new InputStreamReader(stream));
                 return LR.loadFromString(br.readLine());
+            } else if(BinaryNetworkPersistence.isBinary(stream)) {
+                return BinaryNetworkPersistence.loadObject(stream);
             } else {
                 return BasicML.class.cast(EncogDirectoryPersistence.loadObject(stream));
             }
@@ -621,6 +673,18 @@ public final class CommonUtils {
         }
     }
 
+    /**
+     * If model stream is weights text like '[0.1, 0.2]', stream is reset after checking.
+     */
+    private static boolean isWeightsText(InputStream stream) throws IOException {
+        stream.mark(1);
+        try {
+            return stream.read() == '[';
+        } finally {
+            stream.reset();
+        }
+    }
+
     /**
      * Find the model files for some @ModelConfig. There is a little tricky about this function.
      * If @EvalConfig is specified, try to load the models according setting in @EvalConfig,
@@ -713,8 +777,12 @@ public final class CommonUtils {
             for(File nnf: modelFiles) {
                 InputStream is = null;
                 try {
-                    is = new FileInputStream(nnf);
-                    models.add(BasicML.class.cast(EncogDirectoryPersistence.loadObject(is)));
+                    is = new BufferedInputStream(new FileInputStream(nnf));
+                    if(BinaryNetworkPersistence.isBinary(is)) {
+                        models.add(BinaryNetworkPersistence.loadObject(is));
+                    } else {
+                        models.add(BasicML.class.cast(EncogDirectoryPersistence.loadObject(is)));
+                    }
                 } finally {
                     IOUtils.closeQuietly(is);
                 }
@@ -781,9 +849,24 @@ public final class CommonUtils {
         pigParamMap.put(Constants.SOURCE_TYPE, sourceType.toString());
         pigParamMap.put(Constants.JOB_QUEUE,
                 Environment.getProperty(Environment.HADOOP_JOB_QUEUE, Constants.DEFAULT_JOB_QUEUE));
+        pigParamMap.put(Constants.OUTPUT_STORAGE, getOutputStorage());
         return pigParamMap;
     }
 
+    /**
+     * Pig storage of normalized data and eval score. If {@link Environment#OUTPUT_SPLITTABLE} is enabled, output is
+     * stored into block compressed sequence files by {@link SequenceTextStorage} which can be split by workers,
+     * otherwise text files by PigStorage.
+     */
+    public static String getOutputStorage() {
+        if(Boolean.valueOf(Environment.getProperty(Environment.OUTPUT_SPLITTABLE, Boolean.FALSE.toString()))) {
+            return String.format("%s('|', '%s')", SequenceTextStorage.class.getName(),
+                    Environment.getProperty(Environment.OUTPUT_CODEC, SequenceTextStorage.DEFAULT_CODEC));
+        } else {
+            return "PigStorage('|', '-schema')";
+        }
+    }
+
     /**
      * Change list str to List object with double type.
      * 
@@ -1397,6 +1480,45 @@ public final class CommonUtils {
         }
     }
 
+    /**
+     * Wait for all futures finished and collect their results. If some tasks are failed, the first failure is thrown
+     * after all tasks are finished, so no task is left running in background.
+     * 
+     * @param futures
+     *            futures of submitted tasks
+     * @param taskNames
+     *            names of tasks in the same order of futures, used in error log
+     * @return results of tasks in the same order of futures
+     * @throws IOException
+     *             if the first failed task throws IOException
+     */
+    public static <T> List<T> waitForAll(List<Future<T>> futures, List<String> taskNames) throws IOException {
+        List<T> results = new ArrayList<T>(futures.size());
+        Throwable failure = null;
+        for(int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                log.error("Error in running " + taskNames.get(i), e.getCause());
+                results.add(null);
+                if(failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        if(failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if(failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if(failure != null) {
+            throw new RuntimeException(failure);
+        }
+        return results;
+    }
+
     private static final PathFilter HIDDEN_FILE_FILTER = new PathFilter() {
         public boolean accept(Path p) {
             String name = p.getName();
@@ -0,0 +1,138 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.fs.ShifuFileUtils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ConfigCache} is a per-JVM cache of ModelConfig and ColumnConfig files on HDFS, which are loaded by all UDF
+ * instances, mappers and guagua workers. Tasks in a reused JVM and multiple UDF instances read and parse such files
+ * only once.
+ * 
+ * <p>
+ * Raw bytes are cached instead of objects, since config objects are changed by some callers. ModelConfig json is small
+ * and parsed in each call, ColumnConfig is cached as {@link ColumnConfigSnapshot} bytes which is decoded much faster
+ * than json. If a binary snapshot is saved beside ColumnConfig.json, json is not parsed at all.
+ * 
+ * <p>
+ * Cache entry is keyed by qualified path and checked with file length and modification time. Local files are not
+ * cached since they are changed frequently by the client process and modification time of some local file systems is
+ * in seconds.
+ */
+public final class ConfigCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigCache.class);
+
+    private static final ConcurrentMap<String, CachedConfig> CONFIGS = new ConcurrentHashMap<String, CachedConfig>();
+
+    private ConfigCache() {
+    }
+
+    public static ModelConfig loadModelConfig(String path, SourceType sourceType) throws IOException {
+        if(sourceType == SourceType.LOCAL) {
+            return CommonUtils.loadJSON(path, sourceType, ModelConfig.class);
+        }
+        CachedConfig cached = getCachedConfig(path, sourceType, false);
+        return JSONUtils.readValue(new ByteArrayInputStream(cached.bytes), ModelConfig.class);
+    }
+
+    public static List<ColumnConfig> loadColumnConfigList(String path, SourceType sourceType) throws IOException {
+        if(sourceType == SourceType.LOCAL) {
+            return Arrays.asList(CommonUtils.loadJSON(path, sourceType, ColumnConfig[].class));
+        }
+        return ColumnConfigSnapshot.fromBytes(getCachedConfig(path, sourceType, true).bytes);
+    }
+
+    /**
+     * Remove all cached configs.
+     */
+    public static void clear() {
+        CONFIGS.clear();
+    }
+
+    private static CachedConfig getCachedConfig(String path, SourceType sourceType, boolean isColumnConfig)
+            throws IOException {
+        FileSystem fs = ShifuFileUtils.getFileSystemBySourceType(sourceType);
+        FileStatus status = fs.getFileStatus(fs.makeQualified(new Path(path)));
+        String key = status.getPath().toString();
+        CachedConfig cached = CONFIGS.get(key);
+        if(cached != null && cached.isSameFile(status)) {
+            return cached;
+        }
+
+        // parallel loading of the same file is allowed, the last one wins
+        long start = System.currentTimeMillis();
+        byte[] bytes;
+        if(isColumnConfig) {
+            bytes = ColumnConfigSnapshot.load(fs, status);
+            if(bytes == null) {
+                List<ColumnConfig> columnConfigList = Arrays.asList(CommonUtils.loadJSON(path, sourceType,
+                        ColumnConfig[].class));
+                bytes = ColumnConfigSnapshot.toBytes(columnConfigList, status.getLen(), status.getModificationTime());
+            }
+        } else {
+            FSDataInputStream in = null;
+            try {
+                in = fs.open(status.getPath());
+                bytes = IOUtils.toByteArray(in);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        LOG.debug("Config {} is loaded in {}ms.", key, System.currentTimeMillis() - start);
+        cached = new CachedConfig(status, bytes);
+        CONFIGS.put(key, cached);
+        return cached;
+    }
+
+    private static class CachedConfig {
+
+        private final long modificationTime;
+
+        private final long length;
+
+        private final byte[] bytes;
+
+        public CachedConfig(FileStatus status, byte[] bytes) {
+            this.modificationTime = status.getModificationTime();
+            this.length = status.getLen();
+            this.bytes = bytes;
+        }
+
+        public boolean isSameFile(FileStatus status) {
+            return this.modificationTime == status.getModificationTime() && this.length == status.getLen();
+        }
+    }
+
+}
@@ -63,6 +63,7 @@ public interface Constants {
     public static final String WITH_SCORE = "with_score";
     public static final String SOURCE_TYPE = "source_type";
     public static final String NUM_PARALLEL = "num_parallel";
+    public static final String OUTPUT_STORAGE = "output_storage";
 
     public static final String DERIVED = "derived_";
 
@@ -76,6 +77,7 @@ public interface Constants {
 
     public static final String BZ2_SUFFIX = ".bz2";
     public static final String GZ_SUFFIX = ".gz";
+    public static final String SEQ_SUFFIX = ".seq";
 
     public static final String MAPREDUCE_OUTPUT_PREFIX = "part-";
     public static final String HIDDEN_FILES = ".";
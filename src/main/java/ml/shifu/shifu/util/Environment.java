@@ -47,8 +47,12 @@ public class Environment {
     public static final String ZOO_KEEPER_SERVERS = "zookeeperServers";
     public static final String HADOOP_NUM_PARALLEL = "hadoopNumParallel";
     public static final String LOCAL_NUM_PARALLEL = "localNumParallel";
+    public static final String LOCAL_ENSEMBLE_TRAIN = "localEnsembleTrain";
     public static final String RECORD_CNT_PER_MESSAGE = "recordCntPerMessage";
+    public static final String LOCAL_SPLIT_SIZE = "localSplitSize";
     public static final String HADOOP_JOB_QUEUE = "hadoopJobQueue";
+    public static final String OUTPUT_SPLITTABLE = "outputSplittable";
+    public static final String OUTPUT_CODEC = "outputCodec";
 
     public static final String VAR_SEL_MASTER_CONDUCTOR = "varselectMasterConductor";
     public static final String VAR_SEL_WORKER_CONDUCTOR = "varselectWorkerConductor";
@@ -0,0 +1,248 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * {@link NumberParser} parses double and float values directly from ASCII bytes without creating String objects and
+ * without throwing exceptions on invalid input, a default value is returned instead.
+ * 
+ * <p>
+ * Syntax is the decimal subset of {@link Double#parseDouble(String)}: leading and trailing whitespaces, optional sign,
+ * digits with optional fraction and exponent, optional 'd', 'D', 'f' or 'F' suffix, 'NaN' and 'Infinity'. Hexadecimal
+ * format is treated as invalid.
+ * 
+ * <p>
+ * Most values in normalized data have less than 16 significant digits and a small exponent, such values are computed
+ * by one exact multiplication or division of two doubles (or floats), which gives the same result as JDK parser. Other
+ * values fall back to JDK parser, so results are always exactly the same as {@link Double#parseDouble(String)} and
+ * {@link Float#parseFloat(String)}.
+ */
+public final class NumberParser {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    /**
+     * Max mantissa to be exactly represented by double.
+     */
+    private static final long MAX_DOUBLE_MANTISSA = 1L << 53;
+
+    /**
+     * Max mantissa to be exactly represented by float.
+     */
+    private static final long MAX_FLOAT_MANTISSA = 1L << 24;
+
+    /**
+     * Powers of ten exactly represented by double.
+     */
+    private static final double[] DOUBLE_POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /**
+     * Powers of ten exactly represented by float.
+     */
+    private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f,
+            1e10f };
+
+    /**
+     * Digits over this count are not accumulated into mantissa and JDK parser is used.
+     */
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private static final byte[] NAN = { 'N', 'a', 'N' };
+
+    private static final byte[] INFINITY = { 'I', 'n', 'f', 'i', 'n', 'i', 't', 'y' };
+
+    private NumberParser() {
+    }
+
+    /**
+     * Parse double value from bytes[start, end).
+     * 
+     * @param bytes
+     *            - ASCII or UTF-8 bytes
+     * @param start
+     *            - start offset, inclusive
+     * @param end
+     *            - end offset, exclusive
+     * @param defaultValue
+     *            - value returned if bytes are empty or not a valid number
+     * @return parsed value or default value
+     */
+    public static double parseDouble(byte[] bytes, int start, int end, double defaultValue) {
+        return parse(bytes, start, end, defaultValue, false);
+    }
+
+    /**
+     * Parse float value from bytes[start, end).
+     * 
+     * @see #parseDouble(byte[], int, int, double)
+     */
+    public static float parseFloat(byte[] bytes, int start, int end, float defaultValue) {
+        // float value is widened to double exactly, and narrowed back without rounding
+        return (float) parse(bytes, start, end, defaultValue, true);
+    }
+
+    private static double parse(byte[] bytes, int start, int end, double defaultValue, boolean isFloat) {
+        // trim the same as String.trim
+        while(start < end && (bytes[start] & 0xff) <= ' ') {
+            start++;
+        }
+        while(end > start && (bytes[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        if(start == end) {
+            return defaultValue;
+        }
+
+        int pos = start;
+        boolean negative = false;
+        if(bytes[pos] == '-' || bytes[pos] == '+') {
+            negative = bytes[pos] == '-';
+            pos++;
+        }
+        if(pos < end && (bytes[pos] == 'N' || bytes[pos] == 'I')) {
+            if(matches(bytes, pos, end, NAN)) {
+                return Double.NaN;
+            }
+            if(matches(bytes, pos, end, INFINITY)) {
+                return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+            return defaultValue;
+        }
+
+        long mantissa = 0L;
+        int digits = 0;
+        int exponent = 0;
+        // if some non-zero digits are dropped, fast path cannot be used
+        boolean isTruncated = false;
+        boolean hasDigit = false;
+
+        for(; pos < end; pos++) {
+            int d = bytes[pos] - '0';
+            if(d < 0 || d > 9) {
+                break;
+            }
+            hasDigit = true;
+            if(digits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + d;
+                if(mantissa != 0L) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+                isTruncated |= d != 0;
+            }
+        }
+        if(pos < end && bytes[pos] == '.') {
+            for(pos++; pos < end; pos++) {
+                int d = bytes[pos] - '0';
+                if(d < 0 || d > 9) {
+                    break;
+                }
+                hasDigit = true;
+                if(digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + d;
+                    exponent--;
+                    if(mantissa != 0L) {
+                        digits++;
+                    }
+                } else {
+                    isTruncated |= d != 0;
+                }
+            }
+        }
+        if(!hasDigit) {
+            return defaultValue;
+        }
+
+        if(pos < end && (bytes[pos] == 'e' || bytes[pos] == 'E')) {
+            pos++;
+            boolean negativeExp = false;
+            if(pos < end && (bytes[pos] == '-' || bytes[pos] == '+')) {
+                negativeExp = bytes[pos] == '-';
+                pos++;
+            }
+            int expStart = pos;
+            int exp = 0;
+            for(; pos < end; pos++) {
+                int d = bytes[pos] - '0';
+                if(d < 0 || d > 9) {
+                    break;
+                }
+                // big enough to overflow or underflow, avoid int overflow
+                if(exp < 100000) {
+                    exp = exp * 10 + d;
+                }
+            }
+            if(pos == expStart) {
+                return defaultValue;
+            }
+            exponent += negativeExp ? -exp : exp;
+        }
+
+        // type suffix is accepted by JDK parser
+        if(pos < end
+                && (bytes[pos] == 'd' || bytes[pos] == 'D' || bytes[pos] == 'f' || bytes[pos] == 'F')) {
+            pos++;
+        }
+        if(pos != end) {
+            return defaultValue;
+        }
+
+        if(mantissa == 0L && !isTruncated) {
+            return negative ? -0d : 0d;
+        }
+
+        if(!isTruncated) {
+            if(isFloat) {
+                if(mantissa <= MAX_FLOAT_MANTISSA && exponent >= -10 && exponent <= 10) {
+                    float value = exponent >= 0 ? mantissa * FLOAT_POWERS_OF_TEN[exponent] : mantissa
+                            / FLOAT_POWERS_OF_TEN[-exponent];
+                    return negative ? -value : value;
+                }
+            } else {
+                if(mantissa <= MAX_DOUBLE_MANTISSA && exponent >= -22 && exponent <= 22) {
+                    double value = exponent >= 0 ? mantissa * DOUBLE_POWERS_OF_TEN[exponent] : mantissa
+                            / DOUBLE_POWERS_OF_TEN[-exponent];
+                    return negative ? -value : value;
+                }
+            }
+        }
+
+        // syntax is already checked, JDK parser is only used for exact rounding
+        String str = new String(bytes, start, end - start, ASCII);
+        try {
+            return isFloat ? Float.parseFloat(str) : Double.parseDouble(str);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static boolean matches(byte[] bytes, int pos, int end, byte[] expected) {
+        if(end - pos != expected.length) {
+            return false;
+        }
+        for(int i = 0; i < expected.length; i++) {
+            if(bytes[pos + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
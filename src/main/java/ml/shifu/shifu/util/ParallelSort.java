@@ -0,0 +1,185 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * {@link ParallelSort} sorts indexes of a primitive double array by keys without boxing any value.
+ * 
+ * <p>
+ * Indexes are split into one chunk per core, each chunk is sorted by a merge sort in one thread and then sorted chunks
+ * are merged pair by pair in parallel. The sort is stable: indexes with the same key keep original order.
+ */
+public final class ParallelSort {
+
+    /**
+     * Small arrays are sorted in current thread.
+     */
+    private static final int MIN_PARALLEL_SIZE = 1 << 16;
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private ParallelSort() {
+    }
+
+    /**
+     * Sort indexes of keys[0, size) by keys in descending order.
+     * 
+     * @param keys
+     *            - keys to be compared by {@link Double#compare(double, double)}
+     * @param size
+     *            - number of keys
+     * @return indexes sorted by keys descending
+     */
+    public static int[] sortIndexesDescending(final double[] keys, int size) {
+        int[] indexes = new int[size];
+        for(int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        int[] buffer = new int[size];
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        if(size < MIN_PARALLEL_SIZE || threads <= 1) {
+            mergeSort(keys, indexes, buffer, 0, size);
+            return indexes;
+        }
+
+        // number of chunks is power of 2, chunks can be merged pair by pair
+        int chunks = Integer.highestOneBit(threads);
+        if(chunks < threads) {
+            chunks <<= 1;
+        }
+        final int[] bounds = new int[chunks + 1];
+        for(int i = 0; i <= chunks; i++) {
+            bounds[i] = (int) ((long) size * i / chunks);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final int[] sortIndexes = indexes, sortBuffer = buffer;
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks);
+            for(int i = 0; i < chunks; i++) {
+                final int low = bounds[i], high = bounds[i + 1];
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        mergeSort(keys, sortIndexes, sortBuffer, low, high);
+                        return null;
+                    }
+                });
+            }
+            invokeAll(executor, tasks);
+
+            int[] src = indexes, dst = buffer;
+            for(int step = 1; step < chunks; step <<= 1) {
+                tasks.clear();
+                final int[] mergeSrc = src, mergeDst = dst;
+                for(int i = 0; i < chunks; i += step * 2) {
+                    final int low = bounds[i], mid = bounds[i + step], high = bounds[i + step * 2];
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            merge(keys, mergeSrc, mergeDst, low, mid, high);
+                            return null;
+                        }
+                    });
+                }
+                invokeAll(executor, tasks);
+                src = mergeDst;
+                dst = mergeSrc;
+            }
+            return src;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) {
+        try {
+            for(Future<Void> future: executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Sort indexes[low, high), buffer[low, high) is used as temporary space.
+     */
+    private static void mergeSort(double[] keys, int[] indexes, int[] buffer, int low, int high) {
+        if(high - low <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, indexes, low, high);
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        mergeSort(keys, indexes, buffer, low, mid);
+        mergeSort(keys, indexes, buffer, mid, high);
+        if(!isBefore(keys[indexes[mid]], keys[indexes[mid - 1]])) {
+            // two halves are already in order
+            return;
+        }
+        System.arraycopy(indexes, low, buffer, low, high - low);
+        merge(keys, buffer, indexes, low, mid, high);
+    }
+
+    private static void insertionSort(double[] keys, int[] indexes, int low, int high) {
+        for(int i = low + 1; i < high; i++) {
+            int index = indexes[i];
+            double key = keys[index];
+            int j = i - 1;
+            while(j >= low && isBefore(key, keys[indexes[j]])) {
+                indexes[j + 1] = indexes[j];
+                j--;
+            }
+            indexes[j + 1] = index;
+        }
+    }
+
+    /**
+     * Merge sorted src[low, mid) and src[mid, high) into dst[low, high).
+     */
+    private static void merge(double[] keys, int[] src, int[] dst, int low, int mid, int high) {
+        int i = low, j = mid;
+        for(int k = low; k < high; k++) {
+            if(i >= mid) {
+                dst[k] = src[j++];
+            } else if(j >= high) {
+                dst[k] = src[i++];
+            } else if(isBefore(keys[src[j]], keys[src[i]])) {
+                // only strictly bigger key in right part goes first to keep stable
+                dst[k] = src[j++];
+            } else {
+                dst[k] = src[i++];
+            }
+        }
+    }
+
+    private static boolean isBefore(double a, double b) {
+        return Double.compare(a, b) > 0;
+    }
+
+}
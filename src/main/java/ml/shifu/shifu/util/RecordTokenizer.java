@@ -0,0 +1,183 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.nio.charset.Charset;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * {@link RecordTokenizer} splits one text record into fields by keeping start and end offsets of each field in reused
+ * int arrays, no String or array is created for each record. Field values are parsed by {@link NumberParser} directly
+ * from UTF-8 bytes of the record.
+ * 
+ * <p>
+ * Split semantics is the same as {@link CommonUtils#split(String, String)} and Guava Splitter without trimming: empty
+ * fields are kept and N delimiters result in N + 1 fields. Whitespaces are trimmed when parsing numbers and not trimmed
+ * in {@link #getString(int)}.
+ * 
+ * <p>
+ * Bytes of {@link Text} are not copied, so fields are only valid before the text object is changed. The tokenizer is
+ * not thread-safe, one instance should be used in one thread.
+ */
+public class RecordTokenizer {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int INITIAL_FIELDS = 64;
+
+    private final byte[] delimiter;
+
+    private byte[] bytes;
+
+    /**
+     * Buffer to keep bytes of string records, only used by {@link #reset(String)}.
+     */
+    private byte[] stringBuffer = new byte[1024];
+
+    private int[] starts = new int[INITIAL_FIELDS];
+
+    private int[] ends = new int[INITIAL_FIELDS];
+
+    private int size;
+
+    public RecordTokenizer(String delimiter) {
+        if(delimiter == null || delimiter.length() == 0) {
+            throw new IllegalArgumentException("delimiter should not be empty.");
+        }
+        this.delimiter = delimiter.getBytes(UTF8);
+    }
+
+    /**
+     * Split bytes of text, bytes are not copied.
+     */
+    public RecordTokenizer reset(Text text) {
+        return reset(text.getBytes(), 0, text.getLength());
+    }
+
+    /**
+     * Split string record, ASCII string is copied into an internal buffer without encoding.
+     */
+    public RecordTokenizer reset(String record) {
+        int length = record.length();
+        if(this.stringBuffer.length < length) {
+            this.stringBuffer = new byte[Math.max(length, this.stringBuffer.length * 2)];
+        }
+        for(int i = 0; i < length; i++) {
+            char c = record.charAt(i);
+            if(c >= 0x80) {
+                // non-ASCII record, encoding is needed
+                byte[] encoded = record.getBytes(UTF8);
+                return reset(encoded, 0, encoded.length);
+            }
+            this.stringBuffer[i] = (byte) c;
+        }
+        return reset(this.stringBuffer, 0, length);
+    }
+
+    /**
+     * Split bytes[offset, offset + length), bytes are not copied.
+     */
+    public RecordTokenizer reset(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.size = 0;
+        int end = offset + length;
+        int fieldStart = offset;
+        int delimiterLength = this.delimiter.length;
+        byte first = this.delimiter[0];
+        int last = end - delimiterLength;
+        for(int i = offset; i <= last; i++) {
+            if(bytes[i] == first && isDelimiterAt(bytes, i)) {
+                addField(fieldStart, i);
+                i += delimiterLength - 1;
+                fieldStart = i + 1;
+            }
+        }
+        addField(fieldStart, end);
+        return this;
+    }
+
+    private boolean isDelimiterAt(byte[] bytes, int pos) {
+        for(int j = 1; j < this.delimiter.length; j++) {
+            if(bytes[pos + j] != this.delimiter[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addField(int start, int end) {
+        if(this.size == this.starts.length) {
+            int[] newStarts = new int[this.size * 2];
+            int[] newEnds = new int[this.size * 2];
+            System.arraycopy(this.starts, 0, newStarts, 0, this.size);
+            System.arraycopy(this.ends, 0, newEnds, 0, this.size);
+            this.starts = newStarts;
+            this.ends = newEnds;
+        }
+        this.starts[this.size] = start;
+        this.ends[this.size] = end;
+        this.size += 1;
+    }
+
+    /**
+     * Number of fields in current record.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public double getDouble(int i, double defaultValue) {
+        checkIndex(i);
+        return NumberParser.parseDouble(this.bytes, this.starts[i], this.ends[i], defaultValue);
+    }
+
+    public float getFloat(int i, float defaultValue) {
+        checkIndex(i);
+        return NumberParser.parseFloat(this.bytes, this.starts[i], this.ends[i], defaultValue);
+    }
+
+    /**
+     * Value of i-th field, a new String is created.
+     */
+    public String getString(int i) {
+        checkIndex(i);
+        return new String(this.bytes, this.starts[i], this.ends[i] - this.starts[i], UTF8);
+    }
+
+    /**
+     * If i-th field is empty or only has whitespaces.
+     */
+    public boolean isBlank(int i) {
+        checkIndex(i);
+        for(int j = this.starts[i]; j < this.ends[i]; j++) {
+            if((this.bytes[j] & 0xff) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Offset arrays are reused, fields after {@link #size()} are left from previous records and should not be read.
+     */
+    private void checkIndex(int i) {
+        if(i < 0 || i >= this.size) {
+            throw new ArrayIndexOutOfBoundsException("Field index " + i + " is out of record size " + this.size);
+        }
+    }
+
+}
@@ -19,6 +19,7 @@ import akka.actor.*;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.message.AkkaActorInputMessage;
 import ml.shifu.shifu.util.CommonUtils;
@@ -32,7 +33,6 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
-import java.util.Scanner;
 
 
 /**
@@ -61,8 +61,8 @@ public class CalculateStatsActorTest {
             }
         }), "stats-calculator");
 
-        List<Scanner> scanners = ShifuFileUtils.getDataScanners("src/test/resources/example/cancer-judgement/DataStore/DataSet1", SourceType.LOCAL);
-        statsCalRef.tell(new AkkaActorInputMessage(scanners), statsCalRef);
+        List<DataLineReader> readers = ShifuFileUtils.getDataLineReaders("src/test/resources/example/cancer-judgement/DataStore/DataSet1", SourceType.LOCAL);
+        statsCalRef.tell(new AkkaActorInputMessage(readers), statsCalRef);
 
         while (!statsCalRef.isTerminated()) {
             Thread.sleep(5000);
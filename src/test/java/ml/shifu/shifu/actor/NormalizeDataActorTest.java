@@ -19,6 +19,7 @@ import akka.actor.*;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.message.AkkaActorInputMessage;
 import ml.shifu.shifu.util.CommonUtils;
@@ -31,7 +32,6 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
-import java.util.Scanner;
 
 
 /**
@@ -68,8 +68,8 @@ public class NormalizeDataActorTest {
         }), "normalize-calculator");
 
 
-        List<Scanner> scanners = ShifuFileUtils.getDataScanners("src/test/resources/example/cancer-judgement/DataStore/DataSet1", SourceType.LOCAL);
-        normalizeRef.tell(new AkkaActorInputMessage(scanners), normalizeRef);
+        List<DataLineReader> readers = ShifuFileUtils.getDataLineReaders("src/test/resources/example/cancer-judgement/DataStore/DataSet1", SourceType.LOCAL);
+        normalizeRef.tell(new AkkaActorInputMessage(readers), normalizeRef);
 
         while (!normalizeRef.isTerminated()) {
             Thread.sleep(5000);
@@ -78,8 +78,8 @@ public class NormalizeDataActorTest {
         File outputFile = new File("./tmp/NormalizedData");
         Assert.assertTrue(outputFile.exists());
 
-        for (Scanner scanner : scanners) {
-            scanner.close();
+        for (DataLineReader reader : readers) {
+            reader.close();
         }
     }
 
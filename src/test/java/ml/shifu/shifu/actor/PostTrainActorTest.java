@@ -19,6 +19,7 @@ import akka.actor.*;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.fs.DataLineReader;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.message.AkkaActorInputMessage;
 import ml.shifu.shifu.util.CommonUtils;
@@ -30,7 +31,6 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
-import java.util.Scanner;
 
 
 /**
@@ -67,8 +67,8 @@ public class PostTrainActorTest {
         }), "post-trainer");
 
 
-        List<Scanner> scanners = ShifuFileUtils.getDataScanners("src/test/resources/example/cancer-judgement/DataStore/DataSet1", SourceType.LOCAL);
-        postTrainRef.tell(new AkkaActorInputMessage(scanners), postTrainRef);
+        List<DataLineReader> readers = ShifuFileUtils.getDataLineReaders("src/test/resources/example/cancer-judgement/DataStore/DataSet1", SourceType.LOCAL);
+        postTrainRef.tell(new AkkaActorInputMessage(readers), postTrainRef);
 
         while (!postTrainRef.isTerminated()) {
             Thread.sleep(5000);
@@ -19,6 +19,7 @@ import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.alg.NNTrainer;
 import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.Constants;
 import org.apache.commons.io.FileUtils;
 import org.encog.ml.data.MLDataPair;
 import org.encog.ml.data.MLDataSet;
@@ -110,6 +111,60 @@ public class AbstractTrainerTest {
 
     }
 
+    @Test
+    public void testIndexedDataSet() throws IOException {
+        ModelConfig modelConfig = CommonUtils.loadModelConfig(
+                "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ModelConfig.json",
+                SourceType.LOCAL);
+        MLDataSet set = new BasicMLDataSet();
+        for (int j = 0; j < 500; j++) {
+            double[] input = new double[5];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = random.nextDouble();
+            }
+            set.add(new BasicMLDataPair(new BasicMLData(input), new BasicMLData(new double[] { random.nextInt(2) })));
+        }
+        new File(Constants.TMP).mkdirs();
+
+        modelConfig.getTrain().setFixInitInput(false);
+        modelConfig.getTrain().setBaggingWithReplacement(true);
+        assertSameDataSet(modelConfig, set);
+
+        modelConfig.getTrain().setBaggingWithReplacement(false);
+        assertSameDataSet(modelConfig, set);
+    }
+
+    /**
+     * Index views in memory should select the same records as copying records to disk with the same seed.
+     */
+    private void assertSameDataSet(ModelConfig modelConfig, MLDataSet set) throws IOException {
+        AbstractTrainer indexed = new NNTrainer(modelConfig, 0, false);
+        indexed.random = new Random(7L);
+        indexed.setDataSet(set);
+
+        AbstractTrainer copied = new NNTrainer(modelConfig, 0, false);
+        copied.setTrainingOption("D");
+        copied.random = new Random(7L);
+        copied.setDataSet(set);
+
+        assertSameRecords(indexed.getTrainSet(), copied.getTrainSet());
+        assertSameRecords(indexed.getValidSet(), copied.getValidSet());
+        copied.getTrainSet().close();
+        copied.getValidSet().close();
+    }
+
+    private void assertSameRecords(MLDataSet actual, MLDataSet expected) {
+        Assert.assertEquals(actual.getRecordCount(), expected.getRecordCount());
+        MLDataPair actualPair = BasicMLDataPair.createPair(actual.getInputSize(), actual.getIdealSize());
+        MLDataPair expectedPair = BasicMLDataPair.createPair(expected.getInputSize(), expected.getIdealSize());
+        for (int i = 0; i < actual.getRecordCount(); i++) {
+            actual.getRecord(i, actualPair);
+            expected.getRecord(i, expectedPair);
+            Assert.assertEquals(actualPair.getInputArray(), expectedPair.getInputArray());
+            Assert.assertEquals(actualPair.getIdealArray(), expectedPair.getIdealArray());
+        }
+    }
+
     @AfterClass
     public void delete() throws IOException {
         File json = new File(".");
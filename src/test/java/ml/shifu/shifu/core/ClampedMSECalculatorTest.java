@@ -0,0 +1,73 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.basic.BasicMLDataPair;
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.encog.neural.networks.BasicNetwork;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * ClampedMSECalculatorTest class
+ */
+public class ClampedMSECalculatorTest {
+
+    private double copyAndCalculate(BasicNetwork network, MLDataSet dataSet, boolean[] clamped, int clamping) {
+        MLDataSet tmpSet = new BasicMLDataSet();
+        for(MLDataPair pair: dataSet) {
+            double[] input = pair.getInputArray().clone();
+            input[clamping] = 0d;
+            for(int i = 0; i < NetworkTestUtils.INPUTS; i++) {
+                if(clamped[i]) {
+                    input[i] = 0d;
+                }
+            }
+            tmpSet.add(new BasicMLDataPair(new BasicMLData(input), new BasicMLData(pair.getIdealArray().clone())));
+        }
+        return AbstractTrainer.calculateMSE(network, tmpSet);
+    }
+
+    @Test
+    public void testSameAsCopiedDataSet() {
+        BasicNetwork network = NetworkTestUtils.createNetwork();
+        MLDataSet dataSet = NetworkTestUtils.createDataSet();
+        ClampedMSECalculator calculator = new ClampedMSECalculator(network, dataSet);
+
+        boolean[] clamped = new boolean[NetworkTestUtils.INPUTS];
+        for(int round = 0; round < NetworkTestUtils.INPUTS; round++) {
+            double[] mses = calculator.calculate();
+            for(int i = 0; i < NetworkTestUtils.INPUTS; i++) {
+                if(clamped[i]) {
+                    Assert.assertTrue(Double.isNaN(mses[i]));
+                } else {
+                    Assert.assertEquals(mses[i], copyAndCalculate(network, dataSet, clamped, i), 1e-10);
+                }
+            }
+            // clamp one input in each round like wrapper selection
+            int next = (round * 3) % NetworkTestUtils.INPUTS;
+            while(clamped[next]) {
+                next = (next + 1) % NetworkTestUtils.INPUTS;
+            }
+            clamped[next] = true;
+            calculator.clamp(next);
+            Assert.assertTrue(calculator.isClamped(next));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import ml.shifu.shifu.container.ConfusionMatrixObject;
+import ml.shifu.shifu.container.ModelResultObject;
+import ml.shifu.shifu.container.PerformanceObject;
+import ml.shifu.shifu.container.obj.PerformanceResult;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * ConfusionMatrixCalculatorTest class
+ */
+public class ConfusionMatrixCalculatorTest {
+
+    private List<ModelResultObject> createResults(int size) {
+        Random random = new Random(13L);
+        List<ModelResultObject> moList = new ArrayList<ModelResultObject>();
+        for(int i = 0; i < size; i++) {
+            String tag = random.nextInt(5) == 0 ? "1" : "0";
+            moList.add(new ModelResultObject(random.nextInt(1000), tag, 1d + random.nextInt(3)));
+        }
+        return moList;
+    }
+
+    @Test
+    public void testCalculate() {
+        ConfusionMatrixCalculator calculator = new ConfusionMatrixCalculator(Arrays.asList("1"),
+                Arrays.asList("0"), Arrays.asList(new ModelResultObject(0.2, "0", 2d), new ModelResultObject(0.8,
+                        "1", 1d), new ModelResultObject(0.5, "0", 1d)));
+        List<ConfusionMatrixObject> cmoList = calculator.calculate();
+        Assert.assertEquals(cmoList.size(), 4);
+
+        ConfusionMatrixObject init = cmoList.get(0);
+        Assert.assertEquals(init.getFn(), 1d);
+        Assert.assertEquals(init.getTn(), 2d);
+        Assert.assertEquals(init.getWeightedTn(), 3d);
+        Assert.assertEquals(init.getScore(), 0.8);
+
+        ConfusionMatrixObject last = cmoList.get(3);
+        Assert.assertEquals(last.getTp(), 1d);
+        Assert.assertEquals(last.getFp(), 2d);
+        Assert.assertEquals(last.getWeightedFp(), 3d);
+        Assert.assertEquals(last.getScore(), 0.2);
+        Assert.assertEquals(cmoList.get(1).getScore(), 0.8);
+        Assert.assertEquals(cmoList.get(2).getFp(), 1d);
+    }
+
+    @Test
+    public void testSweepSameAsBucketing() throws IOException {
+        List<ModelResultObject> moList = createResults(5000);
+        ConfusionMatrixCalculator calculator = new ConfusionMatrixCalculator(Arrays.asList("1"),
+                Arrays.asList("0"), moList);
+
+        StringWriter out = new StringWriter();
+        BufferedWriter writer = new BufferedWriter(out);
+        PerformanceResult result = calculator.calculate(writer, 10, true);
+        writer.close();
+
+        // confusion matrix file is the same as writing each object
+        StringWriter expectedOut = new StringWriter();
+        BufferedWriter expectedWriter = new BufferedWriter(expectedOut);
+        List<ConfusionMatrixObject> cmoList = calculator.calculate();
+        cmoList.get(0).setScore(1000);
+        for(ConfusionMatrixObject cmo: cmoList) {
+            ConfusionMatrixCalculator.saveConfusionMaxtrixWithWriter(expectedWriter, cmo);
+        }
+        expectedWriter.close();
+        Assert.assertEquals(out.toString(), expectedOut.toString());
+
+        // performance is the same as bucketing all objects
+        PerformanceResult expected = new PerformanceEvaluator(null, null).bucketing(cmoList, cmoList.size(), 10,
+                true);
+        assertCurveEquals(result.roc, expected.roc);
+        assertCurveEquals(result.pr, expected.pr);
+        assertCurveEquals(result.gains, expected.gains);
+        assertCurveEquals(result.weightedRoc, expected.weightedRoc);
+        assertCurveEquals(result.weightedPr, expected.weightedPr);
+        assertCurveEquals(result.weightedGains, expected.weightedGains);
+        Assert.assertEquals(result.areaUnderRoc, expected.areaUnderRoc, 0d);
+        Assert.assertEquals(result.weightedAreaUnderPr, expected.weightedAreaUnderPr, 0d);
+    }
+
+    private void assertCurveEquals(List<PerformanceObject> actual, List<PerformanceObject> expected) {
+        Assert.assertEquals(actual.size(), expected.size());
+        for(int i = 0; i < actual.size(); i++) {
+            Assert.assertEquals(actual.get(i).binNum, expected.get(i).binNum);
+            Assert.assertEquals(actual.get(i).binLowestScore, expected.get(i).binLowestScore, 0d);
+            Assert.assertEquals(actual.get(i).recall, expected.get(i).recall, 0d);
+            Assert.assertEquals(actual.get(i).weightedFpr, expected.get(i).weightedFpr, 0d);
+        }
+    }
+}
@@ -18,9 +18,13 @@ package ml.shifu.shifu.core;
 import ml.shifu.shifu.container.obj.EvalConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.ModelTrainConf.ALGORITHM;
+import ml.shifu.shifu.container.obj.RawSourceData;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.util.RecordTokenizer;
 import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -108,9 +112,67 @@ public class ConfusionMatrixTest {
         new ConfusionMatrix(modelConfig, evalConfig);
     }
 
+    @Test
+    public void testEvalScoreOfOtherEvalSet() throws IOException {
+        Map<String, String> customPaths = new HashMap<String, String>();
+        customPaths.put(Constants.KEY_SCORE_PATH, "src/test/resources/example/cancer-judgement/DataStore/EvalSet1");
+        evalConfig.setCustomPaths(customPaths);
+        evalConfig.setPerformanceScoreSelector("diagnosis");
+        evalConfig.getDataSet().setTargetColumnName("diagnosis");
+
+        // eval set without its own score output reads score output of eval set with the same data set and models
+        EvalConfig otherEvalConfig = new EvalConfig();
+        otherEvalConfig.setName("Eval2");
+        otherEvalConfig.setDataSet(evalConfig.getDataSet());
+        otherEvalConfig.setPerformanceScoreSelector("diagnosis");
+        new ConfusionMatrix(modelConfig, otherEvalConfig, evalConfig);
+    }
+
+    @Test
+    public void testSharedEvalScore() throws IOException {
+        // score output of Eval1 shared with Eval2 which has other target and weight
+        File scoreDir = new File("target/ConfusionMatrixTest/EvalScore");
+        FileUtils.writeStringToFile(new File(scoreDir, Constants.PIG_HEADER),
+                "EvalScore::shifu::diagnosis|EvalScore::shifu::wgt|EvalScore::shifu::mean|EvalScore::shifu::model0"
+                        + "|EvalScore::other_target|EvalScore::other_wgt|EvalScore::shifu_selected_Eval1"
+                        + "|EvalScore::shifu_selected_Eval2");
+
+        EvalConfig eval1 = createEvalConfig("Eval1", "diagnosis", "wgt");
+        eval1.getCustomPaths().put(Constants.KEY_SCORE_PATH, scoreDir.getPath());
+        EvalConfig eval2 = createEvalConfig("Eval2", "other_target", "other_wgt");
+
+        ConfusionMatrix matrix1 = new ConfusionMatrix(modelConfig, eval1);
+        ConfusionMatrix matrix2 = new ConfusionMatrix(modelConfig, eval2, eval1);
+
+        RecordTokenizer tokenizer = new RecordTokenizer(Constants.DEFAULT_DELIMITER);
+        tokenizer.reset("M|2.0|800|800|B|3.5|true|false");
+        Assert.assertTrue(matrix1.isSelected(tokenizer));
+        Assert.assertEquals(matrix1.getTarget(tokenizer), "M");
+        Assert.assertEquals(matrix1.getWeight(tokenizer), 2.0d);
+        Assert.assertFalse(matrix2.isSelected(tokenizer));
+
+        tokenizer.reset("|2.0|300|300|M|0.5|false|true");
+        Assert.assertFalse(matrix1.isSelected(tokenizer));
+        Assert.assertTrue(matrix2.isSelected(tokenizer));
+        Assert.assertEquals(matrix2.getTarget(tokenizer), "M");
+        Assert.assertEquals(matrix2.getWeight(tokenizer), 0.5d);
+    }
+
+    private EvalConfig createEvalConfig(String name, String target, String weight) {
+        EvalConfig config = new EvalConfig();
+        config.setName(name);
+        config.setDataSet(new RawSourceData());
+        config.getDataSet().setSource(SourceType.LOCAL);
+        config.getDataSet().setTargetColumnName(target);
+        config.getDataSet().setWeightColumnName(weight);
+        config.setPerformanceScoreSelector("mean");
+        return config;
+    }
+
     @AfterClass
     public void tearDown() throws IOException {
         File dir = new File("test");
         FileUtils.deleteDirectory(dir);
+        FileUtils.deleteDirectory(new File("target/ConfusionMatrixTest"));
     }
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.core.dtrain.dataset.IndexedMLDataSet;
+import ml.shifu.shifu.util.CommonUtils;
+
+import org.encog.ml.data.MLDataSet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * LocalEnsembleTrainerTest class
+ */
+public class LocalEnsembleTrainerTest {
+
+    @Test
+    public void testThreadAllocation() {
+        // 5 bagging models on 32 cores
+        Assert.assertEquals(LocalEnsembleTrainer.getParallelNum(5, 32), 5);
+        Assert.assertEquals(LocalEnsembleTrainer.getThreadCountPerTrainer(5, 32), 7);
+
+        // more models than cores
+        Assert.assertEquals(LocalEnsembleTrainer.getParallelNum(10, 4), 4);
+        Assert.assertEquals(LocalEnsembleTrainer.getThreadCountPerTrainer(10, 4), 1);
+
+        Assert.assertEquals(LocalEnsembleTrainer.getParallelNum(1, 8), 1);
+        Assert.assertEquals(LocalEnsembleTrainer.getThreadCountPerTrainer(1, 8), 8);
+    }
+
+    @Test
+    public void testTrain() throws IOException {
+        ModelConfig modelConfig = CommonUtils.loadModelConfig(
+                "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ModelConfig.json", SourceType.LOCAL);
+        modelConfig.getTrain().setFixInitInput(false);
+        MLDataSet master = NetworkTestUtils.createDataSet();
+
+        List<AbstractTrainer> trainers = new ArrayList<AbstractTrainer>();
+        for(int i = 0; i < 5; i++) {
+            trainers.add(new SharedDataTrainer(modelConfig, i, master));
+        }
+        List<Double> errors = new LocalEnsembleTrainer(trainers, master, 4).train();
+
+        // one error per trainer in the same order of trainers
+        Assert.assertEquals(errors.size(), 5);
+        for(int i = 0; i < errors.size(); i++) {
+            Assert.assertEquals(errors.get(i), Double.valueOf(i));
+            Assert.assertEquals(trainers.get(i).threadCount, 1);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testTrainFailure() throws IOException {
+        ModelConfig modelConfig = CommonUtils.loadModelConfig(
+                "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ModelConfig.json", SourceType.LOCAL);
+        modelConfig.getTrain().setFixInitInput(false);
+        MLDataSet master = NetworkTestUtils.createDataSet();
+
+        List<AbstractTrainer> trainers = new ArrayList<AbstractTrainer>();
+        trainers.add(new SharedDataTrainer(modelConfig, 0, master));
+        // trainer id -1 fails in training
+        trainers.add(new SharedDataTrainer(modelConfig, -1, master));
+        new LocalEnsembleTrainer(trainers, master, 2).train();
+    }
+
+    /**
+     * Trainer checks that its data sets are views of the shared master data set and returns trainer id as error.
+     */
+    private static class SharedDataTrainer extends AbstractTrainer {
+
+        private final MLDataSet master;
+
+        public SharedDataTrainer(ModelConfig modelConfig, int trainerID, MLDataSet master) {
+            super(modelConfig, trainerID, false);
+            this.master = master;
+        }
+
+        @Override
+        public double train() throws IOException {
+            if(this.trainerID < 0) {
+                throw new IOException("Training failed.");
+            }
+            Assert.assertTrue(getTrainSet() instanceof IndexedMLDataSet);
+            Assert.assertTrue(getValidSet() instanceof IndexedMLDataSet);
+            Assert.assertTrue(getTrainSet().getRecordCount() > 0L);
+            Assert.assertEquals(getTrainSet().getInputSize(), this.master.getInputSize());
+            return this.trainerID;
+        }
+    }
+}
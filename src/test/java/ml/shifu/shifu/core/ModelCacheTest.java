@@ -0,0 +1,116 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.dataset.BinaryNetworkPersistence;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.encog.ml.BasicML;
+import org.encog.ml.data.MLData;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.neural.networks.BasicNetwork;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * ModelCacheTest class
+ */
+public class ModelCacheTest {
+
+    private File dir = new File("target", "ModelCacheTest");
+
+    private BasicNetwork createNetwork() {
+        return DTrainUtils.generateNetwork(5, 1, 2, Arrays.asList("tanh", "sigmoid"), Arrays.asList(8, 4));
+    }
+
+    private void assertSameScore(BasicNetwork actual, BasicNetwork expected) {
+        MLData input = new BasicMLData(new double[] { 0.1d, -0.5d, 0.3d, 0.9d, -1.2d });
+        Assert.assertEquals(actual.compute(input).getData(0), expected.compute(input).getData(0));
+    }
+
+    @Test
+    public void testBinaryNetwork() throws IOException {
+        BasicNetwork network = createNetwork();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryNetworkPersistence.saveObject(bos, network);
+
+        InputStream is = new ByteArrayInputStream(bos.toByteArray());
+        Assert.assertTrue(BinaryNetworkPersistence.isBinary(is));
+        BasicNetwork loaded = BinaryNetworkPersistence.loadObject(is);
+        Assert.assertTrue(Arrays.equals(loaded.getFlat().getWeights(), network.getFlat().getWeights()));
+        Assert.assertEquals(loaded.getInputCount(), 5);
+        Assert.assertEquals(loaded.getOutputCount(), 1);
+        assertSameScore(loaded, network);
+
+        Assert.assertFalse(BinaryNetworkPersistence.isBinary(new ByteArrayInputStream("encog".getBytes())));
+    }
+
+    @Test
+    public void testSharedModel() throws IOException {
+        BasicNetwork network = createNetwork();
+        FileUtils.forceMkdir(this.dir);
+        File modelFile = new File(this.dir, "model0.nn");
+        writeNetwork(modelFile, network);
+
+        FileSystem fs = FileSystem.getLocal(new Configuration());
+        Path path = new Path(modelFile.getAbsolutePath());
+        BasicNetwork first = (BasicNetwork) ModelCache.getInstance().getModel(fs, fs.getFileStatus(path));
+        BasicNetwork second = (BasicNetwork) ModelCache.getInstance().getModel(fs, fs.getFileStatus(path));
+        Assert.assertNotSame(first, second);
+        // weights are shared while layer outputs are not
+        Assert.assertSame(first.getFlat().getWeights(), second.getFlat().getWeights());
+        Assert.assertNotSame(first.getFlat().getLayerOutput(), second.getFlat().getLayerOutput());
+        assertSameScore(first, network);
+        assertSameScore(second, network);
+
+        // model file is changed and reloaded
+        BasicNetwork another = createNetwork();
+        writeNetwork(modelFile, another);
+        modelFile.setLastModified(modelFile.lastModified() + 10000L);
+        BasicML reloaded = ModelCache.getInstance().getModel(fs, fs.getFileStatus(path));
+        Assert.assertNotSame(((BasicNetwork) reloaded).getFlat().getWeights(), first.getFlat().getWeights());
+        assertSameScore((BasicNetwork) reloaded, another);
+    }
+
+    private void writeNetwork(File file, BasicNetwork network) throws IOException {
+        OutputStream os = new FileOutputStream(file);
+        try {
+            BinaryNetworkPersistence.saveObject(os, network);
+        } finally {
+            os.close();
+        }
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        ModelCache.getInstance().clear();
+        FileUtils.deleteDirectory(this.dir);
+    }
+}
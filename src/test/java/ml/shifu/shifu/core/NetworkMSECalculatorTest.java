@@ -0,0 +1,56 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.Random;
+
+import ml.shifu.shifu.core.dtrain.dataset.IndexedMLDataSet;
+
+import org.encog.ml.data.MLDataSet;
+import org.encog.neural.networks.BasicNetwork;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * NetworkMSECalculatorTest class
+ */
+public class NetworkMSECalculatorTest {
+
+    @Test
+    public void testSameAsCalculateMSE() {
+        BasicNetwork network = NetworkTestUtils.createNetwork();
+        MLDataSet master = NetworkTestUtils.createDataSet();
+        int[] indexes = new int[200];
+        Random random = new Random(5L);
+        for(int i = 0; i < indexes.length; i++) {
+            indexes[i] = random.nextInt((int) master.getRecordCount());
+        }
+        MLDataSet validSet = new IndexedMLDataSet(master, indexes);
+
+        NetworkMSECalculator calculator = new NetworkMSECalculator(network, validSet, 3);
+        Assert.assertEquals(calculator.calculate(), AbstractTrainer.calculateMSE(network, validSet), 1e-10);
+
+        // weights are updated in place by training, calculator should use current weights
+        double[] weights = network.getStructure().getFlat().getWeights();
+        for(int i = 0; i < weights.length; i++) {
+            weights[i] += random.nextGaussian() * 0.1;
+        }
+        Assert.assertEquals(calculator.calculate(), AbstractTrainer.calculateMSE(network, validSet), 1e-10);
+
+        calculator = new NetworkMSECalculator(network, master, 1);
+        Assert.assertEquals(calculator.calculate(), AbstractTrainer.calculateMSE(network, master), 1e-10);
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.Random;
+
+import org.encog.engine.network.activation.ActivationLinear;
+import org.encog.engine.network.activation.ActivationSigmoid;
+import org.encog.engine.network.activation.ActivationTANH;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.basic.BasicMLDataPair;
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.neural.networks.layers.BasicLayer;
+
+/**
+ * Network and data set fixtures shared by MSE calculator tests.
+ */
+final class NetworkTestUtils {
+
+    static final int INPUTS = 8;
+
+    private NetworkTestUtils() {
+    }
+
+    /**
+     * Network with two hidden layers of different activations and fixed initial weights.
+     */
+    static BasicNetwork createNetwork() {
+        BasicNetwork network = new BasicNetwork();
+        network.addLayer(new BasicLayer(new ActivationLinear(), true, INPUTS));
+        network.addLayer(new BasicLayer(new ActivationSigmoid(), true, 5));
+        network.addLayer(new BasicLayer(new ActivationTANH(), true, 3));
+        network.addLayer(new BasicLayer(new ActivationSigmoid(), false, 1));
+        network.getStructure().finalizeStructure();
+        network.reset(7);
+        return network;
+    }
+
+    /**
+     * Data set of 500 records with 0-1 ideal, about a quarter of inputs are zero.
+     */
+    static MLDataSet createDataSet() {
+        Random random = new Random(3L);
+        MLDataSet dataSet = new BasicMLDataSet();
+        for(int n = 0; n < 500; n++) {
+            double[] input = new double[INPUTS];
+            for(int i = 0; i < INPUTS; i++) {
+                input[i] = random.nextInt(4) == 0 ? 0d : random.nextGaussian();
+            }
+            double[] ideal = new double[] { random.nextInt(2) };
+            dataSet.add(new BasicMLDataPair(new BasicMLData(input), new BasicMLData(ideal)));
+        }
+        return dataSet;
+    }
+
+}
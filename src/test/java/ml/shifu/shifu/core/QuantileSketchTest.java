@@ -0,0 +1,117 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * QuantileSketchTest class
+ */
+public class QuantileSketchTest {
+
+    @Test
+    public void testSmallData() {
+        QuantileSketch sketch = new QuantileSketch();
+        Assert.assertTrue(Double.isNaN(sketch.getMedian()));
+
+        sketch.add(3d);
+        sketch.add(1d);
+        sketch.add(2d);
+        Assert.assertEquals(sketch.getMedian(), 2d);
+        Assert.assertEquals(sketch.getQuantile(0d), 1d);
+        Assert.assertEquals(sketch.getQuantile(1d), 3d);
+
+        sketch = new QuantileSketch();
+        sketch.add(1d);
+        sketch.add(2d);
+        sketch.add(Double.NaN);
+        Assert.assertEquals(sketch.getMedian(), 1.5d);
+        Assert.assertEquals(sketch.getTotalWeight(), 2d);
+    }
+
+    @Test
+    public void testAccuracy() {
+        QuantileSketch sketch = new QuantileSketch();
+        Random random = new Random(1L);
+        for(int i = 0; i < 100000; i++) {
+            sketch.add(random.nextDouble() * 1000d);
+        }
+        Assert.assertEquals(sketch.getMedian(), 500d, 10d);
+        Assert.assertEquals(sketch.getQuantile(0.1d), 100d, 5d);
+        Assert.assertEquals(sketch.getQuantile(0.99d), 990d, 2d);
+        Assert.assertTrue(sketch.getCentroidCount() < 1000);
+    }
+
+    @Test
+    public void testWeightAndMerge() {
+        QuantileSketch weighted = new QuantileSketch();
+        QuantileSketch repeated = new QuantileSketch();
+        for(int i = 0; i < 50; i++) {
+            weighted.add(i, 3d);
+            for(int j = 0; j < 3; j++) {
+                repeated.add(i);
+            }
+        }
+        Assert.assertEquals(weighted.getMedian(), repeated.getMedian(), 0.5d);
+
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        Random random = new Random(2L);
+        for(int i = 0; i < 20000; i++) {
+            double value = random.nextGaussian();
+            all.add(value);
+            (i % 2 == 0 ? first : second).add(value);
+        }
+        first.merge(second);
+        Assert.assertEquals(first.getTotalWeight(), 20000d);
+        Assert.assertEquals(first.getMin(), all.getMin());
+        Assert.assertEquals(first.getMax(), all.getMax());
+        Assert.assertEquals(first.getMedian(), all.getMedian(), 0.05d);
+        Assert.assertEquals(first.getQuantile(0.9d), all.getQuantile(0.9d), 0.05d);
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        QuantileSketch sketch = new QuantileSketch(50);
+        for(int i = 0; i < 10000; i++) {
+            sketch.add(i % 777);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.write(new DataOutputStream(bytes));
+        QuantileSketch copy = QuantileSketch.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(copy.getCompression(), 50);
+        Assert.assertEquals(copy.getCentroidCount(), sketch.getCentroidCount());
+        for(double q = 0d; q <= 1d; q += 0.05d) {
+            Assert.assertEquals(copy.getQuantile(q), sketch.getQuantile(q));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidQuantile() {
+        new QuantileSketch().getQuantile(1.5d);
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ColumnConfig.ColumnType;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * ReasonCodeEngineTest class
+ */
+public class ReasonCodeEngineTest {
+
+    private List<ColumnConfig> createColumnConfigList(Map<String, String> reasonCodeMap) {
+        Random random = new Random(3L);
+        List<ColumnConfig> columnConfigList = new ArrayList<ColumnConfig>();
+        for(int i = 0; i < 20; i++) {
+            ColumnConfig config = new ColumnConfig();
+            config.setColumnNum(i);
+            config.setColumnName("col" + i);
+            config.setFinalSelect(i != 7);
+            if(i % 4 == 0) {
+                config.setColumnType(ColumnType.C);
+                config.setBinCategory(Arrays.asList("a", "b", "c"));
+            } else {
+                config.setColumnType(ColumnType.N);
+                config.setBinBoundary(Arrays.asList(Double.NEGATIVE_INFINITY, 10d, 20d, 30d));
+                config.setMean(15d);
+            }
+            List<Integer> scores = new ArrayList<Integer>();
+            for(int j = 0; j < config.getBinLength(); j++) {
+                scores.add(random.nextInt(10));
+            }
+            config.setBinAvgScore(scores);
+            columnConfigList.add(config);
+            reasonCodeMap.put("col" + i, "R" + (i % 8));
+        }
+        return columnConfigList;
+    }
+
+    @Test
+    public void testSameAsReasoner() {
+        Map<String, String> reasonCodeMap = new HashMap<String, String>();
+        List<ColumnConfig> columnConfigList = createColumnConfigList(reasonCodeMap);
+        ReasonCodeEngine engine = new ReasonCodeEngine(columnConfigList, reasonCodeMap);
+        Assert.assertEquals(engine.size(), 19);
+
+        Random random = new Random(5L);
+        String[] categories = new String[] { "a", "b", "c" };
+        for(int n = 0; n < 200; n++) {
+            Map<String, String> rawDataMap = new HashMap<String, String>();
+            for(int i = 0; i < 20; i++) {
+                if(i % 4 == 0) {
+                    rawDataMap.put("col" + i, categories[random.nextInt(3)]);
+                } else {
+                    int value = random.nextInt(45);
+                    rawDataMap.put("col" + i, value >= 40 ? "" : Integer.toString(value));
+                }
+            }
+
+            Reasoner reasoner = new Reasoner(reasonCodeMap);
+            reasoner.calculateReasonCodes(columnConfigList, rawDataMap);
+            Assert.assertEquals(engine.calculateReasonCodes(rawDataMap), reasoner.getReasonCodes());
+        }
+    }
+
+    @Test
+    public void testInvalidValues() {
+        Map<String, String> reasonCodeMap = new HashMap<String, String>();
+        List<ColumnConfig> columnConfigList = createColumnConfigList(reasonCodeMap);
+        ReasonCodeEngine engine = new ReasonCodeEngine(columnConfigList, reasonCodeMap, 3);
+
+        String[] values = new String[engine.size()];
+        Assert.assertTrue(engine.calculateReasonCodes(values).isEmpty());
+
+        // unknown category and invalid number are skipped
+        values[0] = "x";
+        values[1] = "abc";
+        values[2] = "25";
+        Assert.assertEquals(engine.calculateReasonCodes(values), Arrays.asList("R2"));
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * RecordSamplerTest class
+ */
+public class RecordSamplerTest {
+
+    private String[] record(int i) {
+        return new String[] { "id" + i, (i % 10 == 0) ? "1" : "0", Integer.toString(i * 7) };
+    }
+
+    @Test
+    public void testDeterministic() {
+        RecordSampler first = new RecordSampler(0.3d, null, null, 17L, -1);
+        RecordSampler second = new RecordSampler(0.3d, null, null, 17L, -1);
+        RecordSampler otherSeed = new RecordSampler(0.3d, null, null, 18L, -1);
+
+        int sampled = 0, diff = 0;
+        for(int i = 0; i < 10000; i++) {
+            String[] fields = record(i);
+            double weight = first.sample(fields[1], fields);
+            Assert.assertEquals(weight, second.sample(fields[1], fields), 0d);
+            // object fields like pig tuple are the same as string fields
+            Assert.assertEquals(weight, second.sample(fields[1], new ArrayList<Object>(Arrays.asList(fields))), 0d);
+            if(weight > 0d) {
+                Assert.assertEquals(weight, 1d, 0d);
+                sampled += 1;
+            }
+            if((weight > 0d) != (otherSeed.sample(fields[1], fields) > 0d)) {
+                diff += 1;
+            }
+        }
+        Assert.assertEquals(sampled / 10000d, 0.3d, 0.02d);
+        Assert.assertTrue(diff > 1000);
+    }
+
+    @Test
+    public void testKeyColumn() {
+        RecordSampler sampler = new RecordSampler(0.5d, null, null, 1L, 0);
+        for(int i = 0; i < 1000; i++) {
+            String[] fields = record(i);
+            String[] changed = record(i);
+            changed[2] = "changed";
+            Assert.assertEquals(sampler.sample(fields[1], fields), sampler.sample(fields[1], changed), 0d);
+        }
+    }
+
+    @Test
+    public void testStratifiedWeight() {
+        Map<String, Double> tagRates = new HashMap<String, Double>();
+        tagRates.put("0", 0.25d);
+        RecordSampler sampler = new RecordSampler(1d, null, tagRates, 3L, 0);
+
+        double weightedNegatives = 0d;
+        int positives = 0, negatives = 0;
+        for(int i = 0; i < 20000; i++) {
+            String[] fields = record(i);
+            double weight = sampler.sample(fields[1], fields);
+            if("1".equals(fields[1])) {
+                Assert.assertEquals(weight, 1d, 0d);
+                positives += 1;
+            } else {
+                negatives += 1;
+                if(weight > 0d) {
+                    Assert.assertEquals(weight, 4d, 0d);
+                    weightedNegatives += weight;
+                }
+            }
+        }
+        Assert.assertEquals(positives, 2000);
+        // weighted count of sampled negatives is close to count of all negatives
+        Assert.assertEquals(weightedNegatives / negatives, 1d, 0.05d);
+    }
+
+    @Test
+    public void testNegOnly() {
+        List<String> negTags = Arrays.asList("0");
+        RecordSampler sampler = new RecordSampler(0d, negTags, null, null, -1);
+        for(int i = 0; i < 100; i++) {
+            String[] fields = record(i);
+            Assert.assertEquals(sampler.sample(fields[1], fields), "1".equals(fields[1]) ? 1d : 0d, 0d);
+        }
+    }
+}
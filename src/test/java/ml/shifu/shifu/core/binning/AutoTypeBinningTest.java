@@ -0,0 +1,143 @@
+/*
+ * Copyright [2012-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.binning;
+
+import ml.shifu.shifu.container.obj.ColumnConfig.ColumnType;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.ModelStatsConf.BinningMethod;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * AutoTypeBinningTest class
+ */
+public class AutoTypeBinningTest {
+
+    private ModelConfig createModelConfig() {
+        ModelConfig modelConfig = new ModelConfig();
+        modelConfig.getStats().setBinningMethod(BinningMethod.EqualTotal);
+        return modelConfig;
+    }
+
+    @Test
+    public void testCategoricalColumn() {
+        ModelConfig modelConfig = createModelConfig();
+        AutoTypeBinning binning = new AutoTypeBinning(modelConfig);
+        for(int i = 0; i < 1000; i++) {
+            binning.addData("cat" + (i % 5), true);
+        }
+        // missing value
+        binning.addData("", true);
+
+        Assert.assertEquals(binning.getDistinctCount(), 5d, 1d);
+        Assert.assertEquals(binning.getNumericRatio(), 0d);
+        Assert.assertEquals(binning.resolveType(ColumnType.N, 10), ColumnType.C);
+        Assert.assertEquals(binning.getBinning(ColumnType.C).getDataBin().size(), 5);
+        // threshold is not set, type is not changed
+        Assert.assertEquals(binning.resolveType(ColumnType.N, 0), ColumnType.N);
+    }
+
+    @Test
+    public void testNumericalColumn() {
+        ModelConfig modelConfig = createModelConfig();
+        AutoTypeBinning binning = new AutoTypeBinning(modelConfig);
+        for(int i = 0; i < 1000; i++) {
+            binning.addData(Integer.toString(i), true);
+        }
+
+        Assert.assertEquals(binning.getNumericRatio(), 1d);
+        Assert.assertEquals(binning.resolveType(ColumnType.N, 250), ColumnType.N);
+        Assert.assertTrue(binning.getBinning(ColumnType.N).getDataBin().size() > 1);
+
+        // 0-1 variable
+        binning = new AutoTypeBinning(modelConfig);
+        for(int i = 0; i < 100; i++) {
+            binning.addData(Integer.toString(i % 2), true);
+        }
+        Assert.assertEquals(binning.resolveType(ColumnType.C, 250), ColumnType.N);
+    }
+
+    @Test
+    public void testNumericRatio() {
+        ModelConfig modelConfig = createModelConfig();
+        AutoTypeBinning binning = new AutoTypeBinning(modelConfig);
+        for(int i = 0; i < 1000; i++) {
+            binning.addData(i % 10 == 0 ? Integer.toString(i) : "code" + i, true);
+        }
+
+        Assert.assertEquals(binning.getNumericRatio(), 0.1d, 1e-6);
+        // distinct count is over threshold, current type is kept as auto type checking in init step
+        Assert.assertEquals(binning.resolveType(ColumnType.N, 250), ColumnType.N);
+        Assert.assertEquals(binning.resolveType(ColumnType.C, 250), ColumnType.C);
+    }
+
+    @Test
+    public void testSameAsInitRules() {
+        ModelConfig modelConfig = createModelConfig();
+        AutoTypeBinning[] binnings = new AutoTypeBinning[4];
+        for(int i = 0; i < binnings.length; i++) {
+            binnings[i] = new AutoTypeBinning(modelConfig);
+        }
+        for(int i = 0; i < 1000; i++) {
+            binnings[0].addData("cat" + (i % 5), true);
+            binnings[1].addData(Integer.toString(i % 2), true);
+            binnings[2].addData(Double.toString(i % 20 + 0.5d), true);
+            binnings[3].addData(i % 10 == 0 ? Integer.toString(i) : "code" + i, true);
+        }
+
+        // init step resolves type by distinct count and frequent items of auto type MapReduce job
+        for(AutoTypeBinning binning: binnings) {
+            for(ColumnType current: new ColumnType[] { ColumnType.N, ColumnType.C }) {
+                for(Integer threshold: new Integer[] { null, 0, 10, 250 }) {
+                    Assert.assertEquals(binning.resolveType(current, threshold), AutoTypeBinning.resolveType(current,
+                            binning.getDistinctCount(), binning.getFrequentItems(), threshold));
+                }
+            }
+        }
+        Assert.assertEquals(binnings[0].resolveType(ColumnType.N, 250), ColumnType.C);
+        Assert.assertEquals(binnings[1].resolveType(ColumnType.C, 250), ColumnType.N);
+        Assert.assertEquals(binnings[2].resolveType(ColumnType.C, 250), ColumnType.N);
+        Assert.assertEquals(binnings[3].resolveType(ColumnType.N, 250), ColumnType.N);
+    }
+
+    @Test
+    public void testSerializeAndMerge() {
+        ModelConfig modelConfig = createModelConfig();
+        AutoTypeBinning first = new AutoTypeBinning(modelConfig);
+        AutoTypeBinning second = new AutoTypeBinning(modelConfig);
+        for(int i = 0; i < 100; i++) {
+            first.addData("a" + (i % 3), true);
+            second.addData("b" + (i % 4), false);
+        }
+
+        AutoTypeBinning merged = AutoTypeBinning.constructBinningFromStr(modelConfig, first.objToString());
+        merged.mergeBin(AutoTypeBinning.constructBinningFromStr(modelConfig, second.objToString()));
+
+        Assert.assertEquals(merged.getDistinctCount(), 7d, 1d);
+        Assert.assertEquals(merged.getFrequentItems().length, 7);
+        Assert.assertEquals(merged.resolveType(ColumnType.N, 250), ColumnType.C);
+        Assert.assertEquals(merged.getBinning(ColumnType.C).getDataBin().size(), 7);
+    }
+
+    @Test
+    public void testDetectRules() {
+        Assert.assertTrue(AutoTypeBinning.is01Variable(2, new String[] { "0", "1.0" }));
+        Assert.assertFalse(AutoTypeBinning.is01Variable(2, new String[] { "0", "2" }));
+        Assert.assertTrue(AutoTypeBinning.isDoubleFrequentVariable(3, new String[] { "0.1", "2.5", "" }));
+        Assert.assertFalse(AutoTypeBinning.isDoubleFrequentVariable(3, new String[] { "1", "2", "3" }));
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * EarlyStoppingTest class
+ */
+public class EarlyStoppingTest {
+
+    @Test
+    public void testStopAndRestoreBest() {
+        EarlyStopping earlyStopping = new EarlyStopping(3, 0.01d, true);
+        double[] weights = new double[] { 1d, 2d };
+
+        Assert.assertTrue(earlyStopping.update(2, 0.5d, weights));
+        weights[0] = 3d;
+        Assert.assertTrue(earlyStopping.update(3, 0.4d, weights));
+        // weights are updated in place after update
+        weights[0] = 5d;
+        // improvement less than min delta
+        Assert.assertFalse(earlyStopping.update(4, 0.395d, weights));
+        Assert.assertFalse(earlyStopping.update(5, 0.41d, weights));
+        Assert.assertFalse(earlyStopping.shouldStop());
+        Assert.assertFalse(earlyStopping.update(6, Double.NaN, weights));
+        Assert.assertTrue(earlyStopping.shouldStop());
+
+        Assert.assertEquals(earlyStopping.getBestIteration(), 3);
+        Assert.assertEquals(earlyStopping.getBestError(), 0.4d, 0d);
+        Assert.assertEquals(earlyStopping.getBestWeights()[0], 3d, 0d);
+        Assert.assertEquals(earlyStopping.getBestWeights()[1], 2d, 0d);
+    }
+
+    @Test
+    public void testDisabled() {
+        EarlyStopping earlyStopping = new EarlyStopping(0, 0d, false);
+        for(int i = 0; i < 10; i++) {
+            earlyStopping.update(i, 1d, new double[] { i });
+        }
+        Assert.assertFalse(earlyStopping.shouldStop());
+        Assert.assertNull(earlyStopping.getBestWeights());
+        Assert.assertEquals(earlyStopping.getBestIteration(), 0);
+    }
+
+    @Test
+    public void testPlateauScheduler() {
+        PlateauLearningRateScheduler scheduler = new PlateauLearningRateScheduler(2, 0.5d, 0d, 0.02d);
+        double learningRate = 0.1d;
+        learningRate = scheduler.adjust(0.5d, learningRate);
+        learningRate = scheduler.adjust(0.4d, learningRate);
+        Assert.assertEquals(learningRate, 0.1d, 0d);
+        learningRate = scheduler.adjust(0.4d, learningRate);
+        Assert.assertEquals(learningRate, 0.1d, 0d);
+        learningRate = scheduler.adjust(0.45d, learningRate);
+        Assert.assertEquals(learningRate, 0.05d, 1e-12);
+        learningRate = scheduler.adjust(0.41d, learningRate);
+        learningRate = scheduler.adjust(0.41d, learningRate);
+        Assert.assertEquals(learningRate, 0.025d, 1e-12);
+        // bounded by min learning rate
+        learningRate = scheduler.adjust(0.41d, learningRate);
+        learningRate = scheduler.adjust(0.41d, learningRate);
+        Assert.assertEquals(learningRate, 0.02d, 1e-12);
+        // improvement resets waiting
+        learningRate = scheduler.adjust(0.3d, learningRate);
+        learningRate = scheduler.adjust(0.31d, learningRate);
+        Assert.assertEquals(learningRate, 0.02d, 1e-12);
+    }
+
+    @Test
+    public void testCreateFromParams() {
+        Map<String, Object> params = new HashMap<String, Object>();
+        Assert.assertTrue(EarlyStopping.create(params).isRestoreBest());
+        Assert.assertFalse(PlateauLearningRateScheduler.create(params).isEnabled());
+
+        params.put(CommonConstants.EARLY_STOP_PATIENCE, 5);
+        params.put(CommonConstants.RESTORE_BEST_WEIGHTS, false);
+        params.put(CommonConstants.PLATEAU_PATIENCE, "3");
+        EarlyStopping earlyStopping = EarlyStopping.create(params);
+        Assert.assertEquals(earlyStopping.getPatience(), 5);
+        Assert.assertFalse(earlyStopping.isRestoreBest());
+        Assert.assertEquals(PlateauLearningRateScheduler.create(params).getPatience(), 3);
+    }
+}
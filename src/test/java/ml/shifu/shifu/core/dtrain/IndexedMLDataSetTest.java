@@ -0,0 +1,90 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.util.Iterator;
+
+import ml.shifu.shifu.core.dtrain.dataset.IndexedMLDataSet;
+
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.basic.BasicMLDataPair;
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * IndexedMLDataSetTest class
+ */
+public class IndexedMLDataSetTest {
+
+    private MLDataSet createMaster() {
+        MLDataSet master = new BasicMLDataSet();
+        for(int i = 0; i < 5; i++) {
+            master.add(new BasicMLDataPair(new BasicMLData(new double[] { i, i * 10d }), new BasicMLData(
+                    new double[] { i % 2 })));
+        }
+        return master;
+    }
+
+    @Test
+    public void testGetRecord() {
+        MLDataSet master = createMaster();
+        // index can be put more than once for sampling with replacement
+        IndexedMLDataSet dataSet = new IndexedMLDataSet(master, new int[] { 3, 0, 3 });
+        Assert.assertEquals(dataSet.getRecordCount(), 3L);
+        Assert.assertEquals(dataSet.getInputSize(), 2);
+        Assert.assertEquals(dataSet.getIdealSize(), 1);
+
+        MLDataPair pair = BasicMLDataPair.createPair(2, 1);
+        dataSet.getRecord(0, pair);
+        Assert.assertEquals(pair.getInputArray(), new double[] { 3d, 30d });
+        Assert.assertEquals(pair.getIdealArray(), new double[] { 1d });
+        dataSet.getRecord(1, pair);
+        Assert.assertEquals(pair.getInputArray(), new double[] { 0d, 0d });
+        Assert.assertEquals(pair.getIdealArray(), new double[] { 0d });
+
+        // additional view of other threads has the same records
+        MLDataSet additional = dataSet.openAdditional();
+        Assert.assertEquals(additional.getRecordCount(), 3L);
+        additional.getRecord(2, pair);
+        Assert.assertEquals(pair.getInputArray(), new double[] { 3d, 30d });
+
+        // master data set is not closed by view
+        dataSet.close();
+        Assert.assertEquals(master.getRecordCount(), 5L);
+    }
+
+    @Test
+    public void testIterator() {
+        IndexedMLDataSet dataSet = new IndexedMLDataSet(createMaster(), new int[] { 4, 1 });
+        Iterator<MLDataPair> it = dataSet.iterator();
+        Assert.assertTrue(it.hasNext());
+        Assert.assertEquals(it.next().getInputArray(), new double[] { 4d, 40d });
+        Assert.assertTrue(it.hasNext());
+        Assert.assertEquals(it.next().getInputArray(), new double[] { 1d, 10d });
+        Assert.assertFalse(it.hasNext());
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        IndexedMLDataSet dataSet = new IndexedMLDataSet(createMaster(), new int[] { 0 });
+        dataSet.add(new BasicMLDataPair(new BasicMLData(new double[] { 1d, 1d }), new BasicMLData(
+                new double[] { 1d })));
+    }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.io.File;
+import java.io.IOException;
+
+import ml.shifu.shifu.core.dtrain.optimizer.Optimizer;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * MasterCheckpointTest class
+ */
+public class MasterCheckpointTest {
+
+    private File dir = new File("target", "MasterCheckpointTest");
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        FileSystem fs = FileSystem.getLocal(new Configuration());
+        Path path = new Path(this.dir.getAbsolutePath(), "checkpoint");
+        Assert.assertNull(MasterCheckpoint.load(fs, path, null, null, null));
+
+        Optimizer optimizer = Optimizer.create(DTrainUtils.RESILIENTPROPAGATION, 3, 100d, 0.1d, 0d,
+                RegulationLevel.NONE, 1);
+        double[] weights = optimizer.calculateWeights(new double[] { 0.1d, -0.2d, 0.3d },
+                new double[] { 1d, -2d, 3d });
+        MasterCheckpoint checkpoint = new MasterCheckpoint(5, 0.09d, weights.clone());
+        checkpoint.setLastUpdates(new double[] { 0.01d, 0.02d, 0.03d });
+        checkpoint.save(fs, path, optimizer, null, null);
+        // saved again to overwrite old checkpoint
+        checkpoint.save(fs, path, optimizer, null, null);
+        Assert.assertFalse(fs.exists(new Path(path.getParent(), path.getName() + ".tmp")));
+
+        Optimizer restoredOptimizer = Optimizer.create(DTrainUtils.RESILIENTPROPAGATION, 3, 100d, 0.1d, 0d,
+                RegulationLevel.NONE, 1);
+        MasterCheckpoint restored = MasterCheckpoint.load(fs, path, restoredOptimizer, null, null);
+        Assert.assertEquals(restored.getIteration(), 5);
+        Assert.assertEquals(restored.getLearningRate(), 0.09d, 1e-12);
+        Assert.assertEquals(restored.getLastUpdates()[2], 0.03d, 1e-12);
+        double[] restoredWeights = restored.getWeights();
+        for(int i = 0; i < weights.length; i++) {
+            Assert.assertEquals(restoredWeights[i], weights[i], 1e-12);
+        }
+
+        // optimizer states are restored, next update is the same as without failure
+        double[] gradients = new double[] { 2d, 1d, -3d };
+        weights = optimizer.calculateWeights(weights, gradients);
+        restoredWeights = restoredOptimizer.calculateWeights(restoredWeights, gradients);
+        for(int i = 0; i < weights.length; i++) {
+            Assert.assertEquals(restoredWeights[i], weights[i], 1e-12);
+        }
+        optimizer.shutdown();
+        restoredOptimizer.shutdown();
+    }
+
+    @Test
+    public void testResumeEarlyStoppingAndPlateau() throws IOException {
+        FileSystem fs = FileSystem.getLocal(new Configuration());
+        Path path = new Path(this.dir.getAbsolutePath(), "policy-checkpoint");
+
+        EarlyStopping earlyStopping = new EarlyStopping(3, 0d, true);
+        PlateauLearningRateScheduler lrScheduler = new PlateauLearningRateScheduler(2, 0.5d, 0d, 0d);
+        double learningRate = 0.1d;
+        double[] errors = new double[] { 0.5d, 0.4d, 0.45d };
+        for(int i = 0; i < errors.length; i++) {
+            earlyStopping.update(i + 1, errors[i], new double[] { i, -i });
+            learningRate = lrScheduler.adjust(errors[i], learningRate);
+        }
+
+        MasterCheckpoint checkpoint = new MasterCheckpoint(3, learningRate, new double[] { 2d, -2d });
+        checkpoint.setBestErrors(0.3d, 0.4d);
+        checkpoint.save(fs, path, null, earlyStopping, lrScheduler);
+
+        EarlyStopping restoredEarlyStopping = new EarlyStopping(3, 0d, true);
+        PlateauLearningRateScheduler restoredScheduler = new PlateauLearningRateScheduler(2, 0.5d, 0d, 0d);
+        MasterCheckpoint restored = MasterCheckpoint.load(fs, path, null, restoredEarlyStopping, restoredScheduler);
+        Assert.assertEquals(restored.getBestTrainError(), 0.3d, 1e-12);
+        Assert.assertEquals(restored.getBestTestError(), 0.4d, 1e-12);
+        Assert.assertEquals(restoredEarlyStopping.getBestError(), 0.4d, 1e-12);
+        Assert.assertEquals(restoredEarlyStopping.getBestIteration(), 2);
+        Assert.assertEquals(restoredEarlyStopping.getBestWeights(), new double[] { 1d, -1d });
+
+        // patience counters are restored, errors after resuming decrease learning rate and stop at the same iteration
+        double restoredLearningRate = restored.getLearningRate();
+        for(double error: new double[] { 0.42d, 0.41d }) {
+            earlyStopping.update(0, error, new double[] { 0d, 0d });
+            restoredEarlyStopping.update(0, error, new double[] { 0d, 0d });
+            learningRate = lrScheduler.adjust(error, learningRate);
+            restoredLearningRate = restoredScheduler.adjust(error, restoredLearningRate);
+            Assert.assertEquals(restoredLearningRate, learningRate, 1e-12);
+            Assert.assertEquals(restoredEarlyStopping.shouldStop(), earlyStopping.shouldStop());
+        }
+        Assert.assertEquals(restoredLearningRate, 0.05d, 1e-12);
+        Assert.assertTrue(restoredEarlyStopping.shouldStop());
+        Assert.assertEquals(restoredEarlyStopping.getBestWeights(), new double[] { 1d, -1d });
+    }
+
+    @Test
+    public void testResumedIteration() {
+        // not resumed, first iteration is for initialization
+        Assert.assertEquals(MasterCheckpoint.getTrainedIteration(0, 2), 1);
+        Assert.assertFalse(MasterCheckpoint.isResumedFinished(0, 11, 11));
+
+        // resumed from checkpoint of iteration 5 with total 11 iterations (10 training iterations)
+        Assert.assertEquals(MasterCheckpoint.getTrainedIteration(5, 2), 6);
+        Assert.assertFalse(MasterCheckpoint.isResumedFinished(5, 5, 11));
+        Assert.assertTrue(MasterCheckpoint.isResumedFinished(5, 6, 11));
+    }
+
+    @AfterClass
+    public void tearDown() {
+        File[] files = this.dir.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                file.delete();
+            }
+        }
+        this.dir.delete();
+    }
+}
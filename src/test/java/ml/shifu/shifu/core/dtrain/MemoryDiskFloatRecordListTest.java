@@ -0,0 +1,106 @@
+/*
+ * Copyright [2012-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatRecordList;
+import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatRecordList.Record;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MemoryDiskFloatRecordListTest {
+
+    private static final String FILE_NAME = "target" + File.separator + "float-records.bin";
+
+    private static float[] createInput(float f) {
+        float[] input = new float[10];
+        for(int i = 0; i < input.length; i++) {
+            input[i] = f + i;
+        }
+        return input;
+    }
+
+    @Test
+    public void testMemoryAndDisk() {
+        new File("target").mkdirs();
+        // 3 records (12 floats each) in memory, others are spilled
+        MemoryDiskFloatRecordList list = new MemoryDiskFloatRecordList(3 * 12 * 4, FILE_NAME, 10, 1);
+        for(int i = 0; i < 1000; i++) {
+            list.append(createInput(i), new float[] { i % 2 }, i * 0.5f);
+        }
+        list.switchState();
+
+        Assert.assertEquals(list.size(), 1000L);
+        Assert.assertEquals(list.getMemoryCount(), 3L);
+        Assert.assertEquals(list.getDiskCount(), 997L);
+        Assert.assertEquals(new File(FILE_NAME).length(), 997L * 12 * 4);
+
+        // iterate twice as what is done in each epoch
+        for(int epoch = 0; epoch < 2; epoch++) {
+            int i = 0;
+            for(Record record: list) {
+                Assert.assertTrue(Arrays.equals(record.getInputs(), createInput(i)));
+                Assert.assertEquals(record.getOutputs()[0], (float) (i % 2));
+                Assert.assertEquals(record.getSignificance(), i * 0.5f);
+                i += 1;
+            }
+            Assert.assertEquals(i, 1000);
+        }
+
+        // read buffer is reused by a new iteration started before the last one is done
+        Iterator<Record> it = list.iterator();
+        for(int i = 0; i < 10; i++) {
+            it.next();
+        }
+        it = list.iterator();
+        for(int i = 0; i < 1000; i++) {
+            Assert.assertTrue(Arrays.equals(it.next().getInputs(), createInput(i)));
+        }
+        Assert.assertFalse(it.hasNext());
+
+        list.close();
+        Assert.assertFalse(new File(FILE_NAME).exists());
+    }
+
+    @Test
+    public void testMemoryOnly() {
+        MemoryDiskFloatRecordList list = new MemoryDiskFloatRecordList(2, 1);
+        for(int i = 0; i < 100000; i++) {
+            list.append(new float[] { i, -i }, new float[] { 1f }, 1f);
+        }
+        Assert.assertEquals(list.getDiskCount(), 0L);
+
+        int i = 0;
+        for(Record record: list) {
+            Assert.assertEquals(record.getInputs()[0], (float) i);
+            Assert.assertEquals(record.getInputs()[1], (float) -i);
+            i += 1;
+        }
+        Assert.assertEquals(i, 100000);
+        list.close();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testAppendAfterSwitch() {
+        MemoryDiskFloatRecordList list = new MemoryDiskFloatRecordList(2, 1);
+        list.switchState();
+        list.append(new float[] { 1f, 2f }, new float[] { 1f }, 1f);
+    }
+}
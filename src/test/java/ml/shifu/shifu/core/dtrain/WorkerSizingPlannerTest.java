@@ -0,0 +1,79 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * WorkerSizingPlannerTest class
+ */
+public class WorkerSizingPlannerTest {
+
+    private static final long MB = WorkerSizingPlanner.MB;
+
+    private WorkerSizingPlanner createPlanner() {
+        return new WorkerSizingPlanner(1024L * MB, 4096L * MB, 0.6d, 32L * MB, 256L * MB);
+    }
+
+    @Test
+    public void testSmallDataFitInMinHeap() {
+        // 1GB data with 100 bytes per record, each record takes 200 bytes in memory
+        WorkerSizingPlanner.Plan plan = createPlanner().plan(1024L * MB, 1024L * MB / 100L, 200L, 1L * MB);
+        Assert.assertTrue(plan.isFit());
+        Assert.assertEquals(plan.getSplitSize(), 256L * MB);
+        Assert.assertEquals(plan.getHeapSizeInMB(), 1024L);
+        Assert.assertEquals(plan.getNumWorkers(), 4);
+        Assert.assertTrue(plan.getMemoryFraction() <= 0.6d && plan.getMemoryFraction() >= 0.3d);
+    }
+
+    @Test
+    public void testHeapIncreased() {
+        // each record takes 800 bytes, 256MB split needs about 2.2GB memory
+        WorkerSizingPlanner.Plan plan = createPlanner().plan(1024L * MB, 1024L * MB / 100L, 800L, 1L * MB);
+        Assert.assertTrue(plan.isFit());
+        Assert.assertEquals(plan.getSplitSize(), 256L * MB);
+        Assert.assertTrue(plan.getHeapSizeInMB() > 1024L && plan.getHeapSizeInMB() <= 4096L);
+        Assert.assertEquals(plan.getMemoryFraction(), 0.6d, 0.01d);
+    }
+
+    @Test
+    public void testSplitDecreased() {
+        // each record takes 4000 bytes, split is decreased to keep records in max heap
+        WorkerSizingPlanner.Plan plan = createPlanner().plan(1024L * MB, 1024L * MB / 100L, 4000L, 1L * MB);
+        Assert.assertTrue(plan.isFit());
+        Assert.assertEquals(plan.getHeapSizeInMB(), 4096L);
+        Assert.assertTrue(plan.getSplitSize() < 256L * MB && plan.getSplitSize() >= 32L * MB);
+        Assert.assertTrue(plan.getNumWorkers() > 4);
+        Assert.assertTrue(plan.getRecordsPerWorker() * 4000L < 4096L * MB * 0.6d);
+    }
+
+    @Test
+    public void testNotFit() {
+        WorkerSizingPlanner.Plan plan = createPlanner().plan(1024L * MB, 1024L * MB / 10L, 40000L, 1L * MB);
+        Assert.assertFalse(plan.isFit());
+        Assert.assertEquals(plan.getSplitSize(), 32L * MB);
+        Assert.assertEquals(plan.getHeapSizeInMB(), 4096L);
+    }
+
+    @Test
+    public void testEmptyData() {
+        WorkerSizingPlanner.Plan plan = createPlanner().plan(0L, 0L, 200L, 1L * MB);
+        Assert.assertTrue(plan.isFit());
+        Assert.assertEquals(plan.getNumWorkers(), 1);
+        Assert.assertEquals(plan.getHeapSizeInMB(), 1024L);
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.nn;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * NNMasterTest class
+ */
+public class NNMasterTest {
+
+    @Test
+    public void testApplyDeltas() {
+        NNMaster master = new NNMaster();
+        // no delta from workers, weights are not changed
+        Assert.assertEquals(master.applyDeltas(new double[] { 1d, 2d }, 0L)[1], 2d, 1e-9);
+
+        master.accumulateDeltas(new double[] { 0.3d, -0.6d }, 100L);
+        master.accumulateDeltas(new double[] { 0.1d, 0.2d }, 300L);
+        double[] weights = master.applyDeltas(new double[] { 1d, 2d }, 400L);
+        // deltas are averaged by train size of workers
+        Assert.assertEquals(weights[0], 1.15d, 1e-9);
+        Assert.assertEquals(weights[1], 2d, 1e-9);
+
+        // delta sums are reset after applied
+        master.accumulateDeltas(new double[] { 0.2d, 0.4d }, 50L);
+        weights = master.applyDeltas(weights, 50L);
+        Assert.assertEquals(weights[0], 1.35d, 1e-9);
+        Assert.assertEquals(weights[1], 2.4d, 1e-9);
+    }
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.nn;
+
+import java.util.Arrays;
+
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataSet;
+import ml.shifu.shifu.core.dtrain.dataset.FloatFlatNetwork;
+
+import org.encog.engine.network.activation.ActivationSigmoid;
+import org.encog.neural.error.LinearErrorFunction;
+import org.encog.neural.flat.FlatNetwork;
+import org.encog.neural.networks.BasicNetwork;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * ParallelGradientTest class
+ */
+public class ParallelGradientTest {
+
+    private static final float[][] INPUTS = new float[][] { { 0.1f, 0.9f }, { 0.8f, 0.2f }, { 0.4f, 0.6f } };
+
+    private static final float[][] IDEALS = new float[][] { { 1f }, { 0f }, { 1f } };
+
+    private double[] initWeights;
+
+    private ParallelGradient createGradient(int from, int to, int threadCount) {
+        BasicNetwork network = DTrainUtils.generateNetwork(2, 1, 1, Arrays.asList(NNConstants.NN_SIGMOID),
+                Arrays.asList(3), this.initWeights == null);
+        if(this.initWeights == null) {
+            this.initWeights = network.getFlat().getWeights().clone();
+        }
+        network.getFlat().setWeights(this.initWeights.clone());
+
+        FlatNetwork flat = network.getFlat();
+        double[] flatSpot = new double[flat.getActivationFunctions().length];
+        for(int i = 0; i < flatSpot.length; i++) {
+            flatSpot[i] = flat.getActivationFunctions()[i] instanceof ActivationSigmoid ? 0.1 : 0.0;
+        }
+        BasicFloatMLDataSet training = new BasicFloatMLDataSet(Arrays.copyOfRange(INPUTS, from, to),
+                Arrays.copyOfRange(IDEALS, from, to));
+        ParallelGradient gradient = new ParallelGradient((FloatFlatNetwork) flat, training,
+                new BasicFloatMLDataSet(), flatSpot, new LinearErrorFunction(), false, threadCount);
+        gradient.setMiniBatchs(1);
+        gradient.setLearningRate(0.5d);
+        return gradient;
+    }
+
+    @Test
+    public void testLocalDeltas() {
+        ParallelGradient gradient = createGradient(0, 3, 1);
+        try {
+            double[] deltas = gradient.computeLocalDeltas(2);
+            double[] weights = gradient.getNetwork().getWeights();
+            Assert.assertEquals(deltas.length, this.initWeights.length);
+            double norm = 0d;
+            for(int i = 0; i < deltas.length; i++) {
+                // deltas are against weights before local training
+                Assert.assertEquals(deltas[i], weights[i] - this.initWeights[i], 1e-9);
+                norm += Math.abs(deltas[i]);
+            }
+            Assert.assertTrue(norm > 0d);
+        } finally {
+            gradient.shutdown();
+        }
+    }
+
+    @Test
+    public void testWeightedAverage() {
+        // 3 records in 2 threads: first thread trains records 0-1, second thread trains record 2
+        double[] firstDeltas = computeDeltas(0, 2, 1);
+        double[] secondDeltas = computeDeltas(2, 3, 1);
+        double[] deltas = computeDeltas(0, 3, 2);
+        for(int i = 0; i < deltas.length; i++) {
+            Assert.assertEquals(deltas[i], (firstDeltas[i] * 2 + secondDeltas[i]) / 3, 1e-6);
+        }
+    }
+
+    private double[] computeDeltas(int from, int to, int threadCount) {
+        ParallelGradient gradient = createGradient(from, to, threadCount);
+        try {
+            return gradient.computeLocalDeltas(1);
+        } finally {
+            gradient.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.nn;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import ml.shifu.guagua.io.GuaguaFileSplit;
+import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLData;
+import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataPair;
+import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataSet;
+import ml.shifu.shifu.core.dtrain.dataset.FloatMLDataPair;
+import ml.shifu.shifu.core.dtrain.dataset.FloatMLDataSet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * ShardCacheTest class
+ */
+public class ShardCacheTest {
+
+    private File dir = new File("target", "ShardCacheTest");
+
+    private FloatMLDataSet createDataSet(int size, float seed) {
+        FloatMLDataSet dataSet = new BasicFloatMLDataSet();
+        for(int i = 0; i < size; i++) {
+            FloatMLDataPair pair = new BasicFloatMLDataPair(new BasicFloatMLData(new float[] { seed * i, i, -i }),
+                    new BasicFloatMLData(new float[] { i % 2 }));
+            pair.setSignificance(i + 0.5f);
+            dataSet.add(pair);
+        }
+        return dataSet;
+    }
+
+    @Test
+    public void testDumpAndRestore() throws IOException {
+        List<GuaguaFileSplit> splits = Arrays.asList(new GuaguaFileSplit("hdfs:/a/part-00000", 0L, 100L));
+        String key = ShardCache.buildKey(splits, "0", 0.8d);
+        Assert.assertEquals(key, ShardCache.buildKey(splits, "0", 0.8d));
+        Assert.assertFalse(key.equals(ShardCache.buildKey(splits, "1", 0.8d)));
+
+        ShardCache cache = new ShardCache(this.dir, key, 3, 1);
+        Assert.assertFalse(cache.isValid());
+        FloatMLDataSet training = createDataSet(20, 0.1f);
+        FloatMLDataSet testing = createDataSet(5, 0.3f);
+        cache.dump(training, testing, 100L, 25L);
+
+        ShardCache restored = new ShardCache(this.dir, key, 3, 1);
+        Assert.assertTrue(restored.isValid());
+        Assert.assertEquals(restored.getCount(), 100L);
+        Assert.assertEquals(restored.getSampleCount(), 25L);
+        FloatMLDataSet restoredTraining = new BasicFloatMLDataSet();
+        FloatMLDataSet restoredTesting = new BasicFloatMLDataSet();
+        restored.restore(restoredTraining, restoredTesting);
+        assertDataSetEquals(restoredTraining, training);
+        assertDataSetEquals(restoredTesting, testing);
+
+        // input size is changed
+        Assert.assertFalse(new ShardCache(this.dir, key, 4, 1).isValid());
+
+        // truncated cache
+        RandomAccessFile raf = new RandomAccessFile(cache.getFile(), "rw");
+        try {
+            raf.setLength(raf.length() - 1);
+        } finally {
+            raf.close();
+        }
+        Assert.assertFalse(new ShardCache(this.dir, key, 3, 1).isValid());
+    }
+
+    @Test
+    public void testFileVersionsAndDelete() throws IOException {
+        this.dir.mkdirs();
+        File cacheDir = new File(this.dir, "versions");
+        File config = new File(this.dir, "ModelConfig.json");
+        File data = new File(this.dir, "part-00000");
+        write(config, "{}");
+        write(data, "1|2|3\n");
+
+        FileSystem fs = FileSystem.getLocal(new Configuration());
+        List<GuaguaFileSplit> splits = Arrays.asList(new GuaguaFileSplit(data.toURI().toString(), 0L, data.length()),
+                new GuaguaFileSplit(data.toURI().toString(), data.length(), 0L));
+        List<String> configs = Arrays.asList(config.getAbsolutePath());
+        String versions = ShardCache.getFileVersions(fs, configs, splits);
+        Assert.assertEquals(versions, ShardCache.getFileVersions(fs, configs, splits));
+
+        // data file is rewritten with the same path
+        write(data, "1|2|3\n4|5|6\n");
+        Assert.assertFalse(versions.equals(ShardCache.getFileVersions(fs, configs, splits)));
+
+        ShardCache cache = new ShardCache(cacheDir, ShardCache.buildKey(splits, versions), 3, 1);
+        cache.dump(createDataSet(2, 0.1f), createDataSet(1, 0.1f), 3L, 3L);
+        Assert.assertTrue(cache.isValid());
+        cache.delete();
+        Assert.assertFalse(cache.getFile().exists());
+        Assert.assertFalse(cacheDir.exists());
+    }
+
+    private void write(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void assertDataSetEquals(FloatMLDataSet actual, FloatMLDataSet expected) {
+        Assert.assertEquals(actual.getRecordCount(), expected.getRecordCount());
+        FloatMLDataPair actualPair = BasicFloatMLDataPair.createPair(3, 1);
+        FloatMLDataPair expectedPair = BasicFloatMLDataPair.createPair(3, 1);
+        for(long i = 0; i < expected.getRecordCount(); i++) {
+            actual.getRecord(i, actualPair);
+            expected.getRecord(i, expectedPair);
+            Assert.assertTrue(Arrays.equals(actualPair.getInputArray(), expectedPair.getInputArray()));
+            Assert.assertTrue(Arrays.equals(actualPair.getIdealArray(), expectedPair.getIdealArray()));
+            Assert.assertEquals(actualPair.getSignificance(), expectedPair.getSignificance(), 0f);
+        }
+    }
+
+    @AfterClass
+    public void tearDown() {
+        File[] files = this.dir.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                file.delete();
+            }
+        }
+        this.dir.delete();
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.optimizer;
+
+import java.util.Random;
+
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.RegulationLevel;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * OptimizerTest class
+ */
+public class OptimizerTest {
+
+    private static final int NUM_WEIGHT = Optimizer.MIN_CHUNK_SIZE * 4 + 17;
+
+    private void assertSameAsSingleThread(String algorithm, RegulationLevel rl) {
+        Optimizer single = Optimizer.create(algorithm, NUM_WEIGHT, 1000d, 0.1d, 0.01d, rl, 1);
+        Optimizer multiple = Optimizer.create(algorithm, NUM_WEIGHT, 1000d, 0.1d, 0.01d, rl, 4);
+
+        Random random = new Random(7L);
+        double[] singleWeights = new double[NUM_WEIGHT];
+        for(int i = 0; i < NUM_WEIGHT; i++) {
+            singleWeights[i] = random.nextDouble() - 0.5d;
+        }
+        double[] multipleWeights = singleWeights.clone();
+
+        for(int n = 0; n < 5; n++) {
+            double[] gradients = new double[NUM_WEIGHT];
+            for(int i = 0; i < NUM_WEIGHT; i++) {
+                gradients[i] = random.nextGaussian();
+            }
+            singleWeights = single.calculateWeights(singleWeights, gradients);
+            multipleWeights = multiple.calculateWeights(multipleWeights, gradients);
+        }
+        multiple.shutdown();
+
+        for(int i = 0; i < NUM_WEIGHT; i++) {
+            Assert.assertEquals(multipleWeights[i], singleWeights[i]);
+        }
+    }
+
+    @Test
+    public void testParallelUpdate() {
+        String[] algorithms = new String[] { DTrainUtils.BACK_PROPAGATION, DTrainUtils.QUICK_PROPAGATION,
+                DTrainUtils.MANHATTAN_PROPAGATION, DTrainUtils.RESILIENTPROPAGATION, DTrainUtils.ADAM };
+        for(String algorithm: algorithms) {
+            for(RegulationLevel rl: RegulationLevel.values()) {
+                assertSameAsSingleThread(algorithm, rl);
+            }
+        }
+    }
+
+    @Test
+    public void testAdamConverge() {
+        // gradients are (ideal - actual) in dtrain, minimize (w - 3)^2
+        Optimizer adam = Optimizer.create(DTrainUtils.ADAM, 1, 1d, 0.1d, 0d, RegulationLevel.NONE, 1);
+        double[] weights = new double[] { 0d };
+        for(int i = 0; i < 500; i++) {
+            adam.calculateWeights(weights, new double[] { 3d - weights[0] });
+        }
+        Assert.assertEquals(weights[0], 3d, 0.01d);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsupportedAlgorithm() {
+        Optimizer.create(DTrainUtils.SCALEDCONJUGATEGRADIENT, 10, 1d, 0.1d, 0d, RegulationLevel.NONE, 1);
+    }
+
+}
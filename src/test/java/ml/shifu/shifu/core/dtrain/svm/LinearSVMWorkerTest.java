@@ -0,0 +1,103 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.svm;
+
+import java.util.Random;
+
+import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatRecordList;
+import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatRecordList.Record;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * LinearSVMWorkerTest class
+ */
+public class LinearSVMWorkerTest {
+
+    @Test
+    public void testLossSetting() {
+        Assert.assertFalse(LinearSVMWorker.isSquaredHingeLoss(null));
+        Assert.assertFalse(LinearSVMWorker.isSquaredHingeLoss("Hinge"));
+        Assert.assertTrue(LinearSVMWorker.isSquaredHingeLoss("squaredHinge"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidLoss() {
+        LinearSVMWorker.isSquaredHingeLoss("log");
+    }
+
+    @Test
+    public void testGradients() {
+        MemoryDiskFloatRecordList list = new MemoryDiskFloatRecordList(2, 1);
+        list.append(new float[] { 1f, 2f }, new float[] { 1f }, 1f);
+        list.append(new float[] { 1f, 0f }, new float[] { 0f }, 2f);
+        list.switchState();
+
+        LinearSVMWorker worker = new LinearSVMWorker();
+        double[] weights = new double[3];
+        double[] gradients = new double[3];
+        double error = 0d;
+        for(Record record: list) {
+            error += worker.accumulateGradients(record, weights, gradients);
+        }
+        // both records are inside margin with zero weights
+        Assert.assertEquals(error, 2d, 1e-6);
+        Assert.assertEquals(gradients[0], -1d, 1e-6);
+        Assert.assertEquals(gradients[1], 2d, 1e-6);
+        Assert.assertEquals(gradients[2], -1d, 1e-6);
+
+        // out of margin, no loss
+        weights = new double[] { 0d, 2d, -1d };
+        gradients = new double[3];
+        for(Record record: list) {
+            Assert.assertEquals(worker.accumulateGradients(record, weights, gradients), 0d, 1e-6);
+        }
+        Assert.assertEquals(gradients[1], 0d, 1e-6);
+        list.close();
+    }
+
+    @Test
+    public void testTrain() {
+        Random random = new Random(3L);
+        MemoryDiskFloatRecordList list = new MemoryDiskFloatRecordList(2, 1);
+        for(int i = 0; i < 200; i++) {
+            float x = random.nextFloat(), y = random.nextFloat();
+            if(Math.abs(x - y) > 0.1f) {
+                list.append(new float[] { x, y }, new float[] { x > y ? 1f : 0f }, 1f);
+            }
+        }
+        list.switchState();
+
+        LinearSVMWorker worker = new LinearSVMWorker();
+        double[] weights = new double[3];
+        for(int epoch = 0; epoch < 500; epoch++) {
+            double[] gradients = new double[3];
+            for(Record record: list) {
+                worker.accumulateGradients(record, weights, gradients);
+            }
+            for(int i = 0; i < weights.length; i++) {
+                weights[i] += gradients[i] / list.size();
+            }
+        }
+
+        for(Record record: list) {
+            double margin = LinearSVMWorker.margin(record.getInputs(), weights);
+            Assert.assertEquals(margin > 0d, record.getOutputs()[0] > 0.5f);
+        }
+        list.close();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.eval;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import ml.shifu.shifu.container.obj.EvalConfig;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.RawSourceData;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.util.Constants;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * ScoreGroupTest class
+ */
+public class ScoreGroupTest {
+
+    private File dir = new File("target", "ScoreGroupTest");
+
+    @Test
+    public void testSingleEvalSet() throws IOException {
+        EvalConfig eval1 = createEvalConfig("Eval1", "diagnosis", null, "id");
+        ScoreGroup group = new ScoreGroup(new ModelConfig(), Arrays.asList(eval1));
+
+        Assert.assertFalse(group.isShared());
+        Assert.assertEquals(group.getNames(), "Eval1");
+        Assert.assertEquals(group.getMetaColumns(), Arrays.asList("id"));
+        Assert.assertEquals(group.getCounterName(Constants.COUNTER_RECORDS, eval1), Constants.COUNTER_RECORDS);
+    }
+
+    @Test
+    public void testSharedEvalSets() throws IOException {
+        EvalConfig eval1 = createEvalConfig("Eval1", "diagnosis", "wgt", "id");
+        // other target and weight
+        EvalConfig eval2 = createEvalConfig("Eval2", "other_target", "other_wgt", "id\nsegment");
+        // target is in meta columns and weight is the same as scoring eval set
+        EvalConfig eval3 = createEvalConfig("Eval3", "segment", "wgt", null);
+        ScoreGroup group = new ScoreGroup(new ModelConfig(), Arrays.asList(eval1, eval2, eval3));
+
+        Assert.assertTrue(group.isShared());
+        Assert.assertEquals(group.getNames(), "Eval1,Eval2,Eval3");
+        Assert.assertSame(group.getScoreEvalConfig(), eval1);
+        Assert.assertEquals(group.getMetaColumns(), Arrays.asList("id", "segment", "other_target", "other_wgt"));
+        Assert.assertEquals(group.getCounterName(Constants.COUNTER_RECORDS, eval2), Constants.COUNTER_RECORDS
+                + "_Eval2");
+        Assert.assertEquals(ScoreGroup.getSelectedColumnName(eval2), "shifu_selected_Eval2");
+    }
+
+    private EvalConfig createEvalConfig(String name, String target, String weight, String metaColumns)
+            throws IOException {
+        RawSourceData dataSet = new RawSourceData();
+        dataSet.setSource(SourceType.LOCAL);
+        dataSet.setDataPath("data/eval");
+        dataSet.setTargetColumnName(target);
+        dataSet.setWeightColumnName(weight);
+
+        EvalConfig evalConfig = new EvalConfig();
+        evalConfig.setName(name);
+        evalConfig.setDataSet(dataSet);
+        if(metaColumns != null) {
+            File file = new File(this.dir, name + Constants.DEFAULT_EVALSCORE_META_COLUMN_FILE);
+            FileUtils.writeStringToFile(file, metaColumns);
+            evalConfig.setScoreMetaColumnNameFile(file.getPath());
+        }
+        return evalConfig;
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(this.dir);
+    }
+
+}
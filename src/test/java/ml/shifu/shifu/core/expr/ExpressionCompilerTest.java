@@ -0,0 +1,120 @@
+/**
+ * Copyright [2013-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.expr;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * ExpressionCompilerTest class
+ */
+public class ExpressionCompilerTest {
+
+    private static final String[] HEADERS = new String[] { "diagnosis", "age", "score", "weight", "city" };
+
+    private Map<String, Integer> columns() {
+        Map<String, Integer> columns = new HashMap<String, Integer>();
+        for(int i = 0; i < HEADERS.length; i++) {
+            columns.put(HEADERS[i], i);
+        }
+        return columns;
+    }
+
+    private int test(String expression, String... fields) {
+        CompiledExpression compiled = ExpressionCompiler.compile(expression, columns());
+        Assert.assertNotNull(compiled, expression);
+        Assert.assertTrue(compiled.isBoolean());
+        return compiled.evaluateBoolean(fields);
+    }
+
+    @Test
+    public void testStringEquals() {
+        String[] fields = new String[] { "M", "35", "0.5", "2", "SH" };
+        Assert.assertEquals(test("diagnosis == \"M\"", fields), CompiledExpression.TRUE);
+        Assert.assertEquals(test("diagnosis != 'M'", fields), CompiledExpression.FALSE);
+        Assert.assertEquals(test("diagnosis eq 'B' or city == 'SH'", fields), CompiledExpression.TRUE);
+        Assert.assertEquals(test("diagnosis != 'null' && diagnosis != 'NULL'", fields), CompiledExpression.TRUE);
+        Assert.assertEquals(test("diagnosis == city", fields), CompiledExpression.FALSE);
+    }
+
+    @Test
+    public void testNull() {
+        Assert.assertEquals(test("aaa == aaa", "M", "1", "1", "1", "A"), CompiledExpression.TRUE);
+        Assert.assertEquals(test("diagnosis == null", null, "1", "1", "1", "A"), CompiledExpression.TRUE);
+        Assert.assertEquals(test("diagnosis != null", "M", "1", "1", "1", "A"), CompiledExpression.TRUE);
+        Assert.assertEquals(test("diagnosis == 'M'", null, "1", "1", "1", "A"), CompiledExpression.FALSE);
+        Assert.assertEquals(test("1 == 2", "M", "1", "1", "1", "A"), CompiledExpression.FALSE);
+    }
+
+    @Test
+    public void testNumberCompare() {
+        String[] fields = new String[] { "M", "35", "0.5", "2", "SH" };
+        Assert.assertEquals(test("age > 30 && age <= 35", fields), CompiledExpression.TRUE);
+        Assert.assertEquals(test("age ge 36", fields), CompiledExpression.FALSE);
+        Assert.assertEquals(test("score == 0.5", fields), CompiledExpression.TRUE);
+        Assert.assertEquals(test("age * weight == 70", fields), CompiledExpression.TRUE);
+        Assert.assertEquals(test("age / weight == 17", fields), CompiledExpression.TRUE);
+        Assert.assertEquals(test("-(age * 1) < -30", fields), CompiledExpression.TRUE);
+        Assert.assertEquals(test("!(age > 30) ? false : score < 1.0", fields), CompiledExpression.TRUE);
+    }
+
+    @Test
+    public void testUnknown() {
+        // not a number
+        Assert.assertEquals(test("age > 30", "M", "abc", "0.5", "2", "SH"), CompiledExpression.UNKNOWN);
+        // empty string
+        Assert.assertEquals(test("age > 30", "M", "", "0.5", "2", "SH"), CompiledExpression.UNKNOWN);
+        // jexl converts string to long when compared with integer
+        Assert.assertEquals(test("score > 0", "M", "35", "0.5", "2", "SH"), CompiledExpression.UNKNOWN);
+        // '+' is concatenation in jexl for non-numbers
+        Assert.assertEquals(test("age + city == 1", "M", "35", "0.5", "2", "SH"), CompiledExpression.UNKNOWN);
+        // division by zero
+        Assert.assertEquals(test("age / 0 > 1", "M", "35", "0.5", "2", "SH"), CompiledExpression.UNKNOWN);
+        // short-circuit
+        Assert.assertEquals(test("diagnosis == 'B' && age > 30", "M", "abc", "0.5", "2", "SH"),
+                CompiledExpression.FALSE);
+    }
+
+    @Test
+    public void testNumber() {
+        CompiledExpression compiled = ExpressionCompiler.compile("weight * 2", columns());
+        Assert.assertTrue(compiled.isNumber());
+        Assert.assertEquals(compiled.evaluateNumber(new String[] { "M", "35", "0.5", "2.5", "SH" }), 5d);
+        Assert.assertTrue(Double.isNaN(compiled.evaluateNumber(new String[] { "M", "35", "0.5", "x", "SH" })));
+        Assert.assertEquals(compiled.getColumnIndexes(), new int[] { 3 });
+
+        compiled = ExpressionCompiler.compile("weight", columns());
+        Assert.assertFalse(compiled.isBoolean());
+        Assert.assertEquals(compiled.evaluateNumber(new String[] { "M", "35", "0.5", "3", "SH" }), 3d);
+    }
+
+    @Test
+    public void testUnsupported() {
+        Map<String, Integer> columns = columns();
+        Assert.assertNull(ExpressionCompiler.compile("diagnosis =~ 'M.*'", columns));
+        Assert.assertNull(ExpressionCompiler.compile("diagnosis.length() > 1", columns));
+        Assert.assertNull(ExpressionCompiler.compile("age > 30 ; age < 40", columns));
+        Assert.assertNull(ExpressionCompiler.compile("age > 0.1", columns));
+        Assert.assertNull(ExpressionCompiler.compile("age < city", columns));
+        Assert.assertNull(ExpressionCompiler.compile("empty(diagnosis)", columns));
+        Assert.assertNull(ExpressionCompiler.compile("-age < 0", columns));
+        Assert.assertNull(ExpressionCompiler.compile("*", columns));
+    }
+
+}
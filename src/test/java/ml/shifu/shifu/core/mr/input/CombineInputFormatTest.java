@@ -0,0 +1,102 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.mr.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * CombineInputFormatTest class
+ */
+public class CombineInputFormatTest {
+
+    private File dir = new File("target", "CombineInputFormatTest");
+
+    @Test
+    public void testCombineByRecords() throws IOException {
+        Configuration conf = new Configuration();
+        FileSystem fs = FileSystem.getLocal(conf);
+        // files are of the same size, dense files have 400 records while sparse files have 10
+        List<FileSplit> splits = new ArrayList<FileSplit>();
+        splits.add(createSplit(fs, "dense-0", 400, 2));
+        splits.add(createSplit(fs, "dense-1", 400, 2));
+        splits.add(createSplit(fs, "sparse-0", 10, 80));
+        splits.add(createSplit(fs, "sparse-1", 10, 80));
+
+        Map<InputSplit, Double> splitRecords = new IdentityHashMap<InputSplit, Double>();
+        List<FileSplit[]> groups = CombineInputFormat.combineByRecords(conf, splits, 2, splitRecords);
+        Assert.assertEquals(groups.size(), 2);
+        Assert.assertEquals(splitRecords.size(), 4);
+        Assert.assertEquals(splitRecords.get(splits.get(0)), 400d, 1d);
+        Assert.assertEquals(splitRecords.get(splits.get(2)), 10d, 1d);
+
+        // each group has one dense and one sparse file
+        for(FileSplit[] group: groups) {
+            Assert.assertEquals(group.length, 2);
+            int dense = 0;
+            for(FileSplit split: group) {
+                if(split.getPath().getName().startsWith("dense")) {
+                    dense += 1;
+                }
+            }
+            Assert.assertEquals(dense, 1);
+        }
+    }
+
+    private FileSplit createSplit(FileSystem fs, String name, int records, int recordSize) throws IOException {
+        Path path = new Path(this.dir.getAbsolutePath(), name);
+        FSDataOutputStream out = fs.create(path, true);
+        try {
+            byte[] record = new byte[recordSize];
+            for(int i = 0; i < recordSize - 1; i++) {
+                record[i] = (byte) 'a';
+            }
+            record[recordSize - 1] = (byte) '\n';
+            for(int i = 0; i < records; i++) {
+                out.write(record);
+            }
+        } finally {
+            out.close();
+        }
+        return new FileSplit(path, 0L, (long) records * recordSize, new String[0]);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        File[] files = this.dir.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                file.delete();
+            }
+        }
+        this.dir.delete();
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.mr.input;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * RecordBalancedCombinerTest class
+ */
+public class RecordBalancedCombinerTest {
+
+    @Test
+    public void testBalance() {
+        Random random = new Random(7L);
+        double[] records = new double[200];
+        for(int i = 0; i < records.length; i++) {
+            // a few large gzip files and many small parts
+            records[i] = i < 10 ? 50000 + random.nextInt(10000) : random.nextInt(5000);
+        }
+        RecordBalancedCombiner.Result result = new RecordBalancedCombiner(10, 0d).combine(records, null, null);
+        Assert.assertEquals(result.getGroups().length, 10);
+
+        int count = 0;
+        boolean[] seen = new boolean[records.length];
+        for(int[] group: result.getGroups()) {
+            for(int index: group) {
+                Assert.assertFalse(seen[index]);
+                seen[index] = true;
+                count += 1;
+            }
+        }
+        Assert.assertEquals(count, records.length);
+        Assert.assertTrue(result.getSkew() < 1.05d);
+    }
+
+    @Test
+    public void testLocality() {
+        double[] records = new double[] { 100, 100, 100, 100 };
+        String[][] hosts = new String[][] { { "h1" }, { "h2" }, { "h1" }, { "h3" } };
+        Map<String, String> racks = new HashMap<String, String>();
+        racks.put("h1", "/r1");
+        racks.put("h2", "/r2");
+        racks.put("h3", "/r2");
+
+        RecordBalancedCombiner.Result result = new RecordBalancedCombiner(2, 0.1d).combine(records, hosts, racks);
+        Assert.assertEquals(result.getSkew(), 1d, 1e-6);
+        Assert.assertEquals(result.getNodeLocal(), 1);
+        Assert.assertEquals(result.getRackLocal(), 1);
+        int[][] groups = result.getGroups();
+        Assert.assertEquals(groups[0][0], 0);
+        Assert.assertEquals(groups[0][1], 2);
+        Assert.assertEquals(groups[1][0], 1);
+        Assert.assertEquals(groups[1][1], 3);
+    }
+
+    @Test
+    public void testLocalityNotOverLoad() {
+        double[] records = new double[] { 100, 100, 100, 100 };
+        String[][] hosts = new String[][] { { "h1" }, { "h1" }, { "h1" }, { "h1" } };
+        RecordBalancedCombiner.Result result = new RecordBalancedCombiner(4, 0.1d).combine(records, hosts, null);
+        Assert.assertEquals(result.getMaxLoad(), 100d, 1e-6);
+        Assert.assertEquals(result.getNodeLocal(), 0);
+    }
+
+    @Test
+    public void testFileRecordIndex() {
+        FileRecordIndex index = new FileRecordIndex(1000L, new long[] { 0L, 500L }, new double[] { 0.1d, 0.01d });
+        Assert.assertEquals(index.estimateRecords(), 55d, 1e-6);
+        Assert.assertEquals(index.estimateRecords(400L, 200L), 11d, 1e-6);
+        Assert.assertEquals(index.estimateRecords(900L, 500L), 1d, 1e-6);
+    }
+
+    @Test
+    public void testSkew() {
+        Assert.assertEquals(RecordBalancedCombiner.skew(new double[] { 1d, 3d }), 1.5d, 1e-6);
+        Assert.assertEquals(RecordBalancedCombiner.skew(new double[0]), 1d, 1e-6);
+    }
+}
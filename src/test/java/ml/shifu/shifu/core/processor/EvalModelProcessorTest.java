@@ -0,0 +1,81 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.processor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ml.shifu.shifu.container.obj.EvalConfig;
+import ml.shifu.shifu.container.obj.RawSourceData;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.util.Constants;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * EvalModelProcessorTest class
+ */
+public class EvalModelProcessorTest {
+
+    @Test
+    public void testGroupByScoring() {
+        EvalConfig eval1 = createEvalConfig("Eval1", "data/eval", "mean");
+        // the same raw data and models with different filter, target and weight
+        EvalConfig eval2 = createEvalConfig("Eval2", "data/eval", "mean");
+        eval2.getDataSet().setFilterExpressions("column_3 > 10");
+        eval2.getDataSet().setTargetColumnName("other_target");
+        eval2.getDataSet().setWeightColumnName("wgt");
+        // different data set
+        EvalConfig eval3 = createEvalConfig("Eval3", "data/other", "mean");
+        // different score selector
+        EvalConfig eval4 = createEvalConfig("Eval4", "data/eval", "max");
+        // different models
+        EvalConfig eval5 = createEvalConfig("Eval5", "data/eval", "mean");
+        eval5.getCustomPaths().put(Constants.KEY_MODELS_PATH, "other/models");
+        // different delimiter
+        EvalConfig eval6 = createEvalConfig("Eval6", "data/eval", "mean");
+        eval6.getDataSet().setDataDelimiter(",");
+
+        List<EvalConfig> evalSetList = Arrays.asList(eval1, eval2, eval3, eval4, eval5, eval6);
+        List<List<EvalConfig>> groups = EvalModelProcessor.groupByScoring(evalSetList, true);
+        Assert.assertEquals(groups.size(), 5);
+        Assert.assertEquals(groups.get(0), Arrays.asList(eval1, eval2));
+        Assert.assertEquals(groups.get(1), Arrays.asList(eval3));
+        Assert.assertEquals(groups.get(2), Arrays.asList(eval4));
+        Assert.assertEquals(groups.get(3), Arrays.asList(eval5));
+        Assert.assertEquals(groups.get(4), Arrays.asList(eval6));
+
+        // each eval set is scored itself if score output cannot be shared
+        groups = EvalModelProcessor.groupByScoring(evalSetList, false);
+        Assert.assertEquals(groups.size(), 6);
+        Assert.assertEquals(groups.get(1), Arrays.asList(eval2));
+    }
+
+    private EvalConfig createEvalConfig(String name, String dataPath, String scoreSelector) {
+        RawSourceData dataSet = new RawSourceData();
+        dataSet.setSource(SourceType.LOCAL);
+        dataSet.setDataPath(dataPath);
+        dataSet.setTargetColumnName("diagnosis");
+
+        EvalConfig evalConfig = new EvalConfig();
+        evalConfig.setName(name);
+        evalConfig.setDataSet(dataSet);
+        evalConfig.setPerformanceScoreSelector(scoreSelector);
+        return evalConfig;
+    }
+
+}
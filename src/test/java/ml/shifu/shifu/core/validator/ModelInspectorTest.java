@@ -16,6 +16,7 @@
 package ml.shifu.shifu.core.validator;
 
 import ml.shifu.shifu.container.meta.ValidateResult;
+import ml.shifu.shifu.container.obj.ModelBasicConf.RunMode;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.core.alg.NNTrainer;
 import ml.shifu.shifu.core.validator.ModelInspector.ModelStep;
@@ -180,6 +181,23 @@ public class ModelInspectorTest {
         Assert.assertFalse(result.getStatus());
     }
 
+    @Test
+    public void testValidatePropagation() throws Exception {
+        ModelConfig config = CommonUtils.loadModelConfig();
+        config.getBasic().setRunMode(RunMode.LOCAL);
+        config.getTrain().getParams().put(NNTrainer.PROPAGATION, "S");
+        Assert.assertTrue(instance.probe(config, ModelStep.TRAIN).getStatus());
+        // Adam is only implemented in distributed master
+        config.getTrain().getParams().put(NNTrainer.PROPAGATION, "A");
+        Assert.assertFalse(instance.probe(config, ModelStep.TRAIN).getStatus());
+
+        config.getBasic().setRunMode(RunMode.DIST);
+        Assert.assertTrue(instance.probe(config, ModelStep.TRAIN).getStatus());
+        // no SCG optimizer in distributed master
+        config.getTrain().getParams().put(NNTrainer.PROPAGATION, "S");
+        Assert.assertFalse(instance.probe(config, ModelStep.TRAIN).getStatus());
+    }
+
     @Test
     public void testValidatePostTrain() throws Exception {
         ModelConfig config = CommonUtils.loadModelConfig();
@@ -0,0 +1,122 @@
+/**
+ * Copyright [2013-2015] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.fs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * DataLineReaderTest class
+ */
+public class DataLineReaderTest {
+
+    private File file = new File("tmp/line-reader/part-00000");
+
+    private List<String> expected = new ArrayList<String>();
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < 5000; i++) {
+            String line = i + "|" + (i % 7 == 0 ? "" : "value" + i) + "|中文" + i;
+            expected.add(line);
+            sb.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        FileUtils.writeStringToFile(file, sb.toString(), "UTF-8");
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File("tmp/line-reader"));
+    }
+
+    @Test
+    public void testStreamLineReader() throws IOException {
+        DataLineReader reader = new StreamLineReader(new ByteArrayInputStream(FileUtils.readFileToByteArray(file)),
+                16);
+        Assert.assertEquals(readAll(reader), expected);
+    }
+
+    @Test
+    public void testNoTrailingSeparator() {
+        DataLineReader reader = new StreamLineReader(new ByteArrayInputStream("a\n\nb".getBytes()));
+        List<String> lines = readAll(reader);
+        Assert.assertEquals(lines.size(), 3);
+        Assert.assertEquals(lines.get(1), "");
+        Assert.assertEquals(lines.get(2), "b");
+    }
+
+    @Test
+    public void testFileRangeLineReader() throws IOException {
+        long length = file.length();
+        for(long splitSize: new long[] { 1L, 17L, 1000L, length / 3, length }) {
+            List<String> lines = new ArrayList<String>();
+            for(long start = 0L; start < length; start += splitSize) {
+                lines.addAll(readAll(new FileRangeLineReader(file, start, Math.min(start + splitSize, length))));
+            }
+            Assert.assertEquals(lines, expected, "split size " + splitSize);
+        }
+    }
+
+    @Test
+    public void testAsyncLineReader() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        GZIPOutputStream gos = new GZIPOutputStream(bos);
+        gos.write(FileUtils.readFileToByteArray(file));
+        gos.close();
+
+        DataLineReader reader = new AsyncLineReader(new StreamLineReader(new GZIPInputStream(new ByteArrayInputStream(
+                bos.toByteArray()))), "test");
+        Assert.assertEquals(readAll(reader), expected);
+    }
+
+    @Test
+    public void testGetDataLineReaders() throws IOException {
+        List<DataLineReader> readers = ShifuFileUtils.getDataLineReaders("tmp/line-reader", SourceType.LOCAL);
+        List<String> lines = new ArrayList<String>();
+        for(DataLineReader reader: readers) {
+            lines.addAll(readAll(reader));
+        }
+        Assert.assertEquals(lines, expected);
+    }
+
+    private List<String> readAll(DataLineReader reader) {
+        List<String> lines = new ArrayList<String>();
+        try {
+            while(reader.hasNextLine()) {
+                lines.add(reader.nextLine());
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+}
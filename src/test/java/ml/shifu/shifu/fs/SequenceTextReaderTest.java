@@ -0,0 +1,121 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.util.Constants;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * SequenceTextReaderTest class
+ */
+public class SequenceTextReaderTest {
+
+    private File dir = new File("tmp/seq-reader");
+
+    private Path path = new Path(new File(dir, "part-m-00000" + Constants.SEQ_SUFFIX).getAbsolutePath());
+
+    private Configuration conf = new Configuration();
+
+    private List<String> expected = new ArrayList<String>();
+
+    @SuppressWarnings("deprecation")
+    @BeforeClass
+    public void setUp() throws IOException {
+        // small blocks to have many sync markers
+        conf.setInt("io.seqfile.compress.blocksize", 4096);
+        FileSystem fs = FileSystem.getLocal(conf);
+        SequenceFile.Writer writer = SequenceFile.createWriter(fs, conf, path, NullWritable.class, Text.class,
+                CompressionType.BLOCK, new DefaultCodec());
+        try {
+            Text line = new Text();
+            for(int i = 0; i < 20000; i++) {
+                String value = i + "|" + (i % 7 == 0 ? "" : "value" + i) + "|" + (i * 0.5d);
+                expected.add(value);
+                line.set(value);
+                writer.append(NullWritable.get(), line);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testSplits() throws IOException {
+        long length = new File(path.toUri().getPath()).length();
+        for(long splitSize: new long[] { 1000L, 4096L, length / 3, length }) {
+            List<String> lines = new ArrayList<String>();
+            for(long start = 0L; start < length; start += splitSize) {
+                SequenceTextReader reader = new SequenceTextReader(conf, path, start, Math.min(splitSize, length
+                        - start));
+                Text value = new Text();
+                while(reader.next(value)) {
+                    lines.add(value.toString());
+                }
+                reader.close();
+            }
+            // each line is read by exactly one split
+            Assert.assertEquals(lines, expected);
+        }
+    }
+
+    @Test
+    public void testDataScanners() throws IOException {
+        List<Scanner> scanners = ShifuFileUtils.getDataScanners(dir.getAbsolutePath(), SourceType.LOCAL);
+        Assert.assertEquals(scanners.size(), 1);
+        List<String> lines = new ArrayList<String>();
+        Scanner scanner = scanners.get(0);
+        while(scanner.hasNextLine()) {
+            lines.add(scanner.nextLine());
+        }
+        scanner.close();
+        Assert.assertEquals(lines, expected);
+
+        List<DataLineReader> readers = ShifuFileUtils.getDataLineReaders(dir.getAbsolutePath(), SourceType.LOCAL);
+        Assert.assertEquals(readers.size(), 1);
+        lines.clear();
+        DataLineReader reader = readers.get(0);
+        while(reader.hasNextLine()) {
+            lines.add(reader.nextLine());
+        }
+        reader.close();
+        Assert.assertEquals(lines, expected);
+    }
+}
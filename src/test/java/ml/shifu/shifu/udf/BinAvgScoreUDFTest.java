@@ -0,0 +1,151 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.udf;
+
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * BinAvgScoreUDFTest class
+ */
+public class BinAvgScoreUDFTest {
+
+    private static final String MODEL_CONFIG = "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ModelConfig.json";
+    private static final String COLUMN_CONFIG = "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ColumnConfig.json";
+
+    private BinAvgScoreUDF instance;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        instance = new BinAvgScoreUDF("LOCAL", MODEL_CONFIG, COLUMN_CONFIG);
+    }
+
+    private DataBag createRows() throws IOException {
+        DataBag dataBag = BagFactory.getInstance().newDefaultBag();
+        for (int i = 0; i < 20; i++) {
+            dataBag.add(createRow(i % 2 == 0 ? "M" : "B", 500 + i * 100, 10 * i));
+        }
+        // invalid tag
+        dataBag.add(createRow("X", 500, 1000));
+        return dataBag;
+    }
+
+    private Tuple createRow(String tag, int value, int score) throws IOException {
+        // full score (avg, max, min) and raw columns
+        Tuple row = TupleFactory.getInstance().newTuple(32);
+        Tuple fullScore = TupleFactory.getInstance().newTuple(3);
+        fullScore.set(0, score);
+        fullScore.set(1, score);
+        fullScore.set(2, score);
+        row.set(0, fullScore);
+        row.set(1, tag);
+        for (int j = 2; j < 32; j++) {
+            row.set(j, value);
+        }
+        return row;
+    }
+
+    private Tuple getBinAvgScore(DataBag output, int columnNum) throws IOException {
+        Iterator<Tuple> iter = output.iterator();
+        while (iter.hasNext()) {
+            Tuple tuple = iter.next();
+            if (((Integer) tuple.get(0)) == columnNum) {
+                return tuple;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testNullInput() throws IOException {
+        Assert.assertNull(instance.exec(null));
+    }
+
+    @Test
+    public void testExec() throws IOException {
+        Tuple input = TupleFactory.getInstance().newTuple(1);
+        input.set(0, createRows());
+
+        DataBag output = instance.exec(input);
+        Assert.assertEquals(output.size(), 30L);
+        Assert.assertEquals("(5,0,0,0,0,0,0,0,0,0,95)", getBinAvgScore(output, 5).toString());
+    }
+
+    @Test
+    public void testAlgebraic() throws IOException {
+        BinAvgScoreUDF.Initial initial = new BinAvgScoreUDF.Initial("LOCAL", MODEL_CONFIG, COLUMN_CONFIG);
+        BinAvgScoreUDF.Intermediate intermediate = new BinAvgScoreUDF.Intermediate("LOCAL", MODEL_CONFIG,
+                COLUMN_CONFIG);
+        BinAvgScoreUDF.Final fin = new BinAvgScoreUDF.Final("LOCAL", MODEL_CONFIG, COLUMN_CONFIG);
+
+        DataBag partials = BagFactory.getInstance().newDefaultBag();
+        Iterator<Tuple> iter = createRows().iterator();
+        while (iter.hasNext()) {
+            DataBag single = BagFactory.getInstance().newDefaultBag();
+            single.add(iter.next());
+            partials.add(initial.exec(TupleFactory.getInstance().newTuple(single)));
+        }
+
+        DataBag merged = BagFactory.getInstance().newDefaultBag();
+        merged.add(intermediate.exec(TupleFactory.getInstance().newTuple(partials)));
+        DataBag output = fin.exec(TupleFactory.getInstance().newTuple(merged));
+
+        Tuple input = TupleFactory.getInstance().newTuple(1);
+        input.set(0, createRows());
+        Assert.assertEquals(output, instance.exec(input));
+        Assert.assertEquals("(5,0,0,0,0,0,0,0,0,0,95)", getBinAvgScore(output, 5).toString());
+    }
+
+    @Test
+    public void testInitialIsCompact() throws IOException {
+        BinAvgScoreUDF.Initial initial = new BinAvgScoreUDF.Initial("LOCAL", MODEL_CONFIG, COLUMN_CONFIG);
+        BinAvgScoreUDF.Final fin = new BinAvgScoreUDF.Final("LOCAL", MODEL_CONFIG, COLUMN_CONFIG);
+
+        DataBag single = BagFactory.getInstance().newDefaultBag();
+        single.add(createRow("M", 500, 10));
+        Tuple partial = initial.exec(TupleFactory.getInstance().newTuple(single));
+        // one (position, score) pair per final selected column
+        Assert.assertEquals(partial.size(), 60);
+        Assert.assertEquals(partial.get(1), 10d);
+
+        single = BagFactory.getInstance().newDefaultBag();
+        single.add(createRow("X", 500, 1000));
+        Assert.assertEquals(initial.exec(TupleFactory.getInstance().newTuple(single)).size(), 0);
+
+        // combiner is skipped, pairs are merged in reducer directly
+        DataBag partials = BagFactory.getInstance().newDefaultBag();
+        Iterator<Tuple> iter = createRows().iterator();
+        while (iter.hasNext()) {
+            single = BagFactory.getInstance().newDefaultBag();
+            single.add(iter.next());
+            partials.add(initial.exec(TupleFactory.getInstance().newTuple(single)));
+        }
+        DataBag output = fin.exec(TupleFactory.getInstance().newTuple(partials));
+
+        Tuple input = TupleFactory.getInstance().newTuple(1);
+        input.set(0, createRows());
+        Assert.assertEquals(output, instance.exec(input));
+    }
+
+}
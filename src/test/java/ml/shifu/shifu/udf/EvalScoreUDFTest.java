@@ -85,6 +85,29 @@ public class EvalScoreUDFTest {
         Assert.assertEquals("{EvalScore: (shifu::diagnosis: chararray,shifu::weight: chararray,shifu::mean: int,shifu::max: int,shifu::min: int,shifu::median: int,shifu::model0: int,shifu::model1: int,shifu::model2: int,shifu::model3: int,shifu::model4: int)}", instance.outputSchema(null).toString());
     }
 
+    @Test
+    public void testSharedScore() throws IOException {
+        // EvalA and EvalB read the same data with the same models
+        EvalScoreUDF shared = new EvalScoreUDF("LOCAL",
+                "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ModelConfig.json",
+                "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ColumnConfig.json",
+                "EvalA,EvalB");
+
+        Tuple input = TupleFactory.getInstance().newTuple(31);
+        for (int i = 0; i < 31; i++) {
+            input.set(i, 1);
+        }
+        input.set(0, "M");
+        Assert.assertEquals("(M,1.0,42,74,5,36,36,31,74,66,5,true,true)", shared.exec(input).toString());
+
+        // record is dropped if no eval set selects it
+        input.set(0, "X");
+        Assert.assertNull(shared.exec(input));
+
+        Assert.assertTrue(shared.outputSchema(null).toString().endsWith(
+                "shifu::model4: int,shifu_selected_EvalA: chararray,shifu_selected_EvalB: chararray)}"));
+    }
+
     @AfterClass
     public void clearUp() throws IOException {
         FileUtils.deleteDirectory(tmpModels);
@@ -15,8 +15,12 @@
  */
 package ml.shifu.shifu.udf;
 
+import ml.shifu.shifu.container.obj.ColumnConfig.ColumnType;
+
+import org.apache.pig.data.DataType;
 import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
+import org.apache.pig.impl.logicalLayer.schema.Schema;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -55,9 +59,9 @@ public class NormalizeUDFTest {
         input.set(1, "2.1");
 
         Assert.assertEquals(32, instance.exec(input).size());
-        Assert.assertEquals(
-                "(1,-3.374538,-4,-3.697376,-1.870673,4,4,4,4,4,4,2.473354,-0.350425,-1.006885,-1.073463,4,4,4,4,4,4,-3.143228,-4,-3.127431,-1.575238,4,4,3.485806,4,4,4,2.1)",
-                instance.exec(input).toString());
+        assertNormalized(
+                "1|-3.374538|-4|-3.697376|-1.870673|4|4|4|4|4|4|2.473354|-0.350425|-1.006885|-1.073463|4|4|4|4|4|4|-3.143228|-4|-3.127431|-1.575238|4|4|3.485806|4|4|4|2.1",
+                instance.exec(input));
     }
 
     @Test
@@ -71,9 +75,52 @@ public class NormalizeUDFTest {
         }
 
         Assert.assertEquals(32, instance.exec(input).size());
-        Assert.assertEquals(
+        assertNormalized(
                 "0|-0.669222|-0.360155|-0.655541|-0.665245|0.760396|-0.131633|-0.42296|-0.106827|-0.776776|0.605251|0.180771|1.365906|0.187499|-0.2242|-0.113539|-0.405283|-0.496319|0.243497|-0.263792|-0.641144|-0.570226|0.435128|-0.554922|-0.586301|0.119237|-0.440279|-0.620615|-0.207681|-0.705196|-0.339793|11.75",
-                instance.exec(input).toDelimitedString("|"));
+                instance.exec(input));
+    }
+
+    @Test
+    public void testWeightExpression() throws Exception {
+        NormalizeUDF udf = new NormalizeUDF("LOCAL",
+                "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ModelConfig.json",
+                "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ColumnConfig.json");
+        Tuple input = TupleFactory.getInstance().newTuple(31);
+        for(int i = 0; i < 31; i++) {
+            input.set(i, 1);
+        }
+        input.set(0, "M");
+        input.set(1, "abc");
+
+        // not a number, default weight
+        Tuple output = udf.exec(input);
+        Assert.assertEquals(output.get(31), 1.0f);
+        Assert.assertTrue(output.get(1) instanceof Float);
+    }
+
+    @Test
+    public void testOutputSchema() throws Exception {
+        NormalizeUDF udf = new NormalizeUDF("LOCAL",
+                "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ModelConfig.json",
+                "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ColumnConfig.json");
+        // categorical column is normalized to float as well
+        udf.columnConfigList.get(3).setColumnType(ColumnType.C);
+
+        Schema schema = udf.outputSchema(null).getField(0).schema;
+        Assert.assertEquals(schema.size(), 32);
+        Assert.assertEquals(schema.getField(0).type, DataType.CHARARRAY);
+        for(int i = 1; i < schema.size(); i++) {
+            Assert.assertEquals(schema.getField(i).type, DataType.FLOAT);
+        }
+    }
+
+    private void assertNormalized(String expected, Tuple actual) throws IOException {
+        String[] values = expected.split("\\|");
+        Assert.assertEquals(actual.size(), values.length);
+        Assert.assertEquals(actual.get(0).toString(), values[0]);
+        for(int i = 1; i < values.length; i++) {
+            Assert.assertEquals(((Float) actual.get(i)).doubleValue(), Double.parseDouble(values[i]), 1e-5);
+        }
     }
 
     // @Test
@@ -9,61 +9,124 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.Iterator;
 
 /**
  * Created by Mark on 5/30/2016.
  */
 public class PopulationCounterUDFTest {
 
+    private static final String MODEL_CONFIG = "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ModelConfig.json";
+    private static final String COLUMN_CONFIG = "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ColumnConfig.json";
+
     private PopulationCounterUDF inst;
     private double[] array;
 
 
     @BeforeClass
     public void setup() throws IOException {
-        inst = new PopulationCounterUDF("LOCAL",
-                                        "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ModelConfig.json",
-                                        "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ColumnConfig.json",
-                                        "2");
+        inst = new PopulationCounterUDF("LOCAL", MODEL_CONFIG, COLUMN_CONFIG);
 
         array = new double[] {13D, 14D, 14D, 17D, 17D, 18D, 19D, 20D, 21D, 27D};
     }
 
+    private DataBag createRows() throws IOException {
+        DataBag dataBag = new DefaultDataBag();
+        for (int i = 0 ; i < 10; i ++) {
+            Tuple t = TupleFactory.getInstance().newTuple(31);
+            t.set(0, "M");
+            t.set(1, array[i]);
+            for (int j = 2; j < 31; j ++) {
+                t.set(j, "1");
+            }
+            dataBag.add(t);
+        }
+        // invalid tag
+        Tuple t = TupleFactory.getInstance().newTuple(31);
+        t.set(0, "X");
+        t.set(1, 13D);
+        dataBag.add(t);
+        return dataBag;
+    }
 
-
+    private Tuple getPopulation(DataBag output, int columnId) throws IOException {
+        Iterator<Tuple> iter = output.iterator();
+        while (iter.hasNext()) {
+            Tuple tuple = iter.next();
+            if (((Integer) tuple.get(0)) == columnId) {
+                return (Tuple) tuple.get(1);
+            }
+        }
+        return null;
+    }
 
     @Test
     public void testCase1() throws IOException {
+        Tuple input = TupleFactory.getInstance().newTuple(1);
+        input.set(0, createRows());
 
-        Tuple input = TupleFactory.getInstance().newTuple(2);
-        Tuple groupInfo = TupleFactory.getInstance().newTuple(2);
+        DataBag output = inst.exec(input);
+        Tuple population = getPopulation(output, 1);
 
-        groupInfo.set(0, "column_3");
-        groupInfo.set(1, Integer.valueOf(1));
+        Assert.assertEquals(population.get(0), 1L);
+        Assert.assertEquals(population.get(1), 2L);
+        Assert.assertEquals(population.get(2), 0L);
+        // missing value bin
+        Assert.assertEquals(population.get(population.size() - 1), 0L);
+    }
 
-        DataBag dataBag = new DefaultDataBag();
-        //{(PSIColumn: int, columnId: int, value: chararray, tag: boolean , rand: int)}
-        for (int i = 0 ; i < 10; i ++) {
-            Tuple t = TupleFactory.getInstance().newTuple(4);
-            t.set(0, Integer.valueOf(1));
-            t.set(1, Integer.valueOf(1));
-            t.set(2, array[i]);
-            dataBag.add(t);
+    @Test
+    public void testAlgebraic() throws IOException {
+        PopulationCounterUDF.Initial initial = new PopulationCounterUDF.Initial("LOCAL", MODEL_CONFIG, COLUMN_CONFIG);
+        PopulationCounterUDF.Intermediate intermediate = new PopulationCounterUDF.Intermediate("LOCAL", MODEL_CONFIG,
+                COLUMN_CONFIG);
+        PopulationCounterUDF.Final fin = new PopulationCounterUDF.Final("LOCAL", MODEL_CONFIG, COLUMN_CONFIG);
+
+        DataBag partials = new DefaultDataBag();
+        Iterator<Tuple> iter = createRows().iterator();
+        while (iter.hasNext()) {
+            DataBag single = new DefaultDataBag();
+            single.add(iter.next());
+            partials.add(initial.exec(TupleFactory.getInstance().newTuple(single)));
         }
 
-        input.set(0, groupInfo);
-        input.set(1, dataBag);
-
-        Tuple output = inst.exec(input);
+        DataBag merged = new DefaultDataBag();
+        merged.add(intermediate.exec(TupleFactory.getInstance().newTuple(partials)));
+        DataBag output = fin.exec(TupleFactory.getInstance().newTuple(merged));
 
-        Assert.assertEquals(output.get(0), 1);
-
-        String[] outputArray = output.get(1).toString().split(String.valueOf(CalculateStatsUDF.CATEGORY_VAL_SEPARATOR));
-
-        Assert.assertEquals(outputArray[0], "1");
-        Assert.assertEquals(outputArray[1], "2");
-        Assert.assertEquals(outputArray[2], "0");
+        Tuple input = TupleFactory.getInstance().newTuple(1);
+        input.set(0, createRows());
+        Assert.assertEquals(output, inst.exec(input));
+        Assert.assertEquals(getPopulation(output, 1).get(1), 2L);
     }
 
+    @Test
+    public void testInitialIsCompact() throws IOException {
+        PopulationCounterUDF.Initial initial = new PopulationCounterUDF.Initial("LOCAL", MODEL_CONFIG, COLUMN_CONFIG);
+        PopulationCounterUDF.Final fin = new PopulationCounterUDF.Final("LOCAL", MODEL_CONFIG, COLUMN_CONFIG);
+
+        DataBag partials = new DefaultDataBag();
+        int sampled = 0;
+        Iterator<Tuple> iter = createRows().iterator();
+        while (iter.hasNext()) {
+            DataBag single = new DefaultDataBag();
+            single.add(iter.next());
+            Tuple partial = initial.exec(TupleFactory.getInstance().newTuple(single));
+            if (partial.size() > 0) {
+                sampled++;
+                // one bin position per counted column
+                Assert.assertEquals(partial.size(), inst.exec(TupleFactory.getInstance().newTuple(single)).size());
+            }
+            partials.add(partial);
+        }
+        // row with invalid tag is not counted
+        Assert.assertEquals(sampled, 10);
+
+        // combiner is skipped, positions are merged in reducer directly
+        DataBag output = fin.exec(TupleFactory.getInstance().newTuple(partials));
+        Tuple input = TupleFactory.getInstance().newTuple(1);
+        input.set(0, createRows());
+        Assert.assertEquals(output, inst.exec(input));
+    }
 
 }
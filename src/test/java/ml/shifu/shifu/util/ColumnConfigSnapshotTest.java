@@ -0,0 +1,101 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ColumnConfig.ColumnFlag;
+import ml.shifu.shifu.container.obj.ColumnConfig.ColumnType;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * ColumnConfigSnapshotTest class
+ */
+public class ColumnConfigSnapshotTest {
+
+    @Test
+    public void testSnapshot() throws IOException {
+        List<ColumnConfig> columnConfigList = new ArrayList<ColumnConfig>();
+        ColumnConfig numerical = new ColumnConfig();
+        numerical.setColumnNum(0);
+        numerical.setColumnName("amount");
+        numerical.setColumnType(ColumnType.N);
+        numerical.setFinalSelect(true);
+        numerical.setBinBoundary(Arrays.asList(Double.NEGATIVE_INFINITY, 1.5d, 10d));
+        numerical.setBinCountNeg(Arrays.asList(10, 20, 30));
+        numerical.setBinCountPos(Arrays.asList(1, 2, null));
+        numerical.setBinPosCaseRate(Arrays.asList(0.1d, 0.2d, 0.3d));
+        numerical.setMean(3.5d);
+        numerical.setMax(100d);
+        numerical.setKs(12.5d);
+        numerical.getColumnStats().setTotalCount(1000L);
+        numerical.getColumnStats().setPsi(0.01d);
+        numerical.getColumnBinning().setBinWeightedWoe(Arrays.asList(-0.5d, 0.1d, 0.7d));
+        columnConfigList.add(numerical);
+
+        ColumnConfig categorical = new ColumnConfig();
+        categorical.setColumnNum(1);
+        categorical.setColumnName("country");
+        categorical.setColumnType(ColumnType.C);
+        categorical.setColumnFlag(ColumnFlag.ForceSelect);
+        categorical.setBinCategory(Arrays.asList("US", "\u4e2d\u56fd", ""));
+        categorical.setBinAvgScore(Arrays.asList(300, 500, 700));
+        columnConfigList.add(categorical);
+
+        ColumnConfig target = new ColumnConfig();
+        target.setColumnNum(2);
+        target.setColumnName("tag");
+        target.setColumnFlag(ColumnFlag.Target);
+        target.setColumnStats(null);
+        columnConfigList.add(target);
+
+        byte[] bytes = ColumnConfigSnapshot.toBytes(columnConfigList, 100L, 200L);
+        List<ColumnConfig> restored = ColumnConfigSnapshot.fromBytes(bytes);
+        Assert.assertEquals(restored.size(), 3);
+
+        ColumnConfig config = restored.get(0);
+        Assert.assertEquals(config.getColumnNum(), Integer.valueOf(0));
+        Assert.assertEquals(config.getColumnName(), "amount");
+        Assert.assertEquals(config.getColumnType(), ColumnType.N);
+        Assert.assertNull(config.getColumnFlag());
+        Assert.assertTrue(config.isFinalSelect());
+        Assert.assertEquals(config.getBinBoundary(), numerical.getBinBoundary());
+        Assert.assertEquals(config.getBinCountPos(), Arrays.asList(1, 2, null));
+        Assert.assertEquals(config.getBinPosRate(), numerical.getBinPosRate());
+        Assert.assertNull(config.getBinCategory());
+        Assert.assertEquals(config.getMean(), Double.valueOf(3.5d));
+        Assert.assertEquals(config.getColumnStats().getTotalCount(), Long.valueOf(1000L));
+        Assert.assertEquals(config.getColumnStats().getPsi(), Double.valueOf(0.01d));
+        Assert.assertNull(config.getColumnStats().getMedian());
+        Assert.assertEquals(config.getColumnBinning().getBinWeightedWoe(), Arrays.asList(-0.5d, 0.1d, 0.7d));
+        Assert.assertEquals(config.getVersion(), numerical.getVersion());
+
+        config = restored.get(1);
+        Assert.assertEquals(config.getColumnFlag(), ColumnFlag.ForceSelect);
+        Assert.assertEquals(config.getBinCategory(), Arrays.asList("US", "\u4e2d\u56fd", ""));
+        Assert.assertEquals(config.getBinAvgScore(), Arrays.asList(300, 500, 700));
+
+        config = restored.get(2);
+        Assert.assertTrue(config.isTarget());
+        Assert.assertNull(config.getColumnStats());
+    }
+}
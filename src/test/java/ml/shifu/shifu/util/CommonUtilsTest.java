@@ -21,7 +21,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -40,6 +43,11 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ColumnConfig.ColumnFlag;
@@ -48,6 +56,9 @@ import ml.shifu.shifu.container.obj.EvalConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.ModelTrainConf.ALGORITHM;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.core.LR;
+import ml.shifu.shifu.exception.ShifuErrorCode;
+import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.udf.CalculateStatsUDF;
 
 /**
@@ -374,6 +385,60 @@ public class CommonUtilsTest {
         Assert.assertEquals("\\\\t", CommonUtils.escapePigString("\t"));
     }
 
+    @Test
+    public void testLoadWeightsModel() throws IOException {
+        File dir = new File("common-utils");
+        FileUtils.write(new File(dir, "model0.svm"), "[0.1,0.2,0.3]");
+        FileUtils.write(new File(dir, "model1.nn"), "[0.1,0.2,0.3]");
+        FileSystem fs = FileSystem.getLocal(new Configuration());
+
+        // distributed linear SVM model is saved as LR weights text
+        Assert.assertTrue(CommonUtils.loadModel(new Path(dir.getAbsolutePath(), "model0.svm"), fs) instanceof LR);
+        // weights text is only detected for LR and SVM models
+        try {
+            CommonUtils.loadModel(new Path(dir.getAbsolutePath(), "model1.nn"), fs);
+            Assert.fail("NN model should not be loaded as LR weights text");
+        } catch (ShifuException e) {
+            Assert.assertEquals(e.getError(), ShifuErrorCode.ERROR_FAIL_TO_LOAD_MODEL_FILE);
+        }
+    }
+
+    @Test
+    public void testWaitForAll() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final AtomicBoolean finished = new AtomicBoolean(false);
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws IOException {
+                    throw new IOException("failed task");
+                }
+            }));
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws InterruptedException {
+                    Thread.sleep(100L);
+                    finished.set(true);
+                    return 1;
+                }
+            }));
+            try {
+                CommonUtils.waitForAll(futures, Arrays.asList("task0", "task1"));
+                Assert.fail("IOException of failed task should be thrown");
+            } catch (IOException e) {
+                Assert.assertEquals(e.getMessage(), "failed task");
+            }
+            // failure is thrown after all tasks are finished
+            Assert.assertTrue(finished.get());
+
+            futures.remove(0);
+            Assert.assertEquals(CommonUtils.waitForAll(futures, Arrays.asList("task1")), Arrays.asList(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @AfterClass
     public void delete() throws IOException {
         FileUtils.deleteDirectory(new File("common-utils"));
@@ -0,0 +1,101 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * NumberParserTest class
+ */
+public class NumberParserTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static double parseDouble(String str, double defaultValue) {
+        byte[] bytes = str.getBytes(UTF8);
+        return NumberParser.parseDouble(bytes, 0, bytes.length, defaultValue);
+    }
+
+    private static float parseFloat(String str, float defaultValue) {
+        byte[] bytes = str.getBytes(UTF8);
+        return NumberParser.parseFloat(bytes, 0, bytes.length, defaultValue);
+    }
+
+    private static void assertSameAsJdk(String str) {
+        Assert.assertEquals(Double.doubleToRawLongBits(parseDouble(str, -1d)),
+                Double.doubleToRawLongBits(Double.parseDouble(str)), str);
+        Assert.assertEquals(Float.floatToRawIntBits(parseFloat(str, -1f)),
+                Float.floatToRawIntBits(Float.parseFloat(str)), str);
+    }
+
+    @Test
+    public void testValidNumbers() {
+        String[] values = new String[] { "0", "-0", "+0.0", "1", "-1", "0.5", ".5", "5.", "3.1415926", "  12.5 ",
+                "-0.000001", "1e10", "1E-10", "-2.5e+3", "123456789012345678", "1234567890123456789012",
+                "0.1234567890123456789", "9007199254740993", "1e23", "1e-320", "1e400", "-1e400", "4.9e-324",
+                "1.7976931348623157E308", "16777217", "0.3f", "2d", "NaN", "-Infinity", "Infinity", "0.00000000000" };
+        for(String value: values) {
+            assertSameAsJdk(value);
+        }
+    }
+
+    @Test
+    public void testRandomNumbers() {
+        Random random = new Random(7L);
+        for(int i = 0; i < 100000; i++) {
+            double value;
+            switch(i % 4) {
+                case 0:
+                    value = random.nextDouble();
+                    break;
+                case 1:
+                    value = random.nextGaussian() * 1000;
+                    break;
+                case 2:
+                    value = (random.nextInt(2000000) - 1000000) / 1000d;
+                    break;
+                default:
+                    value = Double.longBitsToDouble(random.nextLong());
+                    break;
+            }
+            assertSameAsJdk(Double.toString(value));
+            assertSameAsJdk(Float.toString((float) value));
+        }
+    }
+
+    @Test
+    public void testInvalidNumbers() {
+        String[] values = new String[] { "", "   ", "-", "+", ".", "e5", "1e", "1e+", "1.2.3", "abc", "1a", "--1",
+                "0x10", "NaNa", "Inf", "1 2", "1dd", "\u00e9" };
+        for(String value: values) {
+            Assert.assertEquals(Double.valueOf(parseDouble(value, -7d)), Double.valueOf(-7d), value);
+            Assert.assertEquals(Float.valueOf(parseFloat(value, -7f)), Float.valueOf(-7f), value);
+        }
+    }
+
+    @Test
+    public void testRange() {
+        byte[] bytes = "12|3.5|x".getBytes(UTF8);
+        Assert.assertEquals(Double.valueOf(NumberParser.parseDouble(bytes, 0, 2, 0d)), Double.valueOf(12d));
+        Assert.assertEquals(Double.valueOf(NumberParser.parseDouble(bytes, 3, 6, 0d)), Double.valueOf(3.5d));
+        Assert.assertEquals(Double.valueOf(NumberParser.parseDouble(bytes, 7, 8, 0d)), Double.valueOf(0d));
+        Assert.assertEquals(Double.valueOf(NumberParser.parseDouble(bytes, 2, 2, 1d)), Double.valueOf(1d));
+    }
+}
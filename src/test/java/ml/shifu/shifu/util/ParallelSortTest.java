@@ -0,0 +1,78 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * ParallelSortTest class
+ */
+public class ParallelSortTest {
+
+    private void assertSortedDescending(double[] keys, int[] indexes) {
+        boolean[] seen = new boolean[indexes.length];
+        for(int i = 0; i < indexes.length; i++) {
+            Assert.assertFalse(seen[indexes[i]]);
+            seen[indexes[i]] = true;
+            if(i > 0) {
+                int cmp = Double.compare(keys[indexes[i - 1]], keys[indexes[i]]);
+                Assert.assertTrue(cmp >= 0);
+                if(cmp == 0) {
+                    // stable
+                    Assert.assertTrue(indexes[i - 1] < indexes[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSmallArray() {
+        Assert.assertEquals(ParallelSort.sortIndexesDescending(new double[0], 0).length, 0);
+
+        double[] keys = new double[] { 0.3, 0.9, 0.3, Double.NaN, -1d, 0.9, 0.5 };
+        int[] indexes = ParallelSort.sortIndexesDescending(keys, keys.length);
+        Assert.assertEquals(indexes, new int[] { 3, 1, 5, 6, 0, 2, 4 });
+
+        // only the first size keys are sorted
+        Assert.assertEquals(ParallelSort.sortIndexesDescending(keys, 3), new int[] { 1, 0, 2 });
+    }
+
+    @Test
+    public void testLargeArray() {
+        Random random = new Random(7L);
+        double[] keys = new double[(1 << 18) + 123];
+        for(int i = 0; i < keys.length; i++) {
+            // many duplicated keys
+            keys[i] = random.nextInt(1000) / 1000d;
+        }
+        assertSortedDescending(keys, ParallelSort.sortIndexesDescending(keys, keys.length));
+    }
+
+    @Test
+    public void testPerformance() {
+        Random random = new Random(11L);
+        double[] keys = new double[2000000];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextDouble();
+        }
+
+        int[] indexes = ParallelSort.sortIndexesDescending(keys, keys.length);
+        assertSortedDescending(keys, indexes);
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright [2012-2014] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.util.Random;
+
+import org.apache.hadoop.io.Text;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * RecordTokenizerTest class
+ */
+public class RecordTokenizerTest {
+
+    private static String[] fields(RecordTokenizer tokenizer) {
+        String[] fields = new String[tokenizer.size()];
+        for(int i = 0; i < fields.length; i++) {
+            fields[i] = tokenizer.getString(i);
+        }
+        return fields;
+    }
+
+    @Test
+    public void testSplit() {
+        RecordTokenizer tokenizer = new RecordTokenizer("|");
+        Assert.assertEquals(fields(tokenizer.reset("a|b|c")), new String[] { "a", "b", "c" });
+        Assert.assertEquals(fields(tokenizer.reset("|a||b|")), new String[] { "", "a", "", "b", "" });
+        Assert.assertEquals(fields(tokenizer.reset("")), new String[] { "" });
+        Assert.assertEquals(fields(tokenizer.reset(" 1 | 2 ")), new String[] { " 1 ", " 2 " });
+        Assert.assertEquals(fields(tokenizer.reset("\u00e9t\u00e9|x")), new String[] { "\u00e9t\u00e9", "x" });
+
+        tokenizer = new RecordTokenizer("::");
+        Assert.assertEquals(fields(tokenizer.reset("a::b:c::::")), new String[] { "a", "b:c", "", "" });
+        Assert.assertEquals(fields(tokenizer.reset(":::a")), new String[] { "", ":a" });
+    }
+
+    @Test
+    public void testSameAsCommonUtilsSplit() {
+        Random random = new Random(3L);
+        RecordTokenizer tokenizer = new RecordTokenizer("|");
+        char[] chars = new char[] { 'a', '1', '|', ' ', '.' };
+        for(int n = 0; n < 1000; n++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(20) + 1;
+            for(int i = 0; i < length; i++) {
+                sb.append(chars[random.nextInt(chars.length)]);
+            }
+            String record = sb.toString();
+            Assert.assertEquals(fields(tokenizer.reset(record)), CommonUtils.split(record, "|"), record);
+        }
+    }
+
+    @Test
+    public void testParseText() {
+        RecordTokenizer tokenizer = new RecordTokenizer("|");
+        Text text = new Text("1.5| -2 |abc||0.25|NaN");
+        tokenizer.reset(text);
+        Assert.assertEquals(tokenizer.size(), 6);
+        Assert.assertEquals(Double.valueOf(tokenizer.getDouble(0, 0d)), Double.valueOf(1.5d));
+        Assert.assertEquals(Double.valueOf(tokenizer.getDouble(1, 0d)), Double.valueOf(-2d));
+        Assert.assertEquals(Double.valueOf(tokenizer.getDouble(2, 9d)), Double.valueOf(9d));
+        Assert.assertEquals(Double.valueOf(tokenizer.getDouble(3, 9d)), Double.valueOf(9d));
+        Assert.assertEquals(Float.valueOf(tokenizer.getFloat(4, 0f)), Float.valueOf(0.25f));
+        Assert.assertTrue(Float.isNaN(tokenizer.getFloat(5, 0f)));
+        Assert.assertTrue(tokenizer.isBlank(3));
+        Assert.assertFalse(tokenizer.isBlank(1));
+
+        // more fields than initial capacity
+        String[] values = new String[200];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = Integer.toString(i);
+        }
+        text.set(join(values));
+        tokenizer.reset(text);
+        Assert.assertEquals(tokenizer.size(), values.length);
+        Assert.assertEquals(Double.valueOf(tokenizer.getDouble(199, 0d)), Double.valueOf(199d));
+    }
+
+    @Test
+    public void testShortRecord() {
+        RecordTokenizer tokenizer = new RecordTokenizer("|");
+        tokenizer.reset("1|2|3|4");
+        Assert.assertEquals(tokenizer.getString(3), "4");
+
+        // fields of previous longer record should not be read
+        tokenizer.reset("5|6");
+        Assert.assertEquals(tokenizer.size(), 2);
+        try {
+            tokenizer.getDouble(3, 0d);
+            Assert.fail("Field out of short record should not be read.");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            tokenizer.getString(2);
+            Assert.fail("Field out of short record should not be read.");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPerformance() {
+        final int SIZE = 20000;
+        Random random = new Random(5L);
+        String[] records = new String[SIZE];
+        String[] values = new String[50];
+        for(int n = 0; n < SIZE; n++) {
+            for(int i = 0; i < values.length; i++) {
+                values[i] = Double.toString(Math.round(random.nextDouble() * 1000000) / 1000000d);
+            }
+            records[n] = join(values);
+        }
+        Text[] texts = new Text[SIZE];
+        for(int n = 0; n < SIZE; n++) {
+            texts[n] = new Text(records[n]);
+        }
+
+        // both ways get the same sum
+        double sumA = splitAndParse(records), sumB = tokenizeAndParse(texts);
+        Assert.assertEquals(Double.valueOf(sumB), Double.valueOf(sumA));
+    }
+
+    private static double splitAndParse(String[] records) {
+        double sum = 0d;
+        for(String record: records) {
+            for(String field: record.split("\\|")) {
+                try {
+                    sum += Double.parseDouble(field.trim());
+                } catch (NumberFormatException e) {
+                    // skip invalid value
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static double tokenizeAndParse(Text[] texts) {
+        RecordTokenizer tokenizer = new RecordTokenizer("|");
+        double sum = 0d;
+        for(Text text: texts) {
+            tokenizer.reset(text);
+            for(int i = 0; i < tokenizer.size(); i++) {
+                sum += tokenizer.getDouble(i, 0d);
+            }
+        }
+        return sum;
+    }
+
+    private static String join(String[] values) {
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < values.length; i++) {
+            if(i > 0) {
+                sb.append('|');
+            }
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+}